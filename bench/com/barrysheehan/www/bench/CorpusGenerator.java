@@ -0,0 +1,137 @@
+package com.barrysheehan.www.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates synthetic text from the keys of a thesaurus' word map, with a
+ * controlled proportion of words which are found in the thesaurus.
+ * <p>
+ * Words which hit the thesaurus are drawn from the single word keys of the
+ * word map. Words which miss are made by appending a character to a key, so
+ * they have a realistic length and distribution of letters but are not in the
+ * word map themselves. Words are separated by single spaces, and a generator
+ * created with the same seed always produces the same text.
+ * 
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see SimplifierBenchmark
+ * @since 1.8
+ */
+
+public class CorpusGenerator {
+
+	// Instance variables
+	private final List<String> hits = new ArrayList<String>(); // Words found in the word map
+	private final List<String> misses = new ArrayList<String>(); // Words not found in the word map
+	private final Random random;
+
+	// Constructors
+	/**
+	 * Creates a <code>CorpusGenerator</code> drawing words from the supplied word
+	 * map.
+	 * 
+	 * @param wordMap the word map of a thesaurus
+	 * @param seed    the seed of the random number generator
+	 */
+	public CorpusGenerator(Map<String, String> wordMap, long seed) {
+		for (String key : wordMap.keySet()) {
+			if (!key.isEmpty() && key.indexOf(' ') < 0 && key.equals(key.toLowerCase())) {
+				hits.add(key);
+				String miss = key + "q";
+				if (!wordMap.containsKey(miss)) {
+					misses.add(miss);
+				}
+			}
+		}
+		Collections.sort(hits); // Word map iteration order is not repeatable between backends
+		Collections.sort(misses);
+		random = new Random(seed);
+	}
+
+	/**
+	 * Returns a random word, found in the word map with the supplied probability.
+	 * 
+	 * @param hitRate the probability that the word is found in the word map
+	 * @return the word
+	 */
+	public String word(double hitRate) {
+		List<String> words = random.nextDouble() < hitRate ? hits : misses;
+		return words.get(random.nextInt(words.size()));
+	}
+
+	/**
+	 * Generates text of at least the supplied length.
+	 * 
+	 * @param length  the minimum number of characters
+	 * @param hitRate the proportion of words found in the word map
+	 * @return the generated text
+	 */
+	public String text(int length, double hitRate) {
+		StringBuilder sb = new StringBuilder(length + 32);
+		while (sb.length() < length) {
+			if (sb.length() > 0) {
+				sb.append(' ');
+			}
+			sb.append(word(hitRate));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Generates text of at least the supplied length written like prose: words
+	 * form sentences of 4 to 20 words which start with a capital letter and end
+	 * with a full stop, question mark or exclamation mark, and some words are
+	 * followed by a comma or quoted. Hits and misses are counted before any
+	 * punctuation or capitalisation is added.
+	 * 
+	 * @param length  the minimum number of characters
+	 * @param hitRate the proportion of words found in the word map
+	 * @return the generated text
+	 */
+	public String prose(int length, double hitRate) {
+		StringBuilder sb = new StringBuilder(length + 64);
+		int sentenceWords = 0; // Words left in the current sentence
+		while (sb.length() < length) {
+			if (sb.length() > 0) {
+				sb.append(' ');
+			}
+			String word = word(hitRate);
+			boolean first = sentenceWords == 0;
+			if (first) {
+				sentenceWords = 4 + random.nextInt(17);
+				word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+			}
+			if (random.nextInt(40) == 0) {
+				word = '"' + word + '"';
+			}
+			sb.append(word);
+
+			if (--sentenceWords == 0) {
+				sb.append(".?!".charAt(random.nextInt(3)));
+			} else if (!first && random.nextInt(8) == 0) {
+				sb.append(',');
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Generates a number of short texts, such as sentences.
+	 * 
+	 * @param count   the number of texts
+	 * @param length  the minimum number of characters in each text
+	 * @param hitRate the proportion of words found in the word map
+	 * @return the generated texts
+	 */
+	public String[] texts(int count, int length, double hitRate) {
+		String[] texts = new String[count];
+		for (int i = 0; i < count; i++) {
+			texts[i] = text(length, hitRate);
+		}
+		return texts;
+	}
+}
@@ -0,0 +1,102 @@
+package com.barrysheehan.www.bench;
+
+import java.util.Arrays;
+
+/**
+ * A minimal benchmark harness which times an operation over a number of warm up
+ * and measured iterations and prints a summary of the measured iterations.
+ * <p>
+ * Each iteration calls the operation <i>batch</i> times and is timed as a
+ * whole, so the cost of reading the clock is spread over short operations such
+ * as a single lookup. The values returned by the operation are added to a sink
+ * which is printed at the end of the run, which makes it less likely that the
+ * JIT compiler removes the work being measured.
+ * <p>
+ * Every benchmark runs in the same JVM, one after another, with no forking or
+ * protection against constant folding, so the numbers are rough comparisons
+ * between the backends and methods of one run rather than precise
+ * measurements. A benchmark may be affected by the code compiled for the ones
+ * run before it.
+ * 
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see SimplifierBenchmark
+ * @since 1.8
+ */
+
+public class Harness {
+
+	/**
+	 * An operation to be benchmarked.
+	 */
+	public interface Operation {
+		/**
+		 * Performs the operation once.
+		 * 
+		 * @return any value derived from the result, added to the sink
+		 */
+		long run() throws Exception;
+	}
+
+	// Instance variables
+	private final int warmups; // Number of iterations run before measuring
+	private final int iterations; // Number of iterations measured
+	private long sink; // Accumulates results so that benchmarked work is not optimised away
+
+	// Constructors
+	/**
+	 * Creates a <code>Harness</code> running the supplied numbers of warm up and
+	 * measured iterations.
+	 * 
+	 * @param warmups    number of iterations run before measuring
+	 * @param iterations number of iterations measured
+	 */
+	public Harness(int warmups, int iterations) {
+		this.warmups = warmups;
+		this.iterations = iterations;
+	}
+
+	/**
+	 * Benchmarks an operation and prints the median and best time per operation,
+	 * and the median number of operations per second.
+	 * 
+	 * @param name      the name printed beside the results
+	 * @param batch     the number of times the operation is run per iteration
+	 * @param operation the operation to be benchmarked
+	 * @return the median time per operation in nanoseconds
+	 * @throws Exception if the operation throws an exception
+	 */
+	public double measure(String name, int batch, Operation operation) throws Exception {
+		for (int i = 0; i < warmups; i++) {
+			runBatch(batch, operation);
+		}
+
+		double[] nanosPerOp = new double[iterations];
+		for (int i = 0; i < iterations; i++) {
+			nanosPerOp[i] = (double) runBatch(batch, operation) / batch;
+		}
+		Arrays.sort(nanosPerOp);
+
+		double median = nanosPerOp[iterations / 2];
+		System.out.printf("%-60s %14.1f ns/op (best %12.1f) %14.1f ops/s%n", name, median, nanosPerOp[0],
+				1e9 / median);
+		return median;
+	}
+
+	private long runBatch(int batch, Operation operation) throws Exception {
+		long start = System.nanoTime();
+		for (int i = 0; i < batch; i++) {
+			sink += operation.run();
+		}
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * Returns the accumulated results of every operation run.
+	 * 
+	 * @return the sink
+	 */
+	public long sink() {
+		return sink;
+	}
+}
@@ -0,0 +1,482 @@
+package com.barrysheehan.www.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.barrysheehan.www.AbstractThesaurus;
+import com.barrysheehan.www.FileReader;
+import com.barrysheehan.www.SimplificationCache;
+import com.barrysheehan.www.SimplifierMetrics;
+import com.barrysheehan.www.StandardRenderer;
+import com.barrysheehan.www.StandardTokenizer;
+import com.barrysheehan.www.TextSimplifier;
+import com.barrysheehan.www.ThesaurusCompiler;
+import com.barrysheehan.www.ThesaurusLoader;
+import com.barrysheehan.www.ThesaurusRegistry;
+import com.barrysheehan.www.Tokenizer;
+import com.barrysheehan.www.WordLookup;
+import com.barrysheehan.www.WordMapStorage;
+import com.barrysheehan.www.WordStatistics;
+
+/**
+ * Benchmarks the load, lookup and simplification paths of the Text Simplifier.
+ * <p>
+ * Run with the paths to a dictionary file and a word list file, which default
+ * to the files in the <i>config</i> directory:
+ * 
+ * <pre>
+ * java -cp out com.barrysheehan.www.bench.SimplifierBenchmark [dictionaryFile] [wordListFile]
+ * </pre>
+ * <p>
+ * Six groups of benchmarks are run:
+ * <ul>
+ * <li><b>load</b>: parsing the word list file, and building a thesaurus with
+ * each <code>ThesaurusLoader</code> from the first quarter, half and all of
+ * the word list file</li>
+ * <li><b>lookup</b>: the time taken to look up a single word with each
+ * <code>WordMapStorage</code> backend, and with a <code>LAZY</code> thesaurus
+ * before and after its words have been read</li>
+ * <li><b>simplify</b>: short sentences, batches of sentences and
+ * multi-megabyte texts simplified, or numbered with word IDs, per second by
+ * each simplification method, at several hit rates</li>
+ * <li><b>normalise</b>: prose with capitalisation and punctuation simplified
+ * with and without normalising words, with the proportion of words swapped by
+ * each</li>
+ * <li><b>tokenize</b>: a multi-megabyte ASCII text divided into words by
+ * <code>String.split(" ")</code> and by each <code>StandardTokenizer</code>,
+ * and simplified with each tokenizer</li>
+ * <li><b>thesauri</b>: the memory used by a thesaurus loaded as an overlay from
+ * a word list differing from the word list file in one line in twenty, and a
+ * multi-megabyte text simplified with it and with the thesaurus it
+ * overlays</li>
+ * </ul>
+ * Synthetic text is generated by <code>CorpusGenerator</code> with a fixed
+ * seed, so every run measures the same text. Each benchmark is timed by
+ * <code>Harness</code>, whose results are rough comparisons within a run.
+ * 
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see Harness
+ * @see CorpusGenerator
+ * @since 1.8
+ */
+
+public class SimplifierBenchmark {
+
+	private static final long SEED = 42;
+	private static final double[] HIT_RATES = { 0.1, 0.5, 0.9 };
+
+	public static void main(String[] args) throws Exception {
+		String dictionaryFile = args.length > 0 ? args[0] : "config/dictionaryFile.txt";
+		String wordListFile = args.length > 1 ? args[1] : "config/wordListFile.txt";
+		Harness harness = new Harness(5, 10);
+
+		load(harness, dictionaryFile, wordListFile);
+		lookup(harness, dictionaryFile, wordListFile);
+		simplify(harness, dictionaryFile, wordListFile);
+		normalise(harness, dictionaryFile, wordListFile);
+		tokenize(harness, dictionaryFile, wordListFile);
+		thesauri(harness, dictionaryFile, wordListFile);
+
+		System.out.println("sink " + harness.sink());
+	}
+
+	/**
+	 * Benchmarks parsing the word list file and building a thesaurus from word
+	 * lists of increasing size.
+	 */
+	private static void load(Harness harness, final String dictionaryFile, String wordListFile) throws Exception {
+		System.out.println("== load");
+		final String wordList = wordListFile;
+		harness.measure("FileReader.parse(wordListFile)", 1, new Harness.Operation() {
+			@Override
+			public long run() throws Exception {
+				return FileReader.parse(wordList).length();
+			}
+		});
+
+		List<String> lines = Files.readAllLines(new File(wordListFile).toPath(), StandardCharsets.UTF_8);
+		for (int quarters : new int[] { 1, 2, 4 }) {
+			File part = File.createTempFile("wordList", ".txt");
+			part.deleteOnExit();
+			new File(ThesaurusCompiler.compiledFileFor(part.getPath())).deleteOnExit();
+			Files.write(part.toPath(), lines.subList(0, lines.size() * quarters / 4), StandardCharsets.UTF_8);
+
+			final String partFile = part.getPath();
+			for (final ThesaurusLoader loader : ThesaurusLoader.values()) {
+				harness.measure("load " + loader + " " + (lines.size() * quarters / 4) + " lines", 1,
+						new Harness.Operation() {
+							@Override
+							public long run() {
+								return loader.load(dictionaryFile, partFile, WordMapStorage.OPEN_ADDRESSING)
+										.getDictionary().size(); // Does not read a LAZY word map
+							}
+						});
+			}
+		}
+	}
+
+	/**
+	 * Benchmarks looking up single words with each storage backend, and with a
+	 * lazily loaded thesaurus.
+	 */
+	private static void lookup(Harness harness, final String dictionaryFile, final String wordListFile)
+			throws Exception {
+		System.out.println("== lookup");
+		for (WordMapStorage storage : WordMapStorage.values()) {
+			final TextSimplifier ts = simplifier(ThesaurusLoader.MAPPED.load(dictionaryFile, wordListFile, storage));
+			final String[] words = new CorpusGenerator(ts.getThesaurus().getWordMap(), SEED).texts(4096, 1, 0.5);
+			final Map<String, String> wordMap = ts.getThesaurus().getWordMap();
+
+			harness.measure("testWord + swapWord " + storage, words.length, new Harness.Operation() {
+				private int i = 0;
+
+				@Override
+				public long run() {
+					String word = words[i++ & (words.length - 1)];
+					return ts.testWord(word) ? ts.swapWord(word).length() : 0;
+				}
+			});
+
+			if (wordMap instanceof WordLookup) {
+				final WordLookup lookup = (WordLookup) wordMap;
+				final StringBuilder buffer = new StringBuilder();
+				harness.measure("WordLookup.lookup(StringBuilder) " + storage, words.length, new Harness.Operation() {
+					private int i = 0;
+
+					@Override
+					public long run() {
+						buffer.setLength(0);
+						buffer.append(words[i++ & (words.length - 1)]);
+						String swapped = lookup.lookup(buffer);
+						return swapped == null ? 0 : swapped.length();
+					}
+				});
+			}
+		}
+
+		final String[] words = new CorpusGenerator(
+				ThesaurusLoader.MAPPED.load(dictionaryFile, wordListFile, WordMapStorage.HASH).getWordMap(), SEED)
+						.texts(4096, 1, 0.5);
+		final StringBuilder buffer = new StringBuilder();
+		harness.measure("load LAZY + first lookup of each word", 1, new Harness.Operation() {
+			@Override
+			public long run() {
+				WordLookup lookup = (WordLookup) ThesaurusLoader.LAZY.load(dictionaryFile, wordListFile, null)
+						.getWordMap();
+				long found = 0;
+				for (String word : words) {
+					buffer.setLength(0);
+					buffer.append(word);
+					found += lookup.lookup(buffer) == null ? 0 : 1;
+				}
+				return found;
+			}
+		});
+
+		final WordLookup lazy = (WordLookup) ThesaurusLoader.LAZY.load(dictionaryFile, wordListFile, null)
+				.getWordMap();
+		harness.measure("WordLookup.lookup(StringBuilder) LAZY", words.length, new Harness.Operation() {
+			private int i = 0;
+
+			@Override
+			public long run() {
+				buffer.setLength(0);
+				buffer.append(words[i++ & (words.length - 1)]);
+				String swapped = lazy.lookup(buffer);
+				return swapped == null ? 0 : swapped.length();
+			}
+		});
+	}
+
+	/**
+	 * Benchmarks simplifying short sentences and multi-megabyte texts at several
+	 * hit rates.
+	 */
+	private static void simplify(Harness harness, String dictionaryFile, String wordListFile) throws Exception {
+		System.out.println("== simplify");
+		final TextSimplifier ts = simplifier(
+				ThesaurusLoader.MAPPED.load(dictionaryFile, wordListFile, WordMapStorage.OPEN_ADDRESSING));
+
+		for (double hitRate : HIT_RATES) {
+			CorpusGenerator generator = new CorpusGenerator(ts.getThesaurus().getWordMap(), SEED);
+			final String[] sentences = generator.texts(1024, 80, hitRate);
+			final String document = generator.text(4 << 20, hitRate);
+
+			harness.measure("swapText sentence, hit rate " + hitRate, sentences.length, new Harness.Operation() {
+				private int i = 0;
+
+				@Override
+				public long run() {
+					return ts.swapText(sentences[i++ & (sentences.length - 1)]).length();
+				}
+			});
+			final List<String> batch = Arrays.asList(sentences);
+			harness.measure("swapTexts batch of " + sentences.length + " sentences, hit rate " + hitRate, 1,
+					new Harness.Operation() {
+						@Override
+						public long run() {
+							return ts.swapTexts(batch).size();
+						}
+					});
+			final List<String> repeated = new ArrayList<String>(); // Each sentence appears four times
+			for (int i = 0; i < sentences.length; i++) {
+				repeated.add(sentences[i / 4]);
+			}
+			harness.measure("swapTexts batch, each sentence 4 times, hit rate " + hitRate, 1,
+					new Harness.Operation() {
+						@Override
+						public long run() {
+							return ts.swapTexts(repeated, ts.getRenderer(), false).size();
+						}
+					});
+			harness.measure("swapTexts batch deduped, each sentence 4 times, hit rate " + hitRate,
+					1, new Harness.Operation() {
+						@Override
+						public long run() {
+							return ts.swapTexts(repeated, ts.getRenderer(), true).size();
+						}
+					});
+			ts.setCache(new SimplificationCache(1 << 22)); // Holds every sentence
+			harness.measure("swapText sentence cached, hit rate " + hitRate, sentences.length,
+					new Harness.Operation() {
+						private int i = 0;
+
+						@Override
+						public long run() {
+							return ts.swapText(sentences[i++ & (sentences.length - 1)]).length();
+						}
+					});
+			System.out.println("  cache: " + ts.getCache());
+			ts.setCache(null);
+			harness.measure("swapText 4MB document, hit rate " + hitRate, 1, new Harness.Operation() {
+				@Override
+				public long run() {
+					return ts.swapText(document).length();
+				}
+			});
+			for (final int sampleEvery : new int[] { WordStatistics.DEFAULT_SAMPLE_EVERY, 1 }) {
+				ts.setStatistics(new WordStatistics(WordStatistics.DEFAULT_SKETCH_WIDTH,
+						WordStatistics.DEFAULT_TOP_WORDS, sampleEvery));
+				harness.measure("swapText 4MB document, statistics of 1 in " + sampleEvery + " words, hit rate "
+						+ hitRate, 1, new Harness.Operation() {
+							@Override
+							public long run() {
+								return ts.swapText(document).length();
+							}
+						});
+			}
+			ts.setStatistics(null);
+			for (final StandardRenderer renderer : StandardRenderer.values()) { // Output bytes differ by renderer
+				harness.measure("swapText 4MB document " + renderer + ", hit rate " + hitRate, 1,
+						new Harness.Operation() {
+							private final StringBuilder sb = new StringBuilder();
+
+							@Override
+							public long run() {
+								sb.setLength(0);
+								ts.swapText(document, sb, renderer);
+								return sb.length();
+							}
+						});
+			}
+			harness.measure("wordIds 4MB document, hit rate " + hitRate, 1, new Harness.Operation() {
+				@Override
+				public long run() {
+					return ts.wordIds(document).length;
+				}
+			});
+			final int[] counts = new int[ts.getThesaurus().getDictionaryIndex().size()];
+			harness.measure("countWordIds 4MB document, hit rate " + hitRate, 1, new Harness.Operation() {
+				@Override
+				public long run() {
+					return ts.countWordIds(document, counts);
+				}
+			});
+			harness.measure("swapTextParallel 4MB document, hit rate " + hitRate, 1, new Harness.Operation() {
+				@Override
+				public long run() {
+					return ts.swapTextParallel(document).length();
+				}
+			});
+			harness.measure("simplify(Reader, Writer) 4MB document, hit rate " + hitRate, 1,
+					new Harness.Operation() {
+						@Override
+						public long run() throws IOException {
+							CountingWriter out = new CountingWriter();
+							ts.simplify(new StringReader(document), out);
+							return out.count;
+						}
+					});
+		}
+	}
+
+	/**
+	 * Benchmarks simplifying prose with and without normalising words, and reports
+	 * the proportion of words swapped by each.
+	 */
+	private static void normalise(Harness harness, String dictionaryFile, String wordListFile) throws Exception {
+		System.out.println("== normalise");
+		final TextSimplifier ts = simplifier(
+				ThesaurusLoader.MAPPED.load(dictionaryFile, wordListFile, WordMapStorage.OPEN_ADDRESSING));
+		ts.setRenderer(StandardRenderer.PLAIN);
+
+		for (double hitRate : HIT_RATES) {
+			final String document = new CorpusGenerator(ts.getThesaurus().getWordMap(), SEED).prose(4 << 20,
+					hitRate);
+			for (boolean normalising : new boolean[] { false, true }) {
+				ts.setNormalising(normalising);
+				SimplifierMetrics metrics = new SimplifierMetrics();
+				ts.setMetrics(metrics);
+				harness.measure("swapText 4MB prose" + (normalising ? " normalising" : "") + ", hit rate " + hitRate,
+						1, new Harness.Operation() {
+							@Override
+							public long run() {
+								return ts.swapText(document).length();
+							}
+						});
+				ts.setMetrics(null);
+				System.out.printf("  words swapped: %.1f%%%n", metrics.getSwapRate() * 100);
+			}
+		}
+	}
+
+	/**
+	 * Benchmarks dividing ASCII text into words with <code>String.split()</code>
+	 * and with each tokenizer, and simplifying it with each tokenizer.
+	 */
+	private static void tokenize(Harness harness, String dictionaryFile, String wordListFile) throws Exception {
+		System.out.println("== tokenize");
+		final TextSimplifier ts = simplifier(
+				ThesaurusLoader.MAPPED.load(dictionaryFile, wordListFile, WordMapStorage.OPEN_ADDRESSING));
+		ts.setRenderer(StandardRenderer.PLAIN);
+		final String document = new CorpusGenerator(ts.getThesaurus().getWordMap(), SEED).text(4 << 20, 0.5);
+
+		harness.measure("String.split(\" \") 4MB document", 1, new Harness.Operation() {
+			@Override
+			public long run() {
+				return document.split(" ").length;
+			}
+		});
+		for (final StandardTokenizer tokenizer : StandardTokenizer.values()) {
+			harness.measure("Tokenizer " + tokenizer + " 4MB document", 1, new Harness.Operation() {
+				@Override
+				public long run() {
+					return countWords(tokenizer, document);
+				}
+			});
+		}
+		for (final StandardTokenizer tokenizer : StandardTokenizer.values()) {
+			ts.setTokenizer(tokenizer);
+			harness.measure("swapText 4MB document, tokenizer " + tokenizer, 1, new Harness.Operation() {
+				@Override
+				public long run() {
+					return ts.swapText(document).length();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Reports the memory used by an overlay thesaurus beyond the thesaurus it
+	 * overlays, and benchmarks simplifying with each of them by name.
+	 */
+	private static void thesauri(Harness harness, String dictionaryFile, String wordListFile) throws Exception {
+		System.out.println("== thesauri");
+		List<String> lines = Files.readAllLines(new File(wordListFile).toPath(), StandardCharsets.UTF_8);
+		List<String> changed = new ArrayList<String>(lines.size());
+		for (int i = 0; i < lines.size(); i++) {
+			if (i % 20 == 0) { // Every twentieth line has its synonyms reversed, so swaps to a different word
+				List<String> words = Arrays.asList(lines.get(i).split(","));
+				Collections.reverse(words);
+				changed.add(String.join(",", words));
+			} else {
+				changed.add(lines.get(i));
+			}
+		}
+		File overlayFile = File.createTempFile("wordList", ".txt");
+		overlayFile.deleteOnExit();
+		Files.write(overlayFile.toPath(), changed, StandardCharsets.UTF_8);
+
+		final TextSimplifier ts = simplifier(
+				ThesaurusLoader.MAPPED.load(dictionaryFile, wordListFile, WordMapStorage.OPEN_ADDRESSING));
+		ts.setRenderer(StandardRenderer.PLAIN);
+		ThesaurusRegistry registry = ts.getRegistry();
+		registry.register("base", ts.getThesaurus());
+		registry.loadOverlay("overlay", "base", dictionaryFile, overlayFile.getPath(), ThesaurusLoader.MAPPED,
+				WordMapStorage.OPEN_ADDRESSING);
+		for (String name : registry.getNames()) {
+			System.out.printf("  %s: %d entries, %d bytes unique%n", name,
+					registry.get(name).getWordMap().size(), registry.uniqueBytes(name));
+		}
+
+		final String document = new CorpusGenerator(ts.getThesaurus().getWordMap(), SEED).text(4 << 20, 0.5);
+		for (final String name : registry.getNames()) {
+			harness.measure("swapText 4MB document, thesaurus " + name, 1, new Harness.Operation() {
+				@Override
+				public long run() {
+					return ts.swapText(document, name).length();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Counts the words of a text by moving over each word and separator in turn,
+	 * as a <code>TextSimplifier</code> does.
+	 */
+	private static long countWords(Tokenizer tokenizer, CharSequence text) {
+		int end = tokenizer.wordsEnd(text, text.length());
+		int wordStart = tokenizer.preservesSeparators() ? tokenizer.separatorEnd(text, 0, end) : 0;
+		long words = 0;
+		while (wordStart < end) {
+			int wordEnd = tokenizer.wordEnd(text, wordStart, end);
+			words++;
+			wordStart = tokenizer.separatorEnd(text, wordEnd, end);
+		}
+		return words;
+	}
+
+	/**
+	 * Creates a <code>TextSimplifier</code> using the supplied thesaurus.
+	 */
+	private static TextSimplifier simplifier(AbstractThesaurus thesaurus) {
+		TextSimplifier ts = new TextSimplifier();
+		ts.setThesaurus(thesaurus);
+		return ts;
+	}
+
+	/**
+	 * A Writer which discards what is written to it, counting the characters.
+	 */
+	private static class CountingWriter extends Writer {
+		private long count;
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			count += len;
+		}
+
+		@Override
+		public void write(String str, int off, int len) {
+			count += len;
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -1,9 +1,10 @@
 package com.barrysheehan.www;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
-import java.util.TreeSet;
 
 /**
  * Implements WordMap to create a <b>thesaurus</b> in which words in the
@@ -15,6 +16,10 @@ import java.util.TreeSet;
  * to wordMap is first checked to see whether it contains a word that exists in
  * the dictionary. If so, the words are added to the wordMap. If not, the words
  * are not added to the wordMap.
+ * <p>
+ * Once the wordMap has been fully populated it is copied into the
+ * <code>WordMapStorage</code> backend supplied at construction, which is used
+ * for all subsequent lookups.
  * 
  * @author Barry
  * @version 0.1
@@ -25,12 +30,19 @@ import java.util.TreeSet;
 
 public abstract class AbstractThesaurus implements WordMap {
 
+	// Number of word list lines checked against the dictionary by a single task
+	// while building the wordMap in parallel
+	public static final int LINES_PER_TASK = 4096;
+
 	// Instance variables
 	private Map<String, String> wordMap; // Each key is a word, its value is a related word from dictionary, forming a
 											// thesaurus-like object
 	private Set<String> dictionary; // Set of words tested against when adding words to above Map
 	private String dictionaryString; // Stores words to be added to dictionary as a String
 	private String wordListString; // Stores words to be added to wordMap as a String
+	private WordMapStorage storage; // Storage backend used by wordMap once it has been populated
+	private volatile PhraseMatcher phraseMatcher; // Matches multi-word keys of wordMap, created when first needed
+	private volatile DictionaryIndex dictionaryIndex; // IDs of the words of dictionary, created when first needed
 
 	// Getters and Setters
 	public Map<String, String> getWordMap() {
@@ -39,16 +51,67 @@ public abstract class AbstractThesaurus implements WordMap {
 
 	public void setWordMap(Map<String, String> wordMap) {
 		this.wordMap = wordMap;
+		this.phraseMatcher = null; // Phrases must be found again in the new wordMap
+	}
+
+	/**
+	 * Returns a <code>PhraseMatcher</code> for the multi-word keys of
+	 * <i>wordMap</i>, creating it the first time it is requested.
+	 * 
+	 * @return the PhraseMatcher for wordMap
+	 */
+	public PhraseMatcher getPhraseMatcher() {
+		PhraseMatcher matcher = phraseMatcher;
+		if (matcher == null) {
+			synchronized (this) {
+				if (phraseMatcher == null) {
+					phraseMatcher = createPhraseMatcher();
+				}
+				matcher = phraseMatcher;
+			}
+		}
+		return matcher;
+	}
+
+	/**
+	 * Creates a <code>PhraseMatcher</code> for the multi-word keys of
+	 * <i>wordMap</i>. Overridden by thesauri which know their phrases without
+	 * reading every key.
+	 * 
+	 * @return a new PhraseMatcher for wordMap
+	 */
+	protected PhraseMatcher createPhraseMatcher() {
+		return new PhraseMatcher(wordMap);
 	}
 
 	public void setDictionary(Set<String> dictionary) {
 		this.dictionary = dictionary;
+		this.dictionaryIndex = null; // Words must be numbered again from the new dictionary
 	}
 
 	public Set<String> getDictionary() {
 		return this.dictionary;
 	}
 
+	/**
+	 * Returns a <code>DictionaryIndex</code> numbering the words of
+	 * <i>dictionary</i>, creating it the first time it is requested.
+	 * 
+	 * @return the DictionaryIndex for dictionary
+	 */
+	public DictionaryIndex getDictionaryIndex() {
+		DictionaryIndex index = dictionaryIndex;
+		if (index == null) {
+			synchronized (this) {
+				if (dictionaryIndex == null) {
+					dictionaryIndex = new DictionaryIndex(dictionary);
+				}
+				index = dictionaryIndex;
+			}
+		}
+		return index;
+	}
+
 	public String getDictionaryString() {
 		return this.dictionaryString;
 	}
@@ -65,6 +128,10 @@ public abstract class AbstractThesaurus implements WordMap {
 		this.wordListString = wordListSource;
 	}
 
+	public WordMapStorage getStorage() {
+		return this.storage;
+	}
+
 	// Constructors
 	/**
 	 * Creates an <code>AbstractThesaurus</code> using the two Strings passed to it.
@@ -84,12 +151,69 @@ public abstract class AbstractThesaurus implements WordMap {
 	 * @param wordListSource   text to be used to populate the wordMap Map
 	 */
 	public AbstractThesaurus(String dictionarySource, String wordListSource) {
+		this(dictionarySource, wordListSource, WordMapStorage.OPEN_ADDRESSING);
+	}
+
+	/**
+	 * Creates an <code>AbstractThesaurus</code> using the two Strings passed to it,
+	 * storing the finished <i>wordMap</i> in the supplied
+	 * <code>WordMapStorage</code> backend. <i>dictionaryString</i> and
+	 * <i>wordListString</i> are released once the wordMap has been populated, so
+	 * that only the storage backend holds the thesaurus afterwards, which keeps a
+	 * thesaurus stored <code>OFF_HEAP</code> off the heap whichever loader read it.
+	 * 
+	 * @param dictionarySource text to be used to populate the dictionary Set and
+	 *                         initilise the wordMap Map
+	 * @param wordListSource   text to be used to populate the wordMap Map
+	 * @param storage          the storage backend used for lookups once the
+	 *                         wordMap has been populated
+	 */
+	public AbstractThesaurus(String dictionarySource, String wordListSource, WordMapStorage storage) {
+		this.storage = storage;
 		initialiseDictionaryString(dictionarySource);
 		initialiseWordListString(wordListSource);
 
 		setDictionary(createDictionary());
 		setWordMap(initialiseWordMap());
 		addWordMapEntries();
+		dictionaryString = null; // Release the text of the files once the wordMap has been populated
+		wordListString = null;
+		setWordMap(storage.build(getWordMap())); // Copy populated wordMap into its storage backend
+	}
+
+	/**
+	 * Creates an <code>AbstractThesaurus</code> from a <i>wordMap</i> and
+	 * <i>dictionary</i> which have already been built, for example by loading a
+	 * compiled thesaurus. No <i>storage</i> backend is used, as the wordMap is
+	 * used as supplied.
+	 * 
+	 * @param wordMap    a fully populated word map
+	 * @param dictionary the dictionary whose words are the values of wordMap
+	 */
+	protected AbstractThesaurus(Map<String, String> wordMap, Set<String> dictionary) {
+		setWordMap(wordMap);
+		setDictionary(dictionary);
+	}
+
+	/**
+	 * Creates an <code>AbstractThesaurus</code> from a <i>wordMap</i> and
+	 * <i>dictionary</i> which have already been built, with a
+	 * <code>PhraseMatcher</code> and <code>DictionaryIndex</code> which have also
+	 * been built, or shared with another thesaurus, so that neither is created
+	 * when first requested.
+	 * 
+	 * @param wordMap         a fully populated word map
+	 * @param dictionary      the dictionary whose words are the values of wordMap
+	 * @param phraseMatcher   the PhraseMatcher for wordMap, or <code>null</code> to
+	 *                        create it when first needed
+	 * @param dictionaryIndex the DictionaryIndex for dictionary, or
+	 *                        <code>null</code> to create it when first needed
+	 */
+	protected AbstractThesaurus(Map<String, String> wordMap, Set<String> dictionary, PhraseMatcher phraseMatcher,
+			DictionaryIndex dictionaryIndex) {
+		this(wordMap, dictionary);
+		this.phraseMatcher = phraseMatcher;
+		this.dictionaryIndex = dictionaryIndex;
 	}
 
 	/**
@@ -101,7 +225,7 @@ public abstract class AbstractThesaurus implements WordMap {
 	 */
 	@Override
 	public Set<String> createDictionary() {
-		Set<String> tempDictionary = new TreeSet<String>(); // dictionary as TreeSet
+		Set<String> tempDictionary = new HashSet<String>(); // dictionary as HashSet
 		String[] words = dictionaryString.split(System.lineSeparator()); // Split words by System.lineSeparator()
 
 		addDictionaryEntries(tempDictionary, words);
@@ -120,28 +244,30 @@ public abstract class AbstractThesaurus implements WordMap {
 	public Set<String> addDictionaryEntries(Set<String> dictionary, String[] words) {
 		for (String word : words) {
 			word = word.toLowerCase(); // Additions to dictionary lower case
-			dictionary.add(word); // O(log(n))
+			dictionary.add(word); // O(1)
 		}
 		return dictionary;
 	}
 
 	/**
-	 * Creates a Map and adds each word from <i>dictionaryString</i> to it, mapping
+	 * Creates a Map and adds each word from the <i>dictionary</i> to it, mapping
 	 * the word to itself.
 	 * <p>
 	 * Each word in dictionaryString is mapped to itself at initialisation as this
 	 * word is always considered to refer to itself.
+	 * <p>
+	 * The Map returned is only used while the thesaurus is being populated. It is
+	 * replaced by a copy in the chosen <code>WordMapStorage</code> backend once
+	 * every entry has been added.
 	 * 
 	 * @return tempWordMap a populated Map
 	 */
 	@Override
 	public Map<String, String> initialiseWordMap() {
-		Map<String, String> tempWordMap = new TreeMap<String, String>(); // wordMap as TreeMap
-		String[] lines = dictionaryString.split(System.lineSeparator()); // Split words by System.lineSeparator()
+		Map<String, String> tempWordMap = new HashMap<String, String>(); // wordMap as HashMap while populating
 
-		for (String line : lines) {
-			line = line.toLowerCase(); // Additions to dictionary are lower case
-			tempWordMap.put(line, line); // O(log(n))
+		for (String word : dictionary) { // Dictionary already holds each line of dictionaryString in lower case
+			tempWordMap.put(word, word); // O(1), key and value share the dictionary's String
 		}
 		return tempWordMap;
 	}
@@ -156,27 +282,64 @@ public abstract class AbstractThesaurus implements WordMap {
 	 * updated to contain that word. All words on the same line of the text are
 	 * added as keys to the wordMap, and the dictionaryWord is added as the value of
 	 * each key.
+	 * <p>
+	 * Lines are independent of each other, so the lines are split into ranges of
+	 * <i>LINES_PER_TASK</i> lines which are checked against the dictionary on the
+	 * common <code>ForkJoinPool</code>. The groups found are put into the wordMap
+	 * in line order, so a word found on several lines keeps the value from the
+	 * last of them.
 	 */
 	@Override
 	public void addWordMapEntries() {
 		String[] lines = wordListString.split(System.lineSeparator());
+		new LinesTask(lines, 0, lines.length).putInOrder(wordMap, LINES_PER_TASK);
+	}
 
-		for (String line : lines) {
-			String[] words = line.split(","); // Split words at comma
-			String dictionaryWord = null;
+	/**
+	 * Finds the groups of words on a range of lines of the word list String whose
+	 * dictionaryWord is in the <i>dictionary</i>.
+	 */
+	private class LinesTask extends WordListTask {
 
-			for (String word : words) {
-				word = word.toLowerCase();
+		private static final long serialVersionUID = 1L;
 
-				if (dictionary.contains(word)) { // If the word from input text is found in the dictionary
-					dictionaryWord = word; // Set dictionary word to the word in question
-					break;
-				}
-			}
+		private final String[] lines; // Every line of the word list
+
+		LinesTask(String[] lines, int start, int end) {
+			super(start, end);
+			this.lines = lines;
+		}
+
+		@Override
+		protected int lineStart(int index) {
+			return index; // Every index is the start of a line
+		}
+
+		@Override
+		protected WordListTask subTask(int start, int end) {
+			return new LinesTask(lines, start, end);
+		}
+
+		@Override
+		protected void addGroups(List<String[]> groups) {
+			for (int i = start; i < end; i++) {
+				String[] words = lines[i].split(","); // Split words at comma
+				String dictionaryWord = null;
 
-			if (dictionaryWord != null) { // If a String has been stored in dictionaryWord
 				for (String word : words) {
-					wordMap.put(word, dictionaryWord); //O(log(n)) // Add word from input as new key, dictionary word as its value
+					word = word.toLowerCase();
+
+					if (dictionary.contains(word)) { // If the word from input text is found in the dictionary
+						dictionaryWord = word; // Set dictionary word to the word in question
+						break;
+					}
+				}
+
+				if (dictionaryWord != null) { // If a String has been stored in dictionaryWord
+					String[] group = new String[words.length + 1];
+					group[0] = dictionaryWord;
+					System.arraycopy(words, 0, group, 1, words.length);
+					groups.add(group);
 				}
 			}
 		}
@@ -0,0 +1,434 @@
+package com.barrysheehan.www;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Simplifies many files without user interaction, using a
+ * <code>TextSimplifier</code> shared between several threads.
+ * <p>
+ * Files are passed through a pipeline of three stages connected by bounded
+ * queues: a reader thread reads each file into memory, a pool of worker threads
+ * simplifies the text of each file using <code>swapText()</code>, and a writer
+ * thread writes the results to the output directory. Each word is written with
+ * the <code>PLAIN</code> renderer unless another is set. The queues hold at most
+ * <i>queueCapacity</i> files each, and a file is only read once the files read
+ * but not yet written hold fewer than <i>maxBytesHeld</i> bytes between them,
+ * so only a bounded amount of text is held in memory at once however many
+ * files are simplified and however large they are. A file larger than
+ * maxBytesHeld is read once no other file is held. Files are read and written as
+ * UTF-8, and each output file has the same path relative to the output
+ * directory as its input file has relative to the input directory.
+ * <p>
+ * A file which can not be read or written is reported to the user and skipped.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see TextSimplifier
+ * @see Runner
+ * @since 1.8
+ *
+ */
+
+public class BatchSimplifier {
+
+	// Number of files each queue holds per worker thread by default
+	public static final int QUEUE_FILES_PER_WORKER = 4;
+
+	// Number of bytes of files read but not yet written held at once by default
+	public static final long MAX_BYTES_HELD = 64L << 20;
+
+	// Marks the end of the files passed along a queue
+	private static final Document END = new Document(null, null, null, 0);
+
+	// Instance variables
+	private final TextSimplifier ts; // TextSimplifier shared by every worker thread
+	private final int workers; // Number of worker threads simplifying text
+	private final int queueCapacity; // Number of files each queue can hold
+	private final long maxBytesHeld; // Number of bytes of files read but not yet written held at once
+	private long bytesHeld; // Bytes of files read but not yet written, guarded by this
+	private volatile Renderer renderer = StandardRenderer.PLAIN; // Writes each word of the simplified files
+
+	private volatile int filesWritten; // Number of files simplified and written by the last run
+	private volatile int filesFailed; // Number of files skipped by the last run
+	private volatile long bytesRead; // Number of bytes read by the last run
+	private volatile long bytesWritten; // Number of bytes written by the last run
+	private volatile long elapsedNanos; // Time taken by the last run
+
+	/**
+	 * The text of one file passed between the stages of the pipeline.
+	 */
+	private static class Document {
+		final Path source; // Path the text was read from
+		final Path target; // Path the simplified text is written to
+		final String text; // Text read from the input file, or the simplified text
+		final long bytesHeld; // Bytes counted against maxBytesHeld until the file is written or skipped
+
+		Document(Path source, Path target, String text, long bytesHeld) {
+			this.source = source;
+			this.target = target;
+			this.text = text;
+			this.bytesHeld = bytesHeld;
+		}
+	}
+
+	// Getters and Setters
+	public Renderer getRenderer() {
+		return this.renderer;
+	}
+
+	public void setRenderer(Renderer renderer) {
+		this.renderer = renderer;
+	}
+
+	public int getFilesWritten() {
+		return this.filesWritten;
+	}
+
+	public int getFilesFailed() {
+		return this.filesFailed;
+	}
+
+	public long getBytesRead() {
+		return this.bytesRead;
+	}
+
+	public long getBytesWritten() {
+		return this.bytesWritten;
+	}
+
+	public long getElapsedNanos() {
+		return this.elapsedNanos;
+	}
+
+	// Constructors
+	/**
+	 * Creates a <code>BatchSimplifier</code> which simplifies files on the
+	 * supplied number of worker threads, with queues holding
+	 * <i>QUEUE_FILES_PER_WORKER</i> files per worker.
+	 *
+	 * @param ts      a configured <code>TextSimplifier</code>
+	 * @param workers the number of worker threads simplifying text
+	 */
+	public BatchSimplifier(TextSimplifier ts, int workers) {
+		this(ts, workers, workers * QUEUE_FILES_PER_WORKER);
+	}
+
+	/**
+	 * Creates a <code>BatchSimplifier</code> which simplifies files on the
+	 * supplied number of worker threads, with queues holding the supplied number
+	 * of files and at most <i>MAX_BYTES_HELD</i> bytes of files held at once.
+	 *
+	 * @param ts            a configured <code>TextSimplifier</code>
+	 * @param workers       the number of worker threads simplifying text
+	 * @param queueCapacity the number of files each queue can hold
+	 */
+	public BatchSimplifier(TextSimplifier ts, int workers, int queueCapacity) {
+		this(ts, workers, queueCapacity, MAX_BYTES_HELD);
+	}
+
+	/**
+	 * Creates a <code>BatchSimplifier</code> which simplifies files on the
+	 * supplied number of worker threads, with queues holding the supplied number
+	 * of files and at most the supplied number of bytes of files held at once.
+	 *
+	 * @param ts            a configured <code>TextSimplifier</code>
+	 * @param workers       the number of worker threads simplifying text
+	 * @param queueCapacity the number of files each queue can hold
+	 * @param maxBytesHeld  the number of bytes of files read but not yet written
+	 *                      which can be held at once
+	 */
+	public BatchSimplifier(TextSimplifier ts, int workers, int queueCapacity, long maxBytesHeld) {
+		if (workers < 1 || queueCapacity < 1 || maxBytesHeld < 1) {
+			throw new IllegalArgumentException("workers, queueCapacity and maxBytesHeld must be at least 1");
+		}
+		this.ts = ts;
+		this.workers = workers;
+		this.queueCapacity = queueCapacity;
+		this.maxBytesHeld = maxBytesHeld;
+	}
+
+	/**
+	 * Finds the directory searched for the files described by a path entered by
+	 * the user, as used by <code>findFiles()</code>. Paths of the output files are
+	 * relative to this directory.
+	 * <p>
+	 * For a directory this is the directory itself, for a file it is the
+	 * directory containing the file, and for a glob pattern it is the directory
+	 * preceding the first wildcard.
+	 *
+	 * @param input a directory, file or glob pattern
+	 * @return the directory searched, which is empty for the current directory
+	 */
+	public static Path inputRoot(String input) {
+		int wildcard = firstWildcard(input);
+		if (wildcard < 0 && Files.isDirectory(Paths.get(input))) {
+			return Paths.get(input);
+		}
+
+		String prefix = wildcard < 0 ? input : input.substring(0, wildcard); // Path before any wildcard
+		if (prefix.isEmpty()) {
+			return Paths.get("");
+		}
+		Path path = Paths.get(prefix);
+		char last = prefix.charAt(prefix.length() - 1);
+		if (last == '/' || last == File.separatorChar) { // Wildcard starts a name in the directory
+			return path;
+		}
+		Path parent = path.getParent(); // Directory containing the file or partly named entry
+		return parent != null ? parent : Paths.get("");
+	}
+
+	/**
+	 * Finds the files to be simplified from a path entered by the user.
+	 * <p>
+	 * If the path is a directory, every regular file in it and its subdirectories
+	 * is returned. If it is a regular file, only that file is returned. If it
+	 * contains a wildcard it is treated as a glob pattern, such as <i>docs/**.txt</i>, and every
+	 * regular file beneath <code>inputRoot()</code> whose path matches the pattern
+	 * is returned.
+	 *
+	 * @param input a directory, file or glob pattern
+	 * @return the files found, in order of their paths
+	 * @throws IOException if nothing is found at the path or the directory
+	 *                     searched can not be read
+	 */
+	public static List<Path> findFiles(String input) throws IOException {
+		Path root = inputRoot(input);
+		PathMatcher matcher;
+
+		if (firstWildcard(input) >= 0) {
+			matcher = FileSystems.getDefault().getPathMatcher("glob:" + input);
+		} else if (Files.isRegularFile(Paths.get(input))) {
+			List<Path> file = new ArrayList<Path>();
+			file.add(Paths.get(input));
+			return file;
+		} else if (Files.isDirectory(Paths.get(input))) {
+			matcher = file -> true;
+		} else {
+			throw new IOException("No file or directory found at " + input);
+		}
+
+		if (!Files.isDirectory(root.toAbsolutePath())) {
+			throw new IOException("No directory found at " + root);
+		}
+		final PathMatcher wanted = matcher;
+		try (Stream<Path> files = Files.walk(root)) {
+			return files.filter(file -> Files.isRegularFile(file) && wanted.matches(file)).sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Returns the index of the first glob wildcard in a path, or -1 if there is
+	 * none.
+	 */
+	private static int firstWildcard(String input) {
+		for (int i = 0; i < input.length(); i++) {
+			if ("*?[{".indexOf(input.charAt(i)) >= 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Simplifies each of the supplied files and writes the results to the output
+	 * directory, returning once every file has been written or skipped.
+	 *
+	 * @param inputRoot the directory the files are found in, used to find the path
+	 *                  of each output file
+	 * @param files     the files to be simplified
+	 * @param outputDir the directory the simplified files are written to
+	 * @throws InterruptedException if the calling thread is interrupted while
+	 *                              waiting for the pipeline to finish
+	 */
+	public void run(Path inputRoot, List<Path> files, Path outputDir) throws InterruptedException {
+		BlockingQueue<Document> read = new ArrayBlockingQueue<Document>(queueCapacity); // Files read, to simplify
+		BlockingQueue<Document> simplified = new ArrayBlockingQueue<Document>(queueCapacity); // Files to write
+
+		synchronized (this) {
+			bytesHeld = 0;
+		}
+		filesWritten = 0;
+		filesFailed = 0;
+		bytesRead = 0;
+		bytesWritten = 0;
+		long start = System.nanoTime();
+
+		List<Thread> threads = new ArrayList<Thread>();
+		threads.add(new Thread(() -> readFiles(inputRoot, files, outputDir, read), "batch-reader"));
+		for (int i = 0; i < workers; i++) {
+			threads.add(new Thread(() -> simplifyFiles(read, simplified), "batch-worker-" + i));
+		}
+		threads.add(new Thread(() -> writeFiles(simplified), "batch-writer"));
+
+		for (Thread thread : threads) {
+			thread.setDaemon(true); // Never keeps the application running
+			thread.start();
+		}
+		try {
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		} catch (InterruptedException ie) {
+			for (Thread thread : threads) { // Stop the pipeline before giving up
+				thread.interrupt();
+			}
+			throw ie;
+		}
+		elapsedNanos = System.nanoTime() - start;
+	}
+
+	/**
+	 * Reads each file into the <i>read</i> queue, followed by one END for each
+	 * worker thread, which is put even if the reader fails.
+	 */
+	private void readFiles(Path inputRoot, List<Path> files, Path outputDir, BlockingQueue<Document> read) {
+		try {
+			for (Path file : files) {
+				Document document;
+				long size = 0;
+				try {
+					Path relative = inputRoot.relativize(file);
+					if (relative.startsWith("..")) { // Would be written outside outputDir
+						throw new IllegalArgumentException(file + " is not in " + inputRoot);
+					}
+					Path target = outputDir.resolve(relative.toString());
+					size = Files.size(file);
+					hold(size);
+					byte[] bytes = Files.readAllBytes(file);
+					document = new Document(file, target, new String(bytes, StandardCharsets.UTF_8), size);
+					bytesRead += bytes.length; // Only updated by this thread
+				} catch (IOException | RuntimeException e) { // Including a file outside inputRoot
+					release(size); // Nothing held if the size was not found
+					fail("> !ERROR: Unable to read " + file);
+					continue;
+				}
+				read.put(document);
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		} finally {
+			putEnd(read, workers);
+		}
+	}
+
+	/**
+	 * Simplifies files from the <i>read</i> queue into the <i>simplified</i> queue
+	 * until END is taken, then passes END on to the writer thread, even if the
+	 * worker fails.
+	 */
+	private void simplifyFiles(BlockingQueue<Document> read, BlockingQueue<Document> simplified) {
+		try {
+			Renderer renderer = this.renderer;
+			StringBuilder sb = new StringBuilder(); // Reused for each file
+			Document document;
+			while ((document = read.take()) != END) {
+				sb.setLength(0);
+				try {
+					ts.swapText(document.text, sb, renderer);
+				} catch (RuntimeException re) {
+					release(document.bytesHeld);
+					fail("> !ERROR: Unable to simplify " + document.source);
+					continue;
+				}
+				simplified.put(new Document(document.source, document.target, sb.toString(), document.bytesHeld));
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		} finally {
+			putEnd(simplified, 1);
+		}
+	}
+
+	/**
+	 * Puts END into a queue the supplied number of times, so the threads taking
+	 * from it always finish. Gives up if the thread is interrupted, as every
+	 * thread of the pipeline is then interrupted and stops waiting.
+	 */
+	private static void putEnd(BlockingQueue<Document> queue, int count) {
+		try {
+			for (int i = 0; i < count; i++) {
+				queue.put(END);
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Writes files from the <i>simplified</i> queue until an END has been taken
+	 * from every worker thread.
+	 */
+	private void writeFiles(BlockingQueue<Document> simplified) {
+		try {
+			int running = workers; // Worker threads which have not yet finished
+			while (running > 0) {
+				Document document = simplified.take();
+				if (document == END) {
+					running--;
+					continue;
+				}
+
+				try {
+					byte[] bytes = document.text.getBytes(StandardCharsets.UTF_8);
+					Path parent = document.target.getParent();
+					if (parent != null) {
+						Files.createDirectories(parent);
+					}
+					Files.write(document.target, bytes);
+					bytesWritten += bytes.length; // Only updated by this thread
+					filesWritten++;
+				} catch (IOException | RuntimeException e) {
+					fail("> !ERROR: Unable to write " + document.target);
+				} finally {
+					release(document.bytesHeld);
+				}
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Waits until the supplied number of bytes can be held without the files held
+	 * exceeding <i>maxBytesHeld</i>, or until no file is held, and counts them as
+	 * held.
+	 */
+	private synchronized void hold(long bytes) throws InterruptedException {
+		while (bytesHeld > 0 && bytesHeld + bytes > maxBytesHeld) {
+			wait();
+		}
+		bytesHeld += bytes;
+	}
+
+	/**
+	 * Stops counting the supplied number of bytes as held, once the file holding
+	 * them has been written or skipped.
+	 */
+	private synchronized void release(long bytes) {
+		bytesHeld -= bytes;
+		notifyAll();
+	}
+
+	/**
+	 * Reports a file which has been skipped to the user.
+	 */
+	private synchronized void fail(String message) {
+		filesFailed++;
+		System.out.println(ConsoleColour.colourize("RED", message));
+	}
+}
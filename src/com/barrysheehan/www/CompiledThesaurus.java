@@ -0,0 +1,84 @@
+package com.barrysheehan.www;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Extends <code>AbstractThesaurus</code> and loads a "thesaurus" from a file
+ * written by <code>ThesaurusCompiler</code>.
+ * <p>
+ * The compiled file is memory mapped and used as the <i>wordMap</i> directly
+ * through a <code>MappedWordMap</code>, so loading takes only as long as
+ * verifying the file's checksum, however large the thesaurus is. A compiled
+ * file which is in an older format, is corrupt, or was compiled from different
+ * versions of the dictionary and word list files is rejected.
+ * 
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see ThesaurusCompiler
+ * @see MappedWordMap
+ * @since 1.8
+ *
+ */
+
+public class CompiledThesaurus extends AbstractThesaurus {
+
+	// Constructors
+	/**
+	 * Loads a compiled thesaurus from the supplied file.
+	 * 
+	 * @param pathToCompiledFile the path to the compiled thesaurus file
+	 * @param sourceStamp        the stamp of the dictionary and word list files
+	 *                           the thesaurus must have been compiled from, as
+	 *                           returned by
+	 *                           <code>ThesaurusCompiler.sourceStamp()</code>
+	 * @throws IOException if the file can not be read, is not a valid compiled
+	 *                     thesaurus, or is out of date
+	 */
+	public CompiledThesaurus(String pathToCompiledFile, long sourceStamp) throws IOException {
+		this(verified(FileReader.map(pathToCompiledFile), sourceStamp));
+	}
+
+	private CompiledThesaurus(MappedWordMap wordMap) {
+		super(wordMap, dictionaryOf(wordMap));
+	}
+
+	/**
+	 * Verifies a mapped compiled thesaurus and wraps it in a
+	 * <code>MappedWordMap</code>.
+	 */
+	private static MappedWordMap verified(ByteBuffer buffer, long sourceStamp) throws IOException {
+		ThesaurusCompiler.verify(buffer);
+		if (buffer.getLong(ThesaurusCompiler.STAMP_OFFSET) != sourceStamp) {
+			throw new IOException("Compiled thesaurus is out of date");
+		}
+		return new MappedWordMap(buffer);
+	}
+
+	/**
+	 * Creates a Set holding every dictionary word of a compiled thesaurus.
+	 */
+	private static Set<String> dictionaryOf(MappedWordMap wordMap) {
+		Set<String> dictionary = new HashSet<String>();
+		for (int i = 0; i < wordMap.dictionarySize(); i++) {
+			dictionary.add(wordMap.dictionaryWord(i));
+		}
+		return dictionary;
+	}
+
+	/**
+	 * Not used, as a compiled thesaurus is not built from a dictionary String.
+	 */
+	@Override
+	protected void initialiseDictionaryString(String dictionarySource) {
+	}
+
+	/**
+	 * Not used, as a compiled thesaurus is not built from a word list String.
+	 */
+	@Override
+	protected void initialiseWordListString(String wordListSource) {
+	}
+}
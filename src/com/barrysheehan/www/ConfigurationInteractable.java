@@ -1,6 +1,7 @@
 package com.barrysheehan.www;
 
 import java.util.Scanner;
+import java.util.function.BiConsumer;
 
 /**
  * Prompts the user for input and uses that input to configure the supplied
@@ -22,6 +23,9 @@ import java.util.Scanner;
 
 public class ConfigurationInteractable implements Interactable {
 
+	// Printed when a new Thesaurus can not be built, in the foreground or background
+	private static final String BUILD_ERROR = "> !ERROR: Unable to build Thesaurus from the files entered";
+
 	// Instance variables
 	private TextSimplifier ts; // Stores the TextSimplifier object to be configured
 	private Scanner sc; // Stores scanner for keyboard input
@@ -192,6 +196,13 @@ public class ConfigurationInteractable implements Interactable {
 	 * exits. This means that a new <code>Thesaurus</code> is not created if it
 	 * doesn't need to be and that the current <code>TextSimplifier</code> is always
 	 * configured when the method exits.
+	 * <p>
+	 * If <i>ts</i> has already been configured, the new <code>Thesaurus</code> is
+	 * built in the background using <code>initAsync()</code>. Text simplified in
+	 * the meantime, by this or any other thread, uses the previous
+	 * <code>Thesaurus</code>, which stays in use if the build fails. A build which
+	 * fails reports the same error whether it ran in the foreground or the
+	 * background.
 	 */
 	@Override
 	public void execute() {
@@ -199,7 +210,26 @@ public class ConfigurationInteractable implements Interactable {
 				|| !ts.isConfigured()) {
 			ts.setDictionaryFile(newDictionaryFile);
 			ts.setWordListFile(newWordListFile);
-			ts.init();
+
+			if (ts.isConfigured()) { // Keep using current Thesaurus until the new one is ready
+				System.out.println(ConsoleColour.colourize("CYAN", "> Building new Thesaurus in the background..."));
+				ts.initAsync().whenComplete(new BiConsumer<Void, Throwable>() {
+					@Override
+					public void accept(Void ignored, Throwable failure) {
+						if (failure != null) { // Previous Thesaurus still in use
+							System.out.println(ConsoleColour.colourize("RED", BUILD_ERROR));
+						} else {
+							System.out.println(ConsoleColour.colourize("GREEN", "> New Thesaurus now in use.\n"));
+						}
+					}
+				});
+			} else {
+				try {
+					ts.init();
+				} catch (RuntimeException re) {
+					System.out.println(ConsoleColour.colourize("RED", BUILD_ERROR));
+				}
+			}
 		}
 	}
 }
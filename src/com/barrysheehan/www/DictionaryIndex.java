@@ -0,0 +1,133 @@
+package com.barrysheehan.www;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Numbers the words of a thesaurus' <i>dictionary</i> with dense int IDs, from
+ * 0 to <code>size() - 1</code>, and finds the ID of any word from a
+ * <code>CharSequence</code>.
+ * <p>
+ * IDs are assigned in the sorted order of the words, so a dictionary always
+ * numbers its words the same way, whichever Set holds it. IDs can therefore
+ * index arrays of counts or be stored in place of the words themselves, for
+ * example when building bag-of-words vectors from text simplified by a
+ * <code>TextSimplifier</code>.
+ * <p>
+ * IDs are found in an open addressing hash table of int IDs, built once and
+ * never resized, with a capacity of at least twice the number of words. A
+ * lookup with a reusable buffer such as a <code>StringBuilder</code> creates no
+ * objects.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see AbstractThesaurus#getDictionaryIndex()
+ * @see TextSimplifier#forEachWordId(CharSequence, java.util.function.IntConsumer)
+ * @since 1.8
+ *
+ */
+
+public class DictionaryIndex {
+
+	// ID returned for a word which is not in the dictionary
+	public static final int UNMATCHED = -1;
+
+	// Instance variables
+	private final String[] words; // Each dictionary word, indexed by its ID
+	private final int[] hashes; // Hash code of each dictionary word, indexed by its ID
+	private final int[] slots; // ID + 1 of the word in each slot, or 0 if the slot is empty
+	private final int mask; // Table capacity - 1, used in place of the modulo operator
+
+	// Constructors
+	/**
+	 * Creates a <code>DictionaryIndex</code> numbering each of the supplied words.
+	 *
+	 * @param dictionary the words to be numbered
+	 */
+	public DictionaryIndex(Collection<String> dictionary) {
+		words = dictionary.toArray(new String[dictionary.size()]);
+		Arrays.sort(words); // IDs do not depend on the iteration order of the dictionary
+		hashes = new int[words.length];
+		slots = new int[OpenAddressingWordMap.tableCapacity(words.length)];
+		mask = slots.length - 1;
+
+		for (int id = 0; id < words.length; id++) {
+			hashes[id] = words[id].hashCode();
+			int slot = OpenAddressingWordMap.mix(hashes[id]) & mask;
+			while (slots[slot] != 0) { // Linear probe to the next free slot
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = id + 1;
+		}
+	}
+
+	/**
+	 * Returns the ID of the supplied word.
+	 *
+	 * @param word the characters of the word
+	 * @return the ID of word, or <i>UNMATCHED</i> if it is not in the dictionary
+	 */
+	public int idOf(CharSequence word) {
+		int hash = word instanceof String ? word.hashCode() : OpenAddressingWordMap.hash(word); // String caches it
+		int slot = OpenAddressingWordMap.mix(hash) & mask;
+		int entry;
+		while ((entry = slots[slot]) != 0) {
+			int id = entry - 1;
+			if (hashes[id] == hash && contentEquals(words[id], word)) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return UNMATCHED;
+	}
+
+	/**
+	 * Returns the word with the supplied ID.
+	 *
+	 * @param id the ID of a word, from 0 to <code>size() - 1</code>
+	 * @return the word
+	 */
+	public String word(int id) {
+		return words[id];
+	}
+
+	/**
+	 * Returns the number of words in the dictionary, which is one more than the
+	 * largest ID.
+	 *
+	 * @return the number of words
+	 */
+	public int size() {
+		return words.length;
+	}
+
+	/**
+	 * Estimates the number of bytes of heap used by the index's arrays, not
+	 * counting the words, which are those of the dictionary.
+	 *
+	 * @return the estimated size in bytes
+	 */
+	public long memoryBytes() {
+		return 16 + words.length * 4L + 16 + hashes.length * 4L + 16 + slots.length * 4L; // Compressed references
+	}
+
+	/**
+	 * Compares a dictionary word with the characters of a word, without creating
+	 * a String.
+	 */
+	private static boolean contentEquals(String word, CharSequence chars) {
+		if (word == chars) { // Usually the same String when looking up a value of wordMap
+			return true;
+		}
+		int length = word.length();
+		if (chars.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (word.charAt(i) != chars.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
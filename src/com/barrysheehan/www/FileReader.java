@@ -6,10 +6,13 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
- * Class contains static methods for parsing .txt files and for verifying
- * whether a file at a given path exists.
+ * Class contains static methods for parsing .txt files, for mapping files into
+ * memory and for verifying whether a file at a given path exists.
  * 
  * @author Barry Sheehan
  * @version 0.1
@@ -18,6 +21,25 @@ import java.io.InputStreamReader;
  */
 
 public class FileReader {
+
+	// Metrics recording the time taken to read each file, or null if not recorded
+	private static volatile SimplifierMetrics metrics;
+
+	public static SimplifierMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Records the time taken by every later call to <code>parse()</code> or
+	 * <code>map()</code> in the supplied metrics, or stops recording it if
+	 * <code>null</code>. Set by <code>TextSimplifier.setMetrics()</code>.
+	 * 
+	 * @param fileMetrics the metrics to record in, or <code>null</code>
+	 */
+	public static void setMetrics(SimplifierMetrics fileMetrics) {
+		metrics = fileMetrics;
+	}
+
 	/**
 	 * Parses the lines of a .txt file and adds them to a StringBuilder, which is
 	 * finally returned as a String.
@@ -33,6 +55,7 @@ public class FileReader {
 	 *                               be read
 	 */
 	public static String parse(String pathToFile) throws FileNotFoundException, IOException {
+		long start = System.nanoTime();
 		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(new File(pathToFile))));
 		StringBuilder sb = new StringBuilder();
 
@@ -43,9 +66,42 @@ public class FileReader {
 		}
 
 		br.close(); // Close BufferedReader
+		recordRead(start);
 		return sb.toString();
 	}
 
+	/**
+	 * Maps the contents of a file into memory as a read only
+	 * <code>MappedByteBuffer</code>.
+	 * <p>
+	 * The bytes of the file are not copied onto the heap. They are paged in by the
+	 * operating system as the buffer is read, and the mapping is released when
+	 * the buffer is garbage collected.
+	 * 
+	 * @param pathToFile the path to the file to be mapped
+	 * @return a buffer holding the contents of the file
+	 * @throws FileNotFoundException if a file does not exist at the file path
+	 *                               supplied
+	 * @throws IOException           if the file at the file path supplied can not
+	 *                               be read
+	 */
+	public static MappedByteBuffer map(String pathToFile) throws FileNotFoundException, IOException {
+		if (!fileExists(pathToFile)) {
+			throw new FileNotFoundException(pathToFile);
+		}
+
+		RandomAccessFile raf = new RandomAccessFile(pathToFile, "r");
+		try {
+			long start = System.nanoTime();
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // Outlives channel
+			recordRead(start);
+			return buffer;
+		} finally {
+			raf.close(); // Close RandomAccessFile and its FileChannel
+		}
+	}
+
 	/**
 	 * Verifies whether a file exists at the supplied path.
 	 * <p>
@@ -65,4 +121,15 @@ public class FileReader {
 			return false;
 		}
 	}
+
+	/**
+	 * Records the time since <i>start</i> as the time taken to read a file, if
+	 * metrics are being recorded.
+	 */
+	private static void recordRead(long start) {
+		SimplifierMetrics fileMetrics = metrics;
+		if (fileMetrics != null) {
+			fileMetrics.recordFileRead(System.nanoTime() - start);
+		}
+	}
 }
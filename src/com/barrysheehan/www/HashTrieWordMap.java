@@ -0,0 +1,308 @@
+package com.barrysheehan.www;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable Map of Strings to Strings stored in a hash trie, which can be
+ * copied with one key added, changed or removed without copying the rest of
+ * the map.
+ * <p>
+ * Each node of the trie is an array of 32 slots, selected by the next five
+ * bits of a key's hash code, and each slot is empty or holds an entry or a
+ * child node. Keys whose whole hash codes are equal share one slot as a linked
+ * list of entries. <code>with()</code> and <code>without()</code> copy only the
+ * nodes on the path to the key, at most seven of them, and share every other
+ * node with the original map, so a map can be changed one key at a time in
+ * time proportional to the number of keys changed rather than to its size.
+ * <p>
+ * Keys can be looked up with any <code>CharSequence</code> through the
+ * <code>WordLookup</code> interface.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see OverlayWordMap
+ * @see PhraseMatcher
+ * @since 1.8
+ *
+ */
+
+public class HashTrieWordMap extends AbstractMap<String, String> implements WordLookup {
+
+	// Number of bits of the hash code used to select a slot at each level
+	private static final int BITS = 5;
+
+	// Number of slots in each node
+	private static final int WIDTH = 1 << BITS;
+
+	// Most levels a trie can have, as every bit of the hash code is used by then
+	private static final int MAX_DEPTH = (Integer.SIZE + BITS - 1) / BITS;
+
+	// Instance variables
+	private final Object[] root; // Slots of the root node: each null, an Entry or a child node
+	private final int size; // Number of entries in the trie
+
+	/**
+	 * An entry of the trie, and the entries after it with the same hash code.
+	 */
+	private static class Entry extends AbstractMap.SimpleImmutableEntry<String, String> {
+		private static final long serialVersionUID = 1L;
+
+		final int hash; // Hash code of the key
+		final Entry next; // Next entry with the same hash code, or null
+
+		Entry(String key, String value, int hash, Entry next) {
+			super(key, value);
+			this.hash = hash;
+			this.next = next;
+		}
+	}
+
+	// Constructors
+	/**
+	 * Creates an empty <code>HashTrieWordMap</code>.
+	 */
+	public HashTrieWordMap() {
+		this(new Object[WIDTH], 0);
+	}
+
+	/**
+	 * Creates a <code>HashTrieWordMap</code> containing every entry of the
+	 * supplied Map.
+	 *
+	 * @param source the Map whose entries are copied into the trie
+	 */
+	public HashTrieWordMap(Map<String, String> source) {
+		this.root = new Object[WIDTH];
+		for (Map.Entry<String, String> entry : source.entrySet()) { // Nodes are filled in place, not copied
+			String key = entry.getKey();
+			put(root, 0, key, key.hashCode(), entry.getValue(), false);
+		}
+		this.size = source.size();
+	}
+
+	private HashTrieWordMap(Object[] root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	/**
+	 * Returns a copy of this map with the supplied key mapped to the supplied
+	 * value, sharing every node but those on the path to the key.
+	 *
+	 * @param key   the key to add or change
+	 * @param value the value of key
+	 * @return the changed copy
+	 */
+	public HashTrieWordMap with(String key, String value) {
+		int added = lookup(key) == null ? 1 : 0;
+		return new HashTrieWordMap(put(root, 0, key, key.hashCode(), value, true), size + added);
+	}
+
+	/**
+	 * Returns a copy of this map without the supplied key, sharing every node but
+	 * those on the path to the key, or this map if it does not contain the key.
+	 *
+	 * @param key the key to remove
+	 * @return the changed copy
+	 */
+	public HashTrieWordMap without(String key) {
+		if (lookup(key) == null) {
+			return this;
+		}
+		Object[] newRoot = remove(root, 0, key, key.hashCode());
+		return new HashTrieWordMap(newRoot != null ? newRoot : new Object[WIDTH], size - 1);
+	}
+
+	/**
+	 * Puts a key into a node, either in place or into copies of the node and the
+	 * nodes below it on the path to the key.
+	 *
+	 * @return the node holding the key
+	 */
+	private static Object[] put(Object[] node, int shift, String key, int hash, String value, boolean copy) {
+		Object[] newNode = copy ? node.clone() : node;
+		int slot = (hash >>> shift) & (WIDTH - 1);
+		Object current = node[slot];
+
+		if (current == null) {
+			newNode[slot] = new Entry(key, value, hash, null);
+		} else if (current instanceof Object[]) {
+			newNode[slot] = put((Object[]) current, shift + BITS, key, hash, value, copy);
+		} else {
+			Entry entry = (Entry) current;
+			if (entry.hash == hash) { // Same hash code, replace key in the list
+				newNode[slot] = new Entry(key, value, hash, unlink(entry, key));
+			} else { // Different hash codes always differ in a later slot
+				Object[] child = new Object[WIDTH];
+				child[(entry.hash >>> (shift + BITS)) & (WIDTH - 1)] = entry;
+				newNode[slot] = put(child, shift + BITS, key, hash, value, false);
+			}
+		}
+		return newNode;
+	}
+
+	/**
+	 * Removes a key known to be present from copies of a node and the nodes below
+	 * it on the path to the key.
+	 *
+	 * @return the copy of the node, or <code>null</code> if it is left empty
+	 */
+	private static Object[] remove(Object[] node, int shift, String key, int hash) {
+		int slot = (hash >>> shift) & (WIDTH - 1);
+		Object current = node[slot];
+		Object[] newNode = node.clone();
+
+		if (current instanceof Object[]) {
+			newNode[slot] = remove((Object[]) current, shift + BITS, key, hash);
+		} else {
+			newNode[slot] = unlink((Entry) current, key);
+		}
+
+		for (Object remaining : newNode) {
+			if (remaining != null) {
+				return newNode;
+			}
+		}
+		return null; // Empty nodes are removed from their parents
+	}
+
+	/**
+	 * Returns a list of entries with the same hash code without the supplied key,
+	 * copying the entries before it.
+	 */
+	private static Entry unlink(Entry entry, String key) {
+		if (entry == null) {
+			return null;
+		}
+		if (entry.getKey().equals(key)) {
+			return entry.next;
+		}
+		Entry next = unlink(entry.next, key);
+		return next == entry.next ? entry : new Entry(entry.getKey(), entry.getValue(), entry.hash, next);
+	}
+
+	/**
+	 * Estimates the number of bytes of heap used by the trie: its nodes, its
+	 * entries and their keys. Values are not counted, as they are dictionary
+	 * words shared with the rest of the thesaurus.
+	 *
+	 * @return the estimated size of the trie in bytes
+	 */
+	public long memoryBytes() {
+		return memoryBytes(root);
+	}
+
+	private static long memoryBytes(Object[] node) {
+		long bytes = 16 + WIDTH * 4; // Array header and slots, with compressed references
+		for (Object slot : node) {
+			if (slot instanceof Object[]) {
+				bytes += memoryBytes((Object[]) slot);
+			}
+			for (Entry entry = slot instanceof Entry ? (Entry) slot : null; entry != null; entry = entry.next) {
+				bytes += 32 + SimplifierMetrics.stringBytes(entry.getKey()); // Entry object and its key
+			}
+		}
+		return bytes;
+	}
+
+	@Override
+	public String lookup(CharSequence key) {
+		int hash = OpenAddressingWordMap.hash(key);
+		Object[] node = root;
+
+		for (int shift = 0;; shift += BITS) {
+			Object current = node[(hash >>> shift) & (WIDTH - 1)];
+			if (current instanceof Object[]) { // Descend to the next level
+				node = (Object[]) current;
+				continue;
+			}
+			for (Entry entry = (Entry) current; entry != null; entry = entry.next) {
+				if (entry.hash == hash && entry.getKey().contentEquals(key)) {
+					return entry.getValue();
+				}
+			}
+			return null;
+		}
+	}
+
+	@Override
+	public String get(Object key) {
+		return key instanceof CharSequence ? lookup((CharSequence) key) : null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Set<Map.Entry<String, String>> entrySet() {
+		return new AbstractSet<Map.Entry<String, String>>() {
+			@Override
+			public Iterator<Map.Entry<String, String>> iterator() {
+				return new Iterator<Map.Entry<String, String>>() {
+					private final Object[][] nodes = new Object[MAX_DEPTH][]; // Node at each level of the path
+					private final int[] slots = new int[MAX_DEPTH]; // Next slot to visit at each level
+					private int depth = 0; // Level of the node being visited, -1 when done
+					private Entry next = first();
+
+					private Entry first() {
+						nodes[0] = root;
+						return advance(null);
+					}
+
+					private Entry advance(Entry entry) {
+						if (entry != null && entry.next != null) { // Rest of a list with the same hash code
+							return entry.next;
+						}
+						while (depth >= 0) {
+							if (slots[depth] == WIDTH) { // Node finished, back to its parent
+								depth--;
+								continue;
+							}
+							Object slot = nodes[depth][slots[depth]++];
+							if (slot instanceof Object[]) {
+								depth++;
+								nodes[depth] = (Object[]) slot;
+								slots[depth] = 0;
+							} else if (slot != null) {
+								return (Entry) slot;
+							}
+						}
+						return null;
+					}
+
+					@Override
+					public boolean hasNext() {
+						return next != null;
+					}
+
+					@Override
+					public Map.Entry<String, String> next() {
+						if (next == null) {
+							throw new NoSuchElementException();
+						}
+						Entry entry = next;
+						next = advance(entry);
+						return entry;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+}
@@ -0,0 +1,165 @@
+package com.barrysheehan.www;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records a distribution of durations, in nanoseconds, with a fixed amount of
+ * memory and a constant, lock free cost per value recorded.
+ * <p>
+ * Values are counted in log-linear buckets, in the style of HdrHistogram: each
+ * power of two is divided into <i>SUB_BUCKETS</i> equal buckets, so any
+ * percentile is reported to within 1 part in SUB_BUCKETS of the true value,
+ * whatever its magnitude. Values below SUB_BUCKETS are counted exactly. All
+ * positive <code>long</code> values fit in under a thousand buckets, so no
+ * range needs to be chosen in advance.
+ * <p>
+ * Recording a value increments one element of an
+ * <code>AtomicLongArray</code>, so a histogram can be shared by any number of
+ * threads. Percentiles are read from a snapshot of the buckets which is not
+ * atomic with respect to values recorded at the same time.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see SimplifierMetrics
+ * @since 1.8
+ *
+ */
+
+public class LatencyHistogram {
+
+	// Number of bits used to divide each power of two into buckets
+	private static final int SUB_BUCKET_BITS = 4;
+
+	// Number of buckets each power of two is divided into
+	public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	// Number of buckets needed to hold any positive long
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	// Instance variables
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS); // Number of values in each bucket
+	private final LongAdder count = new LongAdder(); // Number of values recorded
+	private final LongAdder total = new LongAdder(); // Sum of values recorded
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0); // Largest value recorded
+
+	/**
+	 * Records a value. Negative values are recorded as 0.
+	 *
+	 * @param value the value, usually a duration in nanoseconds
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts.incrementAndGet(bucket(value));
+		count.increment();
+		total.add(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * Returns the number of values recorded.
+	 *
+	 * @return the count
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Returns the mean of the values recorded, or 0 if there are none.
+	 *
+	 * @return the mean
+	 */
+	public double getMean() {
+		long n = count.sum();
+		return n == 0 ? 0 : (double) total.sum() / n;
+	}
+
+	/**
+	 * Returns the largest value recorded, or 0 if there are none.
+	 *
+	 * @return the maximum
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Returns a value which the supplied percentage of recorded values are less
+	 * than or equal to, rounded up to the top of its bucket, or 0 if no values
+	 * have been recorded.
+	 *
+	 * @param percentile the percentage, from 0 to 100
+	 * @return the value at the percentile
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long[] snapshot = new long[BUCKETS];
+		long n = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			n += snapshot[i];
+		}
+		if (n == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * n)); // Values at or below result
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return Math.min(highestValueIn(i), getMax()); // No value beyond the largest recorded
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * Removes every value recorded. Values recorded at the same time may be kept.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		count.reset();
+		total.reset();
+		max.reset();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d mean=%.0f p50=%d p99=%d p99.9=%d max=%d", getCount(), getMean(),
+				getValueAtPercentile(50), getValueAtPercentile(99), getValueAtPercentile(99.9), getMax());
+	}
+
+	/**
+	 * Returns the bucket counting a value.
+	 * <p>
+	 * A value below SUB_BUCKETS has a bucket of its own. Otherwise the position
+	 * of its highest bit chooses a group of SUB_BUCKETS buckets, and the
+	 * SUB_BUCKET_BITS bits below its highest bit choose a bucket within it.
+	 */
+	static int bucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS; // Bits below those choosing the bucket
+		int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+		return (shift + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * Returns the largest value counted by a bucket.
+	 */
+	static long highestValueIn(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,121 @@
+package com.barrysheehan.www;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Extends <code>AbstractThesaurus</code> and loads a "thesaurus" whose
+ * <i>wordMap</i> is only read from the word list file as words are looked up.
+ * <p>
+ * The dictionary file is read in full, as it is needed to find the value of
+ * any word. The word list file is memory mapped and indexed by a single scan
+ * in a <code>LazyWordMap</code>, so the thesaurus can be used as soon as the
+ * scan is finished, and only the words which are looked up are ever decoded.
+ * This suits very large word lists of which only a small part is used. The
+ * word list file must not be changed while the thesaurus is in use.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see LazyWordMap
+ * @see MappedThesaurus
+ * @since 1.8
+ *
+ */
+
+public class LazyThesaurus extends AbstractThesaurus {
+
+	// Constructors
+	/**
+	 * Creates a <code>LazyThesaurus</code> from a dictionary file and an indexed
+	 * word list file.
+	 * <p>
+	 * If either file can not be read, the user is informed and it is treated as
+	 * empty.
+	 *
+	 * @param pathToDictionaryFile the path to the text file to be used when
+	 *                             building the <i>dictionary</i>
+	 * @param pathToWordListFile   the path to the text file from which the
+	 *                             <i>wordMap</i> is read
+	 */
+	public LazyThesaurus(String pathToDictionaryFile, String pathToWordListFile) {
+		this(new LazyWordMap(dictionaryOf(map(pathToDictionaryFile, "Dictionary")),
+				map(pathToWordListFile, "Word List")));
+	}
+
+	private LazyThesaurus(LazyWordMap wordMap) {
+		super(wordMap, wordMap.getDictionary());
+	}
+
+	/**
+	 * Maps a file into memory, informing the user and returning
+	 * <code>null</code> if it can not be read.
+	 */
+	private static ByteBuffer map(String pathToTextFile, String description) {
+		try {
+			return FileReader.map(pathToTextFile);
+		} catch (FileNotFoundException fnfe) {
+			System.out.println(ConsoleColour.colourize("RED",
+					"> !ERROR: " + description + " file not found. File not found at " + pathToTextFile));
+		} catch (IOException ioe) {
+			System.out.println(ConsoleColour.colourize("RED",
+					"> !ERROR: Unable to read " + description + " file at " + pathToTextFile));
+		}
+		return null;
+	}
+
+	/**
+	 * Creates a Set holding each line of a mapped dictionary file, in lower case.
+	 */
+	private static Set<String> dictionaryOf(ByteBuffer buffer) {
+		Set<String> dictionary = new HashSet<String>();
+		if (buffer == null) { // Dictionary file could not be mapped
+			return dictionary;
+		}
+
+		int limit = buffer.limit();
+		int lineStart = 0;
+		while (lineStart < limit) {
+			int lineEnd = MappedThesaurus.indexOf(buffer, (byte) '\n', lineStart, limit);
+			String word = MappedThesaurus.decode(buffer, lineStart,
+					MappedThesaurus.trimCarriageReturn(buffer, lineStart, lineEnd));
+
+			if (!word.isEmpty()) {
+				dictionary.add(word.toLowerCase()); // Additions to dictionary lower case
+			}
+			lineStart = lineEnd + 1;
+		}
+		return dictionary;
+	}
+
+	/**
+	 * Creates a <code>PhraseMatcher</code> from the phrases found while indexing
+	 * the word list file, so that matching phrases does not read the whole
+	 * <i>wordMap</i>.
+	 */
+	@Override
+	protected PhraseMatcher createPhraseMatcher() {
+		Map<String, String> wordMap = getWordMap();
+		if (wordMap instanceof LazyWordMap) {
+			return new PhraseMatcher(((LazyWordMap) wordMap).getPhraseKeys());
+		}
+		return super.createPhraseMatcher();
+	}
+
+	/**
+	 * Not used, as a lazy thesaurus is not built from a dictionary String.
+	 */
+	@Override
+	protected void initialiseDictionaryString(String dictionarySource) {
+	}
+
+	/**
+	 * Not used, as a lazy thesaurus is not built from a word list String.
+	 */
+	@Override
+	protected void initialiseWordListString(String wordListSource) {
+	}
+}
@@ -0,0 +1,447 @@
+package com.barrysheehan.www;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An immutable Map of Strings to Strings which reads its entries from a memory
+ * mapped word list file only when they are first looked up.
+ * <p>
+ * When created, the word list file is scanned once. Every word on every line
+ * is hashed directly from the mapped bytes, without being decoded, and the
+ * line is recorded in an index under the bucket its hash falls in. No String
+ * is created for any word, except those containing spaces, which are kept so
+ * that phrases can be matched.
+ * <p>
+ * Looking up a key finds its bucket, and the first lookup in a bucket
+ * <i>materialises</i> it: the lines indexed under the bucket are decoded, and
+ * every word on them which falls in the bucket is stored with the line's
+ * dictionary word as its value. Buckets hold only a few words each, so the
+ * memory used grows with the number of different words looked up rather than
+ * with the size of the word list. The dictionary word of each line is found
+ * the first time the line is decoded and remembered.
+ * <p>
+ * Entries follow the same rules as <code>MappedThesaurus</code>: each
+ * dictionary word maps to itself, and a word found on several lines takes its
+ * value from the last of them. Calling <code>size()</code> or iterating over
+ * the entries materialises every bucket.
+ * <p>
+ * The mapped word list file must not be changed while the map is in use.
+ * Lookups may be made by any number of threads; threads materialising the
+ * same bucket at once build identical results, and only one is kept.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see LazyThesaurus
+ * @see MappedThesaurus
+ * @since 1.8
+ */
+
+public class LazyWordMap extends AbstractMap<String, String> implements WordLookup {
+
+	// Average number of word occurrences indexed under each bucket
+	public static final int OCCURRENCES_PER_BUCKET = 2;
+
+	// Contents of a bucket in which no word is found
+	private static final String[] EMPTY = new String[0];
+
+	// Dictionary word of a line on which no dictionary word is found
+	private static final String NO_DICTIONARY_WORD = new String("");
+
+	// Instance variables
+	private final ByteBuffer buffer; // Mapped word list file, only read with absolute gets
+	private final Set<String> dictionary; // Dictionary words, in lower case
+	private final String[] dictionaryWords; // Dictionary words, indexed by the negative entries of bucketLines
+	private final int[] lineStarts; // Index of the first byte of each line
+	private final int[] lineEnds; // Index after the last byte of each line, excluding any line break
+	private final String[] lineValues; // Dictionary word of each line, found when the line is first decoded
+	private final int[] bucketStarts; // Index in bucketLines of the first entry of each bucket, and of the end
+	private final int[] bucketLines; // Line of each word occurrence, or ~index of a dictionary word
+	private final int mask; // Number of buckets - 1
+	private final AtomicReferenceArray<String[]> buckets; // Keys and values of each materialised bucket
+	private final Set<String> phraseKeys; // Keys containing a space, which may be phrases
+	private final LongAdder loadedKeys = new LongAdder(); // Number of keys in materialised buckets
+	private final LongAdder loadedBytes = new LongAdder(); // Estimated size of materialised buckets
+
+	/**
+	 * Growable list of ints used while scanning the word list file.
+	 */
+	private static class IntList {
+		int[] values = new int[1024];
+		int size;
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+	}
+
+	// Constructors
+	/**
+	 * Creates a <code>LazyWordMap</code> by scanning and indexing a mapped word
+	 * list file.
+	 *
+	 * @param dictionary the dictionary words, in lower case
+	 * @param buffer     the mapped word list file, or <code>null</code> if there is
+	 *                   none
+	 */
+	public LazyWordMap(Set<String> dictionary, ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.dictionary = dictionary;
+		this.dictionaryWords = dictionary.toArray(new String[dictionary.size()]);
+
+		IntList hashes = new IntList(); // Hash of each word occurrence
+		IntList lines = new IntList(); // Line of each word occurrence
+		IntList starts = new IntList();
+		IntList ends = new IntList();
+		Set<String> tempPhraseKeys = new HashSet<String>();
+
+		for (int i = 0; i < dictionaryWords.length; i++) { // Before every line, so lines replace them
+			hashes.add(OpenAddressingWordMap.hash(dictionaryWords[i]));
+			lines.add(~i);
+			if (dictionaryWords[i].indexOf(' ') >= 0) {
+				tempPhraseKeys.add(dictionaryWords[i]);
+			}
+		}
+
+		int limit = buffer == null ? 0 : buffer.limit();
+		int lineStart = 0;
+		while (lineStart < limit) { // Each byte is read once, hashing words as they are found
+			int line = starts.size;
+			int wordStart = lineStart;
+			int hash = 0;
+			boolean ascii = true;
+			boolean space = false;
+			int i = lineStart;
+			while (true) {
+				byte b = i < limit ? buffer.get(i) : (byte) '\n';
+				if (b == ',' || b == '\n') {
+					int wordEnd = b == '\n' ? MappedThesaurus.trimCarriageReturn(buffer, wordStart, i) : i;
+					if (wordEnd > wordStart) {
+						if (!ascii || wordEnd < i) { // Hash decoded word, or again without carriage return
+							hash = hash(buffer, wordStart, wordEnd);
+						}
+						hashes.add(hash);
+						lines.add(line);
+						if (space) {
+							tempPhraseKeys.add(MappedThesaurus.decode(buffer, wordStart, wordEnd));
+						}
+					}
+					if (b == '\n') {
+						starts.add(lineStart);
+						ends.add(wordEnd);
+						break;
+					}
+					wordStart = i + 1;
+					hash = 0;
+					ascii = true;
+					space = false;
+				} else {
+					hash = 31 * hash + b;
+					ascii &= b >= 0;
+					space |= b == ' ';
+				}
+				i++;
+			}
+			lineStart = i + 1;
+		}
+
+		this.lineStarts = Arrays.copyOf(starts.values, starts.size);
+		this.lineEnds = Arrays.copyOf(ends.values, ends.size);
+		this.lineValues = new String[starts.size];
+		this.phraseKeys = tempPhraseKeys;
+
+		int bucketCount = Integer.highestOneBit(Math.max(1, hashes.size / OCCURRENCES_PER_BUCKET) * 2 - 1);
+		this.mask = bucketCount - 1;
+		this.buckets = new AtomicReferenceArray<String[]>(bucketCount);
+
+		// Sort the occurrences by bucket, keeping them in file order within each bucket
+		this.bucketStarts = new int[bucketCount + 1];
+		for (int i = 0; i < hashes.size; i++) {
+			bucketStarts[bucketOf(hashes.values[i]) + 1]++;
+		}
+		for (int b = 0; b < bucketCount; b++) {
+			bucketStarts[b + 1] += bucketStarts[b];
+		}
+		this.bucketLines = new int[hashes.size];
+		int[] next = Arrays.copyOf(bucketStarts, bucketCount); // Next free entry of each bucket
+		for (int i = 0; i < hashes.size; i++) {
+			bucketLines[next[bucketOf(hashes.values[i])]++] = lines.values[i];
+		}
+	}
+
+	/**
+	 * Returns the dictionary used to find the value of each line.
+	 *
+	 * @return the dictionary words, in lower case
+	 */
+	public Set<String> getDictionary() {
+		return this.dictionary;
+	}
+
+	/**
+	 * Returns every key containing a space, including any on lines with no
+	 * dictionary word, which are not in the map.
+	 *
+	 * @return the keys which may be phrases
+	 */
+	public Set<String> getPhraseKeys() {
+		return this.phraseKeys;
+	}
+
+	/**
+	 * Returns the number of keys in the buckets materialised so far.
+	 *
+	 * @return the number of keys loaded
+	 */
+	public long loadedSize() {
+		return loadedKeys.sum();
+	}
+
+	/**
+	 * Returns an estimate of the number of bytes used by the index and the buckets
+	 * materialised so far. The mapped word list file is not included.
+	 *
+	 * @return the estimated size in bytes
+	 */
+	public long memoryBytes() {
+		long index = (lineStarts.length * 3L + bucketStarts.length + bucketLines.length + buckets.length()) * 4;
+		return index + loadedBytes.sum();
+	}
+
+	/**
+	 * Returns the bucket of a key's hash code.
+	 */
+	private int bucketOf(int hash) {
+		return OpenAddressingWordMap.mix(hash) & mask;
+	}
+
+	/**
+	 * Returns the hash code of the String decoded from the bytes of a buffer
+	 * between two indices, the same as <code>String.hashCode()</code>. Plain ASCII
+	 * is hashed without being decoded.
+	 */
+	private static int hash(ByteBuffer buffer, int start, int end) {
+		int h = 0;
+		for (int i = start; i < end; i++) {
+			byte b = buffer.get(i);
+			if (b < 0) { // Not ASCII, hash the decoded word
+				return OpenAddressingWordMap.hash(MappedThesaurus.decode(buffer, start, end));
+			}
+			h = 31 * h + b;
+		}
+		return h;
+	}
+
+	/**
+	 * Returns the keys and values of a bucket, materialising it if this is the
+	 * first time it is used.
+	 *
+	 * @param bucket the index of the bucket
+	 * @return the keys and values of the bucket, alternately
+	 */
+	private String[] bucket(int bucket) {
+		String[] entries = buckets.get(bucket);
+		if (entries == null) {
+			entries = materialise(bucket);
+			if (buckets.compareAndSet(bucket, null, entries)) {
+				long bytes = 16 + entries.length * 4L;
+				for (int i = 0; i < entries.length; i += 2) {
+					bytes += SimplifierMetrics.stringBytes(entries[i]);
+				}
+				loadedKeys.add(entries.length / 2);
+				loadedBytes.add(bytes);
+			} else { // Materialised by another thread first
+				entries = buckets.get(bucket);
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * Decodes every word in a bucket from the dictionary and the lines indexed
+	 * under the bucket.
+	 */
+	private String[] materialise(int bucket) {
+		int start = bucketStarts[bucket];
+		int end = bucketStarts[bucket + 1];
+		if (start == end) {
+			return EMPTY;
+		}
+
+		Map<String, String> entries = new HashMap<String, String>();
+		int previous = Integer.MIN_VALUE; // Line of the previous occurrence, decoded once for all its words
+		for (int i = start; i < end; i++) {
+			int line = bucketLines[i];
+			if (line == previous) {
+				continue;
+			}
+			previous = line;
+
+			if (line < 0) { // A dictionary word maps to itself
+				String word = dictionaryWords[~line];
+				entries.put(word, word);
+			} else {
+				putLine(line, bucket, entries);
+			}
+		}
+
+		String[] tempEntries = new String[entries.size() * 2];
+		int i = 0;
+		for (Map.Entry<String, String> entry : entries.entrySet()) {
+			tempEntries[i++] = entry.getKey();
+			tempEntries[i++] = entry.getValue();
+		}
+		return tempEntries;
+	}
+
+	/**
+	 * Adds the words of a line which fall in a bucket to a Map, with the line's
+	 * dictionary word as their value. Nothing is added if the line has no
+	 * dictionary word.
+	 */
+	private void putLine(int line, int bucket, Map<String, String> entries) {
+		String value = lineValue(line);
+		if (value == NO_DICTIONARY_WORD) {
+			return;
+		}
+
+		int contentEnd = lineEnds[line];
+		int wordStart = lineStarts[line];
+		while (wordStart <= contentEnd) {
+			int wordEnd = MappedThesaurus.indexOf(buffer, (byte) ',', wordStart, contentEnd);
+			if (wordEnd > wordStart && bucketOf(hash(buffer, wordStart, wordEnd)) == bucket) {
+				String word = MappedThesaurus.decode(buffer, wordStart, wordEnd);
+				entries.put(word, value); // Later lines replace earlier ones
+			}
+			wordStart = wordEnd + 1;
+		}
+	}
+
+	/**
+	 * Returns the first word of a line found in the dictionary, in lower case, or
+	 * NO_DICTIONARY_WORD if there is none. Racing threads may both find the word,
+	 * which is harmless.
+	 */
+	private String lineValue(int line) {
+		String value = lineValues[line];
+		if (value != null) {
+			return value;
+		}
+
+		value = NO_DICTIONARY_WORD;
+		int contentEnd = lineEnds[line];
+		int wordStart = lineStarts[line];
+		while (wordStart <= contentEnd) {
+			int wordEnd = MappedThesaurus.indexOf(buffer, (byte) ',', wordStart, contentEnd);
+			if (wordEnd > wordStart) {
+				String lowerCaseWord = MappedThesaurus.decode(buffer, wordStart, wordEnd).toLowerCase();
+				if (dictionary.contains(lowerCaseWord)) {
+					value = lowerCaseWord;
+					break;
+				}
+			}
+			wordStart = wordEnd + 1;
+		}
+		lineValues[line] = value;
+		return value;
+	}
+
+	private static boolean charsEqual(String word, CharSequence key) {
+		if (word.length() != key.length()) {
+			return false;
+		}
+		for (int i = 0; i < word.length(); i++) {
+			if (word.charAt(i) != key.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String lookup(CharSequence key) {
+		String[] entries = bucket(bucketOf(OpenAddressingWordMap.hash(key)));
+		for (int i = 0; i < entries.length; i += 2) {
+			if (charsEqual(entries[i], key)) {
+				return entries[i + 1];
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public String get(Object key) {
+		return key instanceof CharSequence ? lookup((CharSequence) key) : null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * Returns the number of keys, materialising every bucket.
+	 */
+	@Override
+	public int size() {
+		int size = 0;
+		for (int b = 0; b <= mask; b++) {
+			size += bucket(b).length / 2;
+		}
+		return size;
+	}
+
+	/**
+	 * Returns a view of the entries, materialising each bucket as it is iterated
+	 * over.
+	 */
+	@Override
+	public Set<Map.Entry<String, String>> entrySet() {
+		return new AbstractSet<Map.Entry<String, String>>() {
+			@Override
+			public Iterator<Map.Entry<String, String>> iterator() {
+				return new Iterator<Map.Entry<String, String>>() {
+					private int nextBucket = 0; // Bucket after the one being iterated over
+					private String[] entries = EMPTY; // Entries of the bucket being iterated over
+					private int next = 0; // Index in entries of the next key
+
+					@Override
+					public boolean hasNext() {
+						while (next == entries.length && nextBucket <= mask) {
+							entries = bucket(nextBucket++);
+							next = 0;
+						}
+						return next < entries.length;
+					}
+
+					@Override
+					public Map.Entry<String, String> next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						next += 2;
+						return new SimpleImmutableEntry<String, String>(entries[next - 2], entries[next - 1]);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return LazyWordMap.this.size();
+			}
+		};
+	}
+}
@@ -0,0 +1,289 @@
+package com.barrysheehan.www;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Extends <code>AbstractThesaurus</code> and builds a "thesaurus"
+ * <i>wordMap</i> from two memory mapped .txt files.
+ * <p>
+ * Unlike <code>Thesaurus</code>, the files are never read into a String. They
+ * are mapped into memory using <code>FileReader.map()</code>, and each word is
+ * decoded directly from the mapped bytes into the <i>dictionary</i> and
+ * wordMap. Files are decoded as UTF-8, lines may end in either "\n" or "\r\n",
+ * and empty lines and empty words are ignored.
+ * 
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see AbstractThesaurus
+ * @see Thesaurus
+ * @see FileReader
+ * @since 1.8
+ *
+ */
+
+public class MappedThesaurus extends AbstractThesaurus {
+
+	// Number of bytes of the word list file decoded by a single task while building
+	// the wordMap in parallel
+	public static final int BYTES_PER_TASK = 1 << 16;
+
+	// Instance variables, deliberately not initialised here as they are set while
+	// the constructor of super is running
+	private ByteBuffer dictionaryBuffer; // Mapped contents of the dictionary file
+	private ByteBuffer wordListBuffer; // Mapped contents of the word list file
+
+	// Constructors
+	/**
+	 * Calls the constructor from <code>super</code> which creates a <i>wordMap</i>
+	 * from two memory mapped files and stores it in the supplied
+	 * <code>WordMapStorage</code> backend.
+	 * 
+	 * @param pathToDictionaryFile the path to the text file to be used when
+	 *                             building the <i>dictionary</i>
+	 * @param pathToWordListFile   the path to the text file to be used when
+	 *                             building a <i>wordMap</i>
+	 * @param storage              the storage backend used for lookups
+	 */
+	public MappedThesaurus(String pathToDictionaryFile, String pathToWordListFile, WordMapStorage storage) {
+		super(pathToDictionaryFile, pathToWordListFile, storage);
+		dictionaryBuffer = null; // Release mappings once the thesaurus has been built
+		wordListBuffer = null;
+	}
+
+	/**
+	 * Maps the dictionary file into memory.
+	 * <p>
+	 * If the supplied path does not lead to a .txt file, or the file can not be
+	 * read, the user is informed and the dictionary is left empty.
+	 * 
+	 * @param pathToTextFile the path to a text file to be mapped
+	 */
+	@Override
+	protected void initialiseDictionaryString(String pathToTextFile) {
+		try {
+			dictionaryBuffer = FileReader.map(pathToTextFile);
+		} catch (FileNotFoundException fnfe) {
+			System.out.println(ConsoleColour.colourize("RED",
+					"> !ERROR: Dictionary file not found. File not found at " + pathToTextFile));
+		} catch (IOException ioe) {
+			System.out.println(
+					ConsoleColour.colourize("RED", "> !ERROR: Unable to read Dictionary file at " + pathToTextFile));
+		}
+	}
+
+	/**
+	 * Maps the word list file into memory.
+	 * <p>
+	 * If the supplied path does not lead to a .txt file, or the file can not be
+	 * read, the user is informed and the word list is left empty.
+	 * 
+	 * @param pathToTextFile the path to a text file to be mapped
+	 */
+	@Override
+	protected void initialiseWordListString(String pathToTextFile) {
+		try {
+			wordListBuffer = FileReader.map(pathToTextFile);
+		} catch (FileNotFoundException fnfe) {
+			System.out.println(ConsoleColour.colourize("RED",
+					"> !ERROR: Word List file not found. File not found at " + pathToTextFile));
+		} catch (IOException ioe) {
+			System.out.println(ConsoleColour.colourize("RED",
+					"> !ERROR: Unable to read from Word List file at " + pathToTextFile));
+		}
+	}
+
+	/**
+	 * Populates a Set with each line of the mapped dictionary file, in lower case.
+	 * 
+	 * @return tempDictionary a populated Set
+	 */
+	@Override
+	public Set<String> createDictionary() {
+		Set<String> tempDictionary = new HashSet<String>();
+		if (dictionaryBuffer == null) { // Dictionary file could not be mapped
+			return tempDictionary;
+		}
+
+		int limit = dictionaryBuffer.limit();
+		int lineStart = 0;
+		while (lineStart < limit) {
+			int lineEnd = indexOf(dictionaryBuffer, (byte) '\n', lineStart, limit);
+			String word = decode(dictionaryBuffer, lineStart, trimCarriageReturn(dictionaryBuffer, lineStart, lineEnd));
+
+			if (!word.isEmpty()) {
+				tempDictionary.add(word.toLowerCase()); // Additions to dictionary lower case
+			}
+			lineStart = lineEnd + 1;
+		}
+		return tempDictionary;
+	}
+
+	/**
+	 * Creates a Map and adds each word from the <i>dictionary</i> to it, mapping
+	 * the word to itself.
+	 * <p>
+	 * The dictionary already holds every line of the dictionary file in lower
+	 * case, so the file does not need to be decoded a second time.
+	 * 
+	 * @return tempWordMap a populated Map
+	 */
+	@Override
+	public Map<String, String> initialiseWordMap() {
+		Map<String, String> tempWordMap = new HashMap<String, String>();
+		for (String word : getDictionary()) {
+			tempWordMap.put(word, word);
+		}
+		return tempWordMap;
+	}
+
+	/**
+	 * Populates the <i>wordMap</i> with each group of words in the mapped word list
+	 * file.
+	 * <p>
+	 * Each line of the file is decoded into a list of words. If one of the words
+	 * is in the <i>dictionary</i>, every word on the line is added as a key to the
+	 * wordMap with that dictionary word as its value.
+	 * <p>
+	 * The file is divided at line breaks into ranges of about
+	 * <i>BYTES_PER_TASK</i> bytes which are decoded and checked against the
+	 * dictionary on the common <code>ForkJoinPool</code>. The groups found are
+	 * put into the wordMap in line order, so the last line containing a word
+	 * decides its value.
+	 */
+	@Override
+	public void addWordMapEntries() {
+		if (wordListBuffer == null) { // Word list file could not be mapped
+			return;
+		}
+
+		RangeTask task = new RangeTask(wordListBuffer, getDictionary(), 0, wordListBuffer.limit());
+		task.putInOrder(getWordMap(), BYTES_PER_TASK);
+	}
+
+	/**
+	 * Decodes the groups of words on the lines in a range of the mapped word list
+	 * file whose dictionary word is in the <i>dictionary</i>.
+	 */
+	private static class RangeTask extends WordListTask {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ByteBuffer buffer; // Mapped word list file, only read with absolute gets
+		private final Set<String> dictionary; // Dictionary used to find the value of each group
+
+		RangeTask(ByteBuffer buffer, Set<String> dictionary, int start, int end) {
+			super(start, end);
+			this.buffer = buffer;
+			this.dictionary = dictionary;
+		}
+
+		@Override
+		protected int lineStart(int index) {
+			return Math.min(indexOf(buffer, (byte) '\n', index, end) + 1, end); // Start of next line
+		}
+
+		@Override
+		protected WordListTask subTask(int start, int end) {
+			return new RangeTask(buffer, dictionary, start, end);
+		}
+
+		@Override
+		protected void addGroups(List<String[]> groups) {
+			List<String> words = new ArrayList<String>(); // Reusable list holding the words on the current line
+
+			int lineStart = start;
+			while (lineStart < end) {
+				int lineEnd = indexOf(buffer, (byte) '\n', lineStart, end);
+				int contentEnd = trimCarriageReturn(buffer, lineStart, lineEnd);
+				String dictionaryWord = null;
+
+				words.clear();
+				int wordStart = lineStart;
+				while (wordStart <= contentEnd) {
+					int wordEnd = indexOf(buffer, (byte) ',', wordStart, contentEnd); // Split words at comma
+					if (wordEnd > wordStart) {
+						String word = decode(buffer, wordStart, wordEnd);
+						words.add(word);
+
+						if (dictionaryWord == null) {
+							String lowerCaseWord = word.toLowerCase();
+							if (dictionary.contains(lowerCaseWord)) { // First word on the line found in the dictionary
+								dictionaryWord = lowerCaseWord;
+							}
+						}
+					}
+					wordStart = wordEnd + 1;
+				}
+
+				if (dictionaryWord != null) { // If a dictionary word was found on the line
+					String[] group = new String[words.size() + 1];
+					group[0] = dictionaryWord;
+					for (int i = 0; i < words.size(); i++) {
+						group[i + 1] = words.get(i);
+					}
+					groups.add(group);
+				}
+				lineStart = lineEnd + 1;
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of the first occurrence of a byte in a buffer between two
+	 * indices, or <i>end</i> if it does not occur.
+	 */
+	static int indexOf(ByteBuffer buffer, byte b, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (buffer.get(i) == b) {
+				return i;
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * Returns the index at which a line ends once any trailing carriage return has
+	 * been removed.
+	 */
+	static int trimCarriageReturn(ByteBuffer buffer, int lineStart, int lineEnd) {
+		if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+			return lineEnd - 1;
+		}
+		return lineEnd;
+	}
+
+	/**
+	 * Decodes the bytes of a buffer between two indices as a UTF-8 String.
+	 * <p>
+	 * Plain ASCII, which makes up almost every word in the bundled files, is
+	 * copied straight into the String. Anything else is copied into a byte array
+	 * and decoded by the UTF-8 Charset. Only absolute gets are used, so several
+	 * threads may decode from the same buffer.
+	 */
+	static String decode(ByteBuffer buffer, int start, int end) {
+		int length = end - start;
+		char[] chars = new char[length];
+
+		for (int i = 0; i < length; i++) {
+			byte b = buffer.get(start + i);
+			if (b < 0) { // Not ASCII, decode whole word as UTF-8
+				byte[] bytes = new byte[length];
+				for (int j = 0; j < length; j++) {
+					bytes[j] = buffer.get(start + j);
+				}
+				return new String(bytes, StandardCharsets.UTF_8);
+			}
+			chars[i] = (char) b;
+		}
+		return new String(chars);
+	}
+}
@@ -0,0 +1,196 @@
+package com.barrysheehan.www;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable Map of Strings to Strings read directly from a buffer holding a
+ * thesaurus in the format written by <code>ThesaurusCompiler</code>.
+ * <p>
+ * Keys are never copied out of the buffer. A lookup hashes the characters it
+ * is given, probes the table stored in the buffer and compares characters in
+ * place, so no object is created per entry however large the thesaurus is.
+ * Only the dictionary words returned as values are decoded into Strings, once
+ * each, the first time they are needed.
+ * 
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see ThesaurusCompiler
+ * @see CompiledThesaurus
+ * @since 1.8
+ */
+
+public class MappedWordMap extends AbstractMap<String, String> implements WordLookup {
+
+	// Instance variables
+	private final ByteBuffer buffer; // Buffer holding the compiled thesaurus
+	private final int tableStart; // Offset of the first slot of the table
+	private final int dictionaryStart; // Offset of the first dictionary word offset
+	private final int mask; // Table capacity - 1
+	private final int size; // Number of keys
+	private final String[] dictionaryWords; // Dictionary words decoded so far, indexed by their position
+
+	// Constructors
+	/**
+	 * Creates a <code>MappedWordMap</code> reading from the supplied buffer, which
+	 * should already have been checked by <code>ThesaurusCompiler.verify()</code>.
+	 * 
+	 * @param buffer a buffer holding a compiled thesaurus
+	 */
+	public MappedWordMap(ByteBuffer buffer) {
+		int capacity = buffer.getInt(ThesaurusCompiler.HEADER_SIZE);
+
+		this.buffer = buffer;
+		this.tableStart = ThesaurusCompiler.HEADER_SIZE + 4;
+		this.dictionaryStart = tableStart + capacity * 4;
+		this.mask = capacity - 1;
+		this.size = buffer.getInt(ThesaurusCompiler.ENTRY_COUNT_OFFSET);
+		this.dictionaryWords = new String[buffer.getInt(ThesaurusCompiler.DICTIONARY_COUNT_OFFSET)];
+	}
+
+	/**
+	 * Returns the number of dictionary words stored in the buffer.
+	 * 
+	 * @return the number of dictionary words
+	 */
+	public int dictionarySize() {
+		return dictionaryWords.length;
+	}
+
+	/**
+	 * Returns the dictionary word at the supplied position, decoding it from the
+	 * buffer the first time it is requested.
+	 * 
+	 * @param index the position of the dictionary word
+	 * @return the dictionary word
+	 */
+	public String dictionaryWord(int index) {
+		String word = dictionaryWords[index];
+		if (word == null) { // Racing threads may both decode the word, which is harmless
+			word = readChars(buffer.getInt(dictionaryStart + index * 4));
+			dictionaryWords[index] = word;
+		}
+		return word;
+	}
+
+	/**
+	 * Returns the number of bytes of the buffer holding the compiled thesaurus,
+	 * which is off the heap if the buffer is direct or mapped.
+	 * 
+	 * @return the size of the buffer in bytes
+	 */
+	public long memoryBytes() {
+		return buffer.capacity();
+	}
+
+	/**
+	 * Finds the offset of the record holding the supplied key.
+	 * 
+	 * @param key the characters of the key to find
+	 * @return the offset of the key's record, or 0 if key is not present
+	 */
+	private int recordOf(CharSequence key) {
+		int hash = OpenAddressingWordMap.hash(key);
+		int slot = OpenAddressingWordMap.mix(hash) & mask;
+		int record;
+
+		while ((record = buffer.getInt(tableStart + slot * 4)) != 0) {
+			if (buffer.getInt(record) == hash && charsEqual(record + 8, key)) {
+				return record;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return 0;
+	}
+
+	private boolean charsEqual(int offset, CharSequence key) {
+		if (buffer.getInt(offset) != key.length()) {
+			return false;
+		}
+		int chars = offset + 4;
+		for (int i = 0; i < key.length(); i++) {
+			if (buffer.getChar(chars + i * 2) != key.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String readChars(int offset) {
+		char[] chars = new char[buffer.getInt(offset)];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = buffer.getChar(offset + 4 + i * 2);
+		}
+		return new String(chars);
+	}
+
+	@Override
+	public String lookup(CharSequence key) {
+		int record = recordOf(key);
+		return record == 0 ? null : dictionaryWord(buffer.getInt(record + 4));
+	}
+
+	@Override
+	public String get(Object key) {
+		return key instanceof CharSequence ? lookup((CharSequence) key) : null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return key instanceof CharSequence && recordOf((CharSequence) key) != 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns a view of the entries in the buffer. Each key is decoded into a new
+	 * String as it is iterated over.
+	 */
+	@Override
+	public Set<Map.Entry<String, String>> entrySet() {
+		return new AbstractSet<Map.Entry<String, String>>() {
+			@Override
+			public Iterator<Map.Entry<String, String>> iterator() {
+				return new Iterator<Map.Entry<String, String>>() {
+					private int next = advance(0); // Index of next occupied slot
+
+					private int advance(int slot) {
+						while (slot <= mask && buffer.getInt(tableStart + slot * 4) == 0) {
+							slot++;
+						}
+						return slot;
+					}
+
+					@Override
+					public boolean hasNext() {
+						return next <= mask;
+					}
+
+					@Override
+					public Map.Entry<String, String> next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						int record = buffer.getInt(tableStart + next * 4);
+						next = advance(next + 1);
+						return new SimpleImmutableEntry<String, String>(readChars(record + 8),
+								dictionaryWord(buffer.getInt(record + 4)));
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+}
@@ -0,0 +1,316 @@
+package com.barrysheehan.www;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable Map of Strings to Strings stored in a precomputed open
+ * addressing hash table.
+ * <p>
+ * The table is built once from a source Map and is never resized afterwards.
+ * Its capacity is a power of two at least twice the number of entries, so
+ * almost every lookup is resolved by the first slot probed. Collisions are
+ * resolved by linear probing.
+ * <p>
+ * No String objects are kept for keys. Each entry is packed into a single char
+ * array as the length of its key, the int ID of its value split over two
+ * chars, and the characters of its key, and each slot of the table holds the
+ * offset of its entry in that array. Values are stored once each in a table of
+ * distinct values, indexed by ID. A thesaurus in which many keys share one dictionary
+ * word therefore holds one String per dictionary word and no boxed values.
+ * <p>
+ * Keys can be looked up with any <code>CharSequence</code> through the
+ * <code>WordLookup</code> interface, which avoids creating a String for each
+ * word looked up.
+ * 
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see WordLookup
+ * @see WordMapStorage
+ * @since 1.8
+ *
+ */
+
+public class OpenAddressingWordMap extends AbstractMap<String, String> implements WordLookup {
+
+	// Number of chars before the characters of a key in each packed entry
+	private static final int ENTRY_HEADER = 3;
+
+	// Largest table capacity, the largest power of two an int array can hold
+	public static final int MAX_CAPACITY = 1 << 30;
+
+	// Largest number of chars in the packed entries, the largest array most JVMs
+	// can allocate
+	private static final int MAX_CHARS = Integer.MAX_VALUE - 8;
+
+	// Instance variables
+	private final char[] entryChars; // Key length, value ID and key characters of every entry, packed end to end
+	private final int[] entryOffsets; // Offset in entryChars of the entry in each slot, or -1 if the slot is empty
+	private final String[] values; // Each distinct value, indexed by its ID
+	private final int mask; // Table capacity - 1, used in place of the modulo operator
+	private final int size; // Number of entries in the table
+
+	// Constructors
+	/**
+	 * Creates an <code>OpenAddressingWordMap</code> containing every entry of the
+	 * supplied Map.
+	 * 
+	 * @param source the Map whose entries are copied into the table
+	 * @throws IllegalArgumentException if a key is longer than 65535 characters,
+	 *                                  or there are too many entries or
+	 *                                  characters for the table's arrays
+	 */
+	public OpenAddressingWordMap(Map<String, String> source) {
+		int capacity = tableCapacity(source.size());
+		long charCount = 0;
+		for (String key : source.keySet()) {
+			if (key.length() > Character.MAX_VALUE) { // Length must fit in a single char
+				throw new IllegalArgumentException("Key longer than " + (int) Character.MAX_VALUE + " characters");
+			}
+			charCount += key.length() + ENTRY_HEADER; // Characters of key plus its length and value ID
+		}
+		if (charCount > MAX_CHARS) { // Offsets must fit in an int
+			throw new IllegalArgumentException("Keys hold more than " + MAX_CHARS + " characters");
+		}
+
+		entryChars = new char[(int) charCount];
+		entryOffsets = new int[capacity];
+		mask = capacity - 1;
+		size = source.size();
+		Arrays.fill(entryOffsets, -1);
+
+		Map<String, Integer> ids = new HashMap<String, Integer>(); // Used only while building the table
+		List<String> distinctValues = new ArrayList<String>();
+
+		int offset = 0;
+		for (Map.Entry<String, String> entry : source.entrySet()) {
+			String key = entry.getKey();
+			Integer id = ids.get(entry.getValue());
+			if (id == null) { // First time this value has been seen
+				id = distinctValues.size();
+				ids.put(entry.getValue(), id);
+				distinctValues.add(entry.getValue());
+			}
+
+			int slot = mix(key.hashCode()) & mask;
+			while (entryOffsets[slot] != -1) { // Linear probe to the next free slot
+				slot = (slot + 1) & mask;
+			}
+			entryOffsets[slot] = offset;
+
+			entryChars[offset++] = (char) key.length();
+			entryChars[offset++] = (char) (id >>> 16);
+			entryChars[offset++] = (char) id.intValue();
+			key.getChars(0, key.length(), entryChars, offset);
+			offset += key.length();
+		}
+
+		values = distinctValues.toArray(new String[distinctValues.size()]);
+	}
+
+	/**
+	 * Returns the smallest power of two that is at least twice the supplied number
+	 * of entries, keeping the load factor of the table at or below one half.
+	 * 
+	 * @param entries the number of entries to be stored
+	 * @return the capacity of the table
+	 * @throws IllegalArgumentException if the capacity would be greater than
+	 *                                  <i>MAX_CAPACITY</i>
+	 */
+	public static int tableCapacity(int entries) {
+		if (entries > MAX_CAPACITY / 2) { // Doubling would overflow
+			throw new IllegalArgumentException("More than " + MAX_CAPACITY / 2 + " entries");
+		}
+		int capacity = 2;
+		while (capacity < entries * 2) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	/**
+	 * Computes the hash code of a <code>CharSequence</code> using the same
+	 * function as <code>String.hashCode()</code>, so that a buffer and a String
+	 * holding the same characters always hash alike.
+	 * 
+	 * @param chars the characters to hash
+	 * @return the hash code of chars
+	 */
+	public static int hash(CharSequence chars) {
+		int h = 0;
+		for (int i = 0; i < chars.length(); i++) {
+			h = 31 * h + chars.charAt(i);
+		}
+		return h;
+	}
+
+	/**
+	 * Spreads the bits of a hash code so that the low bits used to select a slot
+	 * depend on the whole hash code.
+	 * 
+	 * @param h a hash code
+	 * @return the mixed hash code
+	 */
+	public static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		return h;
+	}
+
+	/**
+	 * Finds the slot holding the supplied key.
+	 * 
+	 * @param key the characters of the key to find
+	 * @return the index of the slot holding key, or -1 if key is not present
+	 */
+	private int slotOf(CharSequence key) {
+		int slot = mix(hash(key)) & mask;
+		int offset;
+
+		while ((offset = entryOffsets[slot]) != -1) {
+			if (keyEquals(offset, key)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private boolean keyEquals(int offset, CharSequence key) {
+		if (entryChars[offset] != key.length()) {
+			return false;
+		}
+		for (int i = 0; i < key.length(); i++) {
+			if (entryChars[offset + ENTRY_HEADER + i] != key.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String keyAt(int slot) {
+		int offset = entryOffsets[slot];
+		return new String(entryChars, offset + ENTRY_HEADER, entryChars[offset]);
+	}
+
+	private int valueIdAt(int slot) {
+		int offset = entryOffsets[slot];
+		return entryChars[offset + 1] << 16 | entryChars[offset + 2];
+	}
+
+	/**
+	 * Returns the ID of the value mapped to the supplied key. IDs run from 0 to
+	 * <code>valueCount() - 1</code>.
+	 * 
+	 * @param key the characters of the key to look up
+	 * @return the ID of the value mapped to key, or -1 if key is not present
+	 */
+	public int lookupId(CharSequence key) {
+		int slot = slotOf(key);
+		return slot < 0 ? -1 : valueIdAt(slot);
+	}
+
+	/**
+	 * Returns the value with the supplied ID.
+	 * 
+	 * @param id the ID of a value
+	 * @return the value
+	 */
+	public String value(int id) {
+		return values[id];
+	}
+
+	/**
+	 * Returns the number of distinct values in the map.
+	 * 
+	 * @return the number of distinct values
+	 */
+	public int valueCount() {
+		return values.length;
+	}
+
+	/**
+	 * Estimates the number of bytes of heap used by the map: its three arrays and
+	 * each distinct value.
+	 * 
+	 * @return the estimated size of the map in bytes
+	 */
+	public long memoryBytes() {
+		long bytes = 16 + (long) entryChars.length * 2 + 16 + (long) entryOffsets.length * 4 + 16
+				+ (long) values.length * 4; // Array headers and elements, with compressed references
+		for (String value : values) {
+			bytes += SimplifierMetrics.stringBytes(value);
+		}
+		return bytes;
+	}
+
+	@Override
+	public String lookup(CharSequence key) {
+		int slot = slotOf(key);
+		return slot < 0 ? null : values[valueIdAt(slot)];
+	}
+
+	@Override
+	public String get(Object key) {
+		return key instanceof CharSequence ? lookup((CharSequence) key) : null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return key instanceof CharSequence && slotOf((CharSequence) key) >= 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Set<Map.Entry<String, String>> entrySet() {
+		return new AbstractSet<Map.Entry<String, String>>() {
+			@Override
+			public Iterator<Map.Entry<String, String>> iterator() {
+				return new Iterator<Map.Entry<String, String>>() {
+					private int next = advance(0); // Index of next occupied slot
+
+					private int advance(int slot) {
+						while (slot < entryOffsets.length && entryOffsets[slot] == -1) {
+							slot++;
+						}
+						return slot;
+					}
+
+					@Override
+					public boolean hasNext() {
+						return next < entryOffsets.length;
+					}
+
+					@Override
+					public Map.Entry<String, String> next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						Map.Entry<String, String> entry = new SimpleImmutableEntry<String, String>(keyAt(next),
+								values[valueIdAt(next)]);
+						next = advance(next + 1);
+						return entry;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+}
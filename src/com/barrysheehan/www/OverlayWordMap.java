@@ -0,0 +1,240 @@
+package com.barrysheehan.www;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable Map of Strings to Strings made up of a large <i>base</i> Map and
+ * a small set of changes to it, the <i>delta</i>.
+ * <p>
+ * Lookups check the delta first and then the base. Keys removed from the base
+ * are recorded in the delta with the value <i>REMOVED</i>. Creating an
+ * <code>OverlayWordMap</code> copies only the delta, so a large Map can be
+ * changed in time proportional to the size of the changes.
+ * <p>
+ * The delta is held in a <code>HashTrieWordMap</code>, so
+ * <code>apply()</code> can derive an overlay with further changes from an
+ * existing one, sharing all of its delta but the changed keys and counting its
+ * size from the changed keys alone. A Map edited many times is then changed in
+ * time proportional to each edit, not to every change made since its base was
+ * built.
+ * <p>
+ * The base may not be a <code>LazyWordMap</code>, as counting its keys, or
+ * iterating over them, would read every word of its word list file.
+ * 
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see ThesaurusWatcher
+ * @see ThesaurusRegistry
+ * @since 1.8
+ *
+ */
+
+public class OverlayWordMap extends AbstractMap<String, String> implements WordLookup {
+
+	// Value recorded in a delta for a key removed from the base. Compared by
+	// identity, and contains a character which can not appear in a dictionary word
+	public static final String REMOVED = new String("\u0000");
+
+	// Instance variables
+	private final Map<String, String> base; // Map to which the changes are applied
+	private final HashTrieWordMap delta; // Changes to the base, removed keys mapped to REMOVED
+	private final int size; // Number of keys in the base and delta, less removed keys
+
+	// Constructors
+	/**
+	 * Creates an <code>OverlayWordMap</code> applying the supplied changes to the
+	 * supplied base.
+	 * 
+	 * @param base  the Map to which the changes are applied, which should not be
+	 *              modified afterwards
+	 * @param delta the changes to the base, with removed keys mapped to
+	 *              <i>REMOVED</i>
+	 * @throws IllegalArgumentException if base is a <code>LazyWordMap</code>
+	 */
+	public OverlayWordMap(Map<String, String> base, Map<String, String> delta) {
+		if (base instanceof LazyWordMap) {
+			throw new IllegalArgumentException("The base of an OverlayWordMap can not be a LazyWordMap");
+		}
+		this.base = base;
+		this.delta = new HashTrieWordMap(delta);
+
+		int tempSize = base.size();
+		for (Map.Entry<String, String> change : delta.entrySet()) {
+			boolean inBase = base.containsKey(change.getKey());
+			if (change.getValue() == REMOVED) {
+				tempSize -= inBase ? 1 : 0;
+			} else {
+				tempSize += inBase ? 0 : 1;
+			}
+		}
+		this.size = tempSize;
+	}
+
+	private OverlayWordMap(Map<String, String> base, HashTrieWordMap delta, int size) {
+		this.base = base;
+		this.delta = delta;
+		this.size = size;
+	}
+
+	/**
+	 * Creates an <code>OverlayWordMap</code> with the same base as this one and
+	 * the supplied changes applied on top of this one's delta. Only the changed
+	 * keys are copied or counted.
+	 * 
+	 * @param changes keys mapped to their new values, to <i>REMOVED</i> if they
+	 *                are removed from the base, or to <code>null</code> if they
+	 *                have the same value as in the base again
+	 * @return the new overlay
+	 */
+	public OverlayWordMap apply(Map<String, String> changes) {
+		HashTrieWordMap tempDelta = delta;
+		int tempSize = size;
+
+		for (Map.Entry<String, String> change : changes.entrySet()) {
+			String key = change.getKey();
+			String value = change.getValue();
+			boolean wasPresent = lookup(key) != null;
+			boolean isPresent;
+
+			if (value == null) { // Back to the base value
+				tempDelta = tempDelta.without(key);
+				isPresent = base.containsKey(key);
+			} else {
+				tempDelta = tempDelta.with(key, value);
+				isPresent = value != REMOVED;
+			}
+			tempSize += (isPresent ? 1 : 0) - (wasPresent ? 1 : 0);
+		}
+		return new OverlayWordMap(base, tempDelta, tempSize);
+	}
+
+	public Map<String, String> getBase() {
+		return this.base;
+	}
+
+	/**
+	 * Returns the number of keys changed or removed by the delta.
+	 * 
+	 * @return the size of the delta
+	 */
+	public int deltaSize() {
+		return delta.size();
+	}
+
+	/**
+	 * Returns a copy of the changes applied to the base.
+	 * 
+	 * @return the delta, with removed keys mapped to <i>REMOVED</i>
+	 */
+	public Map<String, String> getDelta() {
+		return new HashMap<String, String>(delta); // Values are the same instances, including REMOVED
+	}
+
+	/**
+	 * Returns the keys which the delta adds to the base or whose values it
+	 * changes, without those it removes.
+	 * 
+	 * @return a new list of the keys
+	 */
+	public List<String> getChangedKeys() {
+		List<String> keys = new ArrayList<String>();
+		for (Map.Entry<String, String> change : delta.entrySet()) {
+			if (change.getValue() != REMOVED) {
+				keys.add(change.getKey());
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * Estimates the number of bytes of heap used by the delta, which is all the
+	 * memory used by this map beyond that of its base.
+	 * 
+	 * @return the estimated size of the delta in bytes
+	 */
+	public long deltaBytes() {
+		return delta.memoryBytes();
+	}
+
+	@Override
+	public String lookup(CharSequence key) {
+		String value = delta.lookup(key);
+		if (value == null) { // Key not changed, use base
+			return WordLookup.lookup(base, key);
+		}
+		return value == REMOVED ? null : value;
+	}
+
+	@Override
+	public String get(Object key) {
+		return key instanceof CharSequence ? lookup((CharSequence) key) : null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Set<Map.Entry<String, String>> entrySet() {
+		return new AbstractSet<Map.Entry<String, String>>() {
+			@Override
+			public Iterator<Map.Entry<String, String>> iterator() {
+				return new Iterator<Map.Entry<String, String>>() {
+					private final Iterator<Map.Entry<String, String>> changes = delta.entrySet().iterator();
+					private final Iterator<Map.Entry<String, String>> unchanged = base.entrySet().iterator();
+					private Map.Entry<String, String> next = advance();
+
+					private Map.Entry<String, String> advance() {
+						while (changes.hasNext()) { // Changed keys first, skipping removed keys
+							Map.Entry<String, String> change = changes.next();
+							if (change.getValue() != REMOVED) {
+								return change;
+							}
+						}
+						while (unchanged.hasNext()) { // Then keys of the base with no change
+							Map.Entry<String, String> entry = unchanged.next();
+							if (delta.lookup(entry.getKey()) == null) {
+								return entry;
+							}
+						}
+						return null;
+					}
+
+					@Override
+					public boolean hasNext() {
+						return next != null;
+					}
+
+					@Override
+					public Map.Entry<String, String> next() {
+						if (next == null) {
+							throw new NoSuchElementException();
+						}
+						Map.Entry<String, String> entry = next;
+						next = advance();
+						return entry;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+}
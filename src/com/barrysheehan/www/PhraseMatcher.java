@@ -0,0 +1,184 @@
+package com.barrysheehan.www;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Identifies the starts of the multi-word phrases, such as "a cappella" or "ex
+ * post facto", which appear as keys in a thesaurus' <i>wordMap</i>.
+ * <p>
+ * The phrases form a trie in which each node is one word. Rather than linking
+ * node objects, every node is identified by the text of its path from the
+ * root, the words of a phrase so far joined by single spaces, and the paths of
+ * all nodes which have children are stored in an
+ * <code>OpenAddressingWordMap</code>. Moving to a child node is then a matter
+ * of appending a space and the next word to a reusable buffer and probing the
+ * table with it, so phrases are matched word by word in a single pass over the
+ * text without creating any objects. Complete phrases are looked up in the
+ * wordMap itself.
+ * <p>
+ * A matcher for a word map made of changes to another, such as an
+ * <code>OverlayWordMap</code>, can be derived from the matcher of the other map
+ * by storing only the prefixes of the phrases added, so it is built in time
+ * and memory proportional to the changes. Prefixes of phrases which were
+ * removed are still reported as starting a phrase; the phrase is then not
+ * found in the wordMap, so only the time taken to look for it is affected.
+ * <code>with()</code> derives a matcher for further changes from a derived
+ * matcher without adding another matcher to be searched.
+ * 
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see AbstractThesaurus
+ * @see TextSimplifier
+ * @since 1.8
+ *
+ */
+
+public class PhraseMatcher {
+
+	// Instance variables
+	private final Map<String, String> prefixes; // Every word sequence which starts a longer phrase
+	private final PhraseMatcher base; // Matcher for the phrases not among the keys, or null
+	private final int maxWords; // Number of words in the longest phrase, at least 1
+
+	// Constructors
+	/**
+	 * Creates a <code>PhraseMatcher</code> for the multi-word keys of the supplied
+	 * word map. Keys containing consecutive, leading or trailing spaces can never
+	 * match space separated words and are ignored.
+	 * 
+	 * @param wordMap the word map of a thesaurus
+	 */
+	public PhraseMatcher(Map<String, String> wordMap) {
+		this(wordMap.keySet());
+	}
+
+	/**
+	 * Creates a <code>PhraseMatcher</code> for the multi-word keys among the
+	 * supplied keys. Keys containing consecutive, leading or trailing spaces can
+	 * never match space separated words and are ignored.
+	 * 
+	 * @param keys keys of the word map of a thesaurus
+	 */
+	public PhraseMatcher(Collection<String> keys) {
+		this(null, keys);
+	}
+
+	/**
+	 * Creates a <code>PhraseMatcher</code> for the phrases matched by another
+	 * matcher and the multi-word keys among the supplied keys, storing only the
+	 * prefixes of the supplied keys.
+	 * 
+	 * @param base the matcher for the word map to which the keys are added, or
+	 *             <code>null</code>
+	 * @param keys keys added to the word map, or changed
+	 */
+	public PhraseMatcher(PhraseMatcher base, Collection<String> keys) {
+		Map<String, String> tempPrefixes = new HashMap<String, String>();
+		int longest = addPrefixes(keys, tempPrefixes);
+
+		prefixes = new OpenAddressingWordMap(tempPrefixes);
+		this.base = base != null && !base.isEmpty() ? base : null; // An empty base never starts a phrase
+		maxWords = this.base != null ? Math.max(longest, this.base.maxWords) : longest;
+	}
+
+	private PhraseMatcher(PhraseMatcher base, Map<String, String> prefixes, int maxWords) {
+		this.prefixes = prefixes;
+		this.base = base;
+		this.maxWords = maxWords;
+	}
+
+	/**
+	 * Returns a <code>PhraseMatcher</code> for the phrases matched by this matcher
+	 * and the multi-word keys among the supplied keys. A matcher derived from
+	 * another by <code>with()</code> keeps its prefixes in a
+	 * <code>HashTrieWordMap</code>, and deriving from it again copies only the
+	 * new prefixes and shares the same base, so a matcher can follow a word map
+	 * through many small changes without the number of matchers searched, or the
+	 * prefixes copied, growing with each change.
+	 * 
+	 * @param keys keys added to the word map, or changed
+	 * @return the new matcher
+	 */
+	public PhraseMatcher with(Collection<String> keys) {
+		boolean derived = prefixes instanceof HashTrieWordMap; // Prefixes can be added to without copying
+		Map<String, String> tempPrefixes = new HashMap<String, String>();
+		int longest = addPrefixes(keys, tempPrefixes);
+
+		HashTrieWordMap newPrefixes = derived ? (HashTrieWordMap) prefixes : new HashTrieWordMap();
+		for (String prefix : tempPrefixes.keySet()) {
+			newPrefixes = newPrefixes.with(prefix, prefix);
+		}
+		PhraseMatcher newBase = derived ? base : (isEmpty() ? null : this);
+		return new PhraseMatcher(newBase, newPrefixes, Math.max(longest, maxWords));
+	}
+
+	/**
+	 * Adds the prefixes of the multi-word keys among the supplied keys to a Map,
+	 * each mapped to itself.
+	 * 
+	 * @return the number of words in the longest phrase, or 1 if there are none
+	 */
+	private static int addPrefixes(Collection<String> keys, Map<String, String> prefixes) {
+		int longest = 1;
+
+		for (String key : keys) {
+			if (key.indexOf(' ') < 0 || key.startsWith(" ") || key.endsWith(" ") || key.contains("  ")) {
+				continue; // Not a phrase that can be matched
+			}
+
+			int words = 1;
+			for (int i = key.indexOf(' '); i >= 0; i = key.indexOf(' ', i + 1)) {
+				String prefix = key.substring(0, i); // Words of the phrase before this space
+				prefixes.put(prefix, prefix);
+				words++;
+			}
+			longest = Math.max(longest, words);
+		}
+		return longest;
+	}
+
+	/**
+	 * Returns whether the supplied words, separated by single spaces, are the
+	 * start of a longer phrase.
+	 * 
+	 * @param words one or more words separated by single spaces
+	 * @return <code>true</code> if more words could complete a phrase
+	 */
+	public boolean startsPhrase(CharSequence words) {
+		return WordLookup.lookup(prefixes, words) != null || (base != null && base.startsPhrase(words));
+	}
+
+	/**
+	 * Returns whether there are no phrases to match.
+	 * 
+	 * @return <code>true</code> if the word map contains no phrases
+	 */
+	public boolean isEmpty() {
+		return prefixes.isEmpty() && base == null;
+	}
+
+	/**
+	 * Returns the number of words in the longest phrase, or 1 if there are no
+	 * phrases.
+	 * 
+	 * @return the number of words in the longest phrase
+	 */
+	public int maxWords() {
+		return maxWords;
+	}
+
+	/**
+	 * Estimates the number of bytes of heap used by the prefixes stored by this
+	 * matcher, not counting those of the matcher it was derived from.
+	 * 
+	 * @return the estimated size in bytes
+	 */
+	public long memoryBytes() {
+		if (prefixes instanceof HashTrieWordMap) {
+			return ((HashTrieWordMap) prefixes).memoryBytes();
+		}
+		return ((OpenAddressingWordMap) prefixes).memoryBytes();
+	}
+}
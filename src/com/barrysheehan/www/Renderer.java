@@ -0,0 +1,86 @@
+package com.barrysheehan.www;
+
+/**
+ * Defines how a <code>TextSimplifier</code> writes each simplified word into
+ * its output.
+ * <p>
+ * The simplification engine calls <code>word()</code> once for each word or
+ * phrase of the input text, in order, directly on the StringBuilder holding the
+ * output, so a renderer never needs to build Strings of its own. Each word is
+ * followed by a call to <code>separator()</code> with the characters between it
+ * and the next word, or a single space if the <code>Tokenizer</code> in use
+ * does not preserve separators. The words
+ * passed may be reusable buffers, and should not be kept after the call.
+ * Every word but the first of a text is preceded by a call to
+ * <code>between()</code>, which the engine tracks itself, so a renderer never
+ * needs to inspect the output already written, which may have been sent on.
+ * Output for a whole text begins with <code>begin()</code> and ends with
+ * <code>end()</code>.
+ * <p>
+ * Words may be rendered on several threads at once, for example by
+ * <code>swapTextParallel()</code>, each into its own StringBuilder, so a
+ * renderer should not keep any state between calls.
+ * 
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see StandardRenderer
+ * @see TextSimplifier
+ * @since 1.8
+ *
+ */
+
+public interface Renderer {
+
+	/**
+	 * Appends anything which must come before the first word of a text.
+	 * 
+	 * @param sb the StringBuilder holding the output
+	 */
+	default void begin(StringBuilder sb) {
+	}
+
+	/**
+	 * Appends a single word, or phrase, of the text.
+	 * 
+	 * @param sb      the StringBuilder holding the output
+	 * @param word    the word as it appears in the text, or as it was looked up,
+	 *                in lower case, if the <code>TextSimplifier</code> is not
+	 *                normalising words
+	 * @param swapped the word it was swapped with, with the punctuation and
+	 *                capitalisation of word when normalising, or
+	 *                <code>null</code> if it was not found
+	 * @param start   the index in the input text of the first character of the
+	 *                word
+	 * @param end     the index in the input text after the last character of the
+	 *                word
+	 */
+	void word(StringBuilder sb, CharSequence word, CharSequence swapped, long start, long end);
+
+	/**
+	 * Appends anything which must come between two words, before every word of a
+	 * text but the first, whatever the separator between them.
+	 * 
+	 * @param sb the StringBuilder holding the output
+	 */
+	default void between(StringBuilder sb) {
+	}
+
+	/**
+	 * Appends the characters separating two words, or found before the first word
+	 * or after the last word of a text.
+	 * 
+	 * @param sb        the StringBuilder holding the output
+	 * @param separator the characters of the separator
+	 */
+	default void separator(StringBuilder sb, CharSequence separator) {
+		sb.append(separator);
+	}
+
+	/**
+	 * Appends anything which must come after the last word of a text.
+	 * 
+	 * @param sb the StringBuilder holding the output
+	 */
+	default void end(StringBuilder sb) {
+	}
+}
@@ -1,5 +1,9 @@
 package com.barrysheehan.www;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.Scanner;
 
 /**
@@ -17,6 +21,25 @@ import java.util.Scanner;
  * <p>
  * Finally a <code>TextSimplifierInteractable</code> object is created to
  * capture user input and simplify it, the main functionality of the app.
+ * <p>
+ * If the first argument is "compile", the application instead compiles the
+ * dictionary file and word list file given as the next two arguments into a
+ * binary thesaurus, written to the path given as an optional fourth argument,
+ * and exits.
+ * <p>
+ * If the first argument is "batch", the application instead simplifies every
+ * file found at the path or glob pattern given as the fourth argument, using the
+ * dictionary file and word list file given as the second and third, writes the
+ * results to the directory given as the fifth argument using a
+ * <code>BatchSimplifier</code> with the optional sixth argument as its number of
+ * worker threads, reports its throughput and exits.
+ * <p>
+ * If the first argument is "serve", the application instead serves
+ * simplification over HTTP using a <code>SimplifierServer</code>, with the
+ * dictionary file and word list file given as the next two arguments, on the
+ * port given as an optional fourth argument. Any further arguments of the form
+ * <i>name=wordListFile</i> load more word lists as overlays on the first, which
+ * requests select with the <i>thesaurus</i> query parameter.
  * 
  * @author Barry
  * @version 0.1
@@ -25,7 +48,26 @@ import java.util.Scanner;
  */
 
 public class Runner {
+
+	// Port used by "serve" if none is given
+	public static final int DEFAULT_PORT = 8080;
+
+	// Name under which "serve" registers the thesaurus loaded from its word list file
+	public static final String DEFAULT_THESAURUS = "default";
+
 	public static void main(String[] args) {
+		if (args.length > 0 && args[0].equals("compile")) {
+			compile(args);
+			return;
+		}
+		if (args.length > 0 && args[0].equals("batch")) {
+			batch(args);
+			return;
+		}
+		if (args.length > 0 && args[0].equals("serve")) {
+			serve(args);
+			return;
+		}
 
 		System.out.println(ConsoleColour.CYAN);
 		System.out.println("***************************************************");
@@ -47,4 +89,144 @@ public class Runner {
 
 		sc.close(); // Close Scanner sc
 	}
+
+	/**
+	 * Compiles a dictionary file and word list file into a binary thesaurus using
+	 * <code>ThesaurusCompiler</code>.
+	 * 
+	 * @param args "compile", the path to the dictionary file, the path to the word
+	 *             list file and optionally the path to the compiled thesaurus
+	 */
+	private static void compile(String[] args) {
+		if (args.length < 3) {
+			System.out.println("Usage: compile <dictionaryFile> <wordListFile> [compiledFile]");
+			return;
+		}
+
+		String compiledFile = args.length > 3 ? args[3] : ThesaurusCompiler.compiledFileFor(args[2]);
+		long start = System.nanoTime();
+		try {
+			ThesaurusCompiler.compile(args[1], args[2], compiledFile);
+			System.out.println(ConsoleColour.colourize("GREEN", "> Compiled Thesaurus written to " + compiledFile
+					+ " in " + (System.nanoTime() - start) / 1000000 + "ms"));
+		} catch (IOException ioe) {
+			System.out.println(ConsoleColour.colourize("RED", "> !ERROR: Unable to write " + compiledFile));
+		}
+	}
+
+	/**
+	 * Simplifies a batch of files using <code>BatchSimplifier</code> and reports
+	 * the number of files and bytes simplified per second.
+	 * 
+	 * @param args "batch", the path to the dictionary file, the path to the word
+	 *             list file, a directory, file or glob pattern of files to
+	 *             simplify, the output directory and optionally the number of
+	 *             worker threads
+	 */
+	private static void batch(String[] args) {
+		if (args.length < 5) {
+			System.out.println("Usage: batch <dictionaryFile> <wordListFile> <input> <outputDirectory> [workers]");
+			return;
+		}
+
+		int workers = Runtime.getRuntime().availableProcessors();
+		if (args.length > 5) {
+			try {
+				workers = Integer.parseInt(args[5]);
+			} catch (NumberFormatException nfe) {
+				System.out.println(ConsoleColour.colourize("RED", "> !ERROR: Invalid number of workers: " + args[5]));
+				return;
+			}
+		}
+
+		List<Path> files;
+		try {
+			files = BatchSimplifier.findFiles(args[3]);
+		} catch (IOException ioe) {
+			System.out.println(ConsoleColour.colourize("RED", "> !ERROR: Unable to find files at " + args[3]));
+			return;
+		}
+
+		TextSimplifier ts = new TextSimplifier();
+		ts.setDictionaryFile(args[1]);
+		ts.setWordListFile(args[2]);
+		ts.init();
+
+		BatchSimplifier batch;
+		try {
+			batch = new BatchSimplifier(ts, workers);
+			batch.run(BatchSimplifier.inputRoot(args[3]), files, Paths.get(args[4]));
+		} catch (IllegalArgumentException iae) {
+			System.out.println(ConsoleColour.colourize("RED", "> !ERROR: Invalid number of workers: " + workers));
+			return;
+		} catch (InterruptedException ie) {
+			System.out.println(ConsoleColour.colourize("RED", "> !ERROR: Batch interrupted"));
+			return;
+		}
+
+		double seconds = Math.max(batch.getElapsedNanos(), 1) / 1e9;
+		System.out.println(ConsoleColour.colourize("GREEN",
+				String.format("> Simplified %d files (%d bytes) in %.2fs: %.1f files/sec, %.2f MB/sec read",
+						batch.getFilesWritten(), batch.getBytesRead(), seconds, batch.getFilesWritten() / seconds,
+						batch.getBytesRead() / seconds / (1 << 20))));
+		if (batch.getFilesFailed() > 0) {
+			System.out.println(ConsoleColour.colourize("RED", "> " + batch.getFilesFailed() + " files skipped"));
+		}
+	}
+
+	/**
+	 * Serves simplification over HTTP using <code>SimplifierServer</code> until
+	 * the application is stopped.
+	 * 
+	 * @param args "serve", the path to the dictionary file, the path to the word
+	 *             list file, optionally the port to listen on and any number of
+	 *             further word lists as <i>name=wordListFile</i>
+	 */
+	private static void serve(String[] args) {
+		if (args.length < 3) {
+			System.out.println("Usage: serve <dictionaryFile> <wordListFile> [port] [name=wordListFile ...]");
+			return;
+		}
+
+		int port = DEFAULT_PORT;
+		int overlays = 3; // Index of the first name=wordListFile argument
+		if (args.length > 3 && args[3].indexOf('=') < 0) {
+			try {
+				port = Integer.parseInt(args[3]);
+			} catch (NumberFormatException nfe) {
+				System.out.println(ConsoleColour.colourize("RED", "> !ERROR: Invalid port: " + args[3]));
+				return;
+			}
+			overlays = 4;
+		}
+
+		TextSimplifier ts = new TextSimplifier();
+		ts.setDictionaryFile(args[1]);
+		ts.setWordListFile(args[2]);
+		ts.init();
+
+		ThesaurusRegistry registry = ts.getRegistry();
+		registry.register(DEFAULT_THESAURUS, ts.getThesaurus());
+		for (int i = overlays; i < args.length; i++) {
+			int equals = args[i].indexOf('=');
+			if (equals <= 0) {
+				System.out.println(ConsoleColour.colourize("RED", "> !ERROR: Expected name=wordListFile: " + args[i]));
+				return;
+			}
+			String name = args[i].substring(0, equals);
+			registry.loadOverlay(name, DEFAULT_THESAURUS, args[1], args[i].substring(equals + 1), ts.getLoader(),
+					ts.getStorage());
+			System.out.println(ConsoleColour.colourize("CYAN", "> Loaded thesaurus " + name + " using "
+					+ registry.uniqueBytes(name) + " bytes beyond " + DEFAULT_THESAURUS));
+		}
+
+		try {
+			SimplifierServer server = new SimplifierServer(ts, port);
+			server.start(); // Server threads keep the application running
+			System.out.println(ConsoleColour.colourize("GREEN", "> POST text to be simplified to http://localhost:"
+					+ server.getPort() + SimplifierServer.SIMPLIFY_PATH));
+		} catch (IOException | IllegalArgumentException e) {
+			System.out.println(ConsoleColour.colourize("RED", "> !ERROR: Unable to listen on port " + port));
+		}
+	}
 }
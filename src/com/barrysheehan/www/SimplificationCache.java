@@ -0,0 +1,264 @@
+package com.barrysheehan.www;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of simplified text, used by a <code>TextSimplifier</code> to
+ * avoid simplifying the same text again when it is repeated.
+ * <p>
+ * Results are keyed on the input text, the thesaurus and <code>Renderer</code>
+ * used, compared by identity, and a number identifying the other settings it
+ * was simplified with. Results from several thesauri, such as those selected by
+ * name from a <code>ThesaurusRegistry</code>, are cached side by side, and a
+ * result is only returned for the same thesaurus and settings, so results are
+ * never served from an old thesaurus or old settings, even when put by a
+ * simplification which was in progress while they changed.
+ * <code>TextSimplifier</code> also clears the cache whenever it installs a new
+ * thesaurus or changes its settings, so old results do not hold on to memory.
+ * <p>
+ * The size of the cache is bounded by its weight, the total number of
+ * characters of the input and simplified text it holds. The cache is divided
+ * into <i>SEGMENTS</i> segments, each holding an equal share of the weight in
+ * a <code>LinkedHashMap</code> in access order, so that the least recently used
+ * results are evicted first and threads using different segments never wait
+ * for each other. Text too heavy to fit in a segment is never cached.
+ * <p>
+ * Hits, misses and evictions are counted with <code>LongAdder</code>s, so
+ * counting adds no contention between threads.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see TextSimplifier
+ * @since 1.8
+ *
+ */
+
+public class SimplificationCache {
+
+	// Number of independently locked segments
+	public static final int SEGMENTS = 16;
+
+	// Instance variables
+	private final Segment[] segments; // Segments holding the cached results
+	private final long maxWeight; // Maximum number of characters held
+	private final LongAdder hits = new LongAdder(); // Lookups which found a result
+	private final LongAdder misses = new LongAdder(); // Lookups which found no result
+	private final LongAdder evictions = new LongAdder(); // Results removed to make room for others
+
+	/**
+	 * The text simplified and how it was simplified, used as the key of a result.
+	 */
+	private static class Key {
+		final AbstractThesaurus thesaurus; // Thesaurus which produced the result
+		final Renderer renderer; // Renderer used to write the result
+		final long settings; // Other settings used to produce the result
+		final String text; // Text simplified
+
+		Key(AbstractThesaurus thesaurus, Renderer renderer, long settings, String text) {
+			this.thesaurus = thesaurus;
+			this.renderer = renderer;
+			this.settings = settings;
+			this.text = text;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = text.hashCode() * 31 + System.identityHashCode(renderer);
+			hash = hash * 31 + System.identityHashCode(thesaurus);
+			return hash * 31 + Long.hashCode(settings);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return thesaurus == other.thesaurus && renderer == other.renderer && settings == other.settings
+					&& text.equals(other.text);
+		}
+	}
+
+	/**
+	 * One independently locked part of the cache, mapping each key to its
+	 * simplified text.
+	 */
+	private static class Segment extends LinkedHashMap<Key, String> {
+
+		private static final long serialVersionUID = 1L;
+
+		long weight; // Number of characters held, guarded by this
+
+		Segment() {
+			super(16, 0.75f, true); // Iterates from least to most recently used
+		}
+	}
+
+	// Constructors
+	/**
+	 * Creates an empty <code>SimplificationCache</code> holding at most the
+	 * supplied number of characters of input and simplified text.
+	 *
+	 * @param maxWeight the maximum number of characters held
+	 */
+	public SimplificationCache(long maxWeight) {
+		if (maxWeight < SEGMENTS) {
+			throw new IllegalArgumentException("maxWeight must be at least " + SEGMENTS);
+		}
+		this.maxWeight = maxWeight;
+		this.segments = new Segment[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment();
+		}
+	}
+
+	/**
+	 * Returns the simplified text cached for the supplied text, if it was
+	 * simplified using the supplied thesaurus, renderer and settings.
+	 *
+	 * @param thesaurus the thesaurus used to simplify the text
+	 * @param renderer  the renderer used to write the simplified text
+	 * @param settings  identifies the other settings used to simplify the text
+	 * @param text      the text to be simplified
+	 * @return the simplified text, or <code>null</code> if it is not cached
+	 */
+	public String get(AbstractThesaurus thesaurus, Renderer renderer, long settings, String text) {
+		Key key = new Key(thesaurus, renderer, settings, text);
+		Segment segment = segmentFor(key);
+		String result;
+
+		synchronized (segment) {
+			result = segment.get(key);
+		}
+
+		if (result == null) {
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		return result;
+	}
+
+	/**
+	 * Caches the simplified text of the supplied text, evicting the least recently
+	 * used results if the cache is full.
+	 *
+	 * @param thesaurus  the thesaurus used to simplify the text
+	 * @param renderer   the renderer used to write the simplified text
+	 * @param settings   identifies the other settings used to simplify the text
+	 * @param text       the text simplified
+	 * @param simplified the simplified text
+	 */
+	public void put(AbstractThesaurus thesaurus, Renderer renderer, long settings, String text, String simplified) {
+		Key key = new Key(thesaurus, renderer, settings, text);
+		long weight = weight(key, simplified);
+		long segmentMaxWeight = maxWeight / SEGMENTS;
+		if (weight > segmentMaxWeight) { // Too heavy to cache
+			return;
+		}
+
+		Segment segment = segmentFor(key);
+		synchronized (segment) {
+			String previous = segment.put(key, simplified);
+			if (previous != null) {
+				segment.weight -= weight(key, previous);
+			}
+			segment.weight += weight;
+
+			Iterator<Map.Entry<Key, String>> eldest = segment.entrySet().iterator();
+			while (segment.weight > segmentMaxWeight) { // Evict least recently used results
+				Map.Entry<Key, String> entry = eldest.next();
+				segment.weight -= weight(entry.getKey(), entry.getValue());
+				eldest.remove();
+				evictions.increment();
+			}
+		}
+	}
+
+	/**
+	 * Removes every result from the cache. The hit, miss and eviction counts are
+	 * kept.
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+				segment.weight = 0;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of results cached.
+	 *
+	 * @return the number of results
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the number of characters of input and simplified text cached.
+	 *
+	 * @return the weight of the cached results
+	 */
+	public long weight() {
+		long weight = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				weight += segment.weight;
+			}
+		}
+		return weight;
+	}
+
+	public long getMaxWeight() {
+		return this.maxWeight;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	@Override
+	public String toString() {
+		long hits = getHits();
+		long lookups = hits + getMisses();
+		return String.format("%d hits, %d misses (%.1f%% hit rate), %d evictions, %d results, %d/%d characters", hits,
+				lookups - hits, lookups == 0 ? 0.0 : hits * 100.0 / lookups, getEvictions(), size(), weight(),
+				maxWeight);
+	}
+
+	/**
+	 * Returns the segment holding a key.
+	 */
+	private Segment segmentFor(Key key) {
+		int hash = key.hashCode();
+		hash ^= hash >>> 16; // Spread high bits into the bits used to choose a segment
+		return segments[hash & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * Returns the number of characters held by a cached result.
+	 */
+	private static long weight(Key key, String simplified) {
+		return key.text.length() + simplified.length();
+	}
+}
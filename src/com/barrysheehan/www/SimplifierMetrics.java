@@ -0,0 +1,326 @@
+package com.barrysheehan.www;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Collects metrics describing the work done by a <code>TextSimplifier</code>:
+ * how much text it simplifies, how many words are swapped, how long
+ * simplification, reading files and loading a thesaurus take, and the size of
+ * the thesaurus in use.
+ * <p>
+ * Metrics are only collected once set with
+ * <code>TextSimplifier.setMetrics()</code>. Until then the only cost to the
+ * <code>TextSimplifier</code> is checking a field for <code>null</code> once
+ * per text simplified. Once set, counts are added with <code>LongAdder</code>s
+ * and durations recorded in <code>LatencyHistogram</code>s, neither of which
+ * lock, and words are counted once per text rather than once per word.
+ * <p>
+ * The metrics can be read directly, or through JMX once registered with
+ * <code>register()</code>. Sizes of thesauri in bytes are estimates, assuming
+ * a 64-bit JVM with compressed references.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see TextSimplifier
+ * @see LatencyHistogram
+ * @see SimplifierMetricsMBean
+ * @since 1.8
+ *
+ */
+
+public class SimplifierMetrics implements SimplifierMetricsMBean {
+
+	// Domain of the JMX names of registered metrics
+	public static final String JMX_DOMAIN = "com.barrysheehan.www";
+
+	// Instance variables
+	private final LongAdder wordsProcessed = new LongAdder(); // Words and phrases simplified
+	private final LongAdder wordsSwapped = new LongAdder(); // Words and phrases found in the thesaurus
+	private final LongAdder wordsTested = new LongAdder(); // Calls to testWord()
+	private final LongAdder testHits = new LongAdder(); // Calls to testWord() which returned true
+	private final LatencyHistogram simplifyLatency = new LatencyHistogram(); // Nanoseconds per text simplified
+	private final LatencyHistogram fileReadLatency = new LatencyHistogram(); // Nanoseconds per file read
+	private final LatencyHistogram loadLatency = new LatencyHistogram(); // Nanoseconds per thesaurus loaded
+
+	private volatile long lastLoadNanos; // Time taken to load the latest thesaurus
+	private volatile int thesaurusSize; // Number of keys in the thesaurus in use
+	private volatile long thesaurusBytes; // Estimated size of the wordMap in use
+	private volatile LazyWordMap lazyWordMap; // wordMap in use if it is read as words are looked up
+
+	// Recording, called by TextSimplifier and FileReader
+	/**
+	 * Records a text which has been simplified.
+	 *
+	 * @param nanos the time taken to simplify it
+	 */
+	public void recordText(long nanos) {
+		simplifyLatency.record(nanos);
+	}
+
+	/**
+	 * Records a number of words, or phrases, which have been simplified.
+	 *
+	 * @param words   the number of words simplified
+	 * @param swapped the number of those words found in the thesaurus
+	 */
+	public void recordWords(int words, int swapped) {
+		wordsProcessed.add(words);
+		wordsSwapped.add(swapped);
+	}
+
+	/**
+	 * Records a call to <code>testWord()</code>.
+	 *
+	 * @param hit whether the word was found in the thesaurus
+	 */
+	public void recordTest(boolean hit) {
+		wordsTested.increment();
+		if (hit) {
+			testHits.increment();
+		}
+	}
+
+	/**
+	 * Records a file which has been read or mapped by <code>FileReader</code>.
+	 *
+	 * @param nanos the time taken to read it
+	 */
+	public void recordFileRead(long nanos) {
+		fileReadLatency.record(nanos);
+	}
+
+	/**
+	 * Records a thesaurus which has been loaded.
+	 *
+	 * @param nanos the time taken to load it
+	 */
+	public void recordLoad(long nanos) {
+		loadLatency.record(nanos);
+		lastLoadNanos = nanos;
+	}
+
+	/**
+	 * Records the size of a thesaurus which has been put into use.
+	 *
+	 * @param thesaurus the thesaurus now in use
+	 */
+	public void recordThesaurus(AbstractThesaurus thesaurus) {
+		Map<String, String> wordMap = thesaurus.getWordMap();
+		if (wordMap instanceof LazyWordMap) { // Grows as words are read, so measured when asked
+			lazyWordMap = (LazyWordMap) wordMap;
+			return;
+		}
+		lazyWordMap = null;
+		thesaurusSize = wordMap.size();
+		thesaurusBytes = estimateBytes(wordMap);
+	}
+
+	// Histograms
+	public LatencyHistogram getSimplifyLatency() {
+		return this.simplifyLatency;
+	}
+
+	public LatencyHistogram getFileReadLatency() {
+		return this.fileReadLatency;
+	}
+
+	public LatencyHistogram getLoadLatency() {
+		return this.loadLatency;
+	}
+
+	// Attributes exposed through JMX
+	@Override
+	public long getTextsSimplified() {
+		return simplifyLatency.getCount();
+	}
+
+	@Override
+	public long getWordsProcessed() {
+		return wordsProcessed.sum();
+	}
+
+	@Override
+	public long getWordsSwapped() {
+		return wordsSwapped.sum();
+	}
+
+	@Override
+	public double getSwapRate() {
+		long words = wordsProcessed.sum();
+		return words == 0 ? 0 : (double) wordsSwapped.sum() / words;
+	}
+
+	@Override
+	public long getWordsTested() {
+		return wordsTested.sum();
+	}
+
+	@Override
+	public double getTestHitRate() {
+		long tests = wordsTested.sum();
+		return tests == 0 ? 0 : (double) testHits.sum() / tests;
+	}
+
+	@Override
+	public double getSimplifyMeanMicros() {
+		return simplifyLatency.getMean() / 1e3;
+	}
+
+	@Override
+	public double getSimplifyP50Micros() {
+		return simplifyLatency.getValueAtPercentile(50) / 1e3;
+	}
+
+	@Override
+	public double getSimplifyP99Micros() {
+		return simplifyLatency.getValueAtPercentile(99) / 1e3;
+	}
+
+	@Override
+	public double getSimplifyP999Micros() {
+		return simplifyLatency.getValueAtPercentile(99.9) / 1e3;
+	}
+
+	@Override
+	public double getSimplifyMaxMicros() {
+		return simplifyLatency.getMax() / 1e3;
+	}
+
+	@Override
+	public long getFilesRead() {
+		return fileReadLatency.getCount();
+	}
+
+	@Override
+	public double getFileReadMeanMicros() {
+		return fileReadLatency.getMean() / 1e3;
+	}
+
+	@Override
+	public long getThesaurusLoads() {
+		return loadLatency.getCount();
+	}
+
+	@Override
+	public double getLastLoadMillis() {
+		return lastLoadNanos / 1e6;
+	}
+
+	@Override
+	public double getLoadMeanMillis() {
+		return loadLatency.getMean() / 1e6;
+	}
+
+	@Override
+	public int getThesaurusSize() {
+		LazyWordMap lazy = lazyWordMap;
+		return lazy == null ? thesaurusSize : (int) lazy.loadedSize();
+	}
+
+	@Override
+	public long getThesaurusMemoryBytes() {
+		LazyWordMap lazy = lazyWordMap;
+		return lazy == null ? thesaurusBytes : lazy.memoryBytes();
+	}
+
+	@Override
+	public void reset() {
+		wordsProcessed.reset();
+		wordsSwapped.reset();
+		wordsTested.reset();
+		testHits.reset();
+		simplifyLatency.reset();
+		fileReadLatency.reset();
+		loadLatency.reset();
+		lastLoadNanos = 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"texts=%d words=%d swapRate=%.3f simplify[us]: mean=%.1f p50=%.1f p99=%.1f max=%.1f"
+						+ " loads=%d lastLoad=%.1fms thesaurus=%d keys, ~%d bytes",
+				getTextsSimplified(), getWordsProcessed(), getSwapRate(), getSimplifyMeanMicros(),
+				getSimplifyP50Micros(), getSimplifyP99Micros(), getSimplifyMaxMicros(), getThesaurusLoads(),
+				getLastLoadMillis(), getThesaurusSize(), getThesaurusMemoryBytes());
+	}
+
+	// JMX
+	/**
+	 * Registers the metrics with the platform MBean server, under the name
+	 * <i>com.barrysheehan.www:type=TextSimplifier,name=</i> followed by the
+	 * supplied name.
+	 *
+	 * @param name a name distinguishing these metrics from any others registered
+	 * @return the name the metrics were registered under
+	 * @throws JMException if the metrics can not be registered, for example if the
+	 *                     name is already in use
+	 */
+	public ObjectName register(String name) throws JMException {
+		ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=TextSimplifier,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		return objectName;
+	}
+
+	/**
+	 * Removes metrics registered under the supplied name from the platform MBean
+	 * server.
+	 *
+	 * @param objectName the name returned by <code>register()</code>
+	 * @throws JMException if nothing is registered under the name
+	 */
+	public static void unregister(ObjectName objectName) throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		server.unregisterMBean(objectName);
+	}
+
+	// Size estimates
+	/**
+	 * Estimates the number of bytes of memory used by a word map, including off
+	 * heap memory used by a <code>MappedWordMap</code>.
+	 * <p>
+	 * Maps in the thesaurus' own formats report their size directly. Other Maps
+	 * are estimated from the size of a <code>HashMap</code> entry and of each key,
+	 * as values are shared dictionary words.
+	 *
+	 * @param wordMap the word map to measure
+	 * @return the estimated size in bytes
+	 */
+	public static long estimateBytes(Map<String, String> wordMap) {
+		if (wordMap instanceof OpenAddressingWordMap) {
+			return ((OpenAddressingWordMap) wordMap).memoryBytes();
+		}
+		if (wordMap instanceof MappedWordMap) {
+			return ((MappedWordMap) wordMap).memoryBytes();
+		}
+		if (wordMap instanceof LazyWordMap) {
+			return ((LazyWordMap) wordMap).memoryBytes();
+		}
+		if (wordMap instanceof OverlayWordMap) {
+			OverlayWordMap overlay = (OverlayWordMap) wordMap;
+			return estimateBytes(overlay.getBase()) + overlay.deltaBytes();
+		}
+
+		long bytes = 16 + wordMap.size() * 8L; // Table of references, at most half empty
+		for (String key : wordMap.keySet()) {
+			bytes += 32 + stringBytes(key); // Entry object and its key
+		}
+		return bytes;
+	}
+
+	/**
+	 * Estimates the number of bytes used by a String and its characters.
+	 *
+	 * @param s the String to measure
+	 * @return the estimated size in bytes
+	 */
+	static long stringBytes(String s) {
+		return 24 + 16 + s.length() * 2L; // String object, array header and UTF-16 characters
+	}
+}
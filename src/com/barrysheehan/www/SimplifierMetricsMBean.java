@@ -0,0 +1,60 @@
+package com.barrysheehan.www;
+
+/**
+ * Defines the attributes and operations of <code>SimplifierMetrics</code>
+ * exposed through JMX, for example in JConsole or VisualVM.
+ * <p>
+ * Durations are reported in microseconds, or milliseconds for loading a
+ * thesaurus.
+ * 
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see SimplifierMetrics
+ * @since 1.8
+ *
+ */
+
+public interface SimplifierMetricsMBean {
+
+	long getTextsSimplified();
+
+	long getWordsProcessed();
+
+	long getWordsSwapped();
+
+	double getSwapRate();
+
+	long getWordsTested();
+
+	double getTestHitRate();
+
+	double getSimplifyMeanMicros();
+
+	double getSimplifyP50Micros();
+
+	double getSimplifyP99Micros();
+
+	double getSimplifyP999Micros();
+
+	double getSimplifyMaxMicros();
+
+	long getFilesRead();
+
+	double getFileReadMeanMicros();
+
+	long getThesaurusLoads();
+
+	double getLastLoadMillis();
+
+	double getLoadMeanMillis();
+
+	int getThesaurusSize();
+
+	long getThesaurusMemoryBytes();
+
+	/**
+	 * Sets every count and duration to zero. The size of the thesaurus in use is
+	 * kept.
+	 */
+	void reset();
+}
@@ -0,0 +1,316 @@
+package com.barrysheehan.www;
+
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves text simplification over HTTP using the JDK's built in
+ * <code>HttpServer</code>, sharing a single <code>TextSimplifier</code> and its
+ * thesaurus between every request.
+ * <p>
+ * Text POSTed to <i>/simplify</i> is simplified and returned as UTF-8 plain
+ * text. Adding a query such as <i>?format=json</i> returns it in the format of
+ * the named <code>StandardRenderer</code> instead, and adding
+ * <i>thesaurus=name</i> simplifies it with the thesaurus registered under that
+ * name in the <code>TextSimplifier</code>'s <code>ThesaurusRegistry</code>.
+ * Names and values in the query are URL decoded as UTF-8. Request bodies are
+ * simplified as they are read using <code>TextSimplifier.simplify()</code>, and
+ * the response is streamed back while the request is still being read, so
+ * large bodies are never held in memory. Bodies longer than
+ * <i>maxBodyBytes</i> are refused with 413 Payload Too Large if their length is
+ * sent in advance, and otherwise cut off, ending the response, once that many
+ * bytes have been read.
+ * <p>
+ * Each request is handled on its own virtual thread when the JVM supports them
+ * (Java 21 or later), so thousands of concurrent requests do not need thousands
+ * of platform threads. On older JVMs requests are handled on a cached thread
+ * pool.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see TextSimplifier
+ * @see Runner
+ * @since 1.8
+ *
+ */
+
+public class SimplifierServer implements AutoCloseable {
+
+	// Path at which text is simplified
+	public static final String SIMPLIFY_PATH = "/simplify";
+
+	// Default maximum number of bytes read from the body of a request
+	public static final long DEFAULT_MAX_BODY_BYTES = 64L << 20;
+
+	// Size of the buffer used to write each response
+	private static final int RESPONSE_BUFFER_SIZE = 8192;
+
+	// Instance variables
+	private final TextSimplifier ts; // TextSimplifier shared by every request
+	private final HttpServer server; // Server accepting requests
+	private final ExecutorService executor; // Runs each request
+	private volatile long maxBodyBytes = DEFAULT_MAX_BODY_BYTES; // Longest request body simplified
+
+	// Constructors
+	/**
+	 * Creates a <code>SimplifierServer</code> listening on the supplied port. The
+	 * server does not accept requests until <code>start()</code> is called.
+	 *
+	 * @param ts   a configured <code>TextSimplifier</code>
+	 * @param port the port to listen on, or 0 for any free port
+	 * @throws IOException if the server can not listen on the port
+	 */
+	public SimplifierServer(TextSimplifier ts, int port) throws IOException {
+		this.ts = ts;
+		this.server = HttpServer.create(new InetSocketAddress(port), 0);
+		this.executor = newRequestExecutor();
+
+		server.createContext(SIMPLIFY_PATH, this::handle);
+		server.setExecutor(executor);
+	}
+
+	/**
+	 * Creates an executor running each task on a new virtual thread if the JVM
+	 * supports them, or on a cached pool of platform threads otherwise.
+	 * <p>
+	 * The virtual thread executor is found by reflection, as it does not exist in
+	 * the Java version the application is compiled for.
+	 *
+	 * @return an executor for handling requests
+	 */
+	static ExecutorService newRequestExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException noVirtualThreads) { // Before Java 21
+			return Executors.newCachedThreadPool(runnable -> {
+				Thread thread = new Thread(runnable, "simplifier-request");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	public long getMaxBodyBytes() {
+		return this.maxBodyBytes;
+	}
+
+	public void setMaxBodyBytes(long maxBodyBytes) {
+		this.maxBodyBytes = maxBodyBytes;
+	}
+
+	/**
+	 * Returns the port the server is listening on.
+	 *
+	 * @return the port
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Starts accepting requests on a background thread.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops accepting requests, waiting up to a second for requests in progress to
+	 * finish.
+	 */
+	@Override
+	public void close() {
+		server.stop(1);
+		executor.shutdown();
+	}
+
+	/**
+	 * Finds the value of a parameter of a request's query, such as <i>json</i>
+	 * for the <i>format</i> parameter of <i>format=json</i>. Names and values are
+	 * URL decoded before they are compared and returned.
+	 *
+	 * @param query the raw query of the request, or <code>null</code>
+	 * @param name  the name of the parameter
+	 * @return the value of the parameter, or <code>null</code> if it is not in
+	 *         the query
+	 * @throws IllegalArgumentException if the query is not correctly encoded
+	 */
+	private static String parameter(String query, String name) {
+		if (query != null) {
+			for (String parameter : query.split("&")) {
+				int equals = parameter.indexOf('=');
+				if (equals >= 0 && decode(parameter.substring(0, equals)).equals(name)) {
+					return decode(parameter.substring(equals + 1));
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * URL decodes part of a query as UTF-8.
+	 */
+	private static String decode(String encoded) {
+		try {
+			return URLDecoder.decode(encoded, "UTF-8");
+		} catch (UnsupportedEncodingException impossible) { // Every JVM supports UTF-8
+			throw new IllegalStateException(impossible);
+		}
+	}
+
+	/**
+	 * Finds the renderer named by the <i>format</i> parameter of a request's query,
+	 * such as <i>format=json</i>, or <code>PLAIN</code> if there is none.
+	 *
+	 * @param query the raw query of the request, or <code>null</code>
+	 * @return the renderer, or <code>null</code> if the format is not known
+	 * @throws IllegalArgumentException if the query is not correctly encoded
+	 */
+	private static StandardRenderer renderer(String query) {
+		String format = parameter(query, "format");
+		if (format == null) {
+			return StandardRenderer.PLAIN;
+		}
+		try {
+			return StandardRenderer.valueOf(format.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException unknown) {
+			return null;
+		}
+	}
+
+	/**
+	 * Handles a single request to <i>SIMPLIFY_PATH</i>.
+	 * <p>
+	 * Only POST requests are accepted. The response is sent using chunked
+	 * encoding, as its length is not known until the whole body has been read.
+	 *
+	 * @param exchange the request and its response
+	 * @throws IOException if the request can not be read or answered
+	 */
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			if (!exchange.getRequestMethod().equals("POST")) {
+				exchange.getResponseHeaders().set("Allow", "POST");
+				refuse(exchange, 405); // Method Not Allowed, no body
+				return;
+			}
+
+			String query = exchange.getRequestURI().getRawQuery();
+			StandardRenderer renderer;
+			String thesaurusName;
+			try {
+				renderer = renderer(query);
+				thesaurusName = parameter(query, "thesaurus");
+			} catch (IllegalArgumentException malformed) {
+				refuse(exchange, 400); // Bad Request, query not correctly encoded
+				return;
+			}
+			if (renderer == null) {
+				refuse(exchange, 400); // Bad Request, unknown format
+				return;
+			}
+			AbstractThesaurus thesaurus = thesaurusName != null ? ts.getRegistry().get(thesaurusName)
+					: ts.getThesaurus(); // Found once, so the thesaurus checked is the one used
+			if (thesaurusName != null && thesaurus == null) {
+				refuse(exchange, 400); // Bad Request, unknown thesaurus
+				return;
+			}
+
+			long maxBodyBytes = this.maxBodyBytes;
+			String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+			if (contentLength != null && contentLength.length() > 0 && tooLong(contentLength, maxBodyBytes)) {
+				refuse(exchange, 413); // Payload Too Large
+				return;
+			}
+
+			exchange.getResponseHeaders().set("Content-Type", renderer.contentType());
+			exchange.sendResponseHeaders(200, 0); // Chunked, length unknown
+
+			Reader in = new InputStreamReader(new LimitedInputStream(exchange.getRequestBody(), maxBodyBytes),
+					StandardCharsets.UTF_8);
+			Writer out = new BufferedWriter(
+					new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), RESPONSE_BUFFER_SIZE);
+			ts.simplify(in, out, renderer, thesaurus);
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Answers a request with an error status and no body, without reading the
+	 * request body. The connection is then closed, as the client could otherwise
+	 * send its next request after a body the server never read.
+	 */
+	private static void refuse(HttpExchange exchange, int status) throws IOException {
+		exchange.getResponseHeaders().set("Connection", "close");
+		exchange.sendResponseHeaders(status, -1);
+	}
+
+	/**
+	 * Returns whether a Content-Length header gives a length greater than the
+	 * supplied maximum. A length which is not a number is left to be cut off
+	 * while the body is read.
+	 */
+	private static boolean tooLong(String contentLength, long maxBodyBytes) {
+		try {
+			return Long.parseLong(contentLength.trim()) > maxBodyBytes;
+		} catch (NumberFormatException nfe) {
+			return false;
+		}
+	}
+
+	/**
+	 * An InputStream which fails once more than a maximum number of bytes have
+	 * been read from the stream it wraps, ending a request whose length was not
+	 * sent in advance.
+	 */
+	private static class LimitedInputStream extends FilterInputStream {
+		private long remaining; // Bytes which can still be read
+
+		LimitedInputStream(InputStream in, long maxBytes) {
+			super(in);
+			this.remaining = maxBytes;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				count(1);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read > 0) {
+				count(read);
+			}
+			return read;
+		}
+
+		private void count(long read) throws IOException {
+			remaining -= read;
+			if (remaining < 0) {
+				throw new IOException("Request body is too long");
+			}
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.barrysheehan.www;
+
+/**
+ * Stores the renderers provided for the output of a
+ * <code>TextSimplifier</code>.
+ * <ul>
+ * <li><code>ANSI</code>: each word coloured GREEN if it was swapped or RED if
+ * it was not, for printing to the console</li>
+ * <li><code>PLAIN</code>: each word with no decoration</li>
+ * <li><code>JSON</code>: an array with an object for each word, holding its
+ * offsets in the input text, the word looked up and the word it was swapped
+ * with, or <code>null</code>. Separators are left out.</li>
+ * <li><code>HTML</code>: each word in a <code>span</code> of class
+ * <i>swapped</i> or <i>unswapped</i></li>
+ * </ul>
+ * Apart from <code>JSON</code>, the separators between words are written as
+ * they are passed to <code>separator()</code>.
+ * 
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see Renderer
+ * @see TextSimplifier
+ * @since 1.8
+ *
+ */
+
+public enum StandardRenderer implements Renderer {
+	ANSI("text/plain; charset=utf-8") {
+		@Override
+		public void word(StringBuilder sb, CharSequence word, CharSequence swapped, long start, long end) {
+			if (swapped != null) { // Word matches a key in the wordMap, colourize its swapped word GREEN
+				sb.append(ConsoleColour.GREEN.colour()).append(swapped);
+			} else { // Word doesn't match a key in the wordMap, colourize it RED
+				sb.append(ConsoleColour.RED.colour()).append(word);
+			}
+			sb.append(ConsoleColour.RESET.colour());
+		}
+	},
+	PLAIN("text/plain; charset=utf-8") {
+		@Override
+		public void word(StringBuilder sb, CharSequence word, CharSequence swapped, long start, long end) {
+			if (swapped != null) {
+				sb.append(swapped);
+			} else {
+				sb.append(word);
+			}
+		}
+	},
+	JSON("application/json; charset=utf-8") {
+		@Override
+		public void begin(StringBuilder sb) {
+			sb.append('[');
+		}
+
+		@Override
+		public void word(StringBuilder sb, CharSequence word, CharSequence swapped, long start, long end) {
+			sb.append("{\"start\":").append(start).append(",\"end\":").append(end).append(",\"word\":");
+			appendJsonString(sb, word);
+			sb.append(",\"swapped\":");
+			if (swapped != null) {
+				appendJsonString(sb, swapped);
+			} else {
+				sb.append("null");
+			}
+			sb.append('}');
+		}
+
+		@Override
+		public void between(StringBuilder sb) {
+			sb.append(',');
+		}
+
+		@Override
+		public void separator(StringBuilder sb, CharSequence separator) {
+			// Offsets of each word locate the separators
+		}
+
+		@Override
+		public void end(StringBuilder sb) {
+			sb.append(']');
+		}
+	},
+	HTML("text/html; charset=utf-8") {
+		@Override
+		public void word(StringBuilder sb, CharSequence word, CharSequence swapped, long start, long end) {
+			if (swapped != null) {
+				sb.append("<span class=\"swapped\">");
+				appendHtml(sb, swapped);
+			} else {
+				sb.append("<span class=\"unswapped\">");
+				appendHtml(sb, word);
+			}
+			sb.append("</span>");
+		}
+
+		@Override
+		public void separator(StringBuilder sb, CharSequence separator) {
+			appendHtml(sb, separator);
+		}
+	};
+
+	private final String contentType; // MIME type of the output, for example in an HTTP response
+
+	StandardRenderer(String contentType) {
+		this.contentType = contentType;
+	}
+
+	public String contentType() {
+		return this.contentType;
+	}
+
+	/**
+	 * Appends text as a quoted JSON string, escaping quotes, backslashes and
+	 * control characters.
+	 */
+	private static void appendJsonString(StringBuilder sb, CharSequence text) {
+		sb.append('"');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20) { // Control character
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		sb.append('"');
+	}
+
+	/**
+	 * Appends text with the characters which have a meaning in HTML escaped.
+	 */
+	private static void appendHtml(StringBuilder sb, CharSequence text) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case '<':
+				sb.append("&lt;");
+				break;
+			case '>':
+				sb.append("&gt;");
+				break;
+			case '&':
+				sb.append("&amp;");
+				break;
+			case '"':
+				sb.append("&quot;");
+				break;
+			case '\'':
+				sb.append("&#39;");
+				break;
+			default:
+				sb.append(c);
+			}
+		}
+	}
+}
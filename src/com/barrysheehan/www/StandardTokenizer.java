@@ -0,0 +1,207 @@
+package com.barrysheehan.www;
+
+/**
+ * Stores the tokenizers provided for dividing the text simplified by a
+ * <code>TextSimplifier</code> into words.
+ * <ul>
+ * <li><code>SPACE</code>: words are separated by each space character in the
+ * same way as <code>String.split(" ")</code>, so consecutive spaces produce
+ * empty words and trailing spaces are ignored. Each word is followed by a
+ * single space in the output.</li>
+ * <li><code>UNICODE</code>: words are separated by runs of any whitespace or
+ * Unicode space characters, including tabs, line breaks and no-break spaces,
+ * and each separator is written into the output as it appears in the text.
+ * Ideographs, such as Chinese characters, and Japanese kana are each a word of
+ * their own, as such text is written without spaces.</li>
+ * </ul>
+ * <p>
+ * <code>UNICODE</code> classifies each character with a lookup table built
+ * once from the <code>Character</code> methods for the Latin-1 characters,
+ * which make up almost all of the text in the bundled files, and printable
+ * ASCII, the common case, with a single comparison. Characters outside Latin-1
+ * are classified by code point, so a surrogate pair is never divided.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see Tokenizer
+ * @see TextSimplifier
+ * @since 1.8
+ *
+ */
+
+public enum StandardTokenizer implements Tokenizer {
+	SPACE {
+		@Override
+		public int wordEnd(CharSequence text, int start, int end) {
+			int i = start;
+			while (i < end && text.charAt(i) != ' ') {
+				i++;
+			}
+			return i;
+		}
+
+		/**
+		 * Returns the index after the single space following a word, even after
+		 * the last word, where there is no space.
+		 */
+		@Override
+		public int separatorEnd(CharSequence text, int start, int end) {
+			return start + 1;
+		}
+
+		@Override
+		public int wordsEnd(CharSequence text, int end) {
+			while (end > 0 && text.charAt(end - 1) == ' ') { // Ignore trailing spaces
+				end--;
+			}
+			return end;
+		}
+
+		@Override
+		public int wordStart(CharSequence text, int end) {
+			int i = end;
+			while (i > 0 && text.charAt(i - 1) != ' ') {
+				i--;
+			}
+			return i;
+		}
+
+		@Override
+		public int previousWordEnd(CharSequence text, int wordStart) {
+			return wordStart - 1; // Index of the space before the word
+		}
+
+		@Override
+		public boolean preservesSeparators() {
+			return false;
+		}
+	},
+	UNICODE {
+		@Override
+		public int wordEnd(CharSequence text, int start, int end) {
+			int i = start;
+			while (i < end) {
+				char c = text.charAt(i);
+				if ((char) (c - '!') < PRINTABLE_ASCII) { // Fastest path, printable ASCII is always part of a word
+					i++;
+				} else if (c < LATIN_1_SIZE) { // Fast path, Latin-1 has no ideographs
+					if (LATIN_1_CLASSES[c] != WORD) {
+						return i;
+					}
+					i++;
+				} else {
+					int codePoint = Character.codePointAt(text, i);
+					byte characterClass = classOf(codePoint);
+					if (characterClass == IDEOGRAPH) {
+						return i == start ? Math.min(i + Character.charCount(codePoint), end) : i;
+					}
+					if (characterClass != WORD) {
+						return i;
+					}
+					i += Character.charCount(codePoint);
+				}
+			}
+			return Math.min(i, end);
+		}
+
+		@Override
+		public int separatorEnd(CharSequence text, int start, int end) {
+			int i = start;
+			while (i < end) {
+				char c = text.charAt(i);
+				if (c != ' ' && ((char) (c - '!') < PRINTABLE_ASCII || classOf(c) != SEPARATOR)) {
+					break; // Separators are never surrogates
+				}
+				i++;
+			}
+			return i;
+		}
+
+		@Override
+		public int wordsEnd(CharSequence text, int end) {
+			while (end > 0 && classOf(text.charAt(end - 1)) == SEPARATOR) { // Ignore trailing separators
+				end--;
+			}
+			return end;
+		}
+
+		@Override
+		public int wordStart(CharSequence text, int end) {
+			if (end == 0) {
+				return 0;
+			}
+			int codePoint = Character.codePointBefore(text, end);
+			if (codePoint >= LATIN_1_SIZE && classOf(codePoint) == IDEOGRAPH) {
+				return end - Character.charCount(codePoint);
+			}
+			int i = end;
+			while (i > 0) {
+				char c = text.charAt(i - 1);
+				if (c < LATIN_1_SIZE) {
+					if (LATIN_1_CLASSES[c] != WORD) {
+						break;
+					}
+					i--;
+				} else {
+					codePoint = Character.codePointBefore(text, i);
+					if (classOf(codePoint) != WORD) {
+						break;
+					}
+					i -= Character.charCount(codePoint);
+				}
+			}
+			return i;
+		}
+
+		@Override
+		public int previousWordEnd(CharSequence text, int wordStart) {
+			int i = wordStart;
+			while (i > 0 && classOf(text.charAt(i - 1)) == SEPARATOR) {
+				i--;
+			}
+			return i;
+		}
+
+		@Override
+		public boolean preservesSeparators() {
+			return true;
+		}
+	};
+
+	// Classes of character used by UNICODE
+	private static final byte WORD = 0; // Part of a word
+	private static final byte SEPARATOR = 1; // Whitespace or space between words
+	private static final byte IDEOGRAPH = 2; // A word on its own
+
+	// Lookup table for Latin-1 characters
+	private static final int PRINTABLE_ASCII = '~' - '!' + 1; // Characters from '!' to '~'
+	private static final int LATIN_1_SIZE = 256;
+	private static final byte[] LATIN_1_CLASSES = new byte[LATIN_1_SIZE];
+
+	static {
+		for (int c = 0; c < LATIN_1_SIZE; c++) {
+			LATIN_1_CLASSES[c] = classify(c);
+		}
+	}
+
+	/**
+	 * Classifies a code point using the <code>Character</code> methods.
+	 */
+	private static byte classify(int codePoint) {
+		if (Character.isWhitespace(codePoint) || Character.isSpaceChar(codePoint)) {
+			return SEPARATOR; // Includes no-break spaces, which are not whitespace
+		}
+		if (Character.isIdeographic(codePoint)) {
+			return IDEOGRAPH;
+		}
+		Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+		if (script == Character.UnicodeScript.HIRAGANA || script == Character.UnicodeScript.KATAKANA) {
+			return IDEOGRAPH;
+		}
+		return WORD;
+	}
+
+	private static byte classOf(int codePoint) {
+		return codePoint < LATIN_1_SIZE ? LATIN_1_CLASSES[codePoint] : classify(codePoint);
+	}
+}
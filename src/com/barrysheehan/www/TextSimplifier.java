@@ -1,5 +1,22 @@
 package com.barrysheehan.www;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
 /**
  * Simplifies a String passed to it and returns a simplified version of the
  * String. Is configured with a <code>Thesaurus</code> object, used to swap
@@ -9,6 +26,18 @@ package com.barrysheehan.www;
  * word list file <i>wordListFile</i> which contain paths to .txt files. The
  * files at these paths are used to create a <code>Thesaurus</code> object
  * specific to this instance of <code>TextSimplifier</code>.
+ * <p>
+ * A <code>TextSimplifier</code> can be shared between threads. The
+ * <code>Thesaurus</code> in use is held in a volatile variable and is never
+ * modified once it has been published, and each simplification reads it once
+ * and uses that snapshot throughout. A new <code>Thesaurus</code> is built
+ * completely before it replaces the old one, so text being simplified while
+ * the <code>TextSimplifier</code> is reconfigured uses either the old or the
+ * new <code>Thesaurus</code>, never a mixture of the two.
+ * <p>
+ * Further thesauri, for example for different reading levels, can be held by
+ * name in a <code>ThesaurusRegistry</code> and chosen for each call by passing
+ * the name to <code>swapText()</code> or <code>simplify()</code>.
  * 
  * @author Barry Sheehan
  * @version 0.1
@@ -20,14 +49,39 @@ package com.barrysheehan.www;
 
 public class TextSimplifier implements TextSwapper {
 
+	// Number of characters read at a time when simplifying text from a Reader
+	public static final int STREAM_BUFFER_SIZE = 8192;
+
+	// Most characters held back between chunks when simplifying text from a Reader
+	public static final int STREAM_HELD_LIMIT = STREAM_BUFFER_SIZE * 8;
+
+	// Default minimum length of text, in characters, simplified in parallel by swapTextParallel()
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 16;
+
 	// Instance variables
-	private String dictionaryFile = "../config/dictionaryFile.txt"; // Default path to dictionaryFile
-	private String wordListFile = "../config/wordListFile.txt"; // Default path to wordListFile
-	private Thesaurus thesaurus; // thesaurus stores Thesaurus currently in use
+	private volatile String dictionaryFile = "../config/dictionaryFile.txt"; // Default path to dictionaryFile
+	private volatile String wordListFile = "../config/wordListFile.txt"; // Default path to wordListFile
+	private volatile AbstractThesaurus thesaurus; // thesaurus stores Thesaurus currently in use
+	private volatile ThesaurusRegistry registry = new ThesaurusRegistry(); // Named thesauri selected per call
+	private volatile ThesaurusLoader loader = ThesaurusLoader.MAPPED; // How new Thesaurus objects are loaded
+	private volatile WordMapStorage storage = WordMapStorage.OPEN_ADDRESSING; // Backend used by new Thesaurus objects
+	private volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD; // Shorter text is simplified sequentially
+	private volatile ForkJoinPool pool = ForkJoinPool.commonPool(); // Pool used by swapTextParallel()
+	private volatile Renderer renderer = StandardRenderer.ANSI; // Writes each word of the output
+	private volatile SimplificationCache cache; // Results of swapText(String), or null if not cached
+	private volatile SimplifierMetrics metrics; // Records the work done, or null if not recorded
+	private volatile WordStatistics statistics; // Records each word looked up, or null if not recorded
+	private volatile boolean normalising = true; // Punctuation and case of each word are kept around its swap
+	private volatile Tokenizer tokenizer = StandardTokenizer.UNICODE; // Divides text into words
+	private final AtomicLong settings = new AtomicLong(); // Changed after each setting which changes results
+
+	private final Object publishLock = new Object(); // Guards publishing of a new thesaurus
+	private long loadsStarted = 0; // Number of loads started, used to number each load
+	private long publishedLoad = 0; // Number of the load whose thesaurus is currently in use
 
 	// configured flag used to determine whether TextSimplifier object is configured
 	// from within another class or itself
-	private boolean configured = false;
+	private volatile boolean configured = false;
 
 	// Getters and Setters
 	public String getDictionaryFile() {
@@ -46,6 +100,198 @@ public class TextSimplifier implements TextSwapper {
 		this.wordListFile = pathToTextFile;
 	}
 
+	public ThesaurusLoader getLoader() {
+		return this.loader;
+	}
+
+	public void setLoader(ThesaurusLoader loader) {
+		this.loader = loader;
+	}
+
+	public WordMapStorage getStorage() {
+		return this.storage;
+	}
+
+	public void setStorage(WordMapStorage storage) {
+		this.storage = storage;
+	}
+
+	public int getParallelThreshold() {
+		return this.parallelThreshold;
+	}
+
+	public void setParallelThreshold(int parallelThreshold) {
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	public ForkJoinPool getPool() {
+		return this.pool;
+	}
+
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	public Renderer getRenderer() {
+		return this.renderer;
+	}
+
+	public void setRenderer(Renderer renderer) {
+		this.renderer = renderer;
+	}
+
+	public boolean isNormalising() {
+		return this.normalising;
+	}
+
+	/**
+	 * Sets whether each word is normalised before it is looked up. When
+	 * normalising, punctuation before and after a word is not looked up and is
+	 * kept around the word it is swapped with, as is the word's capitalisation,
+	 * and words which are not swapped are written as they appear in the text.
+	 * Otherwise each word is looked up and written in lower case, with any
+	 * punctuation. Any cached results are cleared.
+	 * 
+	 * @param normalising <code>true</code> to normalise words
+	 * @see WordNormaliser
+	 */
+	public void setNormalising(boolean normalising) {
+		this.normalising = normalising;
+		settingsChanged(); // Results depend on normalisation
+	}
+
+	public Tokenizer getTokenizer() {
+		return this.tokenizer;
+	}
+
+	/**
+	 * Sets the <code>Tokenizer</code> used to divide text into words and the
+	 * separators between them. Any cached results are cleared.
+	 * 
+	 * @param tokenizer the tokenizer to use from now on
+	 * @see StandardTokenizer
+	 */
+	public void setTokenizer(Tokenizer tokenizer) {
+		this.tokenizer = tokenizer;
+		settingsChanged(); // Results depend on how text is divided
+	}
+
+	/**
+	 * Records that a setting which changes the results of simplification has been
+	 * changed, after the new setting is written.
+	 * <p>
+	 * Results are cached against the value of <i>settings</i> read before the
+	 * settings used to produce them, so a result put by a simplification which
+	 * was in progress during the change is never returned to one which started
+	 * after it. The cache is also cleared, so old results do not hold on to
+	 * memory.
+	 */
+	private void settingsChanged() {
+		settings.incrementAndGet();
+
+		SimplificationCache cache = this.cache;
+		if (cache != null) {
+			cache.clear();
+		}
+	}
+
+	public SimplificationCache getCache() {
+		return this.cache;
+	}
+
+	/**
+	 * Caches the results of <code>swapText(String)</code> in the supplied
+	 * <code>SimplificationCache</code>, or stops caching them if it is
+	 * <code>null</code>. The cache is cleared whenever a new thesaurus is
+	 * installed.
+	 * 
+	 * @param cache the cache to use, or <code>null</code>
+	 */
+	public void setCache(SimplificationCache cache) {
+		this.cache = cache;
+	}
+
+	public SimplifierMetrics getMetrics() {
+		return this.metrics;
+	}
+
+	/**
+	 * Records the work done by this <code>TextSimplifier</code>, and the time
+	 * taken by <code>FileReader</code> to read files, in the supplied
+	 * <code>SimplifierMetrics</code>, or stops recording it if <code>null</code>.
+	 * 
+	 * @param metrics the metrics to record in, or <code>null</code>
+	 */
+	public void setMetrics(SimplifierMetrics metrics) {
+		this.metrics = metrics;
+		FileReader.setMetrics(metrics);
+
+		AbstractThesaurus current = this.thesaurus;
+		if (metrics != null && current != null) {
+			metrics.recordThesaurus(current);
+		}
+	}
+
+	public WordStatistics getStatistics() {
+		return this.statistics;
+	}
+
+	/**
+	 * Records each word looked up by this <code>TextSimplifier</code> in the
+	 * supplied <code>WordStatistics</code>, or stops recording them if
+	 * <code>null</code>.
+	 * 
+	 * @param statistics the statistics to record in, or <code>null</code>
+	 */
+	public void setStatistics(WordStatistics statistics) {
+		this.statistics = statistics;
+	}
+
+	public AbstractThesaurus getThesaurus() {
+		return this.thesaurus;
+	}
+
+	/**
+	 * Replaces the thesaurus in use with a thesaurus which has already been built,
+	 * and sets the <i>configured</i> instance variable to <code>true</code>.
+	 * Simplifications already in progress finish using the old thesaurus.
+	 * 
+	 * @param thesaurus the thesaurus to use from now on
+	 */
+	public void setThesaurus(AbstractThesaurus thesaurus) {
+		synchronized (publishLock) {
+			publishedLoad = ++loadsStarted; // Any load still in progress is now out of date
+			publish(thesaurus);
+		}
+	}
+
+	public ThesaurusRegistry getRegistry() {
+		return this.registry;
+	}
+
+	/**
+	 * Sets the <code>ThesaurusRegistry</code> in which thesauri named in calls
+	 * such as <code>swapText(String, String)</code> are found, which may be
+	 * shared with other <code>TextSimplifier</code>s.
+	 * 
+	 * @param registry the registry to use from now on
+	 */
+	public void setRegistry(ThesaurusRegistry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * Returns the thesaurus registered under the supplied name in
+	 * <i>registry</i>.
+	 */
+	private AbstractThesaurus registered(String thesaurusName) {
+		AbstractThesaurus named = registry.get(thesaurusName);
+		if (named == null) {
+			throw new IllegalArgumentException("No thesaurus registered as " + thesaurusName);
+		}
+		return named;
+	}
+
 	/**
 	 * Returns boolean value stored at <i>configured</i> instance variable.
 	 * <p>
@@ -66,49 +312,1263 @@ public class TextSimplifier implements TextSwapper {
 	 * Informs the user that <code>TextSimplifier</code> is being initialised with a
 	 * new <code>Thesaurus</code>, and when the initialisation is done.
 	 * <p>
-	 * This method must be called each time the dictionaryFile or wordListFile are
-	 * changed, otherwise the <code>Thesaurus</code> being used will not contain the
-	 * updated dictionary or word list.
+	 * The <code>Thesaurus</code> is loaded from the files using the
+	 * <code>ThesaurusLoader</code> set at <i>loader</i>, and stores its word map in
+	 * the backend set at <i>storage</i>.
+	 * <p>
+	 * This method must be called each time the dictionaryFile, wordListFile,
+	 * loader or storage are changed, otherwise the <code>Thesaurus</code> being
+	 * used will not contain the updated dictionary or word list.
+	 * <p>
+	 * The old <code>Thesaurus</code> remains in use by other threads until the new
+	 * one has been completely built.
 	 */
 	public void init() {
 		System.out.println(ConsoleColour.colourize("CYAN", "> Initialising new Thesaurus..."));
-		thesaurus = new Thesaurus(getDictionaryFile(), getWordListFile());
-		configured = true;
+		load(startLoad(), loader, getDictionaryFile(), getWordListFile(), getStorage());
 		System.out.println(ConsoleColour.colourize("GREEN", "> Done!\n"));
 	}
 
+	/**
+	 * Builds a new <code>Thesaurus</code> from the dictionaryFile, wordListFile,
+	 * loader and storage set when this method is called on a background thread and publishes it
+	 * once it has been built, without blocking the calling thread.
+	 * <p>
+	 * Text simplified before the returned future completes uses the old
+	 * <code>Thesaurus</code>. If another load is started and finishes first, the
+	 * thesaurus built by this load is discarded rather than replacing the newer
+	 * one.
+	 * 
+	 * @return a future completed once the new <code>Thesaurus</code> is in use or
+	 *         has been discarded
+	 */
+	public CompletableFuture<Void> initAsync() {
+		final long load = startLoad();
+		final ThesaurusLoader loader = this.loader;
+		final String dictionaryFile = getDictionaryFile();
+		final String wordListFile = getWordListFile();
+		final WordMapStorage storage = getStorage();
+
+		return CompletableFuture.runAsync(new Runnable() {
+			@Override
+			public void run() {
+				load(load, loader, dictionaryFile, wordListFile, storage);
+			}
+		}, new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				Thread loader = new Thread(command, "thesaurus-loader");
+				loader.setDaemon(true); // Do not keep the application running just to finish a load
+				loader.start();
+			}
+		});
+	}
+
+	/**
+	 * Numbers a new load of the thesaurus.
+	 */
+	private long startLoad() {
+		synchronized (publishLock) {
+			return ++loadsStarted;
+		}
+	}
+
+	/**
+	 * Builds a <code>Thesaurus</code> and publishes it, unless a later load has
+	 * already been published.
+	 * 
+	 * @param load           the number of this load
+	 * @param loader         how the thesaurus is loaded
+	 * @param dictionaryFile the path to the dictionary file
+	 * @param wordListFile   the path to the word list file
+	 * @param storage        the storage backend used by the thesaurus' wordMap
+	 */
+	private void load(long load, ThesaurusLoader loader, String dictionaryFile, String wordListFile,
+			WordMapStorage storage) {
+		long start = System.nanoTime();
+		AbstractThesaurus loaded = loader.load(dictionaryFile, wordListFile, storage);
+		SimplifierMetrics metrics = this.metrics;
+		if (metrics != null) {
+			metrics.recordLoad(System.nanoTime() - start);
+		}
+
+		synchronized (publishLock) {
+			if (load > publishedLoad) {
+				publishedLoad = load;
+				publish(loaded);
+			}
+		}
+	}
+
+	/**
+	 * Makes a built thesaurus visible to all threads.
+	 */
+	private void publish(AbstractThesaurus built) {
+		thesaurus = built; // Volatile write publishes the fully built thesaurus
+		configured = true;
+
+		SimplificationCache cache = this.cache;
+		if (cache != null) {
+			cache.clear(); // Results from the old thesaurus are never used again
+		}
+		SimplifierMetrics metrics = this.metrics;
+		if (metrics != null) {
+			metrics.recordThesaurus(built);
+		}
+	}
+
 	/**
 	 * Simplifies a String supplied to it by testing each word within it against the
 	 * keys stored in the wordMap variable of <i>thesaurus</i>, swapping words when
 	 * appropriate and returning the simplified text.
+	 * <p>
+	 * If a <code>SimplificationCache</code> has been set, text which has already
+	 * been simplified with the current thesaurus and renderer is returned from the
+	 * cache instead.
 	 * 
 	 * @param inputText the text to be simplified
 	 * @return the simplified text
 	 */
 	@Override
 	public String swapText(String inputText) {
-		String[] words = inputText.split(" "); // Split lines of text at space character
+		return swapCached(this.thesaurus, inputText); // Result cached against the thesaurus which produced it
+	}
+
+	/**
+	 * Simplifies a String in the same way as <code>swapText(String)</code>, using
+	 * the thesaurus registered under the supplied name in <i>registry</i> in place
+	 * of the thesaurus in use.
+	 * 
+	 * @param inputText     the text to be simplified
+	 * @param thesaurusName the name of the thesaurus used to swap words
+	 * @return the simplified text
+	 * @throws IllegalArgumentException if no thesaurus is registered under
+	 *                                  thesaurusName
+	 * @see ThesaurusRegistry
+	 */
+	public String swapText(String inputText, String thesaurusName) {
+		return swapCached(registered(thesaurusName), inputText);
+	}
+
+	/**
+	 * Simplifies a String using the supplied thesaurus, for
+	 * <code>swapText()</code>, looking it up in and adding it to the cache.
+	 */
+	private String swapCached(AbstractThesaurus thesaurus, String inputText) {
+		long settings = this.settings.get(); // Read before the settings it identifies
+		SimplificationCache cache = this.cache;
+		SimplifierMetrics metrics = this.metrics;
+		Renderer renderer = this.renderer;
+		long start = metrics != null ? System.nanoTime() : 0;
+
+		if (cache != null) {
+			String cached = cache.get(thesaurus, renderer, settings, inputText);
+			if (cached != null) {
+				if (metrics != null) {
+					metrics.recordText(System.nanoTime() - start);
+				}
+				return cached;
+			}
+		}
+
+		StringBuilder sb = new StringBuilder(inputText.length() * 2); // Leave room for colour codes
+		renderer.begin(sb);
+		appendText(thesaurus, inputText, 0, renderer, sb, new WordBuffers(tokenizer));
+		renderer.end(sb);
+		String simplified = sb.toString(); // Return StringBuilder as String
+
+		if (cache != null) {
+			cache.put(thesaurus, renderer, settings, inputText, simplified);
+		}
+		if (metrics != null) {
+			metrics.recordText(System.nanoTime() - start);
+		}
+		return simplified;
+	}
+
+	/**
+	 * Simplifies the supplied text in a single pass and appends the result to the
+	 * supplied StringBuilder.
+	 * <p>
+	 * Words and the separators between them are found by the
+	 * <code>Tokenizer</code> set with <code>setTokenizer()</code>, which by
+	 * default separates words at any whitespace and keeps each separator as it
+	 * appears in the text. Each word is lower cased into a reusable buffer
+	 * and looked up directly from that buffer, so no String is created per word
+	 * when the storage backend of <i>thesaurus</i>' wordMap implements
+	 * <code>WordLookup</code>. Unless <code>setNormalising(false)</code> has been
+	 * called, punctuation around each word is not looked up, and it and the
+	 * word's capitalisation are restored on the word it is swapped with.
+	 * <p>
+	 * Multi-word keys of the wordMap, such as "a cappella", are matched as they are
+	 * found using <i>thesaurus</i>' <code>PhraseMatcher</code>. Where phrases of
+	 * different lengths start at the same word, the longest one is swapped.
+	 * 
+	 * <p>
+	 * Each word is written by the <code>Renderer</code> set with
+	 * <code>setRenderer()</code>, which colours words for the console by default.
+	 * 
+	 * @param inputText the text to be simplified
+	 * @param sb        the StringBuilder to which the simplified text is appended
+	 */
+	public void swapText(CharSequence inputText, StringBuilder sb) {
+		swapText(inputText, sb, renderer);
+	}
+
+	/**
+	 * Simplifies the supplied text in the same way as
+	 * <code>swapText(CharSequence, StringBuilder)</code>, writing each word with
+	 * the supplied <code>Renderer</code>.
+	 * 
+	 * @param inputText the text to be simplified
+	 * @param sb        the StringBuilder to which the simplified text is appended
+	 * @param renderer  writes each word into sb
+	 */
+	public void swapText(CharSequence inputText, StringBuilder sb, Renderer renderer) {
+		swapText(this.thesaurus, inputText, sb, renderer);
+	}
+
+	/**
+	 * Simplifies the supplied text in the same way as
+	 * <code>swapText(CharSequence, StringBuilder, Renderer)</code>, using the
+	 * thesaurus registered under the supplied name in <i>registry</i>.
+	 * 
+	 * @param inputText     the text to be simplified
+	 * @param sb            the StringBuilder to which the simplified text is
+	 *                      appended
+	 * @param renderer      writes each word into sb
+	 * @param thesaurusName the name of the thesaurus used to swap words
+	 * @throws IllegalArgumentException if no thesaurus is registered under
+	 *                                  thesaurusName
+	 */
+	public void swapText(CharSequence inputText, StringBuilder sb, Renderer renderer, String thesaurusName) {
+		swapText(registered(thesaurusName), inputText, sb, renderer);
+	}
+
+	/**
+	 * Simplifies text into a StringBuilder using the supplied thesaurus, for
+	 * <code>swapText()</code>.
+	 */
+	private void swapText(AbstractThesaurus thesaurus, CharSequence inputText, StringBuilder sb, Renderer renderer) {
+		SimplifierMetrics metrics = this.metrics;
+		long start = metrics != null ? System.nanoTime() : 0;
+
+		renderer.begin(sb);
+		appendText(thesaurus, inputText, 0, renderer, sb, new WordBuffers(tokenizer));
+		renderer.end(sb);
 
-		StringBuilder sb = new StringBuilder();
-		for (String word : words) {
-			word = word.toLowerCase();
+		if (metrics != null) {
+			metrics.recordText(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Simplifies the supplied text using the threads of <i>pool</i>, returning the
+	 * same result as <code>swapText()</code>.
+	 * <p>
+	 * Text shorter than <i>parallelThreshold</i> characters is simplified
+	 * sequentially. Longer text is divided between words into segments of at least
+	 * parallelThreshold characters, each of which is simplified as a separate
+	 * task. The simplified segments are then joined in their original order. In
+	 * the rare case that a phrase runs from the end of one segment into the next,
+	 * the rest of the next segment is simplified again as the segments are
+	 * joined.
+	 * 
+	 * @param inputText the text to be simplified
+	 * @return the simplified text
+	 */
+	public String swapTextParallel(CharSequence inputText) {
+		return swapTextParallel(inputText, renderer);
+	}
+
+	/**
+	 * Simplifies the supplied text using the threads of <i>pool</i> in the same way
+	 * as <code>swapTextParallel(CharSequence)</code>, writing each word with the
+	 * supplied <code>Renderer</code>.
+	 * 
+	 * @param inputText the text to be simplified
+	 * @param renderer  writes each word of the simplified text
+	 * @return the simplified text
+	 */
+	public String swapTextParallel(CharSequence inputText, Renderer renderer) {
+		SimplifierMetrics metrics = this.metrics;
+		long start = metrics != null ? System.nanoTime() : 0;
+		AbstractThesaurus thesaurus = this.thesaurus; // Every segment uses the same thesaurus
+		Tokenizer tokenizer = this.tokenizer; // and divides its words the same way
+		int end = tokenizer.wordsEnd(inputText, inputText.length());
+		String simplified;
+
+		if (end < parallelThreshold || end == 0) { // Not worth dividing between threads
+			StringBuilder sb = new StringBuilder(inputText.length() * 2);
+			renderer.begin(sb);
+			appendText(thesaurus, inputText, 0, renderer, sb, new WordBuffers(tokenizer));
+			renderer.end(sb);
+			simplified = sb.toString();
+		} else {
+			simplified = swapSegments(thesaurus, tokenizer, inputText, end, renderer);
+		}
+
+		if (metrics != null) {
+			metrics.recordText(System.nanoTime() - start);
+		}
+		return simplified;
+	}
+
+	/**
+	 * Divides text into segments which are simplified on the threads of
+	 * <i>pool</i>, and joins the results, for <code>swapTextParallel()</code>.
+	 * 
+	 * @param thesaurus the thesaurus used by every segment
+	 * @param tokenizer the tokenizer used by every segment
+	 * @param inputText the text to be simplified
+	 * @param end       the index after the last word of the text
+	 * @param renderer  writes each word of the simplified text
+	 * @return the simplified text
+	 */
+	private String swapSegments(AbstractThesaurus thesaurus, Tokenizer tokenizer, CharSequence inputText, int end,
+			Renderer renderer) {
+		ForkJoinPool pool = this.pool;
+		int segmentLength = Math.max(parallelThreshold, end / (pool.getParallelism() * 4)); // A few segments per thread
+		List<SegmentTask> segments = new ArrayList<SegmentTask>();
+		int lastStart = tokenizer.preservesSeparators() ? end - 1 : end; // Last word may be empty if not preserved
 
-			if (testWord(word)) { // If word matches a key in the thesaurus' wordMap
-				word = swapWord(word); // call swapWord method on that word
-				sb.append(ConsoleColour.GREEN + word + ConsoleColour.RESET); // Append word to StringBuilder and
-																				// colourize it GREEN
-			} else { // Input word doesn't match a key in the wordMap
-				sb.append(ConsoleColour.RED + word + ConsoleColour.RESET); // Append word to StringBuilder and colourize
-																			// it RED
+		int segmentStart = 0;
+		while (segmentStart <= lastStart) {
+			int segmentEnd = Math.min(segmentStart + segmentLength, end);
+			if (segmentEnd < end) {
+				segmentEnd = tokenizer.wordEnd(inputText, segmentEnd, end); // Move segment end to the end of a word
 			}
-			sb.append(" "); // Append a space between each word added to the StringBuilder
+
+			SegmentTask segment = new SegmentTask(thesaurus, tokenizer, inputText, segmentStart, segmentEnd, end,
+					renderer);
+			pool.execute(segment);
+			segments.add(segment);
+			segmentStart = tokenizer.separatorEnd(inputText, segmentEnd, end); // Next segment starts after the separator
+		}
+
+		int length = 0;
+		for (SegmentTask segment : segments) {
+			length += segment.join().length();
+		}
+
+		StringBuilder sb = new StringBuilder(length + 2);
+		renderer.begin(sb);
+		int next = 0; // Index at which the next word to be joined starts
+		for (SegmentTask segment : segments) { // Join segments in their original order
+			if (segment.start == next) {
+				sb.append(segment.join());
+				next = segment.next;
+			} else if (next <= segment.end) { // A phrase ran into this segment, simplify the rest of it again
+				WordBuffers buffers = new WordBuffers(tokenizer);
+				buffers.wordWritten = true; // Follows the phrase
+				next = appendWords(thesaurus, inputText, next, segment.end, end, 0, renderer, sb, buffers);
+			} // Otherwise the whole segment was part of a phrase
+		}
+		appendTrailingSeparator(inputText, end, renderer, sb, tokenizer);
+		renderer.end(sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Simplifies the words in one segment of a text being simplified by
+	 * <code>swapTextParallel()</code>.
+	 */
+	private class SegmentTask extends RecursiveTask<StringBuilder> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final AbstractThesaurus thesaurus; // Thesaurus used to simplify the segment
+		private final Tokenizer tokenizer; // Tokenizer used to divide the segment
+		private final CharSequence text; // Text containing the segment
+		private final int start; // Index of the first character of the segment
+		private final int end; // Index after the last character of the segment
+		private final int limit; // Index after the last word of the text, the furthest a phrase may extend
+		private final Renderer renderer; // Writes each word of the segment
+		private int next; // Index at which the word after the last word simplified starts
+
+		SegmentTask(AbstractThesaurus thesaurus, Tokenizer tokenizer, CharSequence text, int start, int end,
+				int limit, Renderer renderer) {
+			this.thesaurus = thesaurus;
+			this.tokenizer = tokenizer;
+			this.text = text;
+			this.start = start;
+			this.end = end;
+			this.limit = limit;
+			this.renderer = renderer;
+		}
+
+		@Override
+		protected StringBuilder compute() {
+			StringBuilder sb = new StringBuilder((end - start) * 2);
+			WordBuffers buffers = new WordBuffers(tokenizer);
+			buffers.wordWritten = start > 0; // Words of the segments before come first
+			next = appendWords(thesaurus, text, start, end, limit, 0, renderer, sb, buffers);
+			return sb;
 		}
-		return sb.toString(); // Return StringBuilder as String
+	}
+
+	/**
+	 * Simplifies each text in a batch, returning the simplified texts in the same
+	 * order as <code>swapText()</code> would return them one at a time.
+	 * <p>
+	 * The whole batch is simplified using the thesaurus in use when this method is
+	 * called, and the buffers used to simplify each text are reused for the next,
+	 * so a batch of many short texts costs less than simplifying each separately.
+	 * 
+	 * @param texts the texts to be simplified
+	 * @return the simplified texts, in the order of <i>texts</i>
+	 * @see #swapTexts(List, Renderer, boolean)
+	 */
+	public List<String> swapTexts(List<? extends CharSequence> texts) {
+		return swapTexts(texts, renderer, false);
+	}
+
+	/**
+	 * Simplifies each text in an array in the same way as
+	 * <code>swapTexts(List)</code>.
+	 * 
+	 * @param texts the texts to be simplified
+	 * @return the simplified texts, in the order of <i>texts</i>
+	 */
+	public String[] swapTexts(String[] texts) {
+		return swapBatch(texts, renderer, false);
+	}
+
+	/**
+	 * Simplifies each text in a batch, writing each word with the supplied
+	 * <code>Renderer</code>, and returns the simplified texts in the same order.
+	 * <p>
+	 * If <i>dedupe</i> is <code>true</code>, texts with the same characters are
+	 * simplified once and share the result, which suits batches in which the same
+	 * text often appears more than once. If a <code>SimplificationCache</code> has
+	 * been set, texts which are Strings are looked up in and added to the cache
+	 * as they are by <code>swapText(String)</code>.
+	 * <p>
+	 * If the texts to be simplified hold at least <i>parallelThreshold</i>
+	 * characters in total, they are divided into runs of consecutive texts with
+	 * about the same number of characters, which are simplified as separate tasks
+	 * on the threads of <i>pool</i>. Each run reuses a single set of buffers for
+	 * all of its texts.
+	 * 
+	 * @param texts    the texts to be simplified
+	 * @param renderer writes each word of the simplified texts
+	 * @param dedupe   <code>true</code> to simplify identical texts only once
+	 * @return a fixed size List of the simplified texts, in the order of
+	 *         <i>texts</i>
+	 */
+	public List<String> swapTexts(List<? extends CharSequence> texts, Renderer renderer, boolean dedupe) {
+		return Arrays.asList(swapBatch(texts.toArray(new CharSequence[texts.size()]), renderer, dedupe));
+	}
+
+	/**
+	 * Simplifies a batch of texts for <code>swapTexts()</code>.
+	 * 
+	 * @param texts    the texts to be simplified, which are not modified
+	 * @param renderer writes each word of the simplified texts
+	 * @param dedupe   <code>true</code> to simplify identical texts only once
+	 * @return the simplified texts, in the order of <i>texts</i>
+	 */
+	private String[] swapBatch(CharSequence[] texts, Renderer renderer, boolean dedupe) {
+		AbstractThesaurus thesaurus = this.thesaurus; // Every text uses the same thesaurus
+		String[] simplified = new String[texts.length];
+		int[] first = dedupe ? firstOccurrences(texts) : null; // Index of the first text equal to each text
+
+		int[] unique = new int[texts.length]; // Indices of the texts to be simplified
+		int uniqueCount = 0;
+		long totalLength = 0;
+		for (int i = 0; i < texts.length; i++) {
+			if (first == null || first[i] == i) {
+				unique[uniqueCount++] = i;
+				totalLength += texts[i].length();
+			}
+		}
+
+		ForkJoinPool pool = this.pool;
+		int tasks = Math.min(pool.getParallelism() * 4, uniqueCount); // A few runs per thread
+		if (totalLength < parallelThreshold || tasks <= 1) { // Not worth dividing between threads
+			swapRun(thesaurus, texts, unique, 0, uniqueCount, renderer, simplified);
+		} else {
+			long runLength = totalLength / tasks;
+			List<BatchTask> runs = new ArrayList<BatchTask>();
+			int runStart = 0;
+			long length = 0;
+			for (int u = 0; u < uniqueCount; u++) {
+				length += texts[unique[u]].length();
+				if (length >= runLength || u == uniqueCount - 1) { // Run holds its share of the characters
+					BatchTask run = new BatchTask(thesaurus, texts, unique, runStart, u + 1, renderer, simplified);
+					pool.execute(run);
+					runs.add(run);
+					runStart = u + 1;
+					length = 0;
+				}
+			}
+			for (BatchTask run : runs) {
+				run.join();
+			}
+		}
+
+		if (first != null) {
+			for (int i = 0; i < texts.length; i++) {
+				simplified[i] = simplified[first[i]]; // Duplicates share the result of the first text
+			}
+		}
+		return simplified;
+	}
+
+	/**
+	 * Returns, for each text, the index of the first text with the same
+	 * characters.
+	 */
+	private static int[] firstOccurrences(CharSequence[] texts) {
+		Map<String, Integer> firstIndices = new HashMap<String, Integer>(texts.length * 2);
+		int[] first = new int[texts.length];
+		for (int i = 0; i < texts.length; i++) {
+			Integer previous = firstIndices.putIfAbsent(texts[i].toString(), i);
+			first[i] = previous == null ? i : previous;
+		}
+		return first;
+	}
+
+	/**
+	 * Simplifies a run of the texts in a batch, reusing one StringBuilder and one
+	 * set of buffers for every text in the run.
+	 * 
+	 * @param thesaurus  the thesaurus used by every text
+	 * @param texts      the texts in the batch
+	 * @param unique     the indices of the texts to be simplified
+	 * @param from       the position in <i>unique</i> of the first text in the run
+	 * @param to         the position in <i>unique</i> after the last text in the run
+	 * @param renderer   writes each word of the simplified texts
+	 * @param simplified the array in which each simplified text is stored at the
+	 *                   index of its text
+	 */
+	private void swapRun(AbstractThesaurus thesaurus, CharSequence[] texts, int[] unique, int from, int to,
+			Renderer renderer, String[] simplified) {
+		long settings = this.settings.get(); // Read before the settings it identifies
+		SimplificationCache cache = this.cache;
+		SimplifierMetrics metrics = this.metrics;
+		StringBuilder sb = new StringBuilder(256);
+		WordBuffers buffers = new WordBuffers(tokenizer);
+
+		for (int u = from; u < to; u++) {
+			int i = unique[u];
+			CharSequence text = texts[i];
+			long start = metrics != null ? System.nanoTime() : 0;
+			boolean cacheable = cache != null && text instanceof String; // Cache is keyed on Strings
+
+			String result = cacheable ? cache.get(thesaurus, renderer, settings, (String) text) : null;
+			if (result == null) {
+				sb.setLength(0);
+				buffers.wordWritten = false; // Buffers are reused for the next text
+				renderer.begin(sb);
+				appendText(thesaurus, text, 0, renderer, sb, buffers);
+				renderer.end(sb);
+				result = sb.toString();
+				if (cacheable) {
+					cache.put(thesaurus, renderer, settings, (String) text, result);
+				}
+			}
+			simplified[i] = result;
+
+			if (metrics != null) {
+				metrics.recordText(System.nanoTime() - start);
+			}
+		}
+	}
+
+	/**
+	 * Simplifies a run of the texts in a batch being simplified by
+	 * <code>swapTexts()</code>.
+	 */
+	private class BatchTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final AbstractThesaurus thesaurus; // Thesaurus used to simplify the texts
+		private final CharSequence[] texts; // Texts in the batch
+		private final int[] unique; // Indices of the texts to be simplified
+		private final int from; // Position in unique of the first text in the run
+		private final int to; // Position in unique after the last text in the run
+		private final Renderer renderer; // Writes each word of the texts
+		private final String[] simplified; // Simplified texts, stored at the index of each text
+
+		BatchTask(AbstractThesaurus thesaurus, CharSequence[] texts, int[] unique, int from, int to,
+				Renderer renderer, String[] simplified) {
+			this.thesaurus = thesaurus;
+			this.texts = texts;
+			this.unique = unique;
+			this.from = from;
+			this.to = to;
+			this.renderer = renderer;
+			this.simplified = simplified;
+		}
+
+		@Override
+		protected void compute() {
+			swapRun(thesaurus, texts, unique, from, to, renderer, simplified);
+		}
+	}
+
+	/**
+	 * Passes the ID of the dictionary word that each word of the supplied text is
+	 * swapped with to <i>action</i>, in the order of the words, without writing
+	 * any simplified text.
+	 * <p>
+	 * Words and phrases are found and looked up as they are by
+	 * <code>swapText()</code>. A word or phrase found in the wordMap is given the
+	 * ID of the word it is swapped with in the <code>DictionaryIndex</code> of the
+	 * thesaurus in use. A word which is not in the wordMap but is itself a
+	 * dictionary word is given its own ID, and any other word is given
+	 * <code>DictionaryIndex.UNMATCHED</code>. Empty words, such as those between
+	 * consecutive spaces with the <code>SPACE</code> tokenizer, are skipped.
+	 * 
+	 * @param text   the text whose words are numbered
+	 * @param action receives the ID of each word or phrase
+	 * @see AbstractThesaurus#getDictionaryIndex()
+	 */
+	public void forEachWordId(CharSequence text, IntConsumer action) {
+		SimplifierMetrics metrics = this.metrics;
+		long start = metrics != null ? System.nanoTime() : 0;
+		AbstractThesaurus thesaurus = this.thesaurus; // IDs and words from the same thesaurus
+		Map<String, String> wordMap = thesaurus.getWordMap();
+		PhraseMatcher phrases = thesaurus.getPhraseMatcher();
+		if (phrases.isEmpty()) {
+			phrases = null;
+		}
+		DictionaryIndex index = thesaurus.getDictionaryIndex();
+		boolean normalise = this.normalising;
+		WordStatistics statistics = this.statistics;
+		Tokenizer tokenizer = this.tokenizer;
+		WordBuffers buffers = new WordBuffers(tokenizer);
+		int words = 0; // Number of words and phrases numbered, for metrics
+		int swappedWords = 0; // Number of those found in the wordMap
+
+		int end = tokenizer.wordsEnd(text, text.length());
+		int wordStart = tokenizer.preservesSeparators() ? tokenizer.separatorEnd(text, 0, end) : 0;
+		while (wordStart < end) {
+			int wordEnd = tokenizer.wordEnd(text, wordStart, end);
+			if (wordEnd == wordStart) { // Empty word
+				wordStart = tokenizer.separatorEnd(text, wordEnd, end);
+				continue;
+			}
+
+			String swapped = matchWord(wordMap, phrases, tokenizer, normalise, text, wordStart, end, end, buffers);
+			CharSequence matched = swapped != null ? buffers.matched : coreWord(text, buffers);
+			if (statistics != null) {
+				statistics.record(matched, swapped);
+			}
+			int id;
+			if (swapped != null) {
+				id = index.idOf(swapped);
+				swappedWords++;
+			} else {
+				id = index.idOf(matched);
+			}
+			action.accept(id);
+			words++;
+			wordStart = tokenizer.separatorEnd(text, buffers.wordEnd, end);
+		}
+
+		if (metrics != null) {
+			metrics.recordWords(words, swappedWords);
+			metrics.recordText(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Returns the IDs of the dictionary words that the words of the supplied text
+	 * are swapped with, found in the same way as by
+	 * <code>forEachWordId()</code>.
+	 * 
+	 * @param text the text whose words are numbered
+	 * @return the ID of each word or phrase, or
+	 *         <code>DictionaryIndex.UNMATCHED</code>, in the order of the words
+	 */
+	public int[] wordIds(CharSequence text) {
+		return wordIdStream(text).toArray();
+	}
+
+	/**
+	 * Returns a stream of the IDs of the dictionary words that the words of the
+	 * supplied text are swapped with, found in the same way as by
+	 * <code>forEachWordId()</code>.
+	 * 
+	 * @param text the text whose words are numbered
+	 * @return the ID of each word or phrase, or
+	 *         <code>DictionaryIndex.UNMATCHED</code>, in the order of the words
+	 */
+	public IntStream wordIdStream(CharSequence text) {
+		IntStream.Builder ids = IntStream.builder();
+		forEachWordId(text, ids);
+		return ids.build();
+	}
+
+	/**
+	 * Counts the dictionary words that the words of the supplied text are swapped
+	 * with, found in the same way as by <code>forEachWordId()</code>, adding one
+	 * to the element of <i>counts</i> at the ID of each word.
+	 * <p>
+	 * Counts from several texts can be added up by passing the same array.
+	 * 
+	 * @param text   the text whose words are counted
+	 * @param counts the counts of each word, at least as long as the
+	 *               <code>DictionaryIndex</code> of the thesaurus in use
+	 * @return the number of words given <code>DictionaryIndex.UNMATCHED</code>,
+	 *         which are not counted
+	 */
+	public int countWordIds(CharSequence text, int[] counts) {
+		WordCounter counter = new WordCounter(counts);
+		forEachWordId(text, counter);
+		return counter.unmatched;
+	}
+
+	/**
+	 * Adds up the IDs passed to it by <code>forEachWordId()</code>, for
+	 * <code>countWordIds()</code>.
+	 */
+	private static class WordCounter implements IntConsumer {
+		private final int[] counts; // Count of each ID
+		private int unmatched; // Number of words not in the dictionary
+
+		WordCounter(int[] counts) {
+			this.counts = counts;
+		}
+
+		@Override
+		public void accept(int id) {
+			if (id == DictionaryIndex.UNMATCHED) {
+				unmatched++;
+			} else {
+				counts[id]++;
+			}
+		}
+	}
+
+	/**
+	 * Simplifies all text read from the supplied Reader and writes the result to
+	 * the supplied Writer, producing the same output as <code>swapText()</code>
+	 * would for the whole text.
+	 * <p>
+	 * Text is read in chunks of <i>STREAM_BUFFER_SIZE</i> characters. Only the last
+	 * word read, which may continue in the next chunk, any separator after it, and
+	 * enough words before it to complete the longest phrase are held back between
+	 * chunks, so text of any size is simplified in bounded memory. A chunk which
+	 * only continues the last word, or the separator after it, is scanned on its
+	 * own rather than with the text held back. If more than
+	 * <i>STREAM_HELD_LIMIT</i> characters would be held back, as when a word or
+	 * separator is longer than that, everything held is simplified as if the text
+	 * ended there, so a word is divided in two and the output differs from
+	 * <code>swapText()</code> only for such text. The whole text is simplified
+	 * using the thesaurus in use when this method is called. Neither the Reader
+	 * nor the Writer is closed.
+	 * 
+	 * @param in  the Reader from which text to be simplified is read
+	 * @param out the Writer to which simplified text is written
+	 * @throws IOException if the text can not be read or written
+	 */
+	public void simplify(Reader in, Writer out) throws IOException {
+		simplify(in, out, renderer);
+	}
+
+	/**
+	 * Simplifies all text read from the supplied Reader and writes the result to
+	 * the supplied Writer in the same way as <code>simplify(Reader, Writer)</code>,
+	 * writing each word with the supplied <code>Renderer</code>. The offsets
+	 * passed to the renderer are offsets into the whole text read.
+	 * 
+	 * @param in       the Reader from which text to be simplified is read
+	 * @param out      the Writer to which simplified text is written
+	 * @param renderer writes each word of the simplified text
+	 * @throws IOException if the text can not be read or written
+	 */
+	public void simplify(Reader in, Writer out, Renderer renderer) throws IOException {
+		simplify(this.thesaurus, in, out, renderer);
+	}
+
+	/**
+	 * Simplifies all text read from the supplied Reader and writes the result to
+	 * the supplied Writer in the same way as
+	 * <code>simplify(Reader, Writer, Renderer)</code>, using the thesaurus
+	 * registered under the supplied name in <i>registry</i>.
+	 * 
+	 * @param in            the Reader from which text to be simplified is read
+	 * @param out           the Writer to which simplified text is written
+	 * @param renderer      writes each word of the simplified text
+	 * @param thesaurusName the name of the thesaurus used to swap words
+	 * @throws IOException              if the text can not be read or written
+	 * @throws IllegalArgumentException if no thesaurus is registered under
+	 *                                  thesaurusName
+	 */
+	public void simplify(Reader in, Writer out, Renderer renderer, String thesaurusName) throws IOException {
+		simplify(registered(thesaurusName), in, out, renderer);
+	}
+
+	/**
+	 * Simplifies all text read from the supplied Reader and writes the result to
+	 * the supplied Writer in the same way as
+	 * <code>simplify(Reader, Writer, Renderer)</code>, using the supplied
+	 * thesaurus, such as one already found in <i>registry</i>.
+	 * 
+	 * @param in        the Reader from which text to be simplified is read
+	 * @param out       the Writer to which simplified text is written
+	 * @param renderer  writes each word of the simplified text
+	 * @param thesaurus the thesaurus used to swap words
+	 * @throws IOException if the text can not be read or written
+	 */
+	public void simplify(Reader in, Writer out, Renderer renderer, AbstractThesaurus thesaurus) throws IOException {
+		simplify(thesaurus, in, out, renderer);
+	}
+
+	/**
+	 * Simplifies text from a Reader into a Writer using the supplied thesaurus,
+	 * for <code>simplify()</code>.
+	 */
+	private void simplify(AbstractThesaurus thesaurus, Reader in, Writer out, Renderer renderer) throws IOException {
+		SimplifierMetrics metrics = this.metrics;
+		long start = metrics != null ? System.nanoTime() : 0;
+		int heldWords = thesaurus.getPhraseMatcher().maxWords() - 1; // Words held back before the last word
+		char[] chunk = new char[STREAM_BUFFER_SIZE];
+		StringBuilder pending = new StringBuilder(STREAM_BUFFER_SIZE); // Text read but not yet simplified
+		StringBuilder sb = new StringBuilder(STREAM_BUFFER_SIZE * 2); // Simplified text not yet written
+		Tokenizer tokenizer = this.tokenizer;
+		WordBuffers buffers = new WordBuffers(tokenizer); // Reused for every chunk
+		TextSlice tail = new TextSlice(); // Last character scanned and the chunk read after it
+		long offset = 0; // Index in the whole text of the first character of pending
+		boolean inWord = false; // Whether pending ended inside its last word when last scanned
+
+		renderer.begin(sb);
+		int read;
+		while ((read = in.read(chunk)) != -1) {
+			int scanned = pending.length(); // Characters of pending scanned before this chunk
+			pending.append(chunk, 0, read);
+
+			if (pending.length() > STREAM_HELD_LIMIT) { // Too much held back, simplify it all
+				appendHeld(thesaurus, pending, offset, renderer, sb, buffers);
+				offset += pending.length();
+				pending.setLength(0);
+				out.append(sb);
+				sb.setLength(0);
+				continue;
+			}
+			if (scanned > 0 && continuesTail(tokenizer, pending, scanned, inWord, tail)) {
+				continue; // Same words held back, nothing more to simplify
+			}
+
+			int wordsEnd = tokenizer.wordsEnd(pending, pending.length());
+			inWord = wordsEnd == pending.length();
+			int lastWordStart = tokenizer.wordStart(pending, wordsEnd);
+			int heldStart = wordStartBefore(tokenizer, pending, lastWordStart, heldWords);
+			if (heldStart > 0) { // Words before the held words can be simplified
+				int next = appendWords(thesaurus, pending, 0, tokenizer.previousWordEnd(pending, heldStart),
+						tokenizer.previousWordEnd(pending, lastWordStart), offset, renderer, sb, buffers);
+				pending.delete(0, next);
+				offset += next;
+				out.append(sb);
+				sb.setLength(0);
+			}
+		}
+
+		appendText(thesaurus, pending, offset, renderer, sb, buffers); // Simplify the remaining words and separators
+		renderer.end(sb);
+		out.append(sb);
+		out.flush();
+
+		if (metrics != null) {
+			metrics.recordText(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Returns whether the text appended to <i>pending</i> after its first
+	 * <i>scanned</i> characters only continues the word, or the separators, at
+	 * the end of the text scanned, so that the words held back by
+	 * <code>simplify()</code> are unchanged. Only the last character scanned and
+	 * the text appended are read.
+	 * 
+	 * @param tokenizer the tokenizer dividing the text into words
+	 * @param pending   the text held back, followed by the text appended
+	 * @param scanned   the number of characters of pending scanned before, at
+	 *                  least 1
+	 * @param inWord    <code>true</code> if the text scanned ended inside a word
+	 * @param tail      a reusable slice
+	 * @return <code>true</code> if no word starts in the text appended
+	 */
+	private static boolean continuesTail(Tokenizer tokenizer, StringBuilder pending, int scanned, boolean inWord,
+			TextSlice tail) {
+		if (Character.isHighSurrogate(pending.charAt(scanned - 1))) {
+			return false; // Completed by the text appended, which may change its class
+		}
+		tail.set(pending, scanned - 1, pending.length());
+		int end = tokenizer.wordsEnd(tail, tail.length());
+		if (!inWord) {
+			return end == 0; // Only separators appended to separators
+		}
+		return end == tail.length() && tokenizer.wordStart(tail, end) == 0; // One word from the last character scanned
+	}
+
+	/**
+	 * Appends all of the text held back by <code>simplify()</code> once it is
+	 * longer than <i>STREAM_HELD_LIMIT</i>, as if the text ended there. When the
+	 * tokenizer does not preserve separators, a separator at the end of the text
+	 * is followed by an empty word, as it would be if a word were read next.
+	 */
+	private void appendHeld(AbstractThesaurus thesaurus, CharSequence pending, long offset, Renderer renderer,
+			StringBuilder sb, WordBuffers buffers) {
+		Tokenizer tokenizer = buffers.tokenizer;
+		int end = pending.length();
+		if (!tokenizer.preservesSeparators() && tokenizer.wordsEnd(pending, end) < end) {
+			end--; // The last separator is written after the empty word before it
+		}
+		appendWords(thesaurus, pending, 0, end, pending.length(), offset, renderer, sb, buffers);
+	}
+
+	/**
+	 * Appends every word in the supplied text to the StringBuilder using
+	 * <code>appendWords()</code>. Separators before the first word and after the
+	 * last word are appended if the tokenizer preserves separators, and ignored
+	 * otherwise.
+	 * 
+	 * @param thesaurus the thesaurus used to swap words
+	 * @param text      the text to be simplified
+	 * @param offset    the index in the whole input of the first character of text
+	 * @param renderer  writes each word into sb
+	 * @param sb        the StringBuilder to which the words are appended
+	 * @param buffers   reusable buffers used while the words are appended
+	 */
+	private void appendText(AbstractThesaurus thesaurus, CharSequence text, long offset, Renderer renderer,
+			StringBuilder sb, WordBuffers buffers) {
+		Tokenizer tokenizer = buffers.tokenizer;
+		int end = tokenizer.wordsEnd(text, text.length());
+		if (tokenizer.preservesSeparators()) {
+			if (end > 0) {
+				appendWords(thesaurus, text, 0, end, end, offset, renderer, sb, buffers);
+			}
+			appendTrailingSeparator(text, end, renderer, sb, tokenizer);
+		} else if (end > 0 || text.length() == 0) { // Text made up only of spaces contains no words
+			appendWords(thesaurus, text, 0, end, end, offset, renderer, sb, buffers);
+		}
+	}
+
+	/**
+	 * Appends the separators after the last word of a text, if the tokenizer
+	 * preserves separators.
+	 */
+	private static void appendTrailingSeparator(CharSequence text, int end, Renderer renderer, StringBuilder sb,
+			Tokenizer tokenizer) {
+		if (tokenizer.preservesSeparators() && end < text.length()) {
+			renderer.separator(sb, text.subSequence(end, text.length()));
+		}
+	}
+
+	/**
+	 * Finds the index at which the word a number of words before the word starting
+	 * at <i>wordStart</i> starts.
+	 * 
+	 * @param tokenizer the tokenizer dividing the text into words
+	 * @param text      the text to search
+	 * @param wordStart the index at which a word starts
+	 * @param words     the number of words to move back
+	 * @return the index at which the earlier word starts, or 0 if there are not
+	 *         enough words before wordStart
+	 */
+	private static int wordStartBefore(Tokenizer tokenizer, CharSequence text, int wordStart, int words) {
+		for (int w = 0; w < words && wordStart > 0; w++) {
+			wordStart = tokenizer.wordStart(text, tokenizer.previousWordEnd(text, wordStart));
+		}
+		return wordStart;
+	}
+
+	/**
+	 * Appends each word between <i>start</i> and <i>end</i> of the supplied text
+	 * to the StringBuilder, swapped and colourized GREEN if it is a key in the
+	 * supplied thesaurus' wordMap, or colourized RED if not. Each word appended is
+	 * followed by its separator, up to <i>limit</i>, if the tokenizer in
+	 * <i>buffers</i> preserves separators, or by a space if not. Words and
+	 * phrases are found by <code>matchWord()</code>.
+	 * 
+	 * @param thesaurus the thesaurus used to swap words
+	 * @param text      the text containing the words
+	 * @param start     the index of the first character of the first word
+	 * @param end       the index after the last character of the last word
+	 * @param limit     the index after the last character of the last word that
+	 *                  may complete a phrase, at least end
+	 * @param offset    the index in the whole input of the first character of text,
+	 *                  added to the offsets passed to renderer
+	 * @param renderer  writes each word into sb
+	 * @param sb        the StringBuilder to which the words are appended
+	 * @param buffers   reusable buffers used while the words are appended
+	 * @return the index at which the word after the last word appended starts
+	 */
+	private int appendWords(AbstractThesaurus thesaurus, CharSequence text, int start, int end, int limit,
+			long offset, Renderer renderer, StringBuilder sb, WordBuffers buffers) {
+		Map<String, String> wordMap = thesaurus.getWordMap();
+		PhraseMatcher phrases = thesaurus.getPhraseMatcher();
+		if (phrases.isEmpty()) {
+			phrases = null; // No word starts a phrase
+		}
+		boolean normalise = this.normalising;
+		WordStatistics statistics = this.statistics;
+		Tokenizer tokenizer = buffers.tokenizer;
+		boolean preserving = tokenizer.preservesSeparators();
+		TextSlice original = buffers.original;
+		TextSlice separator = buffers.separator;
+		StringBuilder restored = buffers.restored;
+		int words = 0; // Number of words and phrases appended, for metrics
+		int swappedWords = 0; // Number of those found in the wordMap
+
+		int wordStart = start;
+		int lastStart = end; // Index at or before which the last word starts
+		if (preserving) {
+			wordStart = tokenizer.separatorEnd(text, start, limit);
+			if (wordStart > start) { // Separator before the first word of the text
+				separator.set(text, start, wordStart);
+				renderer.separator(sb, separator);
+			}
+			lastStart = end - 1; // Words are never empty
+		}
+		while (wordStart <= lastStart) {
+			String swapped = matchWord(wordMap, phrases, tokenizer, normalise, text, wordStart, end, limit, buffers);
+			int wordEnd = buffers.wordEnd;
+			if (statistics != null) {
+				statistics.record(swapped != null ? buffers.matched : coreWord(text, buffers), swapped);
+			}
+			if (buffers.wordWritten) { // Not the first word of the text
+				renderer.between(sb);
+			}
+			buffers.wordWritten = true;
+
+			if (normalise) { // Write the word as it appears, and restore its appearance on the swapped word
+				original.set(text, wordStart, wordEnd);
+				CharSequence swappedWord = null;
+				if (swapped != null) {
+					int coreStart = buffers.coreStart;
+					int coreEnd = buffers.coreEnd;
+					restored.setLength(0);
+					restored.append(text, wordStart, coreStart);
+					WordNormaliser.appendCased(swapped, WordNormaliser.casing(text, coreStart, coreEnd), restored);
+					restored.append(text, coreEnd, wordEnd);
+					swappedWord = restored;
+				}
+				renderer.word(sb, original, swappedWord, offset + wordStart, offset + wordEnd);
+			} else {
+				renderer.word(sb, buffers.matched, swapped, offset + wordStart, offset + wordEnd);
+			}
+			words++;
+			if (swapped != null) {
+				swappedWords++;
+			}
+
+			wordStart = tokenizer.separatorEnd(text, wordEnd, limit);
+			if (!preserving || (wordStart == wordEnd + 1 && text.charAt(wordEnd) == ' ')) {
+				renderer.separator(sb, " "); // Appending a String is faster than appending a slice
+			} else if (wordStart > wordEnd) {
+				separator.set(text, wordEnd, wordStart);
+				renderer.separator(sb, separator);
+			}
+		}
+
+		SimplifierMetrics metrics = this.metrics;
+		if (metrics != null) {
+			metrics.recordWords(words, swappedWords);
+		}
+		return wordStart;
+	}
+
+	/**
+	 * Finds the word or phrase starting at <i>wordStart</i> of the supplied text
+	 * and looks it up in the wordMap, leaving where it ends and the characters
+	 * looked up in <i>buffers</i>.
+	 * <p>
+	 * If a word is the start of a phrase in the wordMap, the words following it
+	 * are added to the phrase for as long as it remains the start of a longer
+	 * phrase, up to <i>limit</i>. The longest phrase found in the wordMap is
+	 * matched in place of all of its words.
+	 * <p>
+	 * When normalising, punctuation around a word is removed before it is looked
+	 * up, and the word is looked up again with its punctuation only if it is not
+	 * found. Punctuation between two words ends a phrase, as does a word which
+	 * follows the one before it with no separator between them. The words of a
+	 * phrase are looked up separated by single spaces, whatever separates them in
+	 * the text.
+	 * 
+	 * @param wordMap   the wordMap in which words are looked up
+	 * @param phrases   the PhraseMatcher for the wordMap, or <code>null</code> if
+	 *                  it has no phrases
+	 * @param tokenizer the tokenizer dividing the text into words
+	 * @param normalise <code>true</code> to remove punctuation before looking up
+	 * @param text      the text containing the word
+	 * @param wordStart the index of the first character of the word
+	 * @param end       the index after the last character of the last word
+	 * @param limit     the index after the last character of the last word that
+	 *                  may complete a phrase, at least end
+	 * @param buffers   reusable buffers, in which the end of the word or phrase,
+	 *                  the characters looked up and the indices of those
+	 *                  characters are left
+	 * @return the word the word or phrase is swapped with, or <code>null</code>
+	 *         if it is not in the wordMap
+	 */
+	private static String matchWord(Map<String, String> wordMap, PhraseMatcher phrases, Tokenizer tokenizer,
+			boolean normalise, CharSequence text, int wordStart, int end, int limit, WordBuffers buffers) {
+		StringBuilder word = buffers.word;
+		int wordEnd = tokenizer.wordEnd(text, wordStart, end);
+		int coreStart = wordStart; // Start of the characters looked up, without leading punctuation
+		int coreEnd = wordEnd; // End of the characters looked up, without trailing punctuation
+		if (normalise) {
+			coreStart = WordNormaliser.coreStart(text, wordStart, wordEnd);
+			coreEnd = WordNormaliser.coreEnd(text, coreStart, wordEnd);
+		}
+		word.setLength(0);
+		WordNormaliser.appendLowerCase(text, coreStart, coreEnd, word);
+		CharSequence matched = word; // Word or phrase swapped
+		String swapped = null;
+
+		if (phrases != null && coreEnd == wordEnd && phrases.startsPhrase(word)) { // Word may start a phrase
+			StringBuilder phrase = buffers.phrase;
+			if (phrase == null) {
+				phrase = new StringBuilder(64);
+				buffers.phrase = phrase;
+			}
+			phrase.setLength(0);
+			phrase.append(word);
+
+			int matchedLength = 0; // Length of the longest phrase found
+			int phraseEnd = wordEnd;
+			while (phraseEnd < limit) { // Add the next word to the phrase
+				int nextStart = tokenizer.separatorEnd(text, phraseEnd, limit);
+				if (nextStart == phraseEnd || nextStart >= limit) {
+					break; // No separator, or no word, after the phrase
+				}
+				int nextEnd = tokenizer.wordEnd(text, nextStart, limit);
+				int nextCoreEnd = nextEnd;
+				if (normalise) {
+					if (WordNormaliser.coreStart(text, nextStart, nextEnd) != nextStart) {
+						break; // Punctuation between words ends a phrase
+					}
+					nextCoreEnd = WordNormaliser.coreEnd(text, nextStart, nextEnd);
+				}
+				phrase.append(' ');
+				WordNormaliser.appendLowerCase(text, nextStart, nextCoreEnd, phrase);
+				phraseEnd = nextEnd;
+
+				String swappedPhrase = WordLookup.lookup(wordMap, phrase);
+				if (swappedPhrase != null) { // Longest phrase found so far
+					swapped = swappedPhrase;
+					wordEnd = phraseEnd;
+					coreEnd = nextCoreEnd;
+					matchedLength = phrase.length();
+				}
+				if (nextCoreEnd != nextEnd || !phrases.startsPhrase(phrase)) { // No longer phrase can match
+					break;
+				}
+			}
+			if (matchedLength > 0) {
+				phrase.setLength(matchedLength); // Remove words read beyond the phrase found
+				matched = phrase;
+			}
+		}
+
+		if (swapped == null) { // No phrase found, single lookup of the word
+			swapped = WordLookup.lookup(wordMap, word);
+			if (swapped == null && (coreStart != wordStart || coreEnd != wordEnd)) {
+				word.setLength(0); // Look up with its punctuation, for keys such as "etc."
+				WordNormaliser.appendLowerCase(text, wordStart, wordEnd, word);
+				swapped = WordLookup.lookup(wordMap, word);
+				if (swapped != null) { // Punctuation is part of the word swapped
+					coreStart = wordStart;
+					coreEnd = wordEnd;
+				}
+			}
+		}
+
+		buffers.wordEnd = wordEnd;
+		buffers.coreStart = coreStart;
+		buffers.coreEnd = coreEnd;
+		buffers.matched = matched;
+		return swapped;
+	}
+
+	/**
+	 * The buffers used by <code>appendWords()</code> and <code>matchWord()</code>
+	 * while simplifying text, which can be reused for every word of any number of
+	 * texts simplified by one thread with the same tokenizer.
+	 */
+	private static class WordBuffers {
+		final Tokenizer tokenizer; // Divides the text into words
+		final StringBuilder word = new StringBuilder(32); // Current word in lower case
+		StringBuilder phrase; // Current phrase, created when first needed
+		final TextSlice original = new TextSlice(); // Word as it appears in the text
+		final TextSlice separator = new TextSlice(); // Separator after the word as it appears in the text
+		final StringBuilder restored = new StringBuilder(32); // Swapped word with punctuation and case restored
+
+		// Left by matchWord() for the word or phrase it found
+		int wordEnd; // Index after the last character of the word or phrase
+		int coreStart; // Index of the first character looked up
+		int coreEnd; // Index after the last character looked up
+		CharSequence matched; // Characters looked up, in lower case
+
+		boolean wordWritten; // Whether a word of the current text has been appended, for Renderer.between()
+
+		WordBuffers(Tokenizer tokenizer) {
+			this.tokenizer = tokenizer;
+		}
+	}
+
+	/**
+	 * A reusable view of the characters between two indices of a text, used to
+	 * pass each word to a <code>Renderer</code> without copying it.
+	 */
+	private static class TextSlice implements CharSequence {
+		private CharSequence text; // Text containing the characters
+		private int start; // Index of the first character
+		private int end; // Index after the last character
+
+		void set(CharSequence text, int start, int end) {
+			this.text = text;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return text.charAt(start + index);
+		}
+
+		@Override
+		public CharSequence subSequence(int from, int to) {
+			return text.subSequence(start + from, start + to);
+		}
+
+		@Override
+		public String toString() {
+			return text.subSequence(start, end).toString();
+		}
+	}
+
+	/**
+	 * Returns the word last found by <code>matchWord()</code> in lower case and
+	 * without punctuation, for a word which was not found in the wordMap.
+	 */
+	private static CharSequence coreWord(CharSequence text, WordBuffers buffers) {
+		StringBuilder word = buffers.word;
+		int coreStart = buffers.coreStart;
+		int coreEnd = buffers.coreEnd;
+		if (word.length() != coreEnd - coreStart) { // Last looked up with its punctuation
+			word.setLength(0);
+			WordNormaliser.appendLowerCase(text, coreStart, coreEnd, word);
+		}
+		return word;
 	}
 
 	/**
 	 * Checks whether the input String appears as a key in <i>thesaurus</i>'
-	 * <i>wordMap</i>.
+	 * <i>wordMap</i>. A word which is not found is recorded in the statistics as
+	 * a miss. A word which is found is not, as it is usually passed to
+	 * <code>swapWord()</code> next, which records it.
 	 * 
 	 * @param word a word to be tested
 	 * @return <code>true</code> if the supplied word appears as a key in
@@ -116,11 +1576,17 @@ public class TextSimplifier implements TextSwapper {
 	 */
 	@Override
 	public boolean testWord(String word) {
-		if (thesaurus.getWordMap().containsKey(word)) { // O(log(n))
-			return true;
-		} else {
-			return false;
+		boolean found = thesaurus.getWordMap().containsKey(word); // O(1) with a hash-based storage backend
+
+		WordStatistics statistics = this.statistics;
+		if (statistics != null && !found) { // Hits are recorded by swapWord()
+			statistics.record(word, null);
+		}
+		SimplifierMetrics metrics = this.metrics;
+		if (metrics != null) {
+			metrics.recordTest(found);
 		}
+		return found;
 	}
 
 	/**
@@ -128,11 +1594,17 @@ public class TextSimplifier implements TextSwapper {
 	 * in <i>thesaurus</i>' <i>wordMap</i>.
 	 * 
 	 * @param word the word to be simplified
-	 * @return the simplified word
+	 * @return the simplified word, or <code>null</code> if the word is not a key in
+	 *         the wordMap
 	 */
 	@Override
 	public String swapWord(String word) {
-		word = thesaurus.getWordMap().get(word); // O(log(n))
-		return word;
+		String swapped = thesaurus.getWordMap().get(word); // O(1) with a hash-based storage backend
+
+		WordStatistics statistics = this.statistics;
+		if (statistics != null) {
+			statistics.record(word, swapped);
+		}
+		return swapped;
 	}
 }
@@ -37,6 +37,21 @@ public class Thesaurus extends AbstractThesaurus {
 		super(pathToDictionaryFile, pathToWordListFile);
 	}
 
+	/**
+	 * Calls the constructor from <code>super</code> which creates a <i>wordMap</i>
+	 * using two supplied Strings and stores it in the supplied
+	 * <code>WordMapStorage</code> backend.
+	 * 
+	 * @param pathToDictionaryFile the path to the text file to be used when
+	 *                             building the <i>dictionary</i>
+	 * @param pathToWordListFile   the path to the text file to be used when
+	 *                             building a <i>wordMap</i>
+	 * @param storage              the storage backend used for lookups
+	 */
+	public Thesaurus(String pathToDictionaryFile, String pathToWordListFile, WordMapStorage storage) {
+		super(pathToDictionaryFile, pathToWordListFile, storage);
+	}
+
 	/**
 	 * Parses a .txt file and adds its contents to the <i>dictionaryString</i>
 	 * instance variable.
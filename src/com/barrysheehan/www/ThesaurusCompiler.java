@@ -0,0 +1,270 @@
+package com.barrysheehan.www;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Class contains static methods for compiling a thesaurus into a compact binary
+ * file which can be loaded by <code>CompiledThesaurus</code> without being
+ * rebuilt.
+ * <p>
+ * A compiled thesaurus is made up of a 32 byte header followed by an open
+ * addressing hash table and the records it points to. All values are big
+ * endian.
+ * <ul>
+ * <li>Header: magic number, format version, a stamp identifying the source
+ * files, a CRC32 checksum of everything in the file other than the checksum
+ * itself, the number of keys and the number of dictionary words</li>
+ * <li>The capacity of the table, a power of two</li>
+ * <li>The table: one int per slot holding the offset of a key record, or 0 if
+ * the slot is empty</li>
+ * <li>One int per dictionary word holding the offset of its record</li>
+ * <li>Key records: hash code, dictionary word index, length and UTF-16
+ * characters of each key</li>
+ * <li>Dictionary records: length and UTF-16 characters of each dictionary
+ * word</li>
+ * </ul>
+ * <p>
+ * A compiled thesaurus is written to a temporary file in the same directory
+ * and then moved over the old one, so a <code>CompiledThesaurus</code> which
+ * still has the old file mapped keeps reading it, and a compilation which
+ * fails part way leaves the old file in place.
+ * 
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see CompiledThesaurus
+ * @see MappedWordMap
+ * @since 1.8
+ */
+
+public class ThesaurusCompiler {
+
+	public static final int MAGIC = 0x54534354; // "TSCT"
+	public static final int VERSION = 2; // Incremented whenever the format changes
+	public static final int HEADER_SIZE = 32;
+
+	// Offsets of values in the header
+	public static final int STAMP_OFFSET = 8;
+	public static final int CHECKSUM_OFFSET = 16;
+	public static final int ENTRY_COUNT_OFFSET = 24;
+	public static final int DICTIONARY_COUNT_OFFSET = 28;
+
+	// Extension added to the path of a word list file to give the path of its
+	// compiled thesaurus
+	public static final String COMPILED_FILE_EXTENSION = ".compiled";
+
+	/**
+	 * Returns the default path of the compiled thesaurus for a word list file.
+	 * 
+	 * @param wordListFile the path to a word list file
+	 * @return the path to the compiled thesaurus
+	 */
+	public static String compiledFileFor(String wordListFile) {
+		return wordListFile + COMPILED_FILE_EXTENSION;
+	}
+
+	/**
+	 * Computes a stamp identifying the current version of a dictionary file and a
+	 * word list file from their sizes and modification times. A compiled thesaurus
+	 * whose stamp differs is out of date.
+	 * 
+	 * @param dictionaryFile the path to the dictionary file
+	 * @param wordListFile   the path to the word list file
+	 * @return the stamp of the two files
+	 */
+	public static long sourceStamp(String dictionaryFile, String wordListFile) {
+		File dictionary = new File(dictionaryFile);
+		File wordList = new File(wordListFile);
+
+		long stamp = 17;
+		stamp = stamp * 31 + dictionary.length();
+		stamp = stamp * 31 + dictionary.lastModified();
+		stamp = stamp * 31 + wordList.length();
+		stamp = stamp * 31 + wordList.lastModified();
+		return stamp;
+	}
+
+	/**
+	 * Builds a thesaurus from a dictionary file and a word list file and writes
+	 * it to a compiled thesaurus file, replacing any file already there in a
+	 * single atomic move.
+	 * <p>
+	 * The stamp of the source files is taken before they are read, so if either
+	 * is changed while the thesaurus is compiled the compiled file is out of date
+	 * as soon as it is written, and is compiled again when next loaded.
+	 * 
+	 * @param dictionaryFile the path to the dictionary file
+	 * @param wordListFile   the path to the word list file
+	 * @param compiledFile   the path to which the compiled thesaurus is written
+	 * @throws IOException if the compiled thesaurus can not be written
+	 */
+	public static void compile(String dictionaryFile, String wordListFile, String compiledFile)
+			throws IOException {
+		long sourceStamp = sourceStamp(dictionaryFile, wordListFile); // Before the files are read
+		AbstractThesaurus thesaurus = new MappedThesaurus(dictionaryFile, wordListFile, WordMapStorage.HASH);
+		ByteBuffer buffer = encode(thesaurus.getWordMap(), thesaurus.getDictionary(), sourceStamp);
+
+		Path target = Paths.get(compiledFile).toAbsolutePath();
+		Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+		try {
+			FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+			try {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(true); // On disk before it replaces the old file
+			} finally {
+				channel.close();
+			}
+			Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temp); // Only left behind if the move failed
+		}
+	}
+
+	/**
+	 * Encodes a word map and dictionary into a buffer in the compiled thesaurus
+	 * format.
+	 * 
+	 * @param wordMap     the word map to be encoded
+	 * @param dictionary  the dictionary whose words are the values of wordMap
+	 * @param sourceStamp the stamp of the files the word map was built from
+	 * @return a buffer holding the compiled thesaurus, positioned at its start
+	 */
+	public static ByteBuffer encode(Map<String, String> wordMap, Set<String> dictionary, long sourceStamp) {
+		return encode(wordMap, dictionary, sourceStamp, false);
+	}
+
+	/**
+	 * Encodes a word map and dictionary into a heap or direct buffer in the
+	 * compiled thesaurus format. A direct buffer is allocated outside of the Java
+	 * heap, so it adds almost nothing to the heap however large it is.
+	 * 
+	 * @param wordMap     the word map to be encoded
+	 * @param dictionary  the dictionary whose words are the values of wordMap
+	 * @param sourceStamp the stamp of the files the word map was built from
+	 * @param direct      <code>true</code> to allocate a direct buffer, or
+	 *                    <code>false</code> to allocate a heap buffer
+	 * @return a buffer holding the compiled thesaurus, positioned at its start
+	 */
+	public static ByteBuffer encode(Map<String, String> wordMap, Set<String> dictionary, long sourceStamp,
+			boolean direct) {
+		// Number dictionary words in sorted order so that compiling is repeatable
+		String[] words = dictionary.toArray(new String[dictionary.size()]);
+		Arrays.sort(words);
+		Map<String, Integer> wordIds = new HashMap<String, Integer>();
+		for (int i = 0; i < words.length; i++) {
+			wordIds.put(words[i], i);
+		}
+		for (String value : wordMap.values()) { // Values are normally dictionary words, but make sure
+			if (!wordIds.containsKey(value)) {
+				words = Arrays.copyOf(words, words.length + 1);
+				words[words.length - 1] = value;
+				wordIds.put(value, words.length - 1);
+			}
+		}
+
+		int capacity = OpenAddressingWordMap.tableCapacity(wordMap.size());
+		int tableStart = HEADER_SIZE + 4;
+		int dictionaryStart = tableStart + capacity * 4;
+		int recordsStart = dictionaryStart + words.length * 4;
+
+		int size = recordsStart;
+		for (String key : wordMap.keySet()) {
+			size += 12 + key.length() * 2;
+		}
+		for (String word : words) {
+			size += 4 + word.length() * 2;
+		}
+
+		ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putLong(STAMP_OFFSET, sourceStamp);
+		buffer.putInt(ENTRY_COUNT_OFFSET, wordMap.size());
+		buffer.putInt(DICTIONARY_COUNT_OFFSET, words.length);
+		buffer.putInt(HEADER_SIZE, capacity);
+
+		buffer.position(recordsStart);
+		int mask = capacity - 1;
+		for (Map.Entry<String, String> entry : wordMap.entrySet()) {
+			String key = entry.getKey();
+			int hash = OpenAddressingWordMap.hash(key);
+
+			int slot = OpenAddressingWordMap.mix(hash) & mask;
+			while (buffer.getInt(tableStart + slot * 4) != 0) { // Linear probe to the next free slot
+				slot = (slot + 1) & mask;
+			}
+			buffer.putInt(tableStart + slot * 4, buffer.position());
+
+			buffer.putInt(hash);
+			buffer.putInt(wordIds.get(entry.getValue()));
+			putChars(buffer, key);
+		}
+
+		for (int i = 0; i < words.length; i++) {
+			buffer.putInt(dictionaryStart + i * 4, buffer.position());
+			putChars(buffer, words[i]);
+		}
+
+		buffer.putLong(CHECKSUM_OFFSET, checksum(buffer));
+		buffer.position(0);
+		return buffer;
+	}
+
+	/**
+	 * Verifies that a buffer holds a compiled thesaurus in the current format
+	 * whose checksum is correct.
+	 * 
+	 * @param buffer a buffer holding a compiled thesaurus
+	 * @throws IOException if the buffer does not hold a valid compiled thesaurus
+	 */
+	public static void verify(ByteBuffer buffer) throws IOException {
+		if (buffer.limit() < HEADER_SIZE + 4 || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a compiled thesaurus");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Compiled thesaurus format version " + buffer.getInt(4) + " is not supported");
+		}
+		if (buffer.getLong(CHECKSUM_OFFSET) != checksum(buffer)) {
+			throw new IOException("Compiled thesaurus is corrupt");
+		}
+	}
+
+	/**
+	 * Computes the CRC32 checksum of a compiled thesaurus: the header fields
+	 * before and after the checksum, then everything after the header.
+	 */
+	private static long checksum(ByteBuffer buffer) {
+		CRC32 crc = new CRC32();
+		ByteBuffer part = buffer.duplicate();
+
+		part.limit(CHECKSUM_OFFSET).position(0); // Magic number, version and stamp
+		crc.update(part);
+		part.limit(buffer.limit()).position(CHECKSUM_OFFSET + 8); // Counts, then the body
+		crc.update(part);
+		return crc.getValue();
+	}
+
+	/**
+	 * Writes the length and characters of a String to a buffer.
+	 */
+	private static void putChars(ByteBuffer buffer, String s) {
+		buffer.putInt(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			buffer.putChar(s.charAt(i));
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package com.barrysheehan.www;
+
+import java.io.IOException;
+
+/**
+ * Stores the possible ways in which a <code>TextSimplifier</code> can load an
+ * <code>AbstractThesaurus</code> from a dictionary file and a word list file.
+ * 
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see TextSimplifier
+ * @see Thesaurus
+ * @see MappedThesaurus
+ * @see CompiledThesaurus
+ * @see LazyThesaurus
+ * @since 1.8
+ *
+ */
+
+public enum ThesaurusLoader {
+	TEXT {
+		@Override
+		public AbstractThesaurus load(String dictionaryFile, String wordListFile, WordMapStorage storage) {
+			return new Thesaurus(dictionaryFile, wordListFile, storage); // Files read into Strings
+		}
+	},
+	MAPPED {
+		@Override
+		public AbstractThesaurus load(String dictionaryFile, String wordListFile, WordMapStorage storage) {
+			return new MappedThesaurus(dictionaryFile, wordListFile, storage); // Files memory mapped
+		}
+	},
+	COMPILED {
+		/**
+		 * Loads the compiled thesaurus stored beside the word list file. If it is
+		 * missing or out of date it is compiled first, so that later loads are
+		 * instant. The storage backend is only used if the compiled thesaurus can not
+		 * be written.
+		 */
+		@Override
+		public AbstractThesaurus load(String dictionaryFile, String wordListFile, WordMapStorage storage) {
+			String compiledFile = ThesaurusCompiler.compiledFileFor(wordListFile);
+			long sourceStamp = ThesaurusCompiler.sourceStamp(dictionaryFile, wordListFile);
+
+			try {
+				return new CompiledThesaurus(compiledFile, sourceStamp);
+			} catch (IOException notCurrent) { // Missing, out of date or corrupt
+				System.out.println(ConsoleColour.colourize("CYAN", "> Compiling Thesaurus to " + compiledFile));
+			}
+
+			try {
+				ThesaurusCompiler.compile(dictionaryFile, wordListFile, compiledFile);
+				return new CompiledThesaurus(compiledFile, sourceStamp);
+			} catch (IOException ioe) {
+				System.out.println(ConsoleColour.colourize("RED",
+						"> !ERROR: Unable to write compiled Thesaurus to " + compiledFile));
+				return MAPPED.load(dictionaryFile, wordListFile, storage);
+			}
+		}
+	},
+	LAZY {
+		/**
+		 * Indexes the word list file and reads words from it only as they are looked
+		 * up. The storage backend is not used.
+		 */
+		@Override
+		public AbstractThesaurus load(String dictionaryFile, String wordListFile, WordMapStorage storage) {
+			return new LazyThesaurus(dictionaryFile, wordListFile);
+		}
+	};
+
+	/**
+	 * Loads a thesaurus from the supplied files.
+	 * 
+	 * @param dictionaryFile the path to the dictionary file
+	 * @param wordListFile   the path to the word list file
+	 * @param storage        the storage backend used by the thesaurus' wordMap
+	 * @return the loaded thesaurus
+	 */
+	public abstract AbstractThesaurus load(String dictionaryFile, String wordListFile, WordMapStorage storage);
+}
@@ -0,0 +1,269 @@
+package com.barrysheehan.www;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds any number of thesauri, each loaded once and known by a name, so that
+ * text can be simplified for different audiences, such as different reading
+ * levels, by one <code>TextSimplifier</code> in one JVM.
+ * <p>
+ * A thesaurus can be loaded on its own with <code>load()</code>, or as an
+ * overlay on a thesaurus already registered with <code>loadOverlay()</code>.
+ * An overlay's word map is an <code>OverlayWordMap</code> whose base is the
+ * word map of the registered thesaurus, and whose delta holds only the keys
+ * whose values differ from the base, and the keys of the base which it does
+ * not have. Keys shared with the base are stored once, in the base, and values
+ * are the base's own dictionary words where the dictionaries share them. The
+ * overlay's <code>PhraseMatcher</code> is derived from the base's, storing
+ * only the prefixes of the phrases in the delta, and when both were loaded
+ * from the same dictionary the overlay uses the base's dictionary and
+ * <code>DictionaryIndex</code>. The memory used by an overlay therefore grows
+ * with the entries which are unique to it, and with its dictionary only if
+ * that differs from the base's.
+ * <p>
+ * Thesauri are held in a <code>ConcurrentHashMap</code>, so they can be looked
+ * up by any number of threads while others are registered. A thesaurus is
+ * never modified once registered; registering another under the same name
+ * replaces it for simplifications which start afterwards. Overlays keep the
+ * base they were loaded over, so should be loaded again after their base is
+ * replaced.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see TextSimplifier#swapText(String, String)
+ * @see OverlayWordMap
+ * @since 1.8
+ *
+ */
+
+public class ThesaurusRegistry {
+
+	// Instance variables
+	private final ConcurrentHashMap<String, AbstractThesaurus> thesauri; // Each thesaurus by its name
+
+	// Constructors
+	/**
+	 * Creates an empty <code>ThesaurusRegistry</code>.
+	 */
+	public ThesaurusRegistry() {
+		this.thesauri = new ConcurrentHashMap<String, AbstractThesaurus>();
+	}
+
+	/**
+	 * Returns the thesaurus registered under the supplied name.
+	 *
+	 * @param name the name of the thesaurus
+	 * @return the thesaurus, or <code>null</code> if none is registered under name
+	 */
+	public AbstractThesaurus get(String name) {
+		return thesauri.get(name);
+	}
+
+	/**
+	 * Returns the names of the thesauri registered, in alphabetical order.
+	 *
+	 * @return a copy of the names
+	 */
+	public Set<String> getNames() {
+		return new TreeSet<String>(thesauri.keySet());
+	}
+
+	/**
+	 * Registers a thesaurus which has already been built under the supplied name,
+	 * replacing any thesaurus registered under it.
+	 *
+	 * @param name      the name of the thesaurus
+	 * @param thesaurus the thesaurus, which should not be modified afterwards
+	 * @return the thesaurus replaced, or <code>null</code> if there was none
+	 */
+	public AbstractThesaurus register(String name, AbstractThesaurus thesaurus) {
+		return thesauri.put(name, thesaurus);
+	}
+
+	/**
+	 * Removes the thesaurus registered under the supplied name. Overlays loaded
+	 * over it keep using it.
+	 *
+	 * @param name the name of the thesaurus
+	 * @return the thesaurus removed, or <code>null</code> if there was none
+	 */
+	public AbstractThesaurus remove(String name) {
+		return thesauri.remove(name);
+	}
+
+	/**
+	 * Loads a thesaurus from a dictionary file and word list file and registers
+	 * it under the supplied name.
+	 *
+	 * @param name           the name of the thesaurus
+	 * @param dictionaryFile the path to the dictionary file
+	 * @param wordListFile   the path to the word list file
+	 * @param loader         how the thesaurus is loaded
+	 * @param storage        the storage backend used by the thesaurus' wordMap
+	 * @return the thesaurus loaded
+	 */
+	public AbstractThesaurus load(String name, String dictionaryFile, String wordListFile, ThesaurusLoader loader,
+			WordMapStorage storage) {
+		AbstractThesaurus loaded = loader.load(dictionaryFile, wordListFile, storage);
+		register(name, loaded);
+		return loaded;
+	}
+
+	/**
+	 * Loads a thesaurus from a dictionary file and word list file as an overlay on
+	 * the thesaurus registered under <i>baseName</i>, and registers it under the
+	 * supplied name.
+	 * <p>
+	 * The files are loaded in full with the supplied loader and storage while the
+	 * overlay is built, after which only the entries which differ from the base
+	 * are kept. Every key of the base is read once, so the base can not be a
+	 * lazily loaded thesaurus.
+	 *
+	 * @param name           the name of the overlay
+	 * @param baseName       the name of the thesaurus it is loaded over
+	 * @param dictionaryFile the path to the dictionary file
+	 * @param wordListFile   the path to the word list file
+	 * @param loader         how the files are loaded
+	 * @param storage        the storage backend used while the overlay is built
+	 * @return the overlay loaded
+	 * @throws IllegalArgumentException if no thesaurus is registered under
+	 *                                  baseName, or it was loaded lazily
+	 */
+	public AbstractThesaurus loadOverlay(String name, String baseName, String dictionaryFile, String wordListFile,
+			ThesaurusLoader loader, WordMapStorage storage) {
+		AbstractThesaurus base = thesauri.get(baseName);
+		if (base == null) {
+			throw new IllegalArgumentException("No thesaurus registered as " + baseName);
+		}
+		AbstractThesaurus overlay = overlay(base, loader.load(dictionaryFile, wordListFile, storage));
+		register(name, overlay);
+		return overlay;
+	}
+
+	/**
+	 * Creates a thesaurus with the same word map as <i>full</i>, stored as the
+	 * changes needed to the word map of <i>base</i>.
+	 * <p>
+	 * The dictionary and <code>DictionaryIndex</code> of base are used if it holds
+	 * the same words as the dictionary of full. Otherwise the dictionary of full
+	 * is copied with the base's instances of the words they share. Values found
+	 * in the base's dictionary are also replaced by the base's instances, so the
+	 * two thesauri share them. The <code>PhraseMatcher</code> of the overlay is
+	 * derived from that of base.
+	 *
+	 * @param base the thesaurus whose word map is shared
+	 * @param full the thesaurus whose word map is reproduced
+	 * @return a thesaurus whose word map is an <code>OverlayWordMap</code> on the
+	 *         word map of base
+	 * @throws IllegalArgumentException if the word map of base is a
+	 *                                  <code>LazyWordMap</code>
+	 */
+	public static AbstractThesaurus overlay(AbstractThesaurus base, AbstractThesaurus full) {
+		Map<String, String> baseMap = base.getWordMap();
+		Map<String, String> fullMap = full.getWordMap();
+		if (baseMap instanceof LazyWordMap) {
+			throw new IllegalArgumentException("Can not overlay a lazily loaded thesaurus");
+		}
+
+		Map<String, String> shared = new HashMap<String, String>(); // Base's instance of each dictionary word
+		for (String word : base.getDictionary()) {
+			shared.put(word, word);
+		}
+
+		Set<String> dictionary = base.getDictionary();
+		DictionaryIndex dictionaryIndex = base.getDictionaryIndex();
+		if (!dictionary.equals(full.getDictionary())) {
+			dictionary = new HashSet<String>();
+			for (String word : full.getDictionary()) {
+				String sharedWord = shared.get(word);
+				dictionary.add(sharedWord != null ? sharedWord : word);
+			}
+			dictionaryIndex = new DictionaryIndex(dictionary);
+		}
+
+		Map<String, String> delta = new HashMap<String, String>();
+		for (Map.Entry<String, String> entry : fullMap.entrySet()) {
+			String value = entry.getValue();
+			if (!value.equals(WordLookup.lookup(baseMap, entry.getKey()))) { // Key added or value changed
+				String sharedValue = shared.get(value);
+				delta.put(entry.getKey(), sharedValue != null ? sharedValue : value);
+			}
+		}
+		for (String key : baseMap.keySet()) {
+			if (!fullMap.containsKey(key)) {
+				delta.put(key, OverlayWordMap.REMOVED);
+			}
+		}
+		OverlayWordMap wordMap = new OverlayWordMap(baseMap, delta);
+		PhraseMatcher phraseMatcher = new PhraseMatcher(base.getPhraseMatcher(), wordMap.getChangedKeys());
+		return new ThesaurusSnapshot(wordMap, dictionary, phraseMatcher, dictionaryIndex);
+	}
+
+	/**
+	 * Estimates the number of bytes of memory used only by the thesaurus
+	 * registered under the supplied name. For an overlay on another registered
+	 * thesaurus this is the memory used by its delta and the prefixes of its
+	 * <code>PhraseMatcher</code>, and by its dictionary and
+	 * <code>DictionaryIndex</code> if they are not shared with the base, as the
+	 * base is counted against the thesaurus it belongs to. For any other
+	 * thesaurus it is the memory used by its word map.
+	 *
+	 * @param name the name of the thesaurus
+	 * @return the estimated size in bytes, or 0 if none is registered under name
+	 */
+	public long uniqueBytes(String name) {
+		AbstractThesaurus thesaurus = thesauri.get(name);
+		if (thesaurus == null) {
+			return 0;
+		}
+		Map<String, String> wordMap = thesaurus.getWordMap();
+		if (wordMap instanceof OverlayWordMap) {
+			OverlayWordMap overlay = (OverlayWordMap) wordMap;
+			for (AbstractThesaurus other : thesauri.values()) {
+				if (other != thesaurus && other.getWordMap() == overlay.getBase()) { // Base counted elsewhere
+					long bytes = overlay.deltaBytes() + thesaurus.getPhraseMatcher().memoryBytes();
+					if (thesaurus.getDictionary() != other.getDictionary()) {
+						bytes += dictionaryBytes(thesaurus.getDictionary(), other.getDictionary())
+								+ thesaurus.getDictionaryIndex().memoryBytes();
+					}
+					return bytes;
+				}
+			}
+		}
+		return SimplifierMetrics.estimateBytes(wordMap);
+	}
+
+	/**
+	 * Estimates the number of bytes used by a <code>HashSet</code> dictionary,
+	 * counting only the words which are not also in another dictionary.
+	 */
+	private static long dictionaryBytes(Set<String> dictionary, Set<String> sharedWith) {
+		long bytes = 16 + dictionary.size() * 8L; // Table of references, at most half empty
+		for (String word : dictionary) {
+			bytes += 32; // Entry object
+			if (!sharedWith.contains(word)) {
+				bytes += SimplifierMetrics.stringBytes(word);
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Estimates the number of bytes of memory used by every thesaurus registered,
+	 * counting shared word maps once.
+	 *
+	 * @return the estimated size in bytes
+	 */
+	public long memoryBytes() {
+		long bytes = 0;
+		for (String name : thesauri.keySet()) {
+			bytes += uniqueBytes(name);
+		}
+		return bytes;
+	}
+}
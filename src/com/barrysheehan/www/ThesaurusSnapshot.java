@@ -0,0 +1,64 @@
+package com.barrysheehan.www;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Extends <code>AbstractThesaurus</code> to hold a "thesaurus" whose
+ * <i>wordMap</i> and <i>dictionary</i> have already been built elsewhere, for
+ * example by applying changes to a previous thesaurus.
+ * 
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see AbstractThesaurus
+ * @see ThesaurusWatcher
+ * @since 1.8
+ *
+ */
+
+public class ThesaurusSnapshot extends AbstractThesaurus {
+
+	// Constructors
+	/**
+	 * Creates a <code>ThesaurusSnapshot</code> holding the supplied wordMap and
+	 * dictionary, neither of which should be modified afterwards.
+	 * 
+	 * @param wordMap    a fully populated word map
+	 * @param dictionary the dictionary whose words are the values of wordMap
+	 */
+	public ThesaurusSnapshot(Map<String, String> wordMap, Set<String> dictionary) {
+		super(wordMap, dictionary);
+	}
+
+	/**
+	 * Creates a <code>ThesaurusSnapshot</code> holding the supplied wordMap and
+	 * dictionary, with a <code>PhraseMatcher</code> and
+	 * <code>DictionaryIndex</code> built in advance, so the first text simplified
+	 * with the snapshot does not wait for them to be built.
+	 * 
+	 * @param wordMap         a fully populated word map
+	 * @param dictionary      the dictionary whose words are the values of wordMap
+	 * @param phraseMatcher   the PhraseMatcher for wordMap, or <code>null</code> to
+	 *                        create it when first needed
+	 * @param dictionaryIndex the DictionaryIndex for dictionary, or
+	 *                        <code>null</code> to create it when first needed
+	 */
+	public ThesaurusSnapshot(Map<String, String> wordMap, Set<String> dictionary, PhraseMatcher phraseMatcher,
+			DictionaryIndex dictionaryIndex) {
+		super(wordMap, dictionary, phraseMatcher, dictionaryIndex);
+	}
+
+	/**
+	 * Not used, as a snapshot is not built from a dictionary String.
+	 */
+	@Override
+	protected void initialiseDictionaryString(String dictionarySource) {
+	}
+
+	/**
+	 * Not used, as a snapshot is not built from a word list String.
+	 */
+	@Override
+	protected void initialiseWordListString(String wordListSource) {
+	}
+}
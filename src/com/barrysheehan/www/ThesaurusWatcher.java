@@ -0,0 +1,367 @@
+package com.barrysheehan.www;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Watches the dictionary file and word list file of a
+ * <code>TextSimplifier</code> and keeps its thesaurus up to date as they are
+ * edited, without rebuilding the whole thesaurus for each edit.
+ * <p>
+ * The watcher keeps the parsed word list. When the word list file changes, the
+ * new file is compared with the old one to find the lines which have changed,
+ * ignoring the unchanged lines at its start and end. Only the words on those
+ * lines can have changed value, so only they are resolved again, by searching
+ * the word list for the last group containing each of them (the last group
+ * containing a word always wins). Only the words whose values have changed are
+ * applied to the previous <code>OverlayWordMap</code> with
+ * <code>OverlayWordMap.apply()</code>, which shares the rest of its delta, and
+ * the result is published to the <code>TextSimplifier</code> in a new
+ * <code>ThesaurusSnapshot</code>. The snapshot's <code>PhraseMatcher</code> is
+ * derived on the watcher thread from the previous matcher and the keys of
+ * this edit, and it shares the <code>DictionaryIndex</code> of the previous
+ * snapshot, so the first text simplified with it does not wait for either to
+ * be built.
+ * <p>
+ * Applying an edit therefore costs time proportional to the size of the edit,
+ * plus reading the file and a search of the word list for words which are
+ * removed from a group. Once the changes applied to the base word map grow
+ * beyond an eighth of its size (or <code>MIN_COMPACT_SIZE</code>), or the
+ * dictionary file changes, which affects which groups are used, the whole
+ * thesaurus is rebuilt. Rebuilding loads the files with the
+ * <code>TextSimplifier</code>'s <code>ThesaurusLoader</code> and storage.
+ * Changes can not be applied to a lazily loaded word map, so with the
+ * <code>LAZY</code> loader every edit rebuilds the thesaurus.
+ * <p>
+ * Files are read as UTF-8. Empty lines and empty words are ignored.
+ * 
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see TextSimplifier
+ * @see OverlayWordMap
+ * @since 1.8
+ *
+ */
+
+public class ThesaurusWatcher implements Runnable, AutoCloseable {
+
+	// Milliseconds to wait after a change before reloading, so that a file being
+	// saved in several writes is only reloaded once
+	public static final long SETTLE_MILLIS = 100;
+
+	// Number of changes which can always be applied without loading a new base
+	// word map
+	public static final int MIN_COMPACT_SIZE = 1024;
+
+	// Instance variables
+	private final TextSimplifier ts; // TextSimplifier whose thesaurus is kept up to date
+	private final Path dictionaryFile; // Path to watched dictionary file
+	private final Path wordListFile; // Path to watched word list file
+	private final WatchService watchService; // Notified when either file's directory changes
+
+	private Set<String> dictionary; // Words in dictionaryFile, in lower case
+	private List<Group> groups; // Groups of words in wordListFile, in order
+	private AbstractThesaurus loaded; // Thesaurus last loaded from the files, whose word map changes are applied to
+	private OverlayWordMap overlay; // Changes applied to the loaded word map, or null if it is loaded lazily
+	private PhraseMatcher matcher; // Matches the phrases of the overlay
+
+	/**
+	 * One line of the word list file.
+	 */
+	private static class Group {
+		final String line; // Text of the line
+		final String[] words; // Words on the line
+		final String dictionaryWord; // First word on the line found in the dictionary, or null
+
+		Group(String line, Set<String> dictionary) {
+			List<String> tempWords = new ArrayList<String>();
+			String tempDictionaryWord = null;
+
+			for (String word : line.split(",")) {
+				if (word.isEmpty()) {
+					continue;
+				}
+				tempWords.add(word);
+				if (tempDictionaryWord == null && dictionary.contains(word.toLowerCase())) {
+					tempDictionaryWord = word.toLowerCase();
+				}
+			}
+
+			this.line = line;
+			this.words = tempWords.toArray(new String[tempWords.size()]);
+			this.dictionaryWord = tempDictionaryWord;
+		}
+	}
+
+	// Constructors
+	/**
+	 * Creates a <code>ThesaurusWatcher</code> for the dictionary file and word list
+	 * file currently configured in the supplied <code>TextSimplifier</code>, and
+	 * replaces its thesaurus with one built from them.
+	 * 
+	 * @param ts the <code>TextSimplifier</code> to keep up to date
+	 * @throws IOException if either file can not be read or watched
+	 */
+	public ThesaurusWatcher(TextSimplifier ts) throws IOException {
+		this.ts = ts;
+		this.dictionaryFile = Paths.get(ts.getDictionaryFile()).toAbsolutePath();
+		this.wordListFile = Paths.get(ts.getWordListFile()).toAbsolutePath();
+		this.watchService = FileSystems.getDefault().newWatchService();
+
+		Set<Path> directories = new HashSet<Path>();
+		directories.add(dictionaryFile.getParent());
+		directories.add(wordListFile.getParent());
+		for (Path directory : directories) {
+			directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+		}
+
+		rebuild();
+	}
+
+	/**
+	 * Starts watching the files on a new daemon thread.
+	 * 
+	 * @return the thread watching the files
+	 */
+	public Thread start() {
+		Thread watcher = new Thread(this, "thesaurus-watcher");
+		watcher.setDaemon(true);
+		watcher.start();
+		return watcher;
+	}
+
+	/**
+	 * Waits for changes to the watched files and applies them until the watcher is
+	 * closed.
+	 */
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				WatchKey key = watchService.take();
+				Thread.sleep(SETTLE_MILLIS);
+
+				boolean dictionaryChanged = false;
+				boolean wordListChanged = false;
+				do { // Gather every change made while settling
+					Path directory = (Path) key.watchable();
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+							dictionaryChanged = true; // Changes were lost, rebuild everything
+							continue;
+						}
+						Path changed = directory.resolve((Path) event.context());
+						dictionaryChanged |= changed.equals(dictionaryFile);
+						wordListChanged |= changed.equals(wordListFile);
+					}
+					key.reset();
+				} while ((key = watchService.poll()) != null);
+
+				try {
+					if (dictionaryChanged) {
+						rebuild();
+					} else if (wordListChanged) {
+						update();
+					}
+				} catch (IOException ioe) {
+					System.out.println(ConsoleColour.colourize("RED",
+							"> !ERROR: Unable to reload Thesaurus, current Thesaurus still in use"));
+				}
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException closed) {
+			// Watcher closed, stop watching
+		}
+	}
+
+	/**
+	 * Stops watching the files.
+	 * 
+	 * @throws IOException if the watch service can not be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+	}
+
+	/**
+	 * Reads both files and rebuilds the whole thesaurus from them with the
+	 * <code>TextSimplifier</code>'s loader and storage.
+	 * 
+	 * @throws IOException if either file can not be read
+	 */
+	public synchronized void rebuild() throws IOException {
+		Set<String> tempDictionary = new HashSet<String>();
+		for (String line : readLines(dictionaryFile)) {
+			tempDictionary.add(line.toLowerCase());
+		}
+
+		List<Group> tempGroups = new ArrayList<Group>();
+		for (String line : readLines(wordListFile)) {
+			tempGroups.add(new Group(line, tempDictionary));
+		}
+
+		AbstractThesaurus tempLoaded = ts.getLoader().load(dictionaryFile.toString(), wordListFile.toString(),
+				ts.getStorage());
+		Map<String, String> base = tempLoaded.getWordMap();
+
+		dictionary = tempDictionary;
+		groups = tempGroups;
+		loaded = tempLoaded;
+		overlay = base instanceof LazyWordMap ? null : new OverlayWordMap(base, new HashMap<String, String>());
+		matcher = tempLoaded.getPhraseMatcher(); // Built before publishing
+		tempLoaded.getDictionaryIndex(); // Also built before publishing, and shared by later snapshots
+		ts.setThesaurus(tempLoaded);
+	}
+
+	/**
+	 * Reads the word list file and applies the changes made to it since it was
+	 * last read.
+	 * 
+	 * @throws IOException if the file can not be read
+	 */
+	public synchronized void update() throws IOException {
+		if (overlay == null) { // Loaded lazily, changes can not be applied
+			rebuild();
+			return;
+		}
+		List<String> lines = readLines(wordListFile);
+
+		// Find changed lines, between the unchanged lines at the start and end
+		int first = 0;
+		while (first < groups.size() && first < lines.size() && groups.get(first).line.equals(lines.get(first))) {
+			first++;
+		}
+		int oldEnd = groups.size();
+		int newEnd = lines.size();
+		while (oldEnd > first && newEnd > first && groups.get(oldEnd - 1).line.equals(lines.get(newEnd - 1))) {
+			oldEnd--;
+			newEnd--;
+		}
+		if (oldEnd == first && newEnd == first) { // Nothing changed
+			return;
+		}
+
+		Set<String> affected = new HashSet<String>(); // Words whose value may have changed
+		for (Group group : groups.subList(first, oldEnd)) {
+			affected.addAll(Arrays.asList(group.words));
+		}
+		List<Group> changed = new ArrayList<Group>();
+		for (String line : lines.subList(first, newEnd)) {
+			Group group = new Group(line, dictionary);
+			changed.add(group);
+			affected.addAll(Arrays.asList(group.words));
+		}
+
+		List<Group> tempGroups = new ArrayList<Group>(lines.size());
+		tempGroups.addAll(groups.subList(0, first));
+		tempGroups.addAll(changed);
+		tempGroups.addAll(groups.subList(oldEnd, groups.size()));
+		groups = tempGroups;
+
+		Map<String, String> base = overlay.getBase();
+		Map<String, String> changes = new HashMap<String, String>(); // Only the words of this edit
+		List<String> changedKeys = new ArrayList<String>();
+		for (Map.Entry<String, String> resolved : resolve(affected).entrySet()) {
+			String word = resolved.getKey();
+			String value = resolved.getValue();
+			if (value == null ? !overlay.containsKey(word) : value.equals(overlay.get(word))) { // Unchanged by this edit
+				continue;
+			}
+
+			String baseValue = WordLookup.lookup(base, word);
+			if (value == null ? baseValue == null : value.equals(baseValue)) { // Same as base, no change needed
+				changes.put(word, null);
+			} else {
+				changes.put(word, value == null ? OverlayWordMap.REMOVED : value);
+			}
+			if (value != null) {
+				changedKeys.add(word);
+			}
+		}
+
+		overlay = overlay.apply(changes);
+		if (overlay.deltaSize() > Math.max(MIN_COMPACT_SIZE, base.size() / 8)) { // Load a new base
+			rebuild();
+			return;
+		}
+		matcher = matcher.with(changedKeys);
+		ts.setThesaurus(new ThesaurusSnapshot(overlay.deltaSize() > 0 ? overlay : base, loaded.getDictionary(),
+				matcher, loaded.getDictionaryIndex()));
+	}
+
+	/**
+	 * Finds the value of each of the supplied words in the current word list: the
+	 * dictionary word of the last group containing it, or the word itself if it
+	 * is in no group but is in the dictionary.
+	 * 
+	 * @param words the words to resolve
+	 * @return each word mapped to its value, or to <code>null</code> if it is no
+	 *         longer a key
+	 */
+	private Map<String, String> resolve(Set<String> words) {
+		Map<String, String> values = new HashMap<String, String>();
+		Set<String> unresolved = new HashSet<String>(words);
+
+		for (int i = groups.size() - 1; i >= 0 && !unresolved.isEmpty(); i--) { // Last group wins
+			Group group = groups.get(i);
+			if (group.dictionaryWord == null) {
+				continue;
+			}
+			for (String word : group.words) {
+				if (unresolved.remove(word)) {
+					values.put(word, group.dictionaryWord);
+				}
+			}
+		}
+
+		for (String word : unresolved) { // In no group
+			values.put(word, dictionary.contains(word) ? word : null);
+		}
+		return values;
+	}
+
+	/**
+	 * Reads the non-empty lines of a file as UTF-8, ending in either "\n" or
+	 * "\r\n" as in <code>MappedThesaurus</code>.
+	 */
+	private static List<String> readLines(Path file) throws IOException {
+		String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8); // Malformed bytes replaced
+		List<String> lines = new ArrayList<String>();
+		int lineStart = 0;
+
+		while (lineStart < text.length()) {
+			int lineEnd = text.indexOf('\n', lineStart);
+			int next = lineEnd < 0 ? text.length() : lineEnd + 1;
+			if (lineEnd < 0) {
+				lineEnd = text.length();
+			}
+			if (lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r') {
+				lineEnd--;
+			}
+			if (lineEnd > lineStart) { // Skip empty lines
+				lines.add(text.substring(lineStart, lineEnd));
+			}
+			lineStart = next;
+		}
+		return lines;
+	}
+}
@@ -0,0 +1,85 @@
+package com.barrysheehan.www;
+
+/**
+ * Defines how a <code>TextSimplifier</code> divides text into words and the
+ * separators between them.
+ * <p>
+ * A text is a sequence of words, each followed by a separator. The methods
+ * work on indices of a <code>CharSequence</code>, so the text is never copied,
+ * and move forward or back over a single word or separator at a time, so text
+ * can be divided into segments or chunks at word boundaries. Words may be
+ * empty if the tokenizer allows it.
+ * <p>
+ * A tokenizer which preserves separators has the characters of each separator
+ * written into the output as they appear in the text. Otherwise each word is
+ * followed by a single space in the output.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see StandardTokenizer
+ * @see TextSimplifier
+ * @since 1.8
+ *
+ */
+
+public interface Tokenizer {
+
+	/**
+	 * Returns the index after the last character of the word starting at
+	 * <i>start</i>.
+	 *
+	 * @param text  the text containing the word
+	 * @param start the index at which the word starts
+	 * @param end   the index beyond which the word can not extend
+	 * @return the index at which the word ends, from start to end
+	 */
+	int wordEnd(CharSequence text, int start, int end);
+
+	/**
+	 * Returns the index at which the word after the separator starting at
+	 * <i>start</i> starts.
+	 *
+	 * @param text  the text containing the separator
+	 * @param start the index at which a word ends and its separator starts
+	 * @param end   the index beyond which the separator is not searched
+	 * @return the index at which the next word starts
+	 */
+	int separatorEnd(CharSequence text, int start, int end);
+
+	/**
+	 * Returns the index after the last character of the last word before
+	 * <i>end</i>, ignoring any separators after it.
+	 *
+	 * @param text the text to search
+	 * @param end  the index before which words are searched
+	 * @return the index after the last word, or 0 if there are no words
+	 */
+	int wordsEnd(CharSequence text, int end);
+
+	/**
+	 * Returns the index at which the word ending at <i>end</i> starts.
+	 *
+	 * @param text the text containing the word
+	 * @param end  the index after the last character of the word
+	 * @return the index at which the word starts
+	 */
+	int wordStart(CharSequence text, int end);
+
+	/**
+	 * Returns the index after the last character of the word before the word
+	 * starting at <i>wordStart</i>.
+	 *
+	 * @param text      the text containing the words
+	 * @param wordStart the index at which a word starts, greater than 0
+	 * @return the index at which the previous word ends
+	 */
+	int previousWordEnd(CharSequence text, int wordStart);
+
+	/**
+	 * Returns whether separators are written into the output as they appear in
+	 * the text, rather than as a single space after each word.
+	 *
+	 * @return <code>true</code> if separators are preserved
+	 */
+	boolean preservesSeparators();
+}
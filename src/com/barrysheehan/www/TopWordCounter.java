@@ -0,0 +1,272 @@
+package com.barrysheehan.www;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estimates how often each word is recorded, and keeps the words recorded most
+ * often, in a fixed amount of memory however many different words are seen.
+ * <p>
+ * Counts are kept in a count-min sketch of <i>DEPTH</i> rows of counters. Each
+ * word increments one counter in every row, chosen by a different hash of the
+ * word, and the estimated count of a word is the smallest of its counters. An
+ * estimate is never less than the true count, and exceeds it by more than
+ * <i>e / width</i> of all the words recorded with a probability of at most
+ * <i>e<sup>-DEPTH</sup></i>.
+ * <p>
+ * Words whose estimated count reaches a threshold are kept as candidates for
+ * the most frequent words. Once twice <i>capacity</i> candidates are kept, the
+ * candidates with the lowest estimates are dropped, leaving <i>capacity</i>,
+ * and the threshold is raised to the lowest estimate left, so that only words
+ * at least as frequent are kept from then on.
+ * <p>
+ * Counters are incremented atomically and candidates are found without
+ * locking, so any number of threads can record words at once. Only keeping a
+ * new candidate takes a lock, which once the threshold has risen happens only
+ * for words which are becoming more frequent. Words are hashed with the same
+ * function as <code>String.hashCode()</code>, so a word can be recorded from a
+ * reusable buffer without creating a String unless it becomes a candidate.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see WordStatistics
+ * @since 1.8
+ *
+ */
+
+public class TopWordCounter {
+
+	// Number of rows of counters, each using a different hash
+	public static final int DEPTH = 4;
+
+	// Instance variables
+	private final AtomicLongArray counters; // DEPTH rows of counters, end to end
+	private final int width; // Number of counters in each row, a power of two
+	private final int capacity; // Number of candidates left after dropping the least frequent
+	private final LongAdder total = new LongAdder(); // Number of words recorded
+	private volatile Candidates candidates; // Words which may be among the most frequent
+	private volatile long threshold = 1; // Estimated count at which a word becomes a candidate
+
+	/**
+	 * An open addressing hash set of candidate words, which is replaced rather
+	 * than resized once it is full.
+	 */
+	private static class Candidates {
+		final String[] words; // Word in each slot, or null if the slot is empty
+		final int[] hashes; // Hash code of the word in each slot
+		final int mask; // Table capacity - 1, used in place of the modulo operator
+		int size; // Number of words held, guarded by the TopWordCounter
+
+		Candidates(int maxSize) {
+			int capacity = OpenAddressingWordMap.tableCapacity(maxSize);
+			words = new String[capacity];
+			hashes = new int[capacity];
+			mask = capacity - 1;
+		}
+
+		/**
+		 * Returns whether a word is held. May miss a word added at the same time by
+		 * another thread.
+		 */
+		boolean contains(CharSequence word, int hash) {
+			int slot = OpenAddressingWordMap.mix(hash) & mask;
+			String candidate;
+			while ((candidate = words[slot]) != null) {
+				if (hashes[slot] == hash && candidate.contentEquals(word)) {
+					return true;
+				}
+				slot = (slot + 1) & mask;
+			}
+			return false;
+		}
+
+		/**
+		 * Adds a word which is not held, while holding the TopWordCounter's lock.
+		 */
+		void add(String word, int hash) {
+			int slot = OpenAddressingWordMap.mix(hash) & mask;
+			while (words[slot] != null) { // Linear probe to the next free slot
+				slot = (slot + 1) & mask;
+			}
+			hashes[slot] = hash;
+			words[slot] = word; // Written last, so the slot is only found once complete
+			size++;
+		}
+	}
+
+	// Constructors
+	/**
+	 * Creates a <code>TopWordCounter</code> with the supplied number of counters
+	 * in each row of its sketch, keeping at least the supplied number of the most
+	 * frequent words.
+	 *
+	 * @param width    the number of counters in each row, rounded up to a power of
+	 *                 two
+	 * @param capacity the number of most frequent words kept
+	 */
+	public TopWordCounter(int width, int capacity) {
+		if (width < 1 || width > 1 << 26) {
+			throw new IllegalArgumentException("width must be between 1 and " + (1 << 26));
+		}
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1");
+		}
+		int rowWidth = 1;
+		while (rowWidth < width) {
+			rowWidth <<= 1;
+		}
+		this.width = rowWidth;
+		this.capacity = capacity;
+		this.counters = new AtomicLongArray(DEPTH * this.width);
+		this.candidates = new Candidates(capacity * 2);
+	}
+
+	/**
+	 * Records one occurrence of a word.
+	 *
+	 * @param word the characters of the word
+	 */
+	public void record(CharSequence word) {
+		int hash = word instanceof String ? word.hashCode() : OpenAddressingWordMap.hash(word); // String caches it
+		int h1 = OpenAddressingWordMap.mix(hash);
+		int h2 = secondHash(h1);
+		long estimate = Long.MAX_VALUE;
+		for (int row = 0; row < DEPTH; row++) {
+			estimate = Math.min(estimate, counters.incrementAndGet(counter(row, h1, h2)));
+		}
+		total.increment();
+
+		if (estimate >= threshold && !candidates.contains(word, hash)) {
+			addCandidate(word.toString(), hash);
+		}
+	}
+
+	/**
+	 * Keeps a word as a candidate, first dropping the least frequent candidates if
+	 * the candidates are full.
+	 */
+	private synchronized void addCandidate(String word, int hash) {
+		Candidates current = candidates;
+		if (current.contains(word, hash)) { // Added by another thread
+			return;
+		}
+		if (current.size >= capacity * 2) {
+			List<Map.Entry<String, Long>> kept = estimates(current, capacity);
+			current = new Candidates(capacity * 2);
+			for (Map.Entry<String, Long> entry : kept) {
+				current.add(entry.getKey(), entry.getKey().hashCode());
+			}
+			threshold = kept.get(kept.size() - 1).getValue(); // Later candidates at least as frequent
+			candidates = current;
+			if (estimate(word) < threshold) {
+				return;
+			}
+		}
+		current.add(word, hash);
+	}
+
+	/**
+	 * Returns the estimated number of times a word has been recorded.
+	 *
+	 * @param word the characters of the word
+	 * @return the estimated count, never less than the true count
+	 */
+	public long estimate(CharSequence word) {
+		int h1 = OpenAddressingWordMap.mix(OpenAddressingWordMap.hash(word));
+		int h2 = secondHash(h1);
+		long estimate = Long.MAX_VALUE;
+		for (int row = 0; row < DEPTH; row++) {
+			estimate = Math.min(estimate, counters.get(counter(row, h1, h2)));
+		}
+		return estimate;
+	}
+
+	/**
+	 * Derives a second, odd hash from the first, so that each row uses a
+	 * different counter.
+	 */
+	private static int secondHash(int h1) {
+		return OpenAddressingWordMap.mix(h1 + 0x9e3779b9) | 1;
+	}
+
+	/**
+	 * Returns the index of a word's counter in a row, by double hashing.
+	 */
+	private int counter(int row, int h1, int h2) {
+		return row * width + ((h1 + row * h2) & (width - 1));
+	}
+
+	/**
+	 * Returns the most frequent words recorded, with their estimated counts, most
+	 * frequent first.
+	 *
+	 * @param n the largest number of words returned
+	 * @return up to n words and their estimated counts
+	 */
+	public synchronized List<Map.Entry<String, Long>> top(int n) {
+		return estimates(candidates, n);
+	}
+
+	/**
+	 * Returns the candidates with the highest estimates, most frequent first.
+	 */
+	private List<Map.Entry<String, Long>> estimates(Candidates from, int n) {
+		List<Map.Entry<String, Long>> estimates = new ArrayList<Map.Entry<String, Long>>(from.size);
+		for (String word : from.words) {
+			if (word != null) {
+				estimates.add(new AbstractMap.SimpleImmutableEntry<String, Long>(word, estimate(word)));
+			}
+		}
+		Collections.sort(estimates, new Comparator<Map.Entry<String, Long>>() {
+			@Override
+			public int compare(Map.Entry<String, Long> a, Map.Entry<String, Long> b) {
+				int byCount = Long.compare(b.getValue(), a.getValue());
+				return byCount != 0 ? byCount : a.getKey().compareTo(b.getKey());
+			}
+		});
+		return estimates.subList(0, Math.min(n, estimates.size()));
+	}
+
+	/**
+	 * Returns the number of words recorded.
+	 *
+	 * @return the total count
+	 */
+	public long getTotal() {
+		return total.sum();
+	}
+
+	/**
+	 * Estimates the number of bytes of heap used by the counters and candidates.
+	 *
+	 * @return the estimated size in bytes
+	 */
+	public long memoryBytes() {
+		Candidates current = candidates;
+		long bytes = 16 + counters.length() * 8L + 2 * (16 + current.words.length * 4L);
+		for (String word : current.words) {
+			if (word != null) {
+				bytes += SimplifierMetrics.stringBytes(word);
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Removes every word recorded. Words recorded at the same time may be kept.
+	 */
+	public synchronized void reset() {
+		for (int i = 0; i < counters.length(); i++) {
+			counters.set(i, 0);
+		}
+		total.reset();
+		threshold = 1;
+		candidates = new Candidates(capacity * 2);
+	}
+}
@@ -0,0 +1,113 @@
+package com.barrysheehan.www;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds the groups of words a range of a word list adds to a <i>wordMap</i> on
+ * a <code>ForkJoinPool</code>.
+ * <p>
+ * Subclasses supply the word list, which may be an array of lines or a memory
+ * mapped file: where a range can be split at the start of a line, and how the
+ * groups on the lines of a range are found. <code>putInOrder()</code> divides
+ * the word list into ranges of about <i>grain</i>, finds the groups of each
+ * range in parallel and adds them to the wordMap on the calling thread in line
+ * order, so a word found on several lines keeps the value from the last of
+ * them. Each entry is put into the wordMap once, where merging the ranges'
+ * entries pairwise would copy each key once per merge level.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see AbstractThesaurus
+ * @see MappedThesaurus
+ * @since 1.8
+ *
+ */
+
+abstract class WordListTask extends RecursiveTask<List<String[]>> {
+
+	private static final long serialVersionUID = 1L;
+
+	protected final int start; // Index of the start of the first line in the range
+	protected final int end; // Index after the last line in the range
+
+	/**
+	 * Creates a task finding the groups on the lines between two indices.
+	 *
+	 * @param start index of the start of the first line in the range
+	 * @param end   index after the last line in the range
+	 */
+	protected WordListTask(int start, int end) {
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * Returns the index of the start of a line at or after an index, or
+	 * <i>end</i> if no line starts there.
+	 *
+	 * @param index an index in the range
+	 * @return the start of a line at or after index, or <i>end</i>
+	 */
+	protected abstract int lineStart(int index);
+
+	/**
+	 * Creates a task of the same kind finding the groups of a smaller range.
+	 *
+	 * @param start index of the start of the first line in the range
+	 * @param end   index after the last line in the range
+	 * @return a task for the range
+	 */
+	protected abstract WordListTask subTask(int start, int end);
+
+	/**
+	 * Adds the groups of words on each line of the range whose dictionary word is
+	 * in the dictionary to a list in line order. The first element of each group
+	 * is the dictionary word, which is the value of every other element.
+	 *
+	 * @param groups the list to which each group is added
+	 */
+	protected abstract void addGroups(List<String[]> groups);
+
+	@Override
+	protected List<String[]> compute() {
+		List<String[]> groups = new ArrayList<String[]>();
+		addGroups(groups);
+		return groups;
+	}
+
+	/**
+	 * Finds the groups of every range of about <i>grain</i> in this task's range
+	 * on the common <code>ForkJoinPool</code>, and puts them into the wordMap in
+	 * line order. Only a few ranges more than the pool has threads are started
+	 * ahead of the range being put, so the groups waiting stay few.
+	 *
+	 * @param wordMap the Map to which each group is added
+	 * @param grain   the size of each range
+	 */
+	void putInOrder(Map<String, String> wordMap, int grain) {
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		Deque<WordListTask> tasks = new ArrayDeque<WordListTask>(); // Started but not yet put, in line order
+
+		int next = start;
+		while (next < end || !tasks.isEmpty()) {
+			while (next < end && tasks.size() < pool.getParallelism() * 2) { // Bound the groups held at once
+				int split = end - next > grain ? lineStart(next + grain) : end;
+				WordListTask task = subTask(next, split);
+				pool.execute(task);
+				tasks.add(task);
+				next = split;
+			}
+			for (String[] group : tasks.remove().join()) { // Put groups in their original order
+				for (int i = 1; i < group.length; i++) {
+					wordMap.put(group[i], group[0]); // O(1) // Later lines replace earlier ones
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package com.barrysheehan.www;
+
+import java.util.Map;
+
+/**
+ * Defines a method for resolving a word to its simplified equivalent directly
+ * from any <code>CharSequence</code>.
+ * <p>
+ * A word map implementing <code>WordLookup</code> can be probed with a
+ * reusable buffer such as a <code>StringBuilder</code>, so callers do not need
+ * to create a new String for every word they look up.
+ * 
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see OpenAddressingWordMap
+ * @see TextSimplifier
+ * @since 1.8
+ *
+ */
+
+public interface WordLookup {
+
+	/**
+	 * Returns the word mapped to the supplied key, or <code>null</code> if the key
+	 * is not present.
+	 * 
+	 * @param key the characters of the word to look up
+	 * @return the word mapped to key, or <code>null</code> if there is none
+	 */
+	String lookup(CharSequence key);
+
+	/**
+	 * Looks up a key in any word map, using <code>lookup()</code> if the word map
+	 * implements <code>WordLookup</code> and otherwise converting the key to a
+	 * String.
+	 * 
+	 * @param wordMap the word map to search
+	 * @param key     the characters of the word to look up
+	 * @return the word mapped to key, or <code>null</code> if there is none
+	 */
+	static String lookup(Map<String, String> wordMap, CharSequence key) {
+		if (wordMap instanceof WordLookup) {
+			return ((WordLookup) wordMap).lookup(key);
+		}
+		return wordMap.get(key.toString());
+	}
+}
@@ -0,0 +1,65 @@
+package com.barrysheehan.www;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Stores the possible storage backends for the <i>wordMap</i> of an
+ * <code>AbstractThesaurus</code>.
+ * <p>
+ * A thesaurus is always populated using a mutable Map. Once it has been fully
+ * populated, the Map is copied into the storage backend chosen here, which is
+ * used for every subsequent lookup.
+ * 
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see AbstractThesaurus
+ * @see OpenAddressingWordMap
+ * @see MappedWordMap
+ * @since 1.8
+ *
+ */
+
+public enum WordMapStorage {
+	TREE {
+		@Override
+		public Map<String, String> build(Map<String, String> source) {
+			return new TreeMap<String, String>(source); // O(log(n)) lookups, sorted keys
+		}
+	},
+	HASH {
+		@Override
+		public Map<String, String> build(Map<String, String> source) {
+			return new HashMap<String, String>(source); // O(1) lookups
+		}
+	},
+	OPEN_ADDRESSING {
+		@Override
+		public Map<String, String> build(Map<String, String> source) {
+			return new OpenAddressingWordMap(source); // Immutable, O(1) lookups, usually a single probe
+		}
+	},
+	OFF_HEAP {
+		/**
+		 * Encodes the entries in the compiled thesaurus format into a direct buffer
+		 * outside of the Java heap, read in place by a <code>MappedWordMap</code>.
+		 * Only the dictionary words returned as values are ever copied onto the heap.
+		 */
+		@Override
+		public Map<String, String> build(Map<String, String> source) {
+			Set<String> dictionary = new HashSet<String>(source.values());
+			return new MappedWordMap(ThesaurusCompiler.encode(source, dictionary, 0, true));
+		}
+	};
+
+	/**
+	 * Copies the entries of a fully populated word map into this storage backend.
+	 * 
+	 * @param source the populated word map
+	 * @return a Map using this storage backend, containing every entry of source
+	 */
+	public abstract Map<String, String> build(Map<String, String> source);
+}
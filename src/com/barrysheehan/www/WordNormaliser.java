@@ -0,0 +1,199 @@
+package com.barrysheehan.www;
+
+/**
+ * Provides the operations a <code>TextSimplifier</code> uses to normalise each
+ * word before looking it up, and to restore the word's appearance on the word
+ * it is swapped with.
+ * <p>
+ * Punctuation before and after a word, such as the comma in "Fellow," or the
+ * quotes and full stop in "'growth.'", is not looked up, and is added back
+ * around the swapped word. The capitalisation of the word is also restored: a
+ * capitalised word is swapped with a capitalised word, and a word in capitals
+ * with a word in capitals. Punctuation is any character in one of the Unicode
+ * punctuation categories.
+ * <p>
+ * Words are lower cased one character at a time using
+ * <code>Character.toLowerCase(char)</code>, which does not depend on the
+ * default locale. Plain ASCII characters, which make up almost every word in
+ * the bundled files, are classified and converted with lookup tables built
+ * once from the <code>Character</code> methods, so the common case costs a
+ * single array access per character.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see TextSimplifier
+ * @since 1.8
+ *
+ */
+
+public class WordNormaliser {
+
+	/**
+	 * The ways in which the capitalisation of a word is restored on the word it is
+	 * swapped with.
+	 */
+	public enum Casing {
+		AS_IS, // Swapped word appended unchanged
+		CAPITALISED, // First letter of the swapped word in upper case
+		UPPER_CASE // Every letter of the swapped word in upper case
+	}
+
+	// Flags describing each ASCII character
+	private static final byte UPPER = 1;
+	private static final byte LOWER = 2;
+	private static final byte PUNCTUATION = 4;
+
+	// Lookup tables for ASCII characters
+	private static final byte[] ASCII_FLAGS = new byte[128];
+	private static final char[] ASCII_LOWER_CASE = new char[128];
+	private static final char[] ASCII_UPPER_CASE = new char[128];
+
+	static {
+		for (char c = 0; c < 128; c++) {
+			ASCII_FLAGS[c] = flags(c);
+			ASCII_LOWER_CASE[c] = Character.toLowerCase(c);
+			ASCII_UPPER_CASE[c] = Character.toUpperCase(c);
+		}
+	}
+
+	private WordNormaliser() {
+	}
+
+	/**
+	 * Classifies a character using the <code>Character</code> methods.
+	 */
+	private static byte flags(char c) {
+		if (Character.isUpperCase(c)) {
+			return UPPER;
+		}
+		if (Character.isLowerCase(c)) {
+			return LOWER;
+		}
+		switch (Character.getType(c)) {
+		case Character.CONNECTOR_PUNCTUATION:
+		case Character.DASH_PUNCTUATION:
+		case Character.START_PUNCTUATION:
+		case Character.END_PUNCTUATION:
+		case Character.INITIAL_QUOTE_PUNCTUATION:
+		case Character.FINAL_QUOTE_PUNCTUATION:
+		case Character.OTHER_PUNCTUATION:
+			return PUNCTUATION;
+		default:
+			return 0;
+		}
+	}
+
+	private static byte flagsOf(char c) {
+		return c < 128 ? ASCII_FLAGS[c] : flags(c);
+	}
+
+	/**
+	 * Returns whether a character is punctuation.
+	 *
+	 * @param c the character
+	 * @return <code>true</code> if c is in a Unicode punctuation category
+	 */
+	public static boolean isPunctuation(char c) {
+		return (flagsOf(c) & PUNCTUATION) != 0;
+	}
+
+	/**
+	 * Returns the index of the first character of a word which is not
+	 * punctuation, or <i>end</i> if every character is punctuation.
+	 *
+	 * @param text  the text containing the word
+	 * @param start the index of the first character of the word
+	 * @param end   the index after the last character of the word
+	 * @return the index at which the word starts once leading punctuation is
+	 *         removed
+	 */
+	public static int coreStart(CharSequence text, int start, int end) {
+		while (start < end && isPunctuation(text.charAt(start))) {
+			start++;
+		}
+		return start;
+	}
+
+	/**
+	 * Returns the index after the last character of a word which is not
+	 * punctuation, or <i>start</i> if every character is punctuation.
+	 *
+	 * @param text  the text containing the word
+	 * @param start the index of the first character of the word
+	 * @param end   the index after the last character of the word
+	 * @return the index at which the word ends once trailing punctuation is
+	 *         removed
+	 */
+	public static int coreEnd(CharSequence text, int start, int end) {
+		while (end > start && isPunctuation(text.charAt(end - 1))) {
+			end--;
+		}
+		return end;
+	}
+
+	/**
+	 * Appends the characters between two indices of the supplied text to a
+	 * buffer, in lower case.
+	 *
+	 * @param text   the text containing the characters
+	 * @param start  the index of the first character
+	 * @param end    the index after the last character
+	 * @param buffer the buffer to which the characters are appended
+	 */
+	public static void appendLowerCase(CharSequence text, int start, int end, StringBuilder buffer) {
+		for (int i = start; i < end; i++) {
+			char c = text.charAt(i);
+			buffer.append(c < 128 ? ASCII_LOWER_CASE[c] : Character.toLowerCase(c));
+		}
+	}
+
+	/**
+	 * Returns how the capitalisation of a word is restored on the word it is
+	 * swapped with. A word whose first letter is in upper case is
+	 * <i>CAPITALISED</i>, unless it has more than one letter and every letter is
+	 * in upper case, when it is <i>UPPER_CASE</i>. Any other word is <i>AS_IS</i>.
+	 *
+	 * @param text  the text containing the word
+	 * @param start the index of the first character of the word
+	 * @param end   the index after the last character of the word
+	 * @return the Casing of the word
+	 */
+	public static Casing casing(CharSequence text, int start, int end) {
+		int letters = 0;
+		boolean firstUpper = false;
+		for (int i = start; i < end; i++) {
+			byte flags = flagsOf(text.charAt(i));
+			if ((flags & LOWER) != 0) {
+				if (letters == 0) {
+					return Casing.AS_IS; // First letter in lower case
+				}
+				return firstUpper ? Casing.CAPITALISED : Casing.AS_IS;
+			}
+			if ((flags & UPPER) != 0) {
+				firstUpper |= letters == 0;
+				letters++;
+			}
+		}
+		if (!firstUpper) {
+			return Casing.AS_IS; // No letters
+		}
+		return letters > 1 ? Casing.UPPER_CASE : Casing.CAPITALISED;
+	}
+
+	/**
+	 * Appends a word to a buffer with the supplied capitalisation.
+	 *
+	 * @param word   the word to append
+	 * @param casing the Casing of the word it is swapped with
+	 * @param buffer the buffer to which the word is appended
+	 */
+	public static void appendCased(CharSequence word, Casing casing, StringBuilder buffer) {
+		for (int i = 0; i < word.length(); i++) {
+			char c = word.charAt(i);
+			if (casing == Casing.UPPER_CASE || (casing == Casing.CAPITALISED && i == 0)) {
+				c = c < 128 ? ASCII_UPPER_CASE[c] : Character.toUpperCase(c);
+			}
+			buffer.append(c);
+		}
+	}
+}
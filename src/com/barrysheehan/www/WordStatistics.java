@@ -0,0 +1,263 @@
+package com.barrysheehan.www;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects statistics on the words looked up by a <code>TextSimplifier</code>:
+ * which words are found in the thesaurus, which dictionary words they are
+ * swapped with, and which words are not found. Frequent words which are not
+ * found are candidates for new groups in the word list file.
+ * <p>
+ * Statistics are only collected once set with
+ * <code>TextSimplifier.setStatistics()</code>. Every word of the text simplified
+ * or numbered, every word passed to <code>swapWord()</code>, and every word
+ * <code>testWord()</code> does not find, is recorded once, in lower case and
+ * without punctuation if words are normalised, so testing a word and swapping
+ * it only if it is found counts it once. Each word found is counted against the
+ * dictionary word it is swapped with in a <code>ConcurrentHashMap</code> of
+ * <code>LongAdder</code>s, which holds at most one counter per dictionary word.
+ * Words found and words not found are each counted in a
+ * <code>TopWordCounter</code>, whose memory does not grow with the number of
+ * different words seen, and whose counts are estimates which may be slightly
+ * too high.
+ * <p>
+ * To keep the cost low enough to leave statistics on, by default only one in
+ * <i>DEFAULT_SAMPLE_EVERY</i> words, chosen at random, is recorded, and every
+ * count reported is multiplied by the sampling rate. Frequent words are found
+ * just as reliably, while counts of rare words are less precise. Pass 1 as
+ * <i>sampleEvery</i> to record every word.
+ * <p>
+ * Recording a word only takes a lock when it first becomes a candidate for
+ * the most frequent words, so statistics can be collected from any number of
+ * threads. The most frequent words can be read
+ * with <code>getTopHits()</code>, <code>getTopSwappedTo()</code> and
+ * <code>getTopMisses()</code>, or written to a file with
+ * <code>export()</code>.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see TextSimplifier
+ * @see TopWordCounter
+ * @since 1.8
+ *
+ */
+
+public class WordStatistics {
+
+	// Default number of counters in each row of the sketches
+	public static final int DEFAULT_SKETCH_WIDTH = 1 << 14;
+
+	// Default number of most frequent words kept
+	public static final int DEFAULT_TOP_WORDS = 1000;
+
+	// Default number of words looked up for each word recorded
+	public static final int DEFAULT_SAMPLE_EVERY = 16;
+
+	// Instance variables
+	private final TopWordCounter hits; // Words found in the thesaurus
+	private final TopWordCounter misses; // Words not found in the thesaurus
+	private final ConcurrentHashMap<String, LongAdder> swappedTo; // Count of each dictionary word swapped in
+	private final int sampleEvery; // Number of words looked up for each word recorded
+
+	// Constructors
+	/**
+	 * Creates an empty <code>WordStatistics</code> keeping the
+	 * <i>DEFAULT_TOP_WORDS</i> most frequent words found and not found, and
+	 * recording one in <i>DEFAULT_SAMPLE_EVERY</i> words looked up.
+	 */
+	public WordStatistics() {
+		this(DEFAULT_SKETCH_WIDTH, DEFAULT_TOP_WORDS, DEFAULT_SAMPLE_EVERY);
+	}
+
+	/**
+	 * Creates an empty <code>WordStatistics</code>.
+	 *
+	 * @param sketchWidth the number of counters in each row of the sketches
+	 *                    counting words found and not found
+	 * @param topWords    the number of most frequent words kept of the words found
+	 *                    and of the words not found
+	 * @param sampleEvery the number of words looked up for each word recorded, or
+	 *                    1 to record every word
+	 */
+	public WordStatistics(int sketchWidth, int topWords, int sampleEvery) {
+		if (sampleEvery < 1) {
+			throw new IllegalArgumentException("sampleEvery must be at least 1");
+		}
+		this.hits = new TopWordCounter(sketchWidth, topWords);
+		this.misses = new TopWordCounter(sketchWidth, topWords);
+		this.swappedTo = new ConcurrentHashMap<String, LongAdder>();
+		this.sampleEvery = sampleEvery;
+	}
+
+	public int getSampleEvery() {
+		return this.sampleEvery;
+	}
+
+	/**
+	 * Records a word which was looked up, if it is chosen as a sample. Empty words
+	 * are ignored.
+	 *
+	 * @param word    the characters looked up
+	 * @param swapped the word it is swapped with, or <code>null</code> if it was
+	 *                not found
+	 */
+	public void record(CharSequence word, String swapped) {
+		if (sampleEvery > 1 && ThreadLocalRandom.current().nextInt(sampleEvery) != 0) {
+			return; // Not sampled
+		}
+		if (word.length() == 0) {
+			return;
+		}
+		if (swapped == null) {
+			misses.record(word);
+			return;
+		}
+		hits.record(word);
+		LongAdder count = swappedTo.get(swapped);
+		if (count == null) { // First time this dictionary word has been swapped
+			count = swappedTo.computeIfAbsent(swapped, dictionaryWord -> new LongAdder());
+		}
+		count.increment();
+	}
+
+	/**
+	 * Returns the number of words recorded which were found in the thesaurus.
+	 *
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return hits.getTotal() * sampleEvery;
+	}
+
+	/**
+	 * Returns the number of words recorded which were not found in the thesaurus.
+	 *
+	 * @return the number of misses
+	 */
+	public long getMisses() {
+		return misses.getTotal() * sampleEvery;
+	}
+
+	/**
+	 * Returns the words found most often, with their estimated counts.
+	 *
+	 * @param n the largest number of words returned
+	 * @return up to n words, most frequent first
+	 */
+	public List<Map.Entry<String, Long>> getTopHits(int n) {
+		return scaled(hits.top(n));
+	}
+
+	/**
+	 * Returns the words not found most often, with their estimated counts.
+	 *
+	 * @param n the largest number of words returned
+	 * @return up to n words, most frequent first
+	 */
+	public List<Map.Entry<String, Long>> getTopMisses(int n) {
+		return scaled(misses.top(n));
+	}
+
+	/**
+	 * Returns the dictionary words swapped in most often, with their counts.
+	 *
+	 * @param n the largest number of words returned
+	 * @return up to n dictionary words, most frequent first
+	 */
+	public List<Map.Entry<String, Long>> getTopSwappedTo(int n) {
+		List<Map.Entry<String, Long>> counts = new ArrayList<Map.Entry<String, Long>>(swappedTo.size());
+		for (Map.Entry<String, LongAdder> entry : swappedTo.entrySet()) {
+			counts.add(new AbstractMap.SimpleImmutableEntry<String, Long>(entry.getKey(),
+					entry.getValue().sum() * sampleEvery));
+		}
+		Collections.sort(counts, (a, b) -> {
+			int byCount = Long.compare(b.getValue(), a.getValue());
+			return byCount != 0 ? byCount : a.getKey().compareTo(b.getKey());
+		});
+		return counts.subList(0, Math.min(n, counts.size()));
+	}
+
+	/**
+	 * Multiplies counts of the words sampled by the number of words looked up for
+	 * each word sampled.
+	 */
+	private List<Map.Entry<String, Long>> scaled(List<Map.Entry<String, Long>> counts) {
+		if (sampleEvery == 1) {
+			return counts;
+		}
+		List<Map.Entry<String, Long>> scaled = new ArrayList<Map.Entry<String, Long>>(counts.size());
+		for (Map.Entry<String, Long> entry : counts) {
+			scaled.add(new AbstractMap.SimpleImmutableEntry<String, Long>(entry.getKey(),
+					entry.getValue() * sampleEvery));
+		}
+		return scaled;
+	}
+
+	/**
+	 * Writes the most frequent words found, dictionary words swapped in and words
+	 * not found to a text file, in three sections each headed by a line beginning
+	 * with '#'. Each word is written on a line of its own, followed by a tab and
+	 * its count. Any existing file is replaced.
+	 *
+	 * @param pathToFile the path of the file to write
+	 * @param n          the largest number of words written in each section
+	 * @throws IOException if the file can not be written
+	 */
+	public void export(String pathToFile, int n) throws IOException {
+		try (BufferedWriter out = Files.newBufferedWriter(Paths.get(pathToFile), StandardCharsets.UTF_8)) {
+			writeSection(out, "# Words found (" + getHits() + " in total, estimated counts)", getTopHits(n));
+			writeSection(out, "# Dictionary words swapped in (estimated counts)", getTopSwappedTo(n));
+			writeSection(out, "# Words not found (" + getMisses() + " in total, estimated counts)",
+					getTopMisses(n));
+		}
+	}
+
+	private static void writeSection(BufferedWriter out, String heading, List<Map.Entry<String, Long>> words)
+			throws IOException {
+		out.write(heading);
+		out.newLine();
+		for (Map.Entry<String, Long> entry : words) {
+			out.write(entry.getKey());
+			out.write('\t');
+			out.write(Long.toString(entry.getValue()));
+			out.newLine();
+		}
+		out.newLine();
+	}
+
+	/**
+	 * Estimates the number of bytes of heap used by the statistics.
+	 *
+	 * @return the estimated size in bytes
+	 */
+	public long memoryBytes() {
+		return hits.memoryBytes() + misses.memoryBytes() + swappedTo.size() * 80L; // Map node and LongAdder each
+	}
+
+	/**
+	 * Removes every word recorded. Words recorded at the same time may be kept.
+	 */
+	public void reset() {
+		hits.reset();
+		misses.reset();
+		swappedTo.clear();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("hits=%d misses=%d sampleEvery=%d topHits=%s topMisses=%s", getHits(), getMisses(),
+				sampleEvery, getTopHits(5), getTopMisses(5));
+	}
+}
@@ -0,0 +1,30 @@
+package com.barrysheehan.www;
+
+/**
+ * Runs every test class, exiting with a non-zero status if any test fails.
+ * <p>
+ * Run from the root of the repository:
+ *
+ * <pre>
+ * java -cp out com.barrysheehan.www.AllTests
+ * </pre>
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see TestSupport
+ * @since 1.8
+ */
+
+public class AllTests {
+
+	public static void main(String[] args) {
+		TestSupport.main(StorageTest.class, SwapTextTest.class, StreamingTest.class,
+				ParallelTest.class, LoaderTest.class,
+				CompiledThesaurusTest.class, ConcurrencyTest.class,
+				PhraseTest.class, WatcherTest.class,
+				ParallelBuildTest.class, BatchSimplifierTest.class,
+				SimplifierServerTest.class, RendererTest.class,
+				SimplificationCacheTest.class, NormalisationTest.class,
+				SwapTextsTest.class, WordIdTest.class, StatisticsTest.class, TokenizerTest.class, RegistryTest.class, MetricsTest.class);
+	}
+}
@@ -0,0 +1,118 @@
+package com.barrysheehan.www;
+
+import static com.barrysheehan.www.TestSupport.assertEquals;
+import static com.barrysheehan.www.TestSupport.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests that each file written by a <code>BatchSimplifier</code> holds the same
+ * text as <code>swapText()</code> returns for the file it was read from, even
+ * when files are larger than the bytes which may be held at once, that files
+ * which fail are counted without stopping the batch, and that the input
+ * directory is found from a path or glob pattern.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see BatchSimplifier
+ * @since 1.8
+ */
+
+public class BatchSimplifierTest {
+
+	public static void main(String[] args) {
+		TestSupport.main(BatchSimplifierTest.class);
+	}
+
+	static void testFilesMatchSwapText() throws IOException, InterruptedException {
+		Path input = Files.createTempDirectory("text-simplifier-input");
+		Path output = Files.createTempDirectory("text-simplifier-output");
+		try {
+			for (int i = 0; i < 30; i++) {
+				Path file = input.resolve("part" + i % 3).resolve("doc" + i + ".txt");
+				Files.createDirectories(file.getParent());
+				Files.write(file, TestSupport.text(i, i * 100).getBytes(StandardCharsets.UTF_8));
+			}
+
+			TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+			ts.setRenderer(StandardRenderer.PLAIN);
+			List<Path> files = BatchSimplifier.findFiles(input.toString());
+			for (long maxBytesHeld : new long[] { BatchSimplifier.MAX_BYTES_HELD, 1000 }) { // 1000 holds one file
+				BatchSimplifier batch = new BatchSimplifier(ts, 3, 2, maxBytesHeld);
+				batch.run(BatchSimplifier.inputRoot(input.toString()), files, output);
+
+				assertEquals(30, batch.getFilesWritten(), maxBytesHeld + " files written");
+				assertEquals(0, batch.getFilesFailed(), maxBytesHeld + " files failed");
+				for (Path file : files) {
+					String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+					Path written = output.resolve(input.relativize(file).toString());
+					assertEquals(ts.swapText(text), new String(Files.readAllBytes(written), StandardCharsets.UTF_8),
+							written.toString());
+				}
+			}
+		} finally {
+			TestSupport.delete(input);
+			TestSupport.delete(output);
+		}
+	}
+
+	static void testFailuresCounted() throws IOException, InterruptedException {
+		Path input = Files.createTempDirectory("text-simplifier-input");
+		Path output = Files.createTempDirectory("text-simplifier-output");
+		Path outside = Files.createTempFile("outside", ".txt");
+		try {
+			List<Path> files = new ArrayList<Path>();
+			for (int i = 0; i < 12; i++) {
+				Path file = input.resolve("doc" + i + ".txt");
+				Files.write(file, (i % 3 == 0 ? "zzfail modern" : "modern art").getBytes(StandardCharsets.UTF_8));
+				files.add(file);
+			}
+			files.add(input.resolve("missing.txt"));
+			files.add(outside); // Not in the input directory
+
+			TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+			BatchSimplifier batch = new BatchSimplifier(ts, 2, 1);
+			batch.setRenderer(new Renderer() {
+				@Override
+				public void word(StringBuilder sb, CharSequence word, CharSequence swapped, long start, long end) {
+					if (word.toString().equals("zzfail")) {
+						throw new IllegalStateException("Renderer failed");
+					}
+					sb.append(swapped != null ? swapped : word);
+				}
+			});
+			batch.run(input, files, output);
+
+			assertEquals(8, batch.getFilesWritten(), "files written");
+			assertEquals(6, batch.getFilesFailed(), "files failed");
+			assertTrue(!Files.exists(output.resolve("doc0.txt")), "failed file not written");
+		} finally {
+			TestSupport.delete(input);
+			TestSupport.delete(output);
+			Files.delete(outside);
+		}
+	}
+
+	static void testInputRoot() throws IOException {
+		Path directory = TestSupport.copyConfig();
+		try {
+			String root = directory.toString();
+			String separator = directory.getFileSystem().getSeparator();
+			assertEquals(directory, BatchSimplifier.inputRoot(root), "directory");
+			assertEquals(directory, BatchSimplifier.inputRoot(root + separator + "wordListFile.txt"), "file");
+			assertEquals(directory, BatchSimplifier.inputRoot(root + separator + "*.txt"), "glob in the directory");
+			assertEquals(directory, BatchSimplifier.inputRoot(root + separator + "word*.txt"), "partly named glob");
+			assertEquals(directory, BatchSimplifier.inputRoot(root + "/**.txt"), "glob after a slash");
+			assertEquals(directory.getParent(), BatchSimplifier.inputRoot(root + "*"), "glob in the parent");
+			assertEquals(Paths.get(""), BatchSimplifier.inputRoot("*.txt"), "current directory");
+		} finally {
+			TestSupport.delete(directory);
+		}
+	}
+}
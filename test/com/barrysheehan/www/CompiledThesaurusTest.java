@@ -0,0 +1,114 @@
+package com.barrysheehan.www;
+
+import static com.barrysheehan.www.TestSupport.assertEquals;
+import static com.barrysheehan.www.TestSupport.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests that a compiled thesaurus holds the same entries as the baseline
+ * thesaurus, and that a compiled file which is out of date or corrupt is never
+ * loaded.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see ThesaurusCompiler
+ * @see CompiledThesaurus
+ * @since 1.8
+ */
+
+public class CompiledThesaurusTest {
+
+	public static void main(String[] args) {
+		TestSupport.main(CompiledThesaurusTest.class);
+	}
+
+	static void testCompiledLoader() throws IOException {
+		Path directory = TestSupport.copyConfig();
+		try {
+			String dictionaryFile = directory.resolve("dictionaryFile.txt").toString();
+			String wordListFile = directory.resolve("wordListFile.txt").toString();
+			Path compiledFile = directory.resolve("wordListFile.txt" + ThesaurusCompiler.COMPILED_FILE_EXTENSION);
+
+			AbstractThesaurus compiled = ThesaurusLoader.COMPILED.load(dictionaryFile, wordListFile,
+					WordMapStorage.HASH);
+			assertTrue(compiled instanceof CompiledThesaurus, "Compiled on first load");
+			assertTrue(Files.exists(compiledFile), "Compiled file written beside the word list");
+			LoaderTest.assertMatchesBaseline(compiled, "COMPILED");
+
+			List<Path> files = new ArrayList<Path>();
+			DirectoryStream<Path> stream = Files.newDirectoryStream(directory);
+			try {
+				for (Path file : stream) {
+					files.add(file);
+				}
+			} finally {
+				stream.close();
+			}
+			assertEquals(3, files.size(), "Files in the directory, with no temporary file left " + files);
+
+			long sourceStamp = ThesaurusCompiler.sourceStamp(dictionaryFile, wordListFile);
+			LoaderTest.assertMatchesBaseline(new CompiledThesaurus(compiledFile.toString(), sourceStamp), "reloaded");
+		} finally {
+			TestSupport.delete(directory);
+		}
+	}
+
+	static void testOutOfDateNotLoaded() throws IOException {
+		Path directory = TestSupport.copyConfig();
+		try {
+			String dictionaryFile = directory.resolve("dictionaryFile.txt").toString();
+			String wordListFile = directory.resolve("wordListFile.txt").toString();
+			String compiledFile = ThesaurusCompiler.compiledFileFor(wordListFile);
+			ThesaurusCompiler.compile(dictionaryFile, wordListFile, compiledFile);
+
+			long sourceStamp = ThesaurusCompiler.sourceStamp(dictionaryFile, wordListFile);
+			try {
+				new CompiledThesaurus(compiledFile, sourceStamp + 1);
+				throw new AssertionError("Out of date compiled thesaurus loaded");
+			} catch (IOException expected) {
+			}
+		} finally {
+			TestSupport.delete(directory);
+		}
+	}
+
+	static void testCorruptHeaderNotLoaded() throws IOException {
+		Path directory = TestSupport.copyConfig();
+		try {
+			String dictionaryFile = directory.resolve("dictionaryFile.txt").toString();
+			String wordListFile = directory.resolve("wordListFile.txt").toString();
+			String compiledFile = ThesaurusCompiler.compiledFileFor(wordListFile);
+			ThesaurusCompiler.compile(dictionaryFile, wordListFile, compiledFile);
+
+			RandomAccessFile file = new RandomAccessFile(compiledFile, "rw");
+			try {
+				file.seek(ThesaurusCompiler.ENTRY_COUNT_OFFSET);
+				int count = file.readInt();
+				file.seek(ThesaurusCompiler.ENTRY_COUNT_OFFSET);
+				file.writeInt(count - 1); // Header field covered by the checksum
+			} finally {
+				file.close();
+			}
+
+			long sourceStamp = ThesaurusCompiler.sourceStamp(dictionaryFile, wordListFile);
+			try {
+				new CompiledThesaurus(compiledFile, sourceStamp);
+				throw new AssertionError("Corrupt compiled thesaurus loaded");
+			} catch (IOException expected) {
+			}
+
+			AbstractThesaurus recompiled = ThesaurusLoader.COMPILED.load(dictionaryFile, wordListFile,
+					WordMapStorage.HASH);
+			LoaderTest.assertMatchesBaseline(recompiled, "recompiled");
+		} finally {
+			TestSupport.delete(directory);
+		}
+	}
+}
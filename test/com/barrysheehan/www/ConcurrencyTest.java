@@ -0,0 +1,77 @@
+package com.barrysheehan.www;
+
+import static com.barrysheehan.www.TestSupport.assertEquals;
+import static com.barrysheehan.www.TestSupport.assertTrue;
+
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests that a <code>TextSimplifier</code> shared by several threads gives each
+ * of them the result of exactly one thesaurus while the thesaurus is replaced.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see TextSimplifier
+ * @since 1.8
+ */
+
+public class ConcurrencyTest {
+
+	public static void main(String[] args) {
+		TestSupport.main(ConcurrencyTest.class);
+	}
+
+	static void testReplacedWhileSimplifying() throws InterruptedException {
+		final AbstractThesaurus baseline = TestSupport.baseline();
+		final AbstractThesaurus empty = new ThesaurusSnapshot(new HashMap<String, String>(),
+				baseline.getDictionary());
+		final TextSimplifier ts = TestSupport.simplifier(baseline);
+		final String text = TestSupport.text(9, 2000);
+		final String expected = ts.swapText(text);
+		final String expectedEmpty = TestSupport.simplifier(empty).swapText(text);
+
+		final AtomicBoolean stop = new AtomicBoolean();
+		final AtomicInteger mixed = new AtomicInteger();
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					while (!stop.get()) {
+						String simplified = ts.swapText(text);
+						if (!simplified.equals(expected) && !simplified.equals(expectedEmpty)) {
+							mixed.incrementAndGet();
+						}
+					}
+				}
+			});
+			threads[i].start();
+		}
+
+		for (int i = 0; i < 200; i++) {
+			ts.setThesaurus(i % 2 == 0 ? empty : baseline);
+			Thread.sleep(1);
+		}
+		stop.set(true);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(0, mixed.get(), "results mixing both thesauri");
+	}
+
+	static void testLaterThesaurusKept() throws InterruptedException, ExecutionException {
+		TextSimplifier ts = new TextSimplifier();
+		ts.setDictionaryFile(TestSupport.DICTIONARY_FILE);
+		ts.setWordListFile(TestSupport.WORD_LIST_FILE);
+
+		AbstractThesaurus later = TestSupport.baseline();
+		CompletableFuture<Void> load = ts.initAsync();
+		ts.setThesaurus(later); // Published after the load started
+		load.get();
+		assertTrue(ts.getThesaurus() == later, "Thesaurus set after the load started is kept");
+	}
+}
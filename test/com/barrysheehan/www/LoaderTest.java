@@ -0,0 +1,86 @@
+package com.barrysheehan.www;
+
+import static com.barrysheehan.www.TestSupport.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Tests that a thesaurus built by each <code>ThesaurusLoader</code> holds the
+ * same entries, and simplifies text to the same result, as the baseline
+ * thesaurus read from the same files.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see ThesaurusLoader
+ * @since 1.8
+ */
+
+public class LoaderTest {
+
+	public static void main(String[] args) {
+		TestSupport.main(LoaderTest.class);
+	}
+
+	/**
+	 * Checks that a thesaurus has the baseline's dictionary, finds the
+	 * baseline's value for every key, and simplifies text in the same way.
+	 */
+	static void assertMatchesBaseline(AbstractThesaurus thesaurus, String name) {
+		AbstractThesaurus baseline = TestSupport.baseline();
+		Map<String, String> wordMap = thesaurus.getWordMap();
+
+		assertEquals(baseline.getDictionary(), thesaurus.getDictionary(), name + " dictionary");
+		for (String key : TestSupport.keys()) {
+			assertEquals(baseline.getWordMap().get(key), wordMap.get(key), name + " value of " + key);
+		}
+		assertEquals(null, wordMap.get("zqx"), name + " value of a missing key");
+
+		String text = TestSupport.text(3, 20000);
+		assertEquals(TestSupport.simplifier(baseline).swapText(text), TestSupport.simplifier(thesaurus).swapText(text),
+				name + " output");
+	}
+
+	static void testMapped() {
+		AbstractThesaurus thesaurus = ThesaurusLoader.MAPPED.load(TestSupport.DICTIONARY_FILE,
+				TestSupport.WORD_LIST_FILE, WordMapStorage.HASH);
+		assertMatchesBaseline(thesaurus, "MAPPED");
+		assertEquals(TestSupport.baseline().getWordMap(), thesaurus.getWordMap(), "MAPPED entries");
+	}
+
+	static void testMappedWindowsLineEndings() throws IOException {
+		Path directory = TestSupport.copyConfig();
+		try {
+			for (String file : new String[] { "dictionaryFile.txt", "wordListFile.txt" }) {
+				Path path = directory.resolve(file);
+				String text = new String(Files.readAllBytes(path), "ISO-8859-1");
+				Files.write(path, text.replace("\n", "\r\n").getBytes("ISO-8859-1"));
+			}
+
+			AbstractThesaurus thesaurus = ThesaurusLoader.MAPPED.load(
+					directory.resolve("dictionaryFile.txt").toString(),
+					directory.resolve("wordListFile.txt").toString(), WordMapStorage.HASH);
+			assertEquals(TestSupport.baseline().getWordMap(), thesaurus.getWordMap(), "MAPPED entries");
+		} finally {
+			TestSupport.delete(directory);
+		}
+	}
+
+	static void testLazy() {
+		AbstractThesaurus thesaurus = ThesaurusLoader.LAZY.load(TestSupport.DICTIONARY_FILE,
+				TestSupport.WORD_LIST_FILE, WordMapStorage.HASH);
+		String text = TestSupport.text(4, 20000);
+		assertEquals(TestSupport.simplifier(TestSupport.baseline()).swapText(text),
+				TestSupport.simplifier(thesaurus).swapText(text), "LAZY output before every word is read");
+
+		assertMatchesBaseline(ThesaurusLoader.LAZY.load(TestSupport.DICTIONARY_FILE, TestSupport.WORD_LIST_FILE,
+				WordMapStorage.HASH), "LAZY");
+		for (String key : TestSupport.keys()) {
+			assertEquals(true, thesaurus.getWordMap().containsKey(key), "LAZY contains " + key);
+		}
+		assertEquals(false, thesaurus.getWordMap().containsKey("zqx"), "LAZY contains a missing key");
+		assertEquals(TestSupport.baseline().getWordMap().size(), thesaurus.getWordMap().size(), "LAZY size");
+	}
+}
@@ -0,0 +1,165 @@
+package com.barrysheehan.www;
+
+import static com.barrysheehan.www.TestSupport.assertEquals;
+import static com.barrysheehan.www.TestSupport.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Tests that <code>LatencyHistogram</code> places values in the right buckets
+ * and reports percentiles within them, and that <code>SimplifierMetrics</code>
+ * counts the texts, words, tests, file reads and loads of a
+ * <code>TextSimplifier</code>, and nothing once it is removed.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see SimplifierMetrics
+ * @see LatencyHistogram
+ * @since 1.8
+ */
+
+public class MetricsTest {
+
+	public static void main(String[] args) {
+		TestSupport.main(MetricsTest.class);
+	}
+
+	static void testBuckets() {
+		assertEquals(0, LatencyHistogram.bucket(0), "bucket of 0");
+		assertEquals(15, LatencyHistogram.bucket(15), "bucket of 15");
+		assertEquals(16, LatencyHistogram.bucket(16), "bucket of 16");
+		assertEquals(0L, LatencyHistogram.highestValueIn(0), "highest in bucket 0");
+		assertEquals(15L, LatencyHistogram.highestValueIn(15), "highest in bucket 15");
+		assertEquals(16L, LatencyHistogram.highestValueIn(16), "highest in bucket 16");
+
+		int last = LatencyHistogram.bucket(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueIn(last), "highest in the last bucket");
+		assertEquals(last - 1, LatencyHistogram.bucket(Long.MAX_VALUE - (1L << 58)), "bucket below the last");
+
+		for (long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+			int bucket = LatencyHistogram.bucket(value);
+			long highest = LatencyHistogram.highestValueIn(bucket);
+			assertTrue(value <= highest, value + " above its bucket");
+			assertTrue(highest - value <= value / LatencyHistogram.SUB_BUCKETS, value + " in too wide a bucket");
+			assertEquals(bucket + 1, LatencyHistogram.bucket(highest + 1), "bucket after " + value);
+		}
+	}
+
+	static void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0L, histogram.getValueAtPercentile(50), "empty");
+		assertEquals(0.0, histogram.getMean(), "empty mean");
+
+		for (long value = 1; value <= 1000; value++) {
+			histogram.record(value);
+		}
+		histogram.record(-5); // Recorded as 0
+		assertEquals(1001L, histogram.getCount(), "count");
+		assertEquals(1000L, histogram.getMax(), "max");
+		assertEquals(0L, histogram.getValueAtPercentile(0), "0th percentile");
+		assertEquals(1000L, histogram.getValueAtPercentile(100), "100th percentile");
+		assertEquals(1000L, histogram.getValueAtPercentile(250), "percentile above 100");
+
+		long median = histogram.getValueAtPercentile(50);
+		assertTrue(median >= 500 && median <= 500 + 500 / LatencyHistogram.SUB_BUCKETS, "median " + median);
+		long p99 = histogram.getValueAtPercentile(99);
+		assertTrue(p99 >= 990 && p99 <= 1000, "99th percentile " + p99);
+
+		histogram.reset();
+		assertEquals(0L, histogram.getCount(), "count after reset");
+		assertEquals(0L, histogram.getMax(), "max after reset");
+		assertEquals(0L, histogram.getValueAtPercentile(100), "percentile after reset");
+		histogram.record(7);
+		assertEquals(7L, histogram.getValueAtPercentile(50), "value recorded after reset");
+	}
+
+	static void testSimplifierCounters() {
+		AbstractThesaurus baseline = TestSupport.baseline();
+		TextSimplifier ts = TestSupport.simplifier(baseline);
+		SimplifierMetrics metrics = new SimplifierMetrics();
+		ts.setMetrics(metrics);
+		try {
+			assertEquals(baseline.getWordMap().size(), metrics.getThesaurusSize(), "thesaurus size");
+			assertTrue(metrics.getThesaurusMemoryBytes() > 0, "thesaurus memory");
+
+			long[] words = new long[2]; // Words, swapped words
+			Renderer counting = new Renderer() {
+				@Override
+				public void word(StringBuilder sb, CharSequence word, CharSequence swapped, long start, long end) {
+					words[0]++;
+					words[1] += swapped != null ? 1 : 0;
+				}
+			};
+			TextSimplifier plain = TestSupport.simplifier(baseline); // Counts the words without metrics
+			for (int seed = 0; seed < 20; seed++) {
+				String text = TestSupport.text(seed, 200);
+				plain.swapText(text, new StringBuilder(), counting);
+				ts.swapText(text);
+			}
+			assertEquals(20L, metrics.getTextsSimplified(), "texts");
+			assertEquals(words[0], metrics.getWordsProcessed(), "words");
+			assertEquals(words[1], metrics.getWordsSwapped(), "words swapped");
+			assertEquals((double) words[1] / words[0], metrics.getSwapRate(), "swap rate");
+			assertEquals(20L, metrics.getSimplifyLatency().getCount(), "latencies");
+
+			ts.wordIds(TestSupport.text(0, 200));
+			assertEquals(21L, metrics.getTextsSimplified(), "texts numbered");
+
+			ts.testWord("zqx");
+			ts.testWord(TestSupport.keys().get(0));
+			assertEquals(2L, metrics.getWordsTested(), "words tested");
+			assertEquals(0.5, metrics.getTestHitRate(), "test hit rate");
+
+			ts.setDictionaryFile(TestSupport.DICTIONARY_FILE);
+			ts.setWordListFile(TestSupport.WORD_LIST_FILE);
+			ts.init();
+			assertEquals(1L, metrics.getThesaurusLoads(), "loads");
+			assertTrue(metrics.getFilesRead() >= 2, "files read " + metrics.getFilesRead());
+			assertTrue(metrics.getLastLoadMillis() > 0, "last load time");
+
+			metrics.reset();
+			assertEquals(0L, metrics.getTextsSimplified() + metrics.getWordsProcessed() + metrics.getWordsTested()
+					+ metrics.getFilesRead() + metrics.getThesaurusLoads(), "counts after reset");
+			assertEquals(0.0, metrics.getSwapRate(), "swap rate after reset");
+		} finally {
+			ts.setMetrics(null);
+		}
+	}
+
+	static void testDisabled() {
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		SimplifierMetrics metrics = new SimplifierMetrics();
+		ts.setMetrics(metrics);
+		ts.swapText("modern art");
+		ts.setMetrics(null);
+		assertEquals(null, ts.getMetrics(), "metrics removed");
+
+		String text = TestSupport.text(1, 200);
+		assertEquals(TestSupport.simplifier(TestSupport.baseline()).swapText(text), ts.swapText(text),
+				"output without metrics");
+		ts.testWord("zqx");
+		ts.wordIds(text);
+		ts.setDictionaryFile(TestSupport.DICTIONARY_FILE);
+		ts.setWordListFile(TestSupport.WORD_LIST_FILE);
+		ts.init();
+		assertEquals(1L, metrics.getTextsSimplified(), "texts after removal");
+		assertEquals(0L, metrics.getWordsTested() + metrics.getFilesRead() + metrics.getThesaurusLoads(),
+				"counts after removal");
+	}
+
+	static void testJmx() throws JMException {
+		SimplifierMetrics metrics = new SimplifierMetrics();
+		metrics.recordText(1000);
+		ObjectName name = metrics.register("MetricsTest");
+		try {
+			assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "TextsSimplified"),
+					"TextsSimplified attribute");
+		} finally {
+			SimplifierMetrics.unregister(name);
+		}
+		assertTrue(!ManagementFactory.getPlatformMBeanServer().isRegistered(name), "unregistered");
+	}
+}
@@ -0,0 +1,70 @@
+package com.barrysheehan.www;
+
+import static com.barrysheehan.www.TestSupport.assertEquals;
+import static com.barrysheehan.www.TestSupport.assertTrue;
+
+import java.util.Map;
+
+/**
+ * Tests that, when normalising, words are looked up without their punctuation
+ * and capitalisation, which are then kept around the word they are swapped
+ * with, and that words which are not swapped are written as they appear.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see WordNormaliser
+ * @since 1.8
+ */
+
+public class NormalisationTest {
+
+	public static void main(String[] args) {
+		TestSupport.main(NormalisationTest.class);
+	}
+
+	static String capitalised(String word) {
+		return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+	}
+
+	static void testPunctuationAndCaseKept() {
+		Map<String, String> wordMap = TestSupport.baseline().getWordMap();
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		ts.setRenderer(StandardRenderer.PLAIN);
+
+		int checked = 0;
+		for (String key : TestSupport.keys()) {
+			String value = wordMap.get(key);
+			if (!key.matches("[a-z]{2,}") || !value.matches("[a-z][a-z ]*")) {
+				continue;
+			}
+			assertEquals(value, ts.swapText(key), key);
+			assertEquals(capitalised(value), ts.swapText(capitalised(key)), capitalised(key));
+			assertEquals(value.toUpperCase(), ts.swapText(key.toUpperCase()), key.toUpperCase());
+			assertEquals("(" + value + "),", ts.swapText("(" + key + "),"), "(" + key + "),");
+			assertEquals("\"" + capitalised(value) + "!\"", ts.swapText("\"" + capitalised(key) + "!\""),
+					"\"" + capitalised(key) + "!\"");
+			checked++;
+		}
+		assertTrue(checked > 1000, "words checked");
+	}
+
+	static void testUnswappedWordsUnchanged() {
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		ts.setRenderer(StandardRenderer.PLAIN);
+		String[] texts = { "Zqx,", "(QQZ)!", "na\u00efve.", "...", ", ,", "\u00abZqx\u00bb", "" };
+		for (String text : texts) {
+			assertEquals(text, ts.swapText(text), text);
+		}
+	}
+
+	static void testNotNormalising() {
+		Map<String, String> wordMap = TestSupport.baseline().getWordMap();
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		ts.setRenderer(StandardRenderer.PLAIN);
+		ts.setNormalising(false);
+
+		assertEquals(wordMap.get("modern"), ts.swapText("Modern"), "looked up in lower case");
+		assertEquals("modern,", ts.swapText("Modern,"), "looked up with its punctuation");
+		assertEquals("zqx", ts.swapText("ZQX"), "written in lower case");
+	}
+}
@@ -0,0 +1,104 @@
+package com.barrysheehan.www;
+
+import static com.barrysheehan.www.TestSupport.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Tests that a word map built from a word list divided between several tasks
+ * is the same as one built from its lines one after another, in which the last
+ * line containing a word decides its value.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see WordListTask
+ * @since 1.8
+ */
+
+public class ParallelBuildTest {
+
+	public static void main(String[] args) {
+		TestSupport.main(ParallelBuildTest.class);
+	}
+
+	/**
+	 * Builds a word map from the lines of a word list one after another.
+	 */
+	static Map<String, String> sequential(Set<String> dictionary, List<String> lines) {
+		Map<String, String> wordMap = new HashMap<String, String>();
+		for (String word : dictionary) {
+			wordMap.put(word, word);
+		}
+		for (String line : lines) {
+			String[] words = line.split(",");
+			String dictionaryWord = null;
+			for (String word : words) {
+				if (dictionary.contains(word.toLowerCase())) {
+					dictionaryWord = word.toLowerCase();
+					break;
+				}
+			}
+			if (dictionaryWord != null) {
+				for (String word : words) {
+					wordMap.put(word, dictionaryWord); // Later lines replace earlier ones
+				}
+			}
+		}
+		return wordMap;
+	}
+
+	static void testMatchesSequentialBuild() throws IOException {
+		Set<String> dictionary = TestSupport.baseline().getDictionary();
+		List<String> dictionaryWords = new ArrayList<String>();
+		for (String word : dictionary) {
+			if (word.matches("[a-z ]+")) {
+				dictionaryWords.add(word);
+			}
+		}
+		Collections.sort(dictionaryWords);
+
+		Random random = new Random(11);
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < AbstractThesaurus.LINES_PER_TASK * 5 + 17; i++) { // Split between many tasks
+			StringBuilder line = new StringBuilder();
+			int words = 1 + random.nextInt(12);
+			for (int j = 0; j < words; j++) {
+				if (j > 0) {
+					line.append(',');
+				}
+				if (random.nextInt(5) == 0) {
+					line.append(dictionaryWords.get(random.nextInt(dictionaryWords.size())));
+				} else {
+					line.append("zw").append(random.nextInt(5000)); // Repeated on many lines
+				}
+			}
+			lines.add(line.toString());
+		}
+
+		Path directory = TestSupport.copyConfig();
+		try {
+			Path wordListFile = directory.resolve("wordListFile.txt");
+			Files.write(wordListFile, lines, StandardCharsets.UTF_8);
+			assertEquals(true, Files.size(wordListFile) > MappedThesaurus.BYTES_PER_TASK * 4L, "word list size");
+
+			Map<String, String> expected = sequential(dictionary, lines);
+			for (ThesaurusLoader loader : new ThesaurusLoader[] { ThesaurusLoader.TEXT, ThesaurusLoader.MAPPED }) {
+				AbstractThesaurus thesaurus = loader.load(directory.resolve("dictionaryFile.txt").toString(),
+						wordListFile.toString(), WordMapStorage.HASH);
+				assertEquals(expected, thesaurus.getWordMap(), loader + " entries");
+			}
+		} finally {
+			TestSupport.delete(directory);
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package com.barrysheehan.www;
+
+import static com.barrysheehan.www.TestSupport.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Tests that <code>swapTextParallel()</code> gives the same result as
+ * <code>swapText()</code>, however the text is divided into segments.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see TextSimplifier
+ * @since 1.8
+ */
+
+public class ParallelTest {
+
+	public static void main(String[] args) {
+		TestSupport.main(ParallelTest.class);
+	}
+
+	static void testMatchesSequential() {
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		ForkJoinPool pool = new ForkJoinPool(4);
+		ts.setPool(pool);
+		try {
+			for (Tokenizer tokenizer : StandardTokenizer.values()) {
+				ts.setTokenizer(tokenizer);
+				for (long seed = 0; seed < 10; seed++) {
+					String text = TestSupport.text(seed, (int) seed * 300);
+					String expected = ts.swapText(text);
+					for (int threshold : new int[] { 1, 7, 100, 4096 }) {
+						ts.setParallelThreshold(threshold);
+						assertEquals(expected, ts.swapTextParallel(text),
+								tokenizer + " text " + seed + " threshold " + threshold);
+					}
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	static void testLongText() {
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		String text = TestSupport.text(200, 100000);
+		assertEquals(ts.swapText(text), ts.swapTextParallel(text), "output");
+	}
+}
@@ -0,0 +1,82 @@
+package com.barrysheehan.www;
+
+import static com.barrysheehan.www.TestSupport.assertEquals;
+import static com.barrysheehan.www.TestSupport.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests that multi-word keys of the word map are swapped as a single word,
+ * the longest phrase first, whatever whitespace separates their words.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see PhraseMatcher
+ * @since 1.8
+ */
+
+public class PhraseTest {
+
+	public static void main(String[] args) {
+		TestSupport.main(PhraseTest.class);
+	}
+
+	/**
+	 * Returns the keys of the baseline's word map which are phrases in lower
+	 * case, so they can be matched in text.
+	 */
+	static List<String> phrases() {
+		List<String> phrases = new ArrayList<String>();
+		for (String key : TestSupport.keys()) {
+			if (key.indexOf(' ') > 0 && !key.endsWith(" ") && !key.contains("  ") && key.equals(key.toLowerCase())) {
+				phrases.add(key);
+			}
+		}
+		return phrases;
+	}
+
+	static void testEveryPhraseSwapped() {
+		Map<String, String> wordMap = TestSupport.baseline().getWordMap();
+		TextSimplifier ts = SwapTextTest.spaceSimplifier(TestSupport.baseline());
+		List<String> phrases = phrases();
+		assertTrue(phrases.size() > 100, "phrases in the word list");
+
+		for (String phrase : phrases) {
+			assertEquals(SwapTextTest.original(wordMap, phrase), ts.swapText(phrase), phrase);
+			assertEquals(SwapTextTest.original(wordMap, "the " + phrase + " now"),
+					ts.swapText("the " + phrase + " now"), phrase + " in a sentence");
+		}
+	}
+
+	static void testLongestPhraseFirst() {
+		Map<String, String> wordMap = TestSupport.baseline().getWordMap();
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		ts.setRenderer(StandardRenderer.PLAIN);
+
+		int found = 0;
+		for (String phrase : phrases()) {
+			String prefix = phrase.substring(0, phrase.lastIndexOf(' '));
+			if (wordMap.containsKey(prefix) && !wordMap.get(prefix).equals(wordMap.get(phrase))) {
+				assertEquals(wordMap.get(phrase), ts.swapText(phrase), phrase + " rather than " + prefix);
+				found++;
+			}
+		}
+		assertTrue(found > 0, "phrases beginning with a shorter phrase");
+	}
+
+	static void testAnyWhitespaceBetweenWords() {
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		ts.setRenderer(StandardRenderer.PLAIN);
+		ts.setTokenizer(StandardTokenizer.UNICODE);
+
+		for (String phrase : phrases()) {
+			String expected = ts.swapText(phrase);
+			for (String separator : new String[] { "\t", "\n", "\r\n", "\u00a0", " \t " }) {
+				String text = phrase.replace(" ", separator);
+				assertEquals(expected, ts.swapText(text), phrase + " separated by " + separator.length());
+			}
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package com.barrysheehan.www;
+
+import static com.barrysheehan.www.TestSupport.assertEquals;
+import static com.barrysheehan.www.TestSupport.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Tests that a thesaurus loaded as an overlay on the baseline thesaurus holds
+ * the same entries, and simplifies text to the same result, as a thesaurus
+ * loaded in full from the same altered word list, and that overlays are only
+ * loaded over a thesaurus which is registered and not loaded lazily.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see ThesaurusRegistry
+ * @see OverlayWordMap
+ * @since 1.8
+ */
+
+public class RegistryTest {
+
+	public static void main(String[] args) {
+		TestSupport.main(RegistryTest.class);
+	}
+
+	/**
+	 * Writes a copy of the bundled word list with one line in twenty removed and
+	 * another in twenty reversed, so its first dictionary word changes, and new
+	 * lines adding a word and a phrase, into the supplied directory.
+	 *
+	 * @return the path to the altered word list file
+	 */
+	static Path alteredWordList(Path directory) throws IOException {
+		List<String> lines = Files.readAllLines(directory.resolve("wordListFile.txt"), StandardCharsets.ISO_8859_1);
+		List<String> altered = new ArrayList<String>();
+		for (int i = 0; i < lines.size(); i++) {
+			if (i % 20 == 7) { // Removed
+				continue;
+			}
+			if (i % 20 == 13) { // Reversed
+				List<String> words = new ArrayList<String>();
+				Collections.addAll(words, lines.get(i).split(","));
+				Collections.reverse(words);
+				altered.add(String.join(",", words));
+				continue;
+			}
+			altered.add(lines.get(i));
+		}
+		altered.add("zqnew,zqx zqy,modern");
+
+		Path wordList = directory.resolve("alteredWordList.txt");
+		Files.write(wordList, altered, StandardCharsets.ISO_8859_1);
+		return wordList;
+	}
+
+	static void testOverlayMatchesFull() throws IOException {
+		Path directory = TestSupport.copyConfig();
+		try {
+			String dictionary = directory.resolve("dictionaryFile.txt").toString();
+			String wordList = alteredWordList(directory).toString();
+			AbstractThesaurus full = new Thesaurus(dictionary, wordList, WordMapStorage.HASH);
+
+			ThesaurusRegistry registry = new ThesaurusRegistry();
+			registry.register("default", TestSupport.baseline());
+			AbstractThesaurus overlay = registry.loadOverlay("alt", "default", dictionary, wordList,
+					ThesaurusLoader.MAPPED, WordMapStorage.HASH);
+			assertTrue(overlay.getWordMap() instanceof OverlayWordMap, "overlay word map");
+			assertTrue(registry.get("alt") == overlay, "overlay registered");
+
+			Map<String, String> fullMap = full.getWordMap();
+			Map<String, String> overlayMap = overlay.getWordMap();
+			TreeSet<String> keys = new TreeSet<String>(TestSupport.keys());
+			keys.addAll(fullMap.keySet());
+			for (String key : keys) {
+				assertEquals(fullMap.get(key), overlayMap.get(key), "value of " + key);
+				assertEquals(fullMap.containsKey(key), overlayMap.containsKey(key), "contains " + key);
+			}
+			assertEquals(fullMap.size(), overlayMap.size(), "size");
+			assertEquals(new HashMap<String, String>(fullMap), new HashMap<String, String>(overlayMap), "entries");
+			assertEquals(full.getDictionary(), overlay.getDictionary(), "dictionary");
+			assertTrue(!fullMap.equals(TestSupport.baseline().getWordMap()), "word list altered");
+		} finally {
+			TestSupport.delete(directory);
+		}
+	}
+
+	static void testOverlayOutput() throws IOException {
+		Path directory = TestSupport.copyConfig();
+		try {
+			String dictionary = directory.resolve("dictionaryFile.txt").toString();
+			String wordList = alteredWordList(directory).toString();
+			TextSimplifier expected = TestSupport.simplifier(new Thesaurus(dictionary, wordList, WordMapStorage.HASH));
+
+			TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+			ts.getRegistry().register("default", TestSupport.baseline());
+			ts.getRegistry().loadOverlay("alt", "default", dictionary, wordList, ThesaurusLoader.MAPPED,
+					WordMapStorage.HASH);
+
+			for (int seed = 0; seed < 10; seed++) {
+				String text = TestSupport.text(seed, 2000) + "Zqnew zqx zqy, zqx\tzqy";
+				String name = "seed " + seed;
+				assertEquals(expected.swapText(text), ts.swapText(text, "alt"), name);
+				assertEquals(TestSupport.simplifier(TestSupport.baseline()).swapText(text), ts.swapText(text),
+						name + " without the overlay");
+
+				StringWriter out = new StringWriter();
+				ts.simplify(new StringReader(text), out, StandardRenderer.ANSI, "alt");
+				assertEquals(expected.swapText(text), out.toString(), name + " streamed");
+			}
+			assertEquals(expected.swapText("modern"), ts.swapText("zqx zqy", "alt"), "phrase added by the overlay");
+			assertEquals(expected.swapText("modern"), ts.swapText("zqnew", "alt"), "word added by the overlay");
+		} finally {
+			TestSupport.delete(directory);
+		}
+	}
+
+	static void testUnknownName() {
+		ThesaurusRegistry registry = new ThesaurusRegistry();
+		try {
+			registry.loadOverlay("alt", "missing", TestSupport.DICTIONARY_FILE, TestSupport.WORD_LIST_FILE,
+					ThesaurusLoader.MAPPED, WordMapStorage.HASH);
+			throw new AssertionError("Overlay on an unregistered thesaurus loaded");
+		} catch (IllegalArgumentException expected) {
+			// Expected
+		}
+
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		try {
+			ts.swapText("text", "missing");
+			throw new AssertionError("Unregistered thesaurus used");
+		} catch (IllegalArgumentException expected) {
+			// Expected
+		}
+	}
+
+	static void testLazyBase() {
+		AbstractThesaurus lazy = ThesaurusLoader.LAZY.load(TestSupport.DICTIONARY_FILE, TestSupport.WORD_LIST_FILE,
+				WordMapStorage.HASH);
+		try {
+			ThesaurusRegistry.overlay(lazy, TestSupport.baseline());
+			throw new AssertionError("Overlay on a lazily loaded thesaurus created");
+		} catch (IllegalArgumentException expected) {
+			// Expected
+		}
+		try {
+			new OverlayWordMap(lazy.getWordMap(), new HashMap<String, String>());
+			throw new AssertionError("OverlayWordMap on a LazyWordMap created");
+		} catch (IllegalArgumentException expected) {
+			// Expected
+		}
+	}
+}
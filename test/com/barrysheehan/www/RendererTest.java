@@ -0,0 +1,93 @@
+package com.barrysheehan.www;
+
+import static com.barrysheehan.www.TestSupport.assertEquals;
+import static com.barrysheehan.www.TestSupport.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Collections;
+
+/**
+ * Tests that each <code>StandardRenderer</code> writes the same output from
+ * every simplification method, and that the offsets passed to a renderer
+ * locate each word in the text.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see Renderer
+ * @see StandardRenderer
+ * @since 1.8
+ */
+
+public class RendererTest {
+
+	public static void main(String[] args) {
+		TestSupport.main(RendererTest.class);
+	}
+
+	static void testSameOutputFromEveryMethod() throws IOException {
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		ts.setParallelThreshold(64);
+		String text = TestSupport.text(21, 5000);
+
+		for (Tokenizer tokenizer : StandardTokenizer.values()) {
+			ts.setTokenizer(tokenizer);
+			for (StandardRenderer renderer : StandardRenderer.values()) {
+				String name = tokenizer + " " + renderer;
+				StringBuilder sb = new StringBuilder();
+				ts.swapText(text, sb, renderer);
+				String expected = sb.toString();
+
+				assertEquals(expected, ts.swapTextParallel(text, renderer), name + " swapTextParallel");
+				StringWriter out = new StringWriter();
+				ts.simplify(new StringReader(text), out, renderer);
+				assertEquals(expected, out.toString(), name + " simplify");
+				assertEquals(expected, ts.swapTexts(Collections.singletonList(text), renderer, false).get(0),
+						name + " swapTexts");
+			}
+		}
+	}
+
+	static void testOffsetsLocateWords() {
+		final String text = TestSupport.text(22, 3000);
+		final StringBuilder checked = new StringBuilder();
+		Renderer offsets = new Renderer() {
+			@Override
+			public void word(StringBuilder sb, CharSequence word, CharSequence swapped, long start, long end) {
+				assertEquals(word.toString(), text.substring((int) start, (int) end), "word at " + start);
+				checked.append('.');
+			}
+		};
+
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		ts.setTokenizer(StandardTokenizer.UNICODE);
+		ts.swapText(text, new StringBuilder(), offsets);
+		assertTrue(checked.length() > 2000, "words rendered");
+	}
+
+	static void testPlainIsAnsiWithoutColour() {
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		String text = TestSupport.text(23, 5000);
+		StringBuilder ansi = new StringBuilder();
+		StringBuilder plain = new StringBuilder();
+		ts.swapText(text, ansi, StandardRenderer.ANSI);
+		ts.swapText(text, plain, StandardRenderer.PLAIN);
+		assertEquals(plain.toString(), ansi.toString().replaceAll("\u001B\\[[0-9;]*m", ""), "output");
+	}
+
+	static void testHtmlAndJsonEscaped() {
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		StringBuilder html = new StringBuilder();
+		ts.swapText("<b>&\"' \t", html, StandardRenderer.HTML);
+		assertEquals("<span class=\"unswapped\">&lt;b&gt;&amp;&quot;&#39;</span> \t", html.toString(), "HTML");
+
+		StringBuilder json = new StringBuilder();
+		ts.swapText("q\"\\", json, StandardRenderer.JSON);
+		assertEquals("[{\"start\":0,\"end\":3,\"word\":\"q\\\"\\\\\",\"swapped\":null}]", json.toString(), "JSON");
+
+		StringBuilder prefixed = new StringBuilder("x,");
+		ts.swapText("", prefixed, StandardRenderer.JSON);
+		assertEquals("x,[]", prefixed.toString(), "JSON of no words after the caller's text");
+	}
+}
@@ -0,0 +1,96 @@
+package com.barrysheehan.www;
+
+import static com.barrysheehan.www.TestSupport.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests that a <code>TextSimplifier</code> with a
+ * <code>SimplificationCache</code> always returns the same text as one without,
+ * however its thesaurus and settings are changed.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see SimplificationCache
+ * @since 1.8
+ */
+
+public class SimplificationCacheTest {
+
+	public static void main(String[] args) {
+		TestSupport.main(SimplificationCacheTest.class);
+	}
+
+	/**
+	 * Simplifies text twice with a cached and an uncached simplifier sharing the
+	 * same settings, checking every result matches.
+	 */
+	static void assertSameAsUncached(TextSimplifier cached, String text, String name) {
+		TextSimplifier uncached = TestSupport.simplifier(cached.getThesaurus());
+		uncached.setNormalising(cached.isNormalising());
+		uncached.setTokenizer(cached.getTokenizer());
+		uncached.setRenderer(cached.getRenderer());
+
+		String expected = uncached.swapText(text);
+		assertEquals(expected, cached.swapText(text), name);
+		assertEquals(expected, cached.swapText(text), name + " from the cache");
+	}
+
+	static void testRepeatedText() {
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		ts.setCache(new SimplificationCache(1 << 20));
+		for (long seed = 0; seed < 20; seed++) {
+			assertSameAsUncached(ts, TestSupport.text(seed % 5, 50), "text " + seed % 5);
+		}
+		assertEquals(35L, ts.getCache().getHits(), "hits");
+		assertEquals(5L, ts.getCache().getMisses(), "misses");
+	}
+
+	static void testSettingsChanged() {
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		ts.setCache(new SimplificationCache(1 << 20));
+		String text = "Modern,  art\tnow A cappella";
+
+		assertSameAsUncached(ts, text, "defaults");
+		ts.setNormalising(false);
+		assertSameAsUncached(ts, text, "not normalising");
+		ts.setTokenizer(StandardTokenizer.SPACE);
+		assertSameAsUncached(ts, text, "SPACE tokenizer");
+		ts.setRenderer(StandardRenderer.HTML);
+		assertSameAsUncached(ts, text, "HTML renderer");
+		ts.setThesaurus(new ThesaurusSnapshot(new HashMap<String, String>(), TestSupport.baseline().getDictionary()));
+		assertSameAsUncached(ts, text, "new thesaurus");
+	}
+
+	static void testKeyedOnThesaurus() {
+		AbstractThesaurus baseline = TestSupport.baseline();
+		Map<String, String> changed = new HashMap<String, String>(baseline.getWordMap());
+		changed.put("modern", "zznew");
+		AbstractThesaurus other = new ThesaurusSnapshot(changed, baseline.getDictionary());
+
+		TextSimplifier ts = TestSupport.simplifier(baseline);
+		ts.setRenderer(StandardRenderer.PLAIN);
+		ts.setCache(new SimplificationCache(1 << 20));
+		ts.getRegistry().register("baseline", baseline);
+		ts.getRegistry().register("other", other);
+
+		for (int i = 0; i < 3; i++) {
+			assertEquals(baseline.getWordMap().get("modern"), ts.swapText("modern", "baseline"), "baseline");
+			assertEquals("zznew", ts.swapText("modern", "other"), "other");
+		}
+	}
+
+	static void testCacheDirectly() {
+		AbstractThesaurus baseline = TestSupport.baseline();
+		AbstractThesaurus copy = new ThesaurusSnapshot(baseline.getWordMap(), baseline.getDictionary());
+		SimplificationCache cache = new SimplificationCache(1 << 10);
+
+		cache.put(baseline, StandardRenderer.PLAIN, 1, "modern", "build");
+		assertEquals("build", cache.get(baseline, StandardRenderer.PLAIN, 1, "modern"), "same key");
+		assertEquals(null, cache.get(copy, StandardRenderer.PLAIN, 1, "modern"), "equal but other thesaurus");
+		assertEquals(null, cache.get(baseline, StandardRenderer.ANSI, 1, "modern"), "other renderer");
+		assertEquals(null, cache.get(baseline, StandardRenderer.PLAIN, 2, "modern"), "other settings");
+		assertEquals("build", cache.get(baseline, StandardRenderer.PLAIN, 1, "modern"), "kept after misses");
+	}
+}
@@ -0,0 +1,176 @@
+package com.barrysheehan.www;
+
+import static com.barrysheehan.www.TestSupport.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Tests that text POSTed to a <code>SimplifierServer</code> is returned exactly
+ * as <code>TextSimplifier.simplify()</code> writes it, in the format and with
+ * the thesaurus named in the URL encoded query.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see SimplifierServer
+ * @since 1.8
+ */
+
+public class SimplifierServerTest {
+
+	public static void main(String[] args) {
+		TestSupport.main(SimplifierServerTest.class);
+	}
+
+	/**
+	 * The status and body of a response.
+	 */
+	private static class Response {
+		final int status;
+		final String body;
+
+		Response(int status, String body) {
+			this.status = status;
+			this.body = body;
+		}
+	}
+
+	static Response post(SimplifierServer server, String query, String text) throws IOException {
+		URL url = new URL("http://localhost:" + server.getPort() + SimplifierServer.SIMPLIFY_PATH
+				+ (query == null ? "" : "?" + query));
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		try {
+			byte[] body = text.getBytes(StandardCharsets.UTF_8);
+			connection.setRequestMethod("POST");
+			connection.setDoOutput(true);
+			connection.setFixedLengthStreamingMode(body.length);
+			OutputStream out = connection.getOutputStream();
+			try {
+				out.write(body);
+			} catch (IOException refused) { // Server may answer before the whole body is sent
+			} finally {
+				try {
+					out.close();
+				} catch (IOException refused) {
+				}
+			}
+
+			int status = connection.getResponseCode();
+			if (status != 200) {
+				return new Response(status, null);
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			InputStream in = connection.getInputStream();
+			try {
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = in.read(buffer)) > 0) {
+					bytes.write(buffer, 0, read);
+				}
+			} finally {
+				in.close();
+			}
+			return new Response(status, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * Sends only the headers of a request whose body has the supplied length, and
+	 * returns the status of the response, which the server may send before the
+	 * body.
+	 */
+	static int postHeaders(SimplifierServer server, long contentLength) throws IOException {
+		Socket socket = new Socket("localhost", server.getPort());
+		try {
+			OutputStream out = socket.getOutputStream();
+			out.write(("POST " + SimplifierServer.SIMPLIFY_PATH + " HTTP/1.1\r\nHost: localhost\r\nContent-Length: "
+					+ contentLength + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+
+			BufferedReader in = new BufferedReader(
+					new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+			String statusLine = in.readLine(); // Such as "HTTP/1.1 413 Payload Too Large"
+			return Integer.parseInt(statusLine.split(" ")[1]);
+		} finally {
+			socket.close();
+		}
+	}
+
+	static String simplify(TextSimplifier ts, String text, Renderer renderer, String thesaurusName)
+			throws IOException {
+		StringWriter out = new StringWriter();
+		if (thesaurusName == null) {
+			ts.simplify(new StringReader(text), out, renderer);
+		} else {
+			ts.simplify(new StringReader(text), out, renderer, thesaurusName);
+		}
+		return out.toString();
+	}
+
+	static void testResponsesMatchSimplify() throws IOException {
+		AbstractThesaurus baseline = TestSupport.baseline();
+		TextSimplifier ts = TestSupport.simplifier(baseline);
+		ts.getRegistry().register("no words",
+				new ThesaurusSnapshot(new HashMap<String, String>(), baseline.getDictionary()));
+		String text = TestSupport.text(15, 3000);
+
+		SimplifierServer server = new SimplifierServer(ts, 0);
+		server.start();
+		try {
+			assertEquals(simplify(ts, text, StandardRenderer.PLAIN, null), post(server, null, text).body, "plain");
+			assertEquals(simplify(ts, text, StandardRenderer.JSON, null), post(server, "format=%6Ason", text).body,
+					"encoded format");
+			assertEquals(simplify(ts, text, StandardRenderer.HTML, "no words"),
+					post(server, "thesaurus=no%20words&format=html", text).body, "encoded thesaurus name");
+			assertEquals(simplify(ts, text, StandardRenderer.PLAIN, "no words"),
+					post(server, "thesaurus=no+words", text).body, "thesaurus name with +");
+		} finally {
+			server.close();
+		}
+	}
+
+	static void testBadRequests() throws IOException {
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		SimplifierServer server = new SimplifierServer(ts, 0);
+		server.setMaxBodyBytes(100);
+		server.start();
+		try {
+			assertEquals(400, post(server, "format=%zz", "modern").status, "malformed query");
+			assertEquals(400, post(server, "format=pdf", "modern").status, "unknown format");
+			assertEquals(400, post(server, "thesaurus=missing", "modern").status, "unknown thesaurus");
+			assertEquals(413, postHeaders(server, 1000), "body too long");
+			assertEquals(200, post(server, null, "modern").status, "body within the limit");
+		} finally {
+			server.close();
+		}
+	}
+
+	static void testFormatInAnyLocale() throws IOException {
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		Locale locale = Locale.getDefault();
+		SimplifierServer server = new SimplifierServer(ts, 0);
+		server.start();
+		try {
+			Locale.setDefault(new Locale("tr", "TR")); // Upper case of "i" is dotted
+			assertEquals(simplify(ts, "modern art", StandardRenderer.ANSI, null),
+					post(server, "format=ansi", "modern art").body, "format with an i");
+		} finally {
+			Locale.setDefault(locale);
+			server.close();
+		}
+	}
+}
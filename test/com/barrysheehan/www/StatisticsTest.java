@@ -0,0 +1,156 @@
+package com.barrysheehan.www;
+
+import static com.barrysheehan.www.TestSupport.assertEquals;
+import static com.barrysheehan.www.TestSupport.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests that <code>WordStatistics</code> recording every word counts each word
+ * looked up once, as found or not found by the baseline thesaurus, whether it
+ * is tested with <code>testWord()</code> and swapped with
+ * <code>swapWord()</code> only if found, simplified with <code>swapText()</code> or numbered
+ * with <code>wordIds()</code>.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see WordStatistics
+ * @since 1.8
+ */
+
+public class StatisticsTest {
+
+	public static void main(String[] args) {
+		TestSupport.main(StatisticsTest.class);
+	}
+
+	/**
+	 * Returns a simplifier using the baseline thesaurus which records every word
+	 * in the supplied statistics.
+	 */
+	private static TextSimplifier recording(WordStatistics statistics) {
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		ts.setStatistics(statistics);
+		return ts;
+	}
+
+	/**
+	 * Returns the count of each dictionary word in a list of the words swapped in
+	 * most often.
+	 */
+	private static Map<String, Long> counts(List<Map.Entry<String, Long>> top) {
+		Map<String, Long> counts = new HashMap<String, Long>();
+		for (Map.Entry<String, Long> entry : top) {
+			counts.put(entry.getKey(), entry.getValue());
+		}
+		return counts;
+	}
+
+	static void testWordThenSwap() {
+		WordStatistics statistics = new WordStatistics(1 << 10, 10, 1);
+		TextSimplifier ts = recording(statistics);
+		Map<String, String> wordMap = TestSupport.baseline().getWordMap();
+
+		Map<String, Long> expected = new HashMap<String, Long>();
+		long hits = 0;
+		long misses = 0;
+		List<String> words = new ArrayList<String>(TestSupport.keys());
+		Collections.addAll(words, "zqx", "na\u00efve", "zqy", "zqx");
+		for (String word : words) {
+			if (ts.testWord(word)) { // Only words found are swapped
+				String value = ts.swapWord(word);
+				assertEquals(wordMap.get(word), value, word);
+				expected.merge(value, 1L, Long::sum);
+				hits++;
+			} else {
+				misses++;
+			}
+		}
+
+		assertEquals(hits, statistics.getHits(), "hits");
+		assertEquals(misses, statistics.getMisses(), "misses");
+		assertEquals(expected, counts(statistics.getTopSwappedTo(Integer.MAX_VALUE)), "swapped to");
+
+		assertEquals("[zqx=2, na\u00efve=1, zqy=1]", statistics.getTopMisses(3).toString(), "top misses");
+
+		statistics.reset();
+		assertEquals(0L, statistics.getHits() + statistics.getMisses(), "after reset");
+		assertEquals(null, ts.swapWord("zqx"), "swapped miss");
+		assertEquals(1L, statistics.getMisses(), "miss swapped without testing");
+	}
+
+	static void testSwapTextRecordsEachWord() {
+		for (boolean normalise : new boolean[] { true, false }) {
+			WordStatistics statistics = new WordStatistics(1 << 10, 10, 1);
+			TextSimplifier ts = recording(statistics);
+			ts.setNormalising(normalise);
+			TextSimplifier plain = TestSupport.simplifier(TestSupport.baseline()); // Records nothing
+			plain.setNormalising(normalise);
+
+			long[] words = new long[2]; // Found, not found
+			for (int seed = 0; seed < 10; seed++) {
+				String text = TestSupport.text(seed, 400);
+				plain.swapText(text, new StringBuilder(), new Renderer() {
+					@Override
+					public void word(StringBuilder sb, CharSequence word, CharSequence swapped, long start, long end) {
+						if (word.length() > 0) {
+							words[swapped != null ? 0 : 1]++;
+						}
+					}
+				});
+				ts.swapText(text, new StringBuilder());
+			}
+
+			String name = normalise ? "normalising" : "not normalising";
+			assertEquals(words[0], statistics.getHits(), name + " hits");
+			assertEquals(words[1], statistics.getMisses(), name + " misses");
+
+			long swapped = 0;
+			for (Map.Entry<String, Long> entry : statistics.getTopSwappedTo(Integer.MAX_VALUE)) {
+				swapped += entry.getValue();
+			}
+			assertEquals(words[0], swapped, name + " swapped to");
+		}
+	}
+
+	static void testWordIdsRecordEachWord() {
+		WordStatistics statistics = new WordStatistics(1 << 10, 10, 1);
+		TextSimplifier ts = recording(statistics);
+
+		for (int seed = 0; seed < 10; seed++) {
+			String text = TestSupport.text(seed, 400);
+			ts.swapText(text, new StringBuilder());
+			long hits = statistics.getHits();
+			long misses = statistics.getMisses();
+			statistics.reset();
+
+			int[] ids = ts.wordIds(text);
+			assertEquals(hits, statistics.getHits(), "seed " + seed + " hits");
+			assertEquals(misses, statistics.getMisses(), "seed " + seed + " misses");
+			assertEquals((long) ids.length, hits + misses, "seed " + seed + " words");
+			statistics.reset();
+		}
+	}
+
+	static void testSampleEvery() {
+		try {
+			new WordStatistics(1 << 10, 10, 0);
+			throw new AssertionError("sampleEvery of 0 accepted");
+		} catch (IllegalArgumentException expected) {
+			// Expected
+		}
+
+		WordStatistics statistics = new WordStatistics(1 << 10, 10, 4);
+		TextSimplifier ts = recording(statistics);
+		for (int i = 0; i < 4000; i++) {
+			ts.swapWord("zqx");
+		}
+		assertEquals(0L, statistics.getMisses() % 4, "misses scaled by the sampling rate");
+		assertTrue(statistics.getMisses() > 2000 && statistics.getMisses() < 6000,
+				"misses estimated as " + statistics.getMisses());
+	}
+}
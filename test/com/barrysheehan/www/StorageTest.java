@@ -0,0 +1,121 @@
+package com.barrysheehan.www;
+
+import static com.barrysheehan.www.TestSupport.assertEquals;
+import static com.barrysheehan.www.TestSupport.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * Tests that every <code>WordMapStorage</code> backend holds the same entries,
+ * and simplifies text to the same result, as the baseline HashMap thesaurus,
+ * and that a thesaurus read from text keeps none of the text once built.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see WordMapStorage
+ * @since 1.8
+ */
+
+public class StorageTest {
+
+	public static void main(String[] args) {
+		TestSupport.main(StorageTest.class);
+	}
+
+	static void testEntriesMatchBaseline() {
+		Map<String, String> expected = TestSupport.baseline().getWordMap();
+		for (WordMapStorage storage : WordMapStorage.values()) {
+			Map<String, String> wordMap = storage.build(expected);
+
+			assertEquals(expected.size(), wordMap.size(), storage + " size");
+			for (String key : TestSupport.keys()) {
+				assertEquals(expected.get(key), wordMap.get(key), storage + " value of " + key);
+			}
+			assertEquals(null, wordMap.get("zqx"), storage + " value of a missing key");
+			assertEquals(expected, wordMap, storage + " entries");
+		}
+	}
+
+	static void testSimplifiesLikeBaseline() {
+		String text = TestSupport.text(1, 20000);
+		String expected = TestSupport.simplifier(TestSupport.baseline()).swapText(text);
+
+		for (WordMapStorage storage : WordMapStorage.values()) {
+			AbstractThesaurus thesaurus = new Thesaurus(TestSupport.DICTIONARY_FILE, TestSupport.WORD_LIST_FILE,
+					storage);
+			assertEquals(expected, TestSupport.simplifier(thesaurus).swapText(text), storage + " output");
+		}
+	}
+
+	static void testValuesStoredOnce() {
+		Map<String, String> expected = TestSupport.baseline().getWordMap();
+		OpenAddressingWordMap wordMap = new OpenAddressingWordMap(expected);
+		Map<String, String> distinct = new HashMap<String, String>(); // First instance returned for each value
+
+		assertEquals(new HashSet<String>(expected.values()).size(), wordMap.valueCount(), "distinct values");
+		for (String key : TestSupport.keys()) {
+			String value = wordMap.get(key);
+			String first = distinct.put(value, value);
+			assertTrue(first == null || first == value, "one instance of " + value);
+			assertEquals(value, wordMap.value(wordMap.lookupId(key)), "value of the ID of " + key);
+		}
+		assertEquals(-1, wordMap.lookupId("zqx"), "ID of a missing key");
+	}
+
+	static void testLookupWithCharSequence() {
+		Map<String, String> expected = TestSupport.baseline().getWordMap();
+		StringBuilder key = new StringBuilder();
+		for (WordMapStorage storage : WordMapStorage.values()) {
+			Map<String, String> wordMap = storage.build(expected);
+			for (String word : TestSupport.keys()) {
+				key.setLength(0);
+				key.append(word);
+				assertEquals(expected.get(word), WordLookup.lookup(wordMap, key), storage + " lookup of " + word);
+			}
+		}
+	}
+
+	static void testOffHeapNonAsciiEntries() {
+		Map<String, String> source = new HashMap<String, String>();
+		source.put("na\u00efve", "simple");
+		source.put("caf\u00e9", "na\u00efve");
+		source.put("\u6f22\u5b57", "\u5b57");
+		source.put("\ud83d\ude00", "smile");
+		source.put("a", "a");
+		source.put("ex post facto", "after");
+
+		Map<String, String> wordMap = WordMapStorage.OFF_HEAP.build(source);
+		assertTrue(wordMap instanceof MappedWordMap, "OFF_HEAP builds a MappedWordMap");
+		assertEquals(source, wordMap, "entries");
+		assertEquals(new HashSet<String>(source.values()).size(), ((MappedWordMap) wordMap).dictionarySize(),
+				"dictionary words");
+		assertEquals(null, wordMap.get("cafe"), "value of a missing key");
+		assertEquals(null, wordMap.get(""), "value of an empty key");
+	}
+
+	static void testFileTextReleased() {
+		for (WordMapStorage storage : WordMapStorage.values()) {
+			AbstractThesaurus thesaurus = new Thesaurus(TestSupport.DICTIONARY_FILE, TestSupport.WORD_LIST_FILE, storage);
+			assertEquals(null, thesaurus.getDictionaryString(), storage + " dictionary text");
+			assertEquals(null, thesaurus.getWordListString(), storage + " word list text");
+			assertEquals(TestSupport.baseline().getWordMap(), thesaurus.getWordMap(), storage + " entries");
+		}
+	}
+
+	static void testTableCapacityLimit() {
+		assertEquals(2, OpenAddressingWordMap.tableCapacity(0), "capacity of no entries");
+		assertEquals(1 << 11, OpenAddressingWordMap.tableCapacity(1000), "capacity of 1000 entries");
+		assertEquals(OpenAddressingWordMap.MAX_CAPACITY,
+				OpenAddressingWordMap.tableCapacity(OpenAddressingWordMap.MAX_CAPACITY / 2), "largest capacity");
+		for (int entries : new int[] { OpenAddressingWordMap.MAX_CAPACITY / 2 + 1, Integer.MAX_VALUE }) {
+			try {
+				OpenAddressingWordMap.tableCapacity(entries);
+				throw new AssertionError("Capacity for " + entries + " entries returned");
+			} catch (IllegalArgumentException expected) {
+				// Expected
+			}
+		}
+	}
+}
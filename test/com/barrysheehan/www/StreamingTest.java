@@ -0,0 +1,134 @@
+package com.barrysheehan.www;
+
+import static com.barrysheehan.www.TestSupport.assertEquals;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+/**
+ * Tests that <code>simplify(Reader, Writer)</code> gives the same result as
+ * <code>swapText()</code> for the whole text, wherever the chunks read end.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see TextSimplifier
+ * @since 1.8
+ */
+
+public class StreamingTest {
+
+	public static void main(String[] args) {
+		TestSupport.main(StreamingTest.class);
+	}
+
+	/**
+	 * A Reader returning at most a few characters from each read, so chunks end
+	 * inside words, separators and phrases.
+	 */
+	private static class ShortReader extends Reader {
+
+		private final Reader in;
+		private int reads = 0; // Number of reads, used to vary their length
+
+		ShortReader(String text) {
+			this.in = new StringReader(text);
+		}
+
+		@Override
+		public int read(char[] buffer, int offset, int length) throws IOException {
+			return in.read(buffer, offset, Math.min(length, 1 + reads++ % 13));
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+
+	static String stream(TextSimplifier ts, Reader in) throws IOException {
+		StringWriter out = new StringWriter();
+		ts.simplify(in, out);
+		return out.toString();
+	}
+
+	static void testChunkBoundaries() throws IOException {
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		for (Tokenizer tokenizer : StandardTokenizer.values()) {
+			ts.setTokenizer(tokenizer);
+			for (boolean normalising : new boolean[] { true, false }) {
+				ts.setNormalising(normalising);
+				for (long seed = 0; seed < 20; seed++) {
+					String text = TestSupport.text(seed, (int) seed * 50);
+					String name = tokenizer + " normalising " + normalising + " text " + seed;
+					assertEquals(ts.swapText(text), stream(ts, new ShortReader(text)), name + " in short reads");
+					assertEquals(ts.swapText(text), stream(ts, new StringReader(text)), name);
+				}
+			}
+		}
+	}
+
+	static void testLongText() throws IOException {
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		String text = TestSupport.text(100, 200000); // Many times STREAM_BUFFER_SIZE characters
+		for (Tokenizer tokenizer : StandardTokenizer.values()) {
+			ts.setTokenizer(tokenizer);
+			assertEquals(ts.swapText(text), stream(ts, new StringReader(text)), tokenizer + " output");
+		}
+	}
+
+	static void testLongSeparators() throws IOException {
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		StringBuilder spaces = new StringBuilder();
+		for (int i = 0; i < TextSimplifier.STREAM_BUFFER_SIZE * 3; i++) {
+			spaces.append(i % 7 == 0 ? '\t' : ' ');
+		}
+		String text = "a" + spaces + "cappella" + spaces + "modern, art" + spaces;
+
+		ts.setTokenizer(StandardTokenizer.UNICODE);
+		assertEquals(ts.swapText(text), stream(ts, new ShortReader(text)), "UNICODE output");
+	}
+
+	static void testWordLongerThanHeldLimit() throws IOException {
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		ts.setRenderer(StandardRenderer.PLAIN);
+		StringBuilder word = new StringBuilder();
+		for (int i = 0; i < TextSimplifier.STREAM_HELD_LIMIT * 4; i++) {
+			word.append((char) ('k' + i % 3));
+		}
+
+		String text = word + " modern art";
+		ts.setTokenizer(StandardTokenizer.UNICODE);
+		String expected = word + " " + ts.swapText("modern art"); // Word is divided, but written unchanged
+		assertEquals(expected, stream(ts, new StringReader(text)), "UNICODE output");
+
+		ts.setTokenizer(StandardTokenizer.SPACE); // Writes a space after each part of the divided word
+		expected = word + " " + ts.swapText("modern art");
+		assertEquals(expected.replace(" ", ""), stream(ts, new StringReader(text)).replace(" ", ""), "SPACE output");
+	}
+
+	static void testJsonAcrossHeldLimit() throws IOException {
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		ts.setRenderer(StandardRenderer.JSON);
+		int limit = TextSimplifier.STREAM_HELD_LIMIT;
+		for (int length : new int[] { limit - 7, limit - 6, limit, limit + TextSimplifier.STREAM_BUFFER_SIZE }) {
+			StringBuilder text = new StringBuilder("hello ");
+			for (int i = 0; i < length; i++) {
+				text.append('a');
+			}
+
+			for (Tokenizer tokenizer : StandardTokenizer.values()) {
+				ts.setTokenizer(tokenizer);
+				String name = tokenizer + " word of " + length;
+				String expected = ts.swapText(text.toString());
+				String actual = stream(ts, new StringReader(text.toString()));
+				if (text.length() <= limit) { // Longer words are divided, and written as several objects
+					assertEquals(expected, actual, name);
+				}
+				TestSupport.assertTrue(actual.startsWith("[{") && actual.endsWith("}]") && !actual.contains(",]"),
+						name + " is a JSON array");
+			}
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package com.barrysheehan.www;
+
+import static com.barrysheehan.www.TestSupport.assertEquals;
+
+import java.util.Map;
+
+/**
+ * Tests that <code>swapText()</code>, with the <code>SPACE</code> tokenizer and
+ * without normalising, gives the same result as the original implementation,
+ * which split text at each space and looked up every word as a new String.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see TextSimplifier
+ * @since 1.8
+ */
+
+public class SwapTextTest {
+
+	public static void main(String[] args) {
+		TestSupport.main(SwapTextTest.class);
+	}
+
+	/**
+	 * Simplifies text as the original implementation did, with each phrase of
+	 * the word map swapped as a single word, the longest first.
+	 */
+	static String original(Map<String, String> wordMap, String text) {
+		int maxWords = 1;
+		for (String key : wordMap.keySet()) {
+			maxWords = Math.max(maxWords, key.split(" ").length);
+		}
+
+		String[] words = text.split(" "); // Split lines of text at space character
+		StringBuilder sb = new StringBuilder();
+		int i = 0;
+		while (i < words.length) {
+			String word = words[i].toLowerCase();
+			String swapped = wordMap.get(word);
+			int next = i + 1;
+
+			StringBuilder phrase = new StringBuilder(word);
+			for (int j = i + 1; j < words.length && j - i < maxWords && !words[j - 1].isEmpty()
+					&& !words[j].isEmpty(); j++) {
+				phrase.append(' ').append(words[j].toLowerCase());
+				String phraseSwapped = wordMap.get(phrase.toString());
+				if (phraseSwapped != null) { // Longest phrase found so far
+					swapped = phraseSwapped;
+					next = j + 1;
+				}
+			}
+
+			if (swapped != null) {
+				sb.append(ConsoleColour.GREEN + swapped + ConsoleColour.RESET);
+			} else {
+				sb.append(ConsoleColour.RED + word + ConsoleColour.RESET);
+			}
+			sb.append(" ");
+			i = next;
+		}
+		return sb.toString();
+	}
+
+	static TextSimplifier spaceSimplifier(AbstractThesaurus thesaurus) {
+		TextSimplifier ts = TestSupport.simplifier(thesaurus);
+		ts.setTokenizer(StandardTokenizer.SPACE);
+		ts.setNormalising(false);
+		return ts;
+	}
+
+	static void testMatchesOriginal() {
+		AbstractThesaurus thesaurus = TestSupport.baseline();
+		TextSimplifier ts = spaceSimplifier(thesaurus);
+
+		for (long seed = 0; seed < 50; seed++) {
+			String text = TestSupport.text(seed, (int) seed * 40);
+			assertEquals(original(thesaurus.getWordMap(), text), ts.swapText(text), "text " + seed);
+		}
+	}
+
+	static void testEmptyWords() {
+		AbstractThesaurus thesaurus = TestSupport.baseline();
+		TextSimplifier ts = spaceSimplifier(thesaurus);
+
+		String[] texts = { "", " ", "   ", " a  b ", "modern  ", "  a cappella", "a  cappella", "ex post  facto" };
+		for (String text : texts) {
+			assertEquals(original(thesaurus.getWordMap(), text), ts.swapText(text), "text \"" + text + "\"");
+		}
+	}
+}
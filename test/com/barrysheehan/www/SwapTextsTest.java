@@ -0,0 +1,73 @@
+package com.barrysheehan.www;
+
+import static com.barrysheehan.www.TestSupport.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Tests that <code>swapTexts()</code> returns the same text for each item of a
+ * batch as <code>swapText()</code> returns for it alone, with and without
+ * deduplication and whether the batch is divided between threads or not.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see TextSimplifier
+ * @since 1.8
+ */
+
+public class SwapTextsTest {
+
+	public static void main(String[] args) {
+		TestSupport.main(SwapTextsTest.class);
+	}
+
+	static void testMatchesSwapText() {
+		List<CharSequence> texts = new ArrayList<CharSequence>();
+		for (int i = 0; i < 600; i++) {
+			String text = TestSupport.text(i % 150, i % 40); // Each text appears four times
+			texts.add(i % 2 == 0 ? text : new StringBuilder(text));
+		}
+		texts.add("");
+		texts.add("   ");
+
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		ForkJoinPool pool = new ForkJoinPool(4);
+		ts.setPool(pool);
+		try {
+			for (StandardRenderer renderer : StandardRenderer.values()) {
+				List<String> expected = new ArrayList<String>();
+				for (CharSequence text : texts) {
+					StringBuilder sb = new StringBuilder();
+					ts.swapText(text, sb, renderer);
+					expected.add(sb.toString());
+				}
+
+				for (int threshold : new int[] { Integer.MAX_VALUE, 100, 0 }) {
+					ts.setParallelThreshold(threshold);
+					String name = renderer + " threshold " + threshold;
+					assertEquals(expected, ts.swapTexts(texts, renderer, false), name);
+					assertEquals(expected, ts.swapTexts(texts, renderer, true), name + " deduplicated");
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	static void testArraysAndLists() {
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		String[] texts = new String[50];
+		String[] expected = new String[texts.length];
+		for (int i = 0; i < texts.length; i++) {
+			texts[i] = TestSupport.text(i, 30);
+			expected[i] = ts.swapText(texts[i]);
+		}
+
+		assertEquals(Arrays.asList(expected), Arrays.asList(ts.swapTexts(texts)), "array");
+		assertEquals(Arrays.asList(expected), ts.swapTexts(Arrays.asList(texts)), "list");
+		assertEquals(0, ts.swapTexts(new ArrayList<String>()).size(), "empty batch");
+	}
+}
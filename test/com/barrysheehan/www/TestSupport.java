@@ -0,0 +1,239 @@
+package com.barrysheehan.www;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Assertions, sample text and the baseline thesaurus shared by the tests.
+ * <p>
+ * The tests have no dependencies beyond the JDK. Each test class has a
+ * <code>main</code> method which runs every static method of the class whose
+ * name begins with "test", and <code>AllTests</code> runs every test class.
+ * They are run from the root of the repository, so that the files in the
+ * <i>config</i> directory can be found.
+ * <p>
+ * Results are compared with those of the <b>baseline</b> thesaurus, a
+ * <code>Thesaurus</code> read from the bundled files into a
+ * <code>java.util.HashMap</code>, simplifying the same text with the same
+ * settings.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see AllTests
+ * @since 1.8
+ */
+
+final class TestSupport {
+
+	static final String DICTIONARY_FILE = "config/dictionaryFile.txt";
+	static final String WORD_LIST_FILE = "config/wordListFile.txt";
+
+	// Separators written between the words of sample text
+	private static final String[] SEPARATORS = { " ", " ", " ", " ", "  ", "\t", "\n", "\r\n", "\u00a0" };
+
+	// Words which are never keys of the bundled word list
+	private static final String[] MISSES = { "zqx", "Zqy,", "na\u00efve", "\u6f22\u5b57", "x-ray", "(qqz)", "" };
+
+	private static AbstractThesaurus baseline; // Created when first needed and shared by every test
+	private static List<String> keys; // Keys of the baseline's word map, in order
+
+	private TestSupport() {
+	}
+
+	/**
+	 * Returns the baseline thesaurus, built from the bundled files in a HashMap.
+	 */
+	static synchronized AbstractThesaurus baseline() {
+		if (baseline == null) {
+			baseline = new Thesaurus(DICTIONARY_FILE, WORD_LIST_FILE, WordMapStorage.HASH);
+		}
+		return baseline;
+	}
+
+	/**
+	 * Returns a <code>TextSimplifier</code> with its default settings using the
+	 * supplied thesaurus.
+	 */
+	static TextSimplifier simplifier(AbstractThesaurus thesaurus) {
+		TextSimplifier ts = new TextSimplifier();
+		ts.setThesaurus(thesaurus);
+		return ts;
+	}
+
+	/**
+	 * Returns the keys of the baseline's word map in order, including phrases.
+	 */
+	static synchronized List<String> keys() {
+		if (keys == null) {
+			List<String> sorted = new ArrayList<String>(baseline().getWordMap().keySet());
+			Collections.sort(sorted);
+			keys = Collections.unmodifiableList(sorted);
+		}
+		return keys;
+	}
+
+	/**
+	 * Generates text of keys of the baseline's word map, some capitalised or
+	 * followed by punctuation, mixed with words which are not keys and separated
+	 * by spaces, tabs, line breaks and no-break spaces. The same seed always
+	 * generates the same text.
+	 *
+	 * @param seed  the seed of the random words chosen
+	 * @param words the number of words in the text
+	 * @return the generated text
+	 */
+	static String text(long seed, int words) {
+		Random random = new Random(seed);
+		List<String> keys = keys();
+		StringBuilder sb = new StringBuilder();
+
+		for (int i = 0; i < words; i++) {
+			int kind = random.nextInt(20);
+			String word = kind < 2 ? MISSES[random.nextInt(MISSES.length)] : keys.get(random.nextInt(keys.size()));
+			if (kind == 2 && !word.isEmpty()) { // Capitalised
+				word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+			} else if (kind == 3) { // Followed by punctuation
+				word = word + ",.!".charAt(random.nextInt(3));
+			}
+			sb.append(word).append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Copies the bundled dictionary and word list files into a new temporary
+	 * directory, so a test may change or compile them.
+	 *
+	 * @return the temporary directory
+	 */
+	static Path copyConfig() throws IOException {
+		Path directory = Files.createTempDirectory("text-simplifier-test");
+		Files.copy(Paths.get(DICTIONARY_FILE), directory.resolve("dictionaryFile.txt"),
+				StandardCopyOption.REPLACE_EXISTING);
+		Files.copy(Paths.get(WORD_LIST_FILE), directory.resolve("wordListFile.txt"),
+				StandardCopyOption.REPLACE_EXISTING);
+		return directory;
+	}
+
+	/**
+	 * Deletes a directory and everything in it.
+	 */
+	static void delete(Path directory) throws IOException {
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	static void assertTrue(boolean condition, String message) {
+		if (!condition) {
+			throw new AssertionError(message);
+		}
+	}
+
+	/**
+	 * Fails with the first difference between two values, which for long text
+	 * is shown with the characters around it.
+	 */
+	static void assertEquals(Object expected, Object actual, String message) {
+		if (Objects.equals(expected, actual)) {
+			return;
+		}
+		if (expected instanceof CharSequence && actual instanceof CharSequence) {
+			String e = expected.toString();
+			String a = actual.toString();
+			int i = 0;
+			while (i < e.length() && i < a.length() && e.charAt(i) == a.charAt(i)) {
+				i++;
+			}
+			throw new AssertionError(message + ": differs at " + i + " of " + e.length() + ", expected <"
+					+ around(e, i) + "> but was <" + around(a, i) + ">");
+		}
+		throw new AssertionError(message + ": expected <" + expected + "> but was <" + actual + ">");
+	}
+
+	/**
+	 * Returns the characters of text around an index.
+	 */
+	private static String around(String text, int index) {
+		int start = Math.max(0, index - 20);
+		int end = Math.min(text.length(), index + 20);
+		return (start > 0 ? "..." : "") + text.substring(start, end) + (end < text.length() ? "..." : "");
+	}
+
+	/**
+	 * Runs every static method of a class whose name begins with "test", in name
+	 * order, and prints whether each passed.
+	 *
+	 * @param testClass the class whose tests are run
+	 * @return the number of tests which failed
+	 */
+	static int run(Class<?> testClass) {
+		Method[] methods = testClass.getDeclaredMethods();
+		Arrays.sort(methods, new Comparator<Method>() {
+			@Override
+			public int compare(Method a, Method b) {
+				return a.getName().compareTo(b.getName());
+			}
+		});
+
+		int failures = 0;
+		for (Method method : methods) {
+			if (!method.getName().startsWith("test") || !Modifier.isStatic(method.getModifiers())) {
+				continue;
+			}
+			String name = testClass.getSimpleName() + "." + method.getName();
+			try {
+				method.setAccessible(true);
+				method.invoke(null);
+				System.out.println("PASS " + name);
+			} catch (InvocationTargetException ite) {
+				failures++;
+				System.out.println("FAIL " + name + ": " + ite.getCause());
+				ite.getCause().printStackTrace(System.out);
+			} catch (IllegalAccessException iae) {
+				failures++;
+				System.out.println("FAIL " + name + ": " + iae);
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * Runs the tests of each class and exits with a non-zero status if any
+	 * failed.
+	 */
+	static void main(Class<?>... testClasses) {
+		int failures = 0;
+		for (Class<?> testClass : testClasses) {
+			failures += run(testClass);
+		}
+		System.out.println(failures == 0 ? "All tests passed" : failures + " test(s) failed");
+		System.exit(failures == 0 ? 0 : 1);
+	}
+}
@@ -0,0 +1,129 @@
+package com.barrysheehan.www;
+
+import static com.barrysheehan.www.TestSupport.assertEquals;
+import static com.barrysheehan.www.TestSupport.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests that the <code>UNICODE</code> tokenizer writes separators as they
+ * appear, agrees with the <code>SPACE</code> tokenizer on text separated by
+ * single spaces, and divides ideographs into words of their own without
+ * dividing a surrogate pair.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see StandardTokenizer
+ * @since 1.8
+ */
+
+public class TokenizerTest {
+
+	public static void main(String[] args) {
+		TestSupport.main(TokenizerTest.class);
+	}
+
+	/**
+	 * Returns the words the supplied tokenizer divides text into, skipping empty
+	 * words.
+	 */
+	static List<String> words(Tokenizer tokenizer, String text) {
+		List<String> words = new ArrayList<String>();
+		int end = tokenizer.wordsEnd(text, text.length());
+		int start = tokenizer.preservesSeparators() ? tokenizer.separatorEnd(text, 0, end) : 0;
+		while (start < end) {
+			int wordEnd = tokenizer.wordEnd(text, start, end);
+			if (wordEnd > start) {
+				words.add(text.substring(start, wordEnd));
+			}
+			start = tokenizer.separatorEnd(text, wordEnd, end);
+		}
+		return words;
+	}
+
+	static void testUnicodeKeepsSeparators() {
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		ts.setTokenizer(StandardTokenizer.UNICODE);
+		String[] texts = { "", "   ", "zqx", "  zqx\t\tzqy\u00a0 \r\n(qqz)  ", "\n\nzqx\u2003zqy\u3000\n",
+				"x-ray,\u00a0\u00a0na\u00efve!\t" };
+		for (String text : texts) {
+			StringBuilder sb = new StringBuilder();
+			ts.swapText(text, sb, StandardRenderer.PLAIN);
+			assertEquals(text, sb.toString(), "words not found");
+		}
+
+		for (int seed = 0; seed < 20; seed++) { // Separators are kept around words swapped
+			String text = TestSupport.text(seed, 300);
+			StringBuilder sb = new StringBuilder();
+			ts.swapText(text, sb, new Renderer() {
+				@Override
+				public void word(StringBuilder sb, CharSequence word, CharSequence swapped, long start, long end) {
+					assertEquals(text.substring((int) start, (int) end), word.toString(), "word at " + start);
+					sb.append(word); // As it appears, to rebuild the text
+				}
+			});
+			assertEquals(text, sb.toString(), "seed " + seed);
+		}
+	}
+
+	static void testUnicodeAgreesWithSpace() {
+		List<String> keys = new ArrayList<String>();
+		for (String key : TestSupport.keys()) {
+			if (key.matches("[^\\s\u00a0]+( [^\\s\u00a0]+)*")) { // Words separated by single spaces
+				keys.add(key);
+			}
+		}
+
+		TextSimplifier unicode = TestSupport.simplifier(TestSupport.baseline());
+		unicode.setTokenizer(StandardTokenizer.UNICODE);
+		TextSimplifier space = TestSupport.simplifier(TestSupport.baseline());
+		space.setTokenizer(StandardTokenizer.SPACE);
+
+		Random random = new Random(1);
+		for (int i = 0; i < 50; i++) {
+			StringBuilder text = new StringBuilder();
+			for (int j = 0; j < 200; j++) {
+				String word = random.nextInt(10) == 0 ? "zqx" : keys.get(random.nextInt(keys.size()));
+				if (random.nextInt(10) == 0) {
+					word = word + ",";
+				}
+				text.append(j > 0 ? " " : "").append(word);
+			}
+
+			for (boolean normalise : new boolean[] { true, false }) {
+				unicode.setNormalising(normalise);
+				space.setNormalising(normalise);
+				for (StandardRenderer renderer : StandardRenderer.values()) {
+					StringBuilder expected = new StringBuilder();
+					space.swapText(text, expected, renderer);
+					StringBuilder actual = new StringBuilder();
+					unicode.swapText(text, actual, renderer);
+					String name = renderer + (normalise ? " normalising" : "") + " text " + i;
+					assertEquals(expected.toString().trim(), actual.toString().trim(), name);
+				}
+			}
+		}
+	}
+
+	static void testIdeographs() {
+		Tokenizer unicode = StandardTokenizer.UNICODE;
+		assertEquals("[\u6f22, \u5b57]", words(unicode, "\u6f22\u5b57").toString(), "ideographs");
+		assertEquals("[a, \u6f22, \u5b57, b]", words(unicode, "a\u6f22\u5b57b").toString(), "ideographs in a word");
+		assertEquals("[\u3072, \u3089, \u30ab, \u30ca]", words(unicode, "\u3072\u3089 \u30ab\u30ca").toString(),
+				"kana");
+		assertEquals("[\ud840\udc0b, \ud840\udc0c]", words(unicode, "\ud840\udc0b\ud840\udc0c").toString(),
+				"surrogate pairs");
+		assertEquals("[\u6f22\u5b57]", words(StandardTokenizer.SPACE, "\u6f22\u5b57").toString(), "SPACE");
+
+		TextSimplifier ts = TestSupport.simplifier(TestSupport.baseline());
+		ts.setTokenizer(StandardTokenizer.UNICODE);
+		assertEquals(4, ts.wordIds("\u6f22\u5b57 \ud840\udc0b\ud840\udc0c").length, "words numbered");
+		StringBuilder sb = new StringBuilder();
+		ts.swapText("\u6f22\u5b57\ud840\udc0b", sb, StandardRenderer.PLAIN);
+		assertEquals("\u6f22\u5b57\ud840\udc0b", sb.toString(), "ideographs written unchanged");
+		assertTrue(StandardTokenizer.UNICODE.preservesSeparators(), "UNICODE preserves separators");
+		assertTrue(!StandardTokenizer.SPACE.preservesSeparators(), "SPACE writes single spaces");
+	}
+}
@@ -0,0 +1,240 @@
+package com.barrysheehan.www;
+
+import static com.barrysheehan.www.TestSupport.assertEquals;
+import static com.barrysheehan.www.TestSupport.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Tests that a thesaurus updated by a <code>ThesaurusWatcher</code> after its
+ * files are edited gives the same results as a thesaurus read in full from the
+ * edited files, whichever loader it was loaded with, and that each edit is
+ * applied to the previous delta without changing it.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see ThesaurusWatcher
+ * @see HashTrieWordMap
+ * @since 1.8
+ */
+
+public class WatcherTest {
+
+	public static void main(String[] args) {
+		TestSupport.main(WatcherTest.class);
+	}
+
+	/**
+	 * Checks that the thesaurus in use has every entry of a thesaurus read in
+	 * full from the files, that its phrases have already been found, and that it
+	 * simplifies the lines of the word list in the same way.
+	 */
+	static void assertMatchesFiles(TextSimplifier ts, Path directory, String name) throws Exception {
+		AbstractThesaurus thesaurus = ts.getThesaurus();
+		AbstractThesaurus full = new Thesaurus(directory.resolve("dictionaryFile.txt").toString(),
+				directory.resolve("wordListFile.txt").toString(), WordMapStorage.HASH);
+
+		Field phraseMatcher = AbstractThesaurus.class.getDeclaredField("phraseMatcher");
+		phraseMatcher.setAccessible(true);
+		assertTrue(phraseMatcher.get(thesaurus) != null, name + " phrase matcher built before publishing");
+
+		Set<String> keys = new HashSet<String>(full.getWordMap().keySet());
+		keys.addAll(TestSupport.keys()); // Including keys which have been removed
+		for (String key : keys) {
+			assertEquals(full.getWordMap().get(key), thesaurus.getWordMap().get(key), name + " value of " + key);
+		}
+		assertEquals(full.getWordMap().size(), thesaurus.getWordMap().size(), name + " size");
+
+		StringBuilder text = new StringBuilder();
+		for (String line : lines(directory)) {
+			text.append(line.replace(',', ' ')).append('\n');
+		}
+		TextSimplifier expected = TestSupport.simplifier(full);
+		expected.setRenderer(ts.getRenderer());
+		assertEquals(expected.swapText(text.toString()), ts.swapText(text.toString()), name + " output");
+	}
+
+	static List<String> lines(Path directory) throws IOException {
+		return new ArrayList<String>(
+				Files.readAllLines(directory.resolve("wordListFile.txt"), StandardCharsets.ISO_8859_1));
+	}
+
+	static void write(Path directory, String file, List<String> lines) throws IOException {
+		Files.write(directory.resolve(file), lines, StandardCharsets.ISO_8859_1);
+	}
+
+	static TextSimplifier simplifier(Path directory) {
+		TextSimplifier ts = new TextSimplifier();
+		ts.setDictionaryFile(directory.resolve("dictionaryFile.txt").toString());
+		ts.setWordListFile(directory.resolve("wordListFile.txt").toString());
+		ts.setRenderer(StandardRenderer.PLAIN);
+		return ts;
+	}
+
+	static void testUpdateMatchesFullReload() throws Exception {
+		Path directory = TestSupport.copyConfig();
+		try {
+			TextSimplifier ts = simplifier(directory);
+			ThesaurusWatcher watcher = new ThesaurusWatcher(ts);
+			Random random = new Random(3);
+
+			for (int edit = 0; edit < 12; edit++) {
+				List<String> lines = lines(directory);
+				int changes = edit == 6 ? 400 : 3; // One edit large enough to be merged into a new base
+				for (int i = 0; i < changes; i++) {
+					int line = random.nextInt(lines.size());
+					switch (random.nextInt(3)) {
+					case 0:
+						lines.remove(line);
+						break;
+					case 1:
+						lines.set(line, "zz new phrase" + edit + " here,zz other" + i + ",modern," + lines.get(line));
+						break;
+					default:
+						lines.add(line, lines.get(random.nextInt(lines.size())));
+					}
+				}
+				write(directory, "wordListFile.txt", lines);
+				watcher.update();
+				assertMatchesFiles(ts, directory, "edit " + edit);
+			}
+			watcher.close();
+		} finally {
+			TestSupport.delete(directory);
+		}
+	}
+
+	static void testUpdatesWithLoader() throws Exception {
+		for (ThesaurusLoader loader : new ThesaurusLoader[] { ThesaurusLoader.MAPPED, ThesaurusLoader.LAZY }) {
+			Path directory = TestSupport.copyConfig();
+			try {
+				TextSimplifier ts = simplifier(directory);
+				ts.setLoader(loader);
+				ThesaurusWatcher watcher = new ThesaurusWatcher(ts);
+				String name = loader.toString();
+				assertTrue(loader != ThesaurusLoader.MAPPED || ts.getThesaurus() instanceof MappedThesaurus,
+						name + " loaded with the loader");
+				assertTrue(loader != ThesaurusLoader.LAZY || ts.getThesaurus() instanceof LazyThesaurus,
+						name + " loaded with the loader");
+				Map<String, String> loaded = ts.getThesaurus().getWordMap();
+
+				for (int edit = 0; edit < 3; edit++) {
+					List<String> lines = lines(directory);
+					lines.remove(edit * 10);
+					lines.add("zz added" + edit + ",zzword" + edit + ",modern");
+					write(directory, "wordListFile.txt", lines);
+					watcher.update();
+					assertMatchesFiles(ts, directory, name + " edit " + edit);
+				}
+				Map<String, String> wordMap = ts.getThesaurus().getWordMap();
+				assertTrue(loader == ThesaurusLoader.LAZY || ((OverlayWordMap) wordMap).getBase() == loaded,
+						name + " changes applied to the loaded word map");
+				watcher.close();
+			} finally {
+				TestSupport.delete(directory);
+			}
+		}
+	}
+
+	static void testEditsShareDelta() {
+		Random random = new Random(5);
+		Map<String, String> expected = new HashMap<String, String>();
+		HashTrieWordMap trie = new HashTrieWordMap();
+		for (int i = 0; i < 20000; i++) {
+			String key = random.nextInt(4) == 0 ? (random.nextBoolean() ? "Aa" : "BB") : "k" + random.nextInt(3000);
+			HashTrieWordMap before = trie;
+			int sizeBefore = before.size();
+			if (random.nextInt(3) == 0) { // "Aa" and "BB" have the same hash code
+				expected.remove(key);
+				trie = trie.without(key);
+			} else {
+				expected.put(key, "v" + i);
+				trie = trie.with(key, "v" + i);
+			}
+			assertEquals(sizeBefore, before.size(), "size of the map changed from");
+		}
+		assertEquals(expected, new HashMap<String, String>(trie), "entries");
+		assertEquals(expected.size(), trie.size(), "size");
+		assertEquals(expected.get("Aa"), trie.lookup(new StringBuilder("Aa")), "lookup of a buffer");
+
+		Map<String, String> base = new HashMap<String, String>();
+		base.put("a", "x");
+		base.put("b", "x");
+		OverlayWordMap first = new OverlayWordMap(base, new HashMap<String, String>());
+		Map<String, String> changes = new HashMap<String, String>();
+		changes.put("a", OverlayWordMap.REMOVED);
+		changes.put("c", "x");
+		OverlayWordMap second = first.apply(changes);
+		changes.clear();
+		changes.put("a", null); // Back to the base value
+		changes.put("d", "y");
+		OverlayWordMap third = second.apply(changes);
+
+		assertEquals(2, second.size(), "size after removing and adding");
+		assertEquals(null, second.get("a"), "removed");
+		assertEquals(2, first.size(), "first unchanged");
+		assertEquals(0, first.deltaSize(), "first delta unchanged");
+		assertEquals(4, third.size(), "size after restoring and adding");
+		assertEquals(2, third.deltaSize(), "restored key left the delta");
+		assertEquals("x", third.get("a"), "restored");
+		assertEquals(null, second.get("d"), "second unchanged");
+	}
+
+	static void testDictionaryChangeRebuilds() throws Exception {
+		Path directory = TestSupport.copyConfig();
+		try {
+			TextSimplifier ts = simplifier(directory);
+			ThesaurusWatcher watcher = new ThesaurusWatcher(ts);
+
+			List<String> dictionary = new ArrayList<String>(
+					Files.readAllLines(directory.resolve("dictionaryFile.txt"), StandardCharsets.ISO_8859_1));
+			dictionary.add("zzsimple");
+			write(directory, "dictionaryFile.txt", dictionary);
+			List<String> lines = lines(directory);
+			lines.add("zzhard,zz very hard,zzsimple");
+			write(directory, "wordListFile.txt", lines);
+
+			watcher.rebuild();
+			assertMatchesFiles(ts, directory, "rebuilt");
+			assertEquals("zzsimple", ts.swapText("zz very hard"), "new phrase");
+			watcher.close();
+		} finally {
+			TestSupport.delete(directory);
+		}
+	}
+
+	static void testWatchesFiles() throws Exception {
+		Path directory = TestSupport.copyConfig();
+		try {
+			TextSimplifier ts = simplifier(directory);
+			ThesaurusWatcher watcher = new ThesaurusWatcher(ts);
+			watcher.start();
+
+			List<String> lines = lines(directory);
+			lines.add("zzwatched,modern");
+			write(directory, "wordListFile.txt", lines);
+
+			String expected = "modern"; // First dictionary word on the line
+			assertTrue(TestSupport.baseline().getDictionary().contains(expected), expected + " in the dictionary");
+			long deadline = System.currentTimeMillis() + 30000;
+			while (!expected.equals(ts.swapText("zzwatched")) && System.currentTimeMillis() < deadline) {
+				Thread.sleep(50);
+			}
+			assertEquals(expected, ts.swapText("zzwatched"), "word added to the watched file");
+			watcher.close();
+		} finally {
+			TestSupport.delete(directory);
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com.barrysheehan.www;
+
+import static com.barrysheehan.www.TestSupport.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests that <code>wordIds()</code>, <code>wordIdStream()</code>,
+ * <code>forEachWordId()</code> and <code>countWordIds()</code> give each word
+ * the ID of the dictionary word the baseline thesaurus swaps it with in
+ * <code>swapText()</code>, with each tokenizer and with normalising on and off.
+ *
+ * @author Barry Sheehan
+ * @version 0.1
+ * @see TextSimplifier
+ * @see DictionaryIndex
+ * @since 1.8
+ */
+
+public class WordIdTest {
+
+	public static void main(String[] args) {
+		TestSupport.main(WordIdTest.class);
+	}
+
+	/**
+	 * Returns the ID of each non-empty word swapText() writes, found from the word
+	 * it is swapped with, or from the word itself if it is not swapped.
+	 */
+	static int[] expectedIds(TextSimplifier ts, DictionaryIndex index, String text, boolean normalise) {
+		List<Integer> ids = new ArrayList<Integer>();
+		ts.swapText(text, new StringBuilder(), new Renderer() {
+			@Override
+			public void word(StringBuilder sb, CharSequence word, CharSequence swapped, long start, long end) {
+				if (word.length() == 0) { // Empty words are not numbered
+					return;
+				}
+				CharSequence found = swapped != null ? swapped : word;
+				ids.add(index.idOf(normalise ? core(found) : found));
+			}
+		});
+
+		int[] expected = new int[ids.size()];
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = ids.get(i);
+		}
+		return expected;
+	}
+
+	/**
+	 * Returns a word lower-cased without the punctuation before and after it.
+	 */
+	private static String core(CharSequence word) {
+		int start = WordNormaliser.coreStart(word, 0, word.length());
+		int end = WordNormaliser.coreEnd(word, start, word.length());
+		return word.subSequence(start, end).toString().toLowerCase();
+	}
+
+	static void testMatchesSwapText() {
+		AbstractThesaurus baseline = TestSupport.baseline();
+		DictionaryIndex index = baseline.getDictionaryIndex();
+		TextSimplifier ts = TestSupport.simplifier(baseline);
+
+		for (Tokenizer tokenizer : StandardTokenizer.values()) {
+			ts.setTokenizer(tokenizer);
+			for (boolean normalise : new boolean[] { true, false }) {
+				ts.setNormalising(normalise);
+				for (int seed = 0; seed < 20; seed++) {
+					String text = TestSupport.text(seed, 300);
+					String name = tokenizer + (normalise ? " normalising" : "") + " seed " + seed;
+					int[] expected = expectedIds(ts, index, text, normalise);
+
+					assertEquals(Arrays.toString(expected), Arrays.toString(ts.wordIds(text)), name);
+					assertEquals(Arrays.toString(expected), Arrays.toString(ts.wordIdStream(text).toArray()),
+							name + " stream");
+
+					List<Integer> each = new ArrayList<Integer>();
+					ts.forEachWordId(new StringBuilder(text), each::add);
+					assertEquals(Arrays.toString(expected), each.toString(), name + " forEachWordId");
+				}
+			}
+		}
+	}
+
+	static void testCounts() {
+		AbstractThesaurus baseline = TestSupport.baseline();
+		DictionaryIndex index = baseline.getDictionaryIndex();
+		TextSimplifier ts = TestSupport.simplifier(baseline);
+
+		int[] counts = new int[index.size()];
+		int[] expected = new int[index.size()];
+		int unmatched = 0;
+		int expectedUnmatched = 0;
+		for (int seed = 0; seed < 10; seed++) { // Counts from several texts are added up
+			String text = TestSupport.text(seed, 500);
+			for (int id : ts.wordIds(text)) {
+				if (id == DictionaryIndex.UNMATCHED) {
+					expectedUnmatched++;
+				} else {
+					expected[id]++;
+				}
+			}
+			unmatched += ts.countWordIds(text, counts);
+		}
+
+		assertEquals(expectedUnmatched, unmatched, "unmatched words");
+		assertEquals(Arrays.toString(expected), Arrays.toString(counts), "counts");
+		assertEquals(0, ts.wordIds("").length, "empty text");
+	}
+
+	static void testSwappedWordsHaveTheirIds() {
+		AbstractThesaurus baseline = TestSupport.baseline();
+		DictionaryIndex index = baseline.getDictionaryIndex();
+		TextSimplifier ts = TestSupport.simplifier(baseline);
+
+		for (String key : TestSupport.keys()) {
+			if (!key.matches("[a-z]+")) { // Phrases, and keys which normalising would change
+				continue;
+			}
+			int[] ids = ts.wordIds(key);
+			String value = baseline.getWordMap().get(key);
+			assertEquals(1, ids.length, key);
+			assertEquals(value, index.word(ids[0]), key);
+		}
+	}
+}